@@ -0,0 +1,129 @@
+package bench;
+
+import game.Board;
+import game.Game;
+import game.HeuristicPlayer;
+import game.Player;
+import game.Space;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the game engine: spins, board stops, spin outcome sampling,
+ * full games, and board construction.
+ *
+ * @author Archer Murray
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EngineBenchmark
+{
+	/**
+	 * The board file used by the single-board benchmarks.
+	 */
+	@Param({"board1.txt", "board2.txt"})
+	public String boardFile;
+	/**
+	 * The seed for all random number generators.
+	 */
+	@Param({"1"})
+	public long seed;
+	/**
+	 * How the boards play spins: with full stops, with lazy stops, or by
+	 * sampling spin outcomes.
+	 */
+	@Param({"full", "lazy", "sampled"})
+	public String spinMode;
+	
+	private Board board;
+	private Board[] boards;
+	private Player[] players;
+	private long gameNum;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.board = new Board(this.boardFile, this.seed);
+		this.setSpinMode(this.board);
+		this.boards = new Board[]{
+				new Board("board1.txt", this.seed),
+				new Board("board2.txt", this.seed + 1)
+		};
+		for (Board b: this.boards) {
+			this.setSpinMode(b);
+		}
+		this.players = new Player[]{
+				new HeuristicPlayer(), new HeuristicPlayer(),
+				new HeuristicPlayer()
+		};
+		// Give the players a game on the benchmark board for their decisions
+		Game game = new Game(this.players, new Board[]{this.board,
+				this.board});
+		game.setSeed(this.seed);
+		this.gameNum = 0;
+	}
+	
+	/**
+	 * Sets the passed-in board to play spins in this benchmark's spin mode.
+	 *
+	 * @param b The board.
+	 */
+	private void setSpinMode(Board b)
+	{
+		b.setLazyStops(this.spinMode.equals("lazy"));
+		b.setSampledSpins(this.spinMode.equals("sampled"));
+	}
+	
+	@Benchmark
+	public long playSpin()
+	{
+		Player p = this.players[0];
+		p.setScore(0);
+		p.setWhammies(0);
+		p.setEarnedSpins(1);
+		p.setPassedSpins(0);
+		p.playSpin(this.board, false, true);
+		return p.getScore();
+	}
+	
+	@Benchmark
+	public Space stopBoard()
+	{
+		this.board.stopBoard();
+		return this.board.getLitSpace();
+	}
+	
+	@Benchmark
+	public List<Space> stopBoardAndGetMoveTargets()
+	{
+		this.board.stopBoard();
+		return this.board.getMoveTargets();
+	}
+	
+	@Benchmark
+	public int sampleSpinOutcome()
+	{
+		return this.board.sampleSpinOutcome();
+	}
+	
+	@Benchmark
+	public List<Player> playGame()
+	{
+		Game game = new Game(this.players, this.boards);
+		game.setSeed(this.seed + this.gameNum);
+		this.gameNum++;
+		return game.play(false);
+	}
+	
+	@Benchmark
+	public Board constructBoard()
+	{
+		return new Board(this.boardFile, this.seed);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+package bench;
+
+import metrics.QuantileSketch;
+import ml.InferenceClient;
+import ml.InferenceServer;
+import ml.NeuralNet;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for {@link InferenceServer}, run entirely on the loopback
+ * interface.
+ * <p>
+ * For each server configuration (maximum batch size and maximum wait), starts
+ * a server in this process, then has each client thread send its requests one
+ * after another on its own connection. Each request holds a fixed number of
+ * random states, and every response is checked against the network's own
+ * evaluation of the states. Reports client-side throughput and latency
+ * percentiles alongside the server's statistics.
+ * <p>
+ * Options (all optional): {@code --configs 1:0,64:200} (batch:wait-us pairs),
+ * {@code --clients 8}, {@code --requests 2000} (per client),
+ * {@code --states 4} (per request), {@code --net <network file>} (a random
+ * network of hidden layer size 40 by default), {@code --seed 1}.
+ *
+ * @author Archer Murray
+ */
+public final class InferenceLoad
+{
+	/**
+	 * The number of distinct requests each client cycles through.
+	 */
+	private static final int POOL_SIZE = 64;
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private InferenceLoad()
+	{
+	}
+	
+	/**
+	 * Runs the clients against a server with the passed-in configuration and
+	 * prints the results.
+	 *
+	 * @param net The neural network to serve.
+	 * @param maxBatch The maximum number of requests in a batch.
+	 * @param maxWaitMicros The maximum time to wait for a batch to fill, in
+	 * microseconds.
+	 * @param pool The requests to send, by client.
+	 * @param expected The expected evaluations of the requests, by client.
+	 * @param requests The number of requests each client sends.
+	 * @throws IOException If the server cannot be started.
+	 */
+	private static void run(NeuralNet net, int maxBatch, int maxWaitMicros,
+			double[][][][] pool, double[][][] expected, int requests)
+			throws IOException
+	{
+		QuantileSketch latencies = new QuantileSketch();
+		AtomicLong mismatches = new AtomicLong();
+		InferenceServer.Stats stats;
+		double seconds;
+		try (InferenceServer server = new InferenceServer(net, 0, maxBatch,
+				maxWaitMicros)) {
+			Thread[] threads = new Thread[pool.length];
+			long t1 = System.nanoTime();
+			for (int c = 0; c < threads.length; c++) {
+				int cn = c;
+				threads[c] = new Thread(() -> {
+					QuantileSketch mine = new QuantileSketch();
+					try (InferenceClient client = new InferenceClient(
+							server.getPort())) {
+						for (int r = 0; r < requests; r++) {
+							int i = r % POOL_SIZE;
+							long r1 = System.nanoTime();
+							InferenceClient.Result res = client.evaluate(
+									pool[cn][i]);
+							mine.add((System.nanoTime() - r1) / 1e3);
+							if (!Arrays.equals(res.getEvaluations(),
+									expected[cn][i])) {
+								mismatches.incrementAndGet();
+							}
+						}
+					} catch (IOException e) {
+						System.out.println("Client " + cn + " failed: " + e);
+					}
+					synchronized (latencies) {
+						latencies.merge(mine);
+					}
+				});
+				threads[c].start();
+			}
+			for (int c = 0; c < threads.length;) {
+				try {
+					threads[c].join();
+					c++;
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+			seconds = (System.nanoTime() - t1) / 1e9;
+			stats = server.getStats();
+		}
+		System.out.printf("%6d %8d %12.0f %9.0f %9.0f %11.1f %10d\n",
+				maxBatch, maxWaitMicros, latencies.getCount() / seconds,
+				latencies.getQuantile(0.5), latencies.getQuantile(0.99),
+				stats.getMeanBatchSize(), mismatches.get());
+		System.out.println("  server: " + stats);
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		// Parse options
+		Map<String, String> opts = new HashMap<>();
+		opts.put("configs", "1:0,64:200");
+		opts.put("clients", "8");
+		opts.put("requests", "2000");
+		opts.put("states", "4");
+		opts.put("net", "");
+		opts.put("seed", "1");
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--") ||
+					!opts.containsKey(args[i].substring(2))) {
+				System.out.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+			opts.put(args[i].substring(2), args[i + 1]);
+		}
+		int clients = Integer.parseInt(opts.get("clients"));
+		int requests = Integer.parseInt(opts.get("requests"));
+		int states = Integer.parseInt(opts.get("states"));
+		Random rng = new Random(Long.parseLong(opts.get("seed")));
+		NeuralNet net = opts.get("net").isEmpty() ? new NeuralNet(40, rng) :
+				NeuralNet.load(opts.get("net"));
+		// Generate each client's requests and their expected evaluations
+		double[][][][] pool = new double[clients][POOL_SIZE][states][];
+		double[][][] expected = new double[clients][POOL_SIZE][states];
+		for (int c = 0; c < clients; c++) {
+			for (int i = 0; i < POOL_SIZE; i++) {
+				for (int s = 0; s < states; s++) {
+					double[] state = new double[NeuralNet.INPUT_LENGTH];
+					for (int j = 0; j < state.length; j++) {
+						state[j] = rng.nextDouble();
+					}
+					pool[c][i][s] = state;
+					expected[c][i][s] = net.evaluate(state);
+				}
+			}
+		}
+		// Run each configuration
+		System.out.printf("%d clients, %d requests each, %d states per " +
+				"request\n", clients, requests, states);
+		System.out.printf("%6s %8s %12s %9s %9s %11s %10s\n", "Batch",
+				"Wait us", "Requests/s", "p50 us", "p99 us", "Per batch",
+				"Mismatches");
+		for (String config: opts.get("configs").split(",")) {
+			String[] parts = config.split(":");
+			run(net, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+					pool, expected, requests);
+		}
+	}
+}
\ No newline at end of file
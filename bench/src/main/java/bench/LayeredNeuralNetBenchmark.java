@@ -0,0 +1,87 @@
+package bench;
+
+import ml.LayeredNeuralNet;
+import ml.NeuralNet;
+import ml.PopulationArena;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for evaluation, training, and mutation of neural networks with
+ * several hidden layers.
+ *
+ * @author Archer Murray
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LayeredNeuralNetBenchmark
+{
+	/**
+	 * The number of nodes in each hidden layer, separated by commas.
+	 */
+	@Param({"40", "64,32", "32,32,32"})
+	public String hiddenSizes;
+	/**
+	 * The seed for all random number generators.
+	 */
+	@Param({"1"})
+	public long seed;
+	
+	private NeuralNet net;
+	private PopulationArena arena;
+	private Random mutationRng;
+	private double[] input;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Random rng = new Random(this.seed);
+		this.net = new LayeredNeuralNet(rng, Arrays.stream(
+				this.hiddenSizes.split(",")).mapToInt(Integer::parseInt)
+				.toArray());
+		this.arena = new PopulationArena(this.net, 2, false);
+		this.arena.store(0, this.net);
+		this.mutationRng = new Random(this.seed + 1);
+		this.input = NeuralNetBenchmark.randomState(rng);
+	}
+	
+	@Benchmark
+	public double evaluate()
+	{
+		return this.net.evaluate(this.input);
+	}
+	
+	@Benchmark
+	public double[] gradient()
+	{
+		return this.net.gradient(this.input);
+	}
+	
+	@Benchmark
+	public NeuralNet gradientDescent()
+	{
+		// Use a tiny step so the weights stay in a realistic range
+		this.net.gradientDescent(this.input, 1e-9);
+		return this.net;
+	}
+	
+	@Benchmark
+	public NeuralNet mutate()
+	{
+		return this.net.mutate(this.mutationRng);
+	}
+	
+	@Benchmark
+	public PopulationArena mutateInArena()
+	{
+		this.arena.mutate(0, 1, this.mutationRng);
+		return this.arena;
+	}
+}
\ No newline at end of file
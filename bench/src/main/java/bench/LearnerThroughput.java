@@ -0,0 +1,532 @@
+package bench;
+
+import game.Board;
+import metrics.Metrics;
+import ml.GeneticHeuristicLearner;
+import ml.GeneticLearner;
+import ml.IslandGeneticLearner;
+import ml.TemporalDifferenceLearner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Macro benchmark that measures end-to-end learner throughput for a fixed seed
+ * and a fixed amount of work.
+ * <p>
+ * Every learner and board is built from the seed, and the learners seed every
+ * game they play, so each scenario plays the same games in every run at a
+ * given thread count. The exception is ga-islands with more than one island:
+ * islands take in migrants whenever they arrive, so which generation they
+ * join depends on timing.
+ * <p>
+ * Each scenario is run at several thread counts. For the genetic learners'
+ * generations, the thread count is the number of threads the learner plays
+ * games on (for the island learner, the number of islands). For temporal
+ * difference games and for evaluations, which run on a single thread, the
+ * thread count is the number of independent learners run at once, each with
+ * its own boards.
+ * <p>
+ * For each scenario and thread count, reports throughput, latency percentiles
+ * per unit of work (generation, game, or evaluation), allocation rate, and
+ * peak heap usage. Results are printed and written to "macro_bench.csv".
+ * <p>
+ * The gah-racing scenario races the players with an average of 60 games per
+ * player, and counts the games actually played.
+ * <p>
+ * Options (all optional): {@code --scenarios ga,ga-batched,ga-islands,gah,
+ * gah-racing,td,ga-eval,gah-eval,td-eval}, {@code --threads 1,2,4,N},
+ * {@code --seed 1}, {@code --ga-pop 150}, {@code --gah-pop 100},
+ * {@code --gens 5}, {@code --td-games 200}, {@code --out macro_bench.csv}.
+ *
+ * @author Archer Murray
+ */
+public final class LearnerThroughput
+{
+	/**
+	 * The average number of games per player in the racing scenario.
+	 */
+	private static final int RACING_GAMES = 60;
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private LearnerThroughput()
+	{
+	}
+	
+	/**
+	 * Thread that samples per-thread allocation and heap usage while a
+	 * scenario runs.
+	 * <p>
+	 * Worker threads that finish between samples lose at most one sampling
+	 * interval of allocation from the total.
+	 */
+	private static class Sampler extends Thread
+	{
+		private final com.sun.management.ThreadMXBean threads;
+		private final Map<Long, Long> baseline, latest;
+		private volatile boolean running;
+		private long peakHeap;
+		
+		/**
+		 * Creates a new sampler, recording the allocation of all existing
+		 * threads as a baseline.
+		 */
+		public Sampler()
+		{
+			this.threads = (com.sun.management.ThreadMXBean)
+					ManagementFactory.getThreadMXBean();
+			this.threads.setThreadAllocatedMemoryEnabled(true);
+			this.baseline = new HashMap<>();
+			this.latest = new HashMap<>();
+			this.running = true;
+			this.peakHeap = 0;
+			this.setDaemon(true);
+			this.sample(this.baseline);
+		}
+		
+		/**
+		 * Records the allocated bytes of every live thread in the passed-in
+		 * map, along with the current heap usage.
+		 *
+		 * @param into The map to record allocated bytes in, by thread ID.
+		 */
+		private void sample(Map<Long, Long> into)
+		{
+			long[] ids = this.threads.getAllThreadIds();
+			long[] bytes = this.threads.getThreadAllocatedBytes(ids);
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] != this.getId() && bytes[i] >= 0) {
+					into.put(ids[i], bytes[i]);
+				}
+			}
+			this.peakHeap = Math.max(this.peakHeap, ManagementFactory
+					.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		}
+		
+		@Override
+		public void run()
+		{
+			while (this.running) {
+				this.sample(this.latest);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+		}
+		
+		/**
+		 * Stops sampling and returns the total number of bytes allocated since
+		 * this sampler was created.
+		 *
+		 * @return The total number of bytes allocated.
+		 */
+		public long finish()
+		{
+			this.running = false;
+			while (true) {
+				try {
+					this.join();
+					break;
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+			this.sample(this.latest);
+			long total = 0;
+			for (Map.Entry<Long, Long> e: this.latest.entrySet()) {
+				total += e.getValue() - this.baseline.getOrDefault(e.getKey(),
+						0L);
+			}
+			return total;
+		}
+		
+		/**
+		 * Returns the largest heap usage seen while sampling.
+		 *
+		 * @return The peak heap usage in bytes.
+		 */
+		public long getPeakHeap()
+		{
+			return this.peakHeap;
+		}
+	}
+	
+	/**
+	 * Interface for one unit of benchmarked work on a given thread.
+	 */
+	@FunctionalInterface
+	private interface Unit
+	{
+		/**
+		 * Performs one unit of work and returns the number of games played.
+		 *
+		 * @return The number of games played.
+		 */
+		long run();
+	}
+	
+	/**
+	 * Class holding the results of one scenario at one thread count.
+	 */
+	private static class Result
+	{
+		String scenario, unitName;
+		int threads, units;
+		long games, updates, allocated, peakHeap;
+		double seconds;
+		double[] latenciesMs;
+	}
+	
+	/**
+	 * Returns a new pair of boards seeded from the passed-in seed.
+	 *
+	 * @param seed The seed.
+	 * @return The boards.
+	 */
+	private static Board[] newBoards(long seed)
+	{
+		return new Board[]{
+				new Board("board1.txt", seed * 2),
+				new Board("board2.txt", seed * 2 + 1)
+		};
+	}
+	
+	/**
+	 * Returns the value at the passed-in percentile of the passed-in sorted
+	 * values, using the nearest-rank method.
+	 *
+	 * @param sorted The sorted values.
+	 * @param pct The percentile, between 0 and 100.
+	 * @return The value at the percentile.
+	 */
+	private static double percentile(double[] sorted, double pct)
+	{
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int rank = (int)Math.ceil(pct / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+	
+	/**
+	 * Runs the passed-in units of work on the passed-in number of threads,
+	 * each thread running its own unit repeatedly, and measures the results.
+	 *
+	 * @param workers The unit of work run by each thread.
+	 * @param unitsPerThread The number of units each thread runs.
+	 * @param updates Returns the number of learning updates made so far.
+	 * @return The results.
+	 */
+	private static Result runThreads(Unit[] workers, int unitsPerThread,
+			LongSupplier updates)
+	{
+		Result r = new Result();
+		r.threads = workers.length;
+		r.units = workers.length * unitsPerThread;
+		double[] latencies = new double[r.units];
+		AtomicLong games = new AtomicLong();
+		System.gc();
+		long updates1 = updates.getAsLong();
+		Sampler sampler = new Sampler();
+		sampler.start();
+		long t1 = System.nanoTime();
+		Thread[] threads = new Thread[workers.length];
+		for (int t = 0; t < workers.length; t++) {
+			int tn = t;
+			threads[t] = new Thread(() -> {
+				for (int u = 0; u < unitsPerThread; u++) {
+					long u1 = System.nanoTime();
+					games.addAndGet(workers[tn].run());
+					latencies[tn * unitsPerThread + u] =
+							(System.nanoTime() - u1) / 1e6;
+				}
+			});
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length;) {
+			try {
+				threads[t].join();
+				t++;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+		r.seconds = (System.nanoTime() - t1) / 1e9;
+		r.allocated = sampler.finish();
+		r.peakHeap = sampler.getPeakHeap();
+		r.games = games.get();
+		r.updates = updates.getAsLong() - updates1;
+		Arrays.sort(latencies);
+		r.latenciesMs = latencies;
+		return r;
+	}
+	
+	/**
+	 * Runs one scenario at the passed-in thread count.
+	 *
+	 * @param scenario The name of the scenario.
+	 * @param threads The thread count.
+	 * @param opts The command-line options.
+	 * @return The results.
+	 */
+	private static Result runScenario(String scenario, int threads,
+			Map<String, String> opts)
+	{
+		long seed = Long.parseLong(opts.get("seed"));
+		int gaPop = Integer.parseInt(opts.get("ga-pop"));
+		int gahPop = Integer.parseInt(opts.get("gah-pop"));
+		int gens = Integer.parseInt(opts.get("gens"));
+		int tdGames = Integer.parseInt(opts.get("td-games"));
+		Result r;
+		switch (scenario) {
+			case "ga": {
+				GeneticLearner gl = new GeneticLearner(gaPop, threads, false,
+						newBoards(seed), new Random(seed));
+				// Warm up with one generation
+				gl.playGeneration(false);
+				r = runThreads(new Unit[]{() -> {
+					gl.playGeneration(false);
+					return gaPop / 3 * 100L;
+				}}, gens, () -> 0);
+				r.unitName = "generation";
+				break;
+			}
+			case "ga-batched": {
+				GeneticLearner gl = new GeneticLearner(gaPop, threads, false,
+						newBoards(seed), new Random(seed));
+				gl.setBatchedGames(true);
+				gl.playGeneration(false);
+				r = runThreads(new Unit[]{() -> {
+					gl.playGeneration(false);
+					return gaPop / 3 * 100L;
+				}}, gens, () -> 0);
+				r.unitName = "generation";
+				break;
+			}
+			case "ga-islands": {
+				// Split the population evenly between the islands
+				IslandGeneticLearner igl = new IslandGeneticLearner(threads,
+						gaPop / threads / 3 * 3,
+						IslandGeneticLearner.MIGRATION_INTERVAL,
+						IslandGeneticLearner.NUM_MIGRANTS, false,
+						new Random(seed));
+				igl.playGenerations(1);
+				r = runThreads(new Unit[]{() -> {
+					igl.playGenerations(1);
+					return gaPop / threads / 3 * 100L * threads;
+				}}, gens, () -> 0);
+				r.unitName = "generation";
+				break;
+			}
+			case "gah": {
+				GeneticHeuristicLearner ghl = new GeneticHeuristicLearner(
+						gahPop, threads, newBoards(seed), new Random(seed));
+				ghl.playGeneration(false);
+				r = runThreads(new Unit[]{() -> {
+					ghl.playGeneration(false);
+					return gahPop * 100L;
+				}}, gens, () -> 0);
+				r.unitName = "generation";
+				break;
+			}
+			case "gah-racing": {
+				GeneticHeuristicLearner ghl = new GeneticHeuristicLearner(
+						gahPop, threads, newBoards(seed), new Random(seed));
+				ghl.setRacingGames(RACING_GAMES);
+				ghl.playGeneration(false);
+				r = runThreads(new Unit[]{() -> {
+					long games = Metrics.GAMES.get();
+					ghl.playGeneration(false);
+					return Metrics.GAMES.get() - games;
+				}}, gens, () -> 0);
+				r.unitName = "generation";
+				break;
+			}
+			case "td": {
+				TemporalDifferenceLearner[] tdls = learners(threads,
+						t -> new TemporalDifferenceLearner(newBoards(seed + t),
+								new Random(seed + t)),
+						TemporalDifferenceLearner[]::new);
+				for (TemporalDifferenceLearner tdl: tdls) {
+					tdl.playGame(false);
+				}
+				r = runThreads(Arrays.stream(tdls).<Unit>map(tdl -> () -> {
+					tdl.playGame(false);
+					return 1;
+				}).toArray(Unit[]::new), tdGames, () -> Arrays.stream(tdls)
+						.mapToLong(TemporalDifferenceLearner::getNumUpdates)
+						.sum());
+				r.unitName = "game";
+				break;
+			}
+			case "ga-eval": {
+				GeneticLearner[] gls = learners(threads,
+						t -> new GeneticLearner(gaPop, 1, false,
+								newBoards(seed + t), new Random(seed + t)),
+						GeneticLearner[]::new);
+				r = runThreads(Arrays.stream(gls).<Unit>map(gl -> () -> {
+					gl.evaluate(false);
+					return gaPop / 3 * 100L;
+				}).toArray(Unit[]::new), 1, () -> 0);
+				r.unitName = "evaluation";
+				break;
+			}
+			case "gah-eval": {
+				GeneticHeuristicLearner[] ghls = learners(threads,
+						t -> new GeneticHeuristicLearner(gahPop, 1,
+								newBoards(seed + t), new Random(seed + t)),
+						GeneticHeuristicLearner[]::new);
+				r = runThreads(Arrays.stream(ghls).<Unit>map(ghl -> () -> {
+					ghl.evaluate(false);
+					return gahPop / 2 * 100L;
+				}).toArray(Unit[]::new), 1, () -> 0);
+				r.unitName = "evaluation";
+				break;
+			}
+			case "td-eval": {
+				TemporalDifferenceLearner[] tdls = learners(threads,
+						t -> new TemporalDifferenceLearner(newBoards(seed + t),
+								new Random(seed + t)),
+						TemporalDifferenceLearner[]::new);
+				r = runThreads(Arrays.stream(tdls).<Unit>map(tdl -> () -> {
+					tdl.evaluate(false);
+					return 30000;
+				}).toArray(Unit[]::new), 1, () -> 0);
+				r.unitName = "evaluation";
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Unknown scenario: " +
+						scenario);
+		}
+		r.scenario = scenario;
+		r.threads = threads;
+		return r;
+	}
+	
+	/**
+	 * Creates one learner per thread.
+	 *
+	 * @param threads The number of learners to create.
+	 * @param factory Creates the learner for the given thread index.
+	 * @param newArray Creates an array of learners.
+	 * @param <T> The learner type.
+	 * @return The learners.
+	 */
+	private static <T> T[] learners(int threads, IntFunction<T> factory,
+			IntFunction<T[]> newArray)
+	{
+		T[] ret = newArray.apply(threads);
+		for (int t = 0; t < threads; t++) {
+			ret[t] = factory.apply(t);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Deletes neural network files exported by evaluations during the run.
+	 *
+	 * @param before The names of the files in the working directory before
+	 * the run.
+	 */
+	private static void deleteExports(Set<String> before)
+	{
+		String[] names = new File(".").list();
+		if (names == null) {
+			return;
+		}
+		for (String name: names) {
+			if (!before.contains(name) &&
+					name.matches("(ga|gah|td)_net_\\d+")) {
+				if (!new File(name).delete()) {
+					System.out.println("Could not delete " + name);
+				}
+			}
+		}
+	}
+	
+	public static void main(String[] args)
+	{
+		// Parse options
+		Map<String, String> opts = new HashMap<>();
+		opts.put("scenarios", "ga,ga-batched,ga-islands,gah,gah-racing,td," +
+				"ga-eval,gah-eval,td-eval");
+		opts.put("threads", "1,2,4,N");
+		opts.put("seed", "1");
+		opts.put("ga-pop", "150");
+		opts.put("gah-pop", "100");
+		opts.put("gens", "5");
+		opts.put("td-games", "200");
+		opts.put("out", "macro_bench.csv");
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--") ||
+					!opts.containsKey(args[i].substring(2))) {
+				System.out.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+			opts.put(args[i].substring(2), args[i + 1]);
+		}
+		SortedSet<Integer> threadCounts = new TreeSet<>();
+		for (String t: opts.get("threads").split(",")) {
+			threadCounts.add(t.equals("N") ?
+					Runtime.getRuntime().availableProcessors() :
+					Integer.parseInt(t));
+		}
+		Set<String> filesBefore = new HashSet<>(Arrays.asList(
+				Objects.requireNonNull(new File(".").list())));
+		// Run scenarios
+		List<Result> results = new ArrayList<>();
+		System.out.printf("%-10s %7s %12s %14s %12s %9s %9s %9s %9s %11s %9s\n",
+				"Scenario", "Threads", "Units/min", "Games/sec", "Updates/sec",
+				"p50 ms", "p90 ms", "p99 ms", "Max ms", "Alloc MB/s",
+				"Heap MB");
+		for (String scenario: opts.get("scenarios").split(",")) {
+			for (int threads: threadCounts) {
+				Result r = runScenario(scenario, threads, opts);
+				results.add(r);
+				System.out.printf("%-10s %7d %12.2f %14.1f %12.1f %9.2f " +
+								"%9.2f %9.2f %9.2f %11.1f %9.1f\n", r.scenario,
+						r.threads, 60 * r.units / r.seconds,
+						r.games / r.seconds, r.updates / r.seconds,
+						percentile(r.latenciesMs, 50),
+						percentile(r.latenciesMs, 90),
+						percentile(r.latenciesMs, 99),
+						percentile(r.latenciesMs, 100),
+						r.allocated / 1e6 / r.seconds, r.peakHeap / 1e6);
+				deleteExports(filesBefore);
+			}
+		}
+		// Write results
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(
+				new FileWriter(opts.get("out"))))) {
+			out.println("Scenario,Unit,Threads,Units,Seconds,UnitsPerMin," +
+					"GamesPerSec,UpdatesPerSec,P50Ms,P90Ms,P99Ms,MaxMs," +
+					"AllocBytesPerSec,PeakHeapBytes");
+			for (Result r: results) {
+				out.println(r.scenario + ',' + r.unitName + ',' + r.threads +
+						',' + r.units + ',' + r.seconds + ',' +
+						60 * r.units / r.seconds + ',' + r.games / r.seconds +
+						',' + r.updates / r.seconds + ',' +
+						percentile(r.latenciesMs, 50) + ',' +
+						percentile(r.latenciesMs, 90) + ',' +
+						percentile(r.latenciesMs, 99) + ',' +
+						percentile(r.latenciesMs, 100) + ',' +
+						r.allocated / r.seconds + ',' + r.peakHeap);
+			}
+		} catch (IOException e) {
+			System.out.println("Error writing " + opts.get("out") + ": " + e);
+		}
+	}
+}
\ No newline at end of file
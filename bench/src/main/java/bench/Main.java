@@ -0,0 +1,48 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class to run the benchmarks.
+ * <p>
+ * Accepts the same command-line options as the standard JMH runner, but writes
+ * results as JSON to "jmh-result.json" unless another result format or file is
+ * given. Benchmarks read the board files relative to the working directory, so
+ * they should be run from the project root.
+ *
+ * @author Archer Murray
+ */
+public final class Main
+{
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private Main()
+	{
+	}
+	
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+		if (cmd.shouldList()) {
+			new Runner(cmd).list();
+			return;
+		}
+		ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+		if (!cmd.getResultFormat().hasValue()) {
+			opts.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmd.getResult().hasValue()) {
+			opts.result("jmh-result.json");
+		}
+		new Runner(opts.build()).run();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package bench;
+
+import ml.NeuralNet;
+import ml.PopulationArena;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for neural network evaluation, training, and mutation.
+ *
+ * @author Archer Murray
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NeuralNetBenchmark
+{
+	/**
+	 * The number of nodes in the hidden layer.
+	 */
+	@Param({"10", "40", "160"})
+	public int hiddenSize;
+	/**
+	 * The seed for all random number generators.
+	 */
+	@Param({"1"})
+	public long seed;
+	
+	private NeuralNet net;
+	private PopulationArena arena;
+	private Random mutationRng;
+	private double[] input;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Random rng = new Random(this.seed);
+		this.net = new NeuralNet(this.hiddenSize, rng);
+		this.arena = new PopulationArena(this.net, 2, false);
+		this.arena.store(0, this.net);
+		this.mutationRng = new Random(this.seed + 1);
+		this.input = randomState(rng);
+	}
+	
+	/**
+	 * Returns a plausible game state with values in the ranges seen in play.
+	 *
+	 * @param rng The random number generator to draw values from.
+	 * @return The game state.
+	 */
+	static double[] randomState(Random rng)
+	{
+		double[] ret = new double[NeuralNet.INPUT_LENGTH];
+		ret[0] = 1;
+		ret[1] = rng.nextInt(2);
+		ret[2] = rng.nextInt(2);
+		for (int p = 0; p < 3; p++) {
+			int offset = p == 0 ? 4 : 3 + 10 * p;
+			ret[offset + (p == 0 ? 0 : 1)] = 1;
+			int wc = rng.nextInt(4);
+			for (int i = 0; i < wc; i++) {
+				ret[offset + 2 + i] = 1;
+			}
+			ret[offset + 6] = rng.nextInt(15000);
+			ret[offset + 7] = rng.nextInt(8);
+			ret[offset + 8] = rng.nextInt(3);
+			if (p > 0) {
+				ret[offset + 9] = rng.nextInt(2);
+			}
+		}
+		return ret;
+	}
+	
+	@Benchmark
+	public double evaluate()
+	{
+		return this.net.evaluate(this.input);
+	}
+	
+	@Benchmark
+	public double[] gradient()
+	{
+		return this.net.gradient(this.input);
+	}
+	
+	@Benchmark
+	public NeuralNet gradientDescent()
+	{
+		// Use a tiny step so the weights stay in a realistic range
+		this.net.gradientDescent(this.input, 1e-9);
+		return this.net;
+	}
+	
+	@Benchmark
+	public NeuralNet mutate()
+	{
+		return this.net.mutate(this.mutationRng);
+	}
+	
+	@Benchmark
+	public PopulationArena mutateInArena()
+	{
+		this.arena.mutate(0, 1, this.mutationRng);
+		return this.arena;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package bench;
+
+import game.Board;
+import game.Game;
+import game.Player;
+import ml.GeneticLearner;
+import ml.NeuralNet;
+import ml.NeuralNetPlayer;
+
+import java.util.*;
+
+/**
+ * Benchmark that measures how often a genetic learner's match picks the best
+ * player of a group of three, for independent games and for common random
+ * number matches (see
+ * {@link GeneticLearner#playMatch(Player[], Board[], int, Random)}) of several
+ * lengths.
+ * <p>
+ * Each group consists of three mutations of one parent network, so the
+ * players are close in strength, as they are late in training. The true win
+ * rate of each player is estimated from a large number of independent games.
+ * Then each match format is played repeatedly on each group, recording how
+ * often the player it selects is the truly best player, and the average
+ * regret: the difference between the true win rates of the truly best player
+ * and the selected player.
+ * <p>
+ * Options (all optional): {@code --groups 30}, {@code --truth-games 3000},
+ * {@code --repeats 20}, {@code --games 30,60,100}, {@code --deals 3,5,10,17},
+ * {@code --seed 1}, {@code --net <file>} (the parent network; random by
+ * default).
+ *
+ * @author Archer Murray
+ */
+public final class SelectionAccuracy
+{
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private SelectionAccuracy()
+	{
+	}
+	
+	/**
+	 * Plays the passed-in number of independent games between the passed-in
+	 * players, shuffling the seats before each game, and returns the number of
+	 * games won by each player.
+	 *
+	 * @param competitors The three players.
+	 * @param boards The boards to use in the games.
+	 * @param numGames The number of games to play.
+	 * @param rng The random number generator to draw seats and seeds from.
+	 * @return The number of games won by each player.
+	 */
+	private static int[] playIndependent(Player[] competitors, Board[] boards,
+			int numGames, Random rng)
+	{
+		int[] winCounts = new int[3];
+		for (int j = 0; j < numGames; j++) {
+			List<Player> compList = Arrays.asList(competitors.clone());
+			Collections.shuffle(compList, rng);
+			Game game = new Game(compList.toArray(new Player[0]), boards);
+			game.setSeed(rng.nextLong());
+			List<Player> winners = game.play(false);
+			for (int k = 0; k < 3; k++) {
+				if (winners.contains(competitors[k])) {
+					winCounts[k]++;
+				}
+			}
+		}
+		return winCounts;
+	}
+	
+	/**
+	 * Returns the index of the first largest value in the passed-in array.
+	 *
+	 * @param values The values.
+	 * @return The index of the first largest value.
+	 */
+	private static int argMax(int[] values)
+	{
+		int ret = 0;
+		for (int k = 1; k < values.length; k++) {
+			if (values[k] > values[ret]) {
+				ret = k;
+			}
+		}
+		return ret;
+	}
+	
+	public static void main(String[] args)
+	{
+		// Parse options
+		Map<String, String> opts = new HashMap<>();
+		opts.put("groups", "30");
+		opts.put("truth-games", "3000");
+		opts.put("repeats", "20");
+		opts.put("games", "30,60,100");
+		opts.put("deals", "3,5,10,17");
+		opts.put("seed", "1");
+		opts.put("net", "");
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--") ||
+					!opts.containsKey(args[i].substring(2))) {
+				System.out.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+			opts.put(args[i].substring(2), args[i + 1]);
+		}
+		int numGroups = Integer.parseInt(opts.get("groups"));
+		int truthGames = Integer.parseInt(opts.get("truth-games"));
+		int repeats = Integer.parseInt(opts.get("repeats"));
+		int[] gameCounts = Arrays.stream(opts.get("games").split(","))
+				.mapToInt(Integer::parseInt).toArray();
+		int[] dealCounts = Arrays.stream(opts.get("deals").split(","))
+				.mapToInt(Integer::parseInt).toArray();
+		Random rng = new Random(Long.parseLong(opts.get("seed")));
+		NeuralNet parent = opts.get("net").isEmpty() ?
+				new NeuralNet(40, rng) : NeuralNet.load(opts.get("net"));
+		Board[] boards = {
+				new Board("board1.txt", rng.nextLong()),
+				new Board("board2.txt", rng.nextLong())
+		};
+		// Correct selections and total regret of each format: independent
+		// games first, then deals
+		int numFormats = gameCounts.length + dealCounts.length;
+		int[] correct = new int[numFormats];
+		double[] regret = new double[numFormats];
+		for (int g = 0; g < numGroups; g++) {
+			Player[] competitors = new Player[3];
+			for (int k = 0; k < 3; k++) {
+				competitors[k] = new NeuralNetPlayer(parent.mutate(rng));
+			}
+			int[] truth = playIndependent(competitors, boards, truthGames,
+					rng);
+			int best = argMax(truth);
+			for (int f = 0; f < numFormats; f++) {
+				for (int r = 0; r < repeats; r++) {
+					int[] winCounts = f < gameCounts.length ?
+							playIndependent(competitors, boards,
+									gameCounts[f], rng) :
+							GeneticLearner.playMatch(competitors, boards,
+									dealCounts[f - gameCounts.length], rng);
+					int picked = argMax(winCounts);
+					if (picked == best) {
+						correct[f]++;
+					}
+					regret[f] += (double)(truth[best] - truth[picked]) /
+							truthGames;
+				}
+			}
+			System.out.printf("Group %d/%d: true win rates %.3f %.3f %.3f\n",
+					g + 1, numGroups, (double)truth[0] / truthGames,
+					(double)truth[1] / truthGames,
+					(double)truth[2] / truthGames);
+		}
+		// Print results
+		int trials = numGroups * repeats;
+		System.out.printf("%-12s %6s %10s %12s\n", "Format", "Games",
+				"Accuracy", "Regret pp");
+		for (int f = 0; f < numFormats; f++) {
+			boolean independent = f < gameCounts.length;
+			int games = independent ? gameCounts[f] :
+					6 * dealCounts[f - gameCounts.length];
+			System.out.printf("%-12s %6d %9.1f%% %12.3f\n", independent ?
+							"independent" : "crn", games,
+					100.0 * correct[f] / trials, 100 * regret[f] / trials);
+		}
+	}
+}
\ No newline at end of file
@@ -13,15 +13,38 @@ import java.util.Random;
  */
 public class Board
 {
-	private final Random rng;
+	/**
+	 * The system property that, if {@code true}, makes new boards use lazy
+	 * stops (see {@link #setLazyStops(boolean)}).
+	 */
+	public static final String LAZY_STOPS_PROPERTY = "pyl.lazyStops";
+	/**
+	 * The system property that, if {@code true}, makes new boards sample
+	 * spins from their outcome distribution (see
+	 * {@link #setSampledSpins(boolean)}).
+	 */
+	public static final String SAMPLED_SPINS_PROPERTY = "pyl.sampledSpins";
+	
+	private final String fn;
+	private final long initialSeed;
+	private final BufferedRandom rng, prizeRng;
 	private final List<Space> spaces;
 	private int doublesInPlay;
+	// The space and face of each "Double Your $$ + One Spin" removed from
+	// play, in pairs
+	private final int[] removedDoubles;
 	private int prizeMin, prizeMax;
 	private int lightPos;
+	private boolean lazyStops, sampledSpins;
+	private long numStops;
+	private SpinOutcomes spinOutcomes;
 	
 	// Values used to calculate expected value of a spin
 	private int numSpaces;
 	private double expCash, expSpins, expWhammies;
+	// Heuristic press thresholds indexed by earned spins, valid while no
+	// "Double Your $$ + One Spin" spaces are in play
+	private final double[] pressThresholds;
 	
 	/**
 	 * Player class used to make EV calculation easier.
@@ -76,9 +99,47 @@ public class Board
 	 * The indices of the corner spaces.
 	 */
 	private static final int[] CORNER_SPACES = {0, 5, 9, 14};
+	/**
+	 * The number of earned spin counts to precompute heuristic press
+	 * thresholds for.
+	 */
+	private static final int NUM_PRESS_THRESHOLDS = 64;
+	/**
+	 * The stream (see {@link #streamSeed(long, int)}) of the draw of whether
+	 * "Double Your $$ + One Spin" is in play. Space {@code i} uses stream
+	 * {@code i + 1}, so this stream is distinct from the spaces' streams.
+	 */
+	private static final int DOUBLE_STREAM = 0;
+	/**
+	 * The stream of a board's prize values, which are drawn separately from
+	 * board stops so that a prize does not shift the stops that follow it.
+	 */
+	private static final int PRIZE_STREAM = -1;
+	/**
+	 * The increment of SplitMix64, which spaces the streams of a seed apart.
+	 */
+	private static final long STREAM_GAMMA = 0x9E3779B97F4A7C15L;
 	
 	/**
-	 * Creates a new board with spaces read from the specified text file.
+	 * Creates a new board with spaces read from the specified text file, with
+	 * its random number generators seeded at random.
+	 *
+	 * @param fn The filename to read space data from.
+	 * @see #Board(String, long)
+	 */
+	public Board(String fn)
+	{
+		this(fn, new Random().nextLong());
+	}
+	
+	/**
+	 * Creates a new board with spaces read from the specified text file, with
+	 * its random number generators seeded from the passed-in seed.
+	 * <p>
+	 * Whether "Double Your $$ + One Spin" is in play is drawn from the seed
+	 * too, so boards created from the same file and seed are identical, and
+	 * play the same stops as a board given the same seed with
+	 * {@link #setSeed(long)}.
 	 * <p>
 	 * This text file should contain one space per line, where each space is
 	 * represented as a series of comma-separated values in space notation.
@@ -88,14 +149,23 @@ public class Board
 	 * a blank line.
 	 *
 	 * @param fn The filename to read space data from.
+	 * @param seed The seed.
 	 */
-	public Board(String fn)
+	public Board(String fn, long seed)
 	{
-		this.rng = new Random();
+		this.fn = fn;
+		this.initialSeed = seed;
+		this.rng = new BufferedRandom(seed);
+		this.prizeRng = new BufferedRandom(streamSeed(seed, PRIZE_STREAM));
 		this.spaces = new ArrayList<>();
 		this.doublesInPlay = 0;
-		boolean useDouble = this.rng.nextDouble() < DOUBLE_IN_PLAY_CHANCE;
+		boolean useDouble = new BufferedRandom(streamSeed(seed,
+				DOUBLE_STREAM)).nextDouble() < DOUBLE_IN_PLAY_CHANCE;
 		this.lightPos = 0;
+		this.lazyStops = Boolean.getBoolean(LAZY_STOPS_PROPERTY);
+		this.sampledSpins = Boolean.getBoolean(SAMPLED_SPINS_PROPERTY);
+		this.numStops = 0;
+		this.spinOutcomes = null;
 		try {
 			BufferedReader in = new BufferedReader(new FileReader(fn));
 			// Read first line (prize min/max)
@@ -113,13 +183,14 @@ public class Board
 						line = line.replace('D', 'P');
 					}
 				}
-				this.spaces.add(new Space(line.split(",")));
+				this.spaces.add(new Space(line.split(","), this));
 			}
 		} catch (Exception e) {
 			System.out.println("Error reading file " + fn +
 					". File is missing or malformed.");
 			System.exit(1);
 		}
+		this.removedDoubles = new int[2 * this.doublesInPlay];
 		// Calculate board statistics
 		this.expCash = 0;
 		this.expSpins = 0;
@@ -130,34 +201,191 @@ public class Board
 		int prevPrizeMax = this.prizeMax;
 		this.prizeMin = (prevPrizeMax + prevPrizeMin) / 2;
 		this.prizeMax = (prevPrizeMax + prevPrizeMin) / 2;
-		// Loop through spaces and update values
+		// Sum the effects of the outcomes of a spin, weighted by probability
 		EVPlayer player = new EVPlayer();
-		for (int i = 0; i < this.spaces.size(); i++) {
-			Space s = this.spaces.get(i);
-			for (int j = 0; j < s.getNumValues(); j++) {
-				this.numSpaces++;
-				// Have the player play 30 spins and average the results
-				for (int n = 0; n < 30; n++) {
-					player.setScore(0);
-					player.setEarnedSpins(1);
-					player.setWhammies(0);
-					this.stopBoard();
-					this.lightPos = i;
-					s.setPos(j);
-					player.playSpin(this, false, false);
-					this.expCash += player.getScore();
-					this.expSpins += player.getEarnedSpins();
-					this.expWhammies += player.getWhammies();
+		SpinOutcomes outcomes = this.getSpinOutcomes();
+		for (Space s: this.spaces) {
+			this.numSpaces += s.getNumValues();
+		}
+		for (int o = 0; o < outcomes.getNumOutcomes(); o++) {
+			double p = outcomes.getProbability(o);
+			if (!outcomes.isMoveChoice(o)) {
+				this.addExpectedEffect(outcomes.getValue(o),
+						outcomes.getCashAmount(o), p);
+				continue;
+			}
+			// Enumerate the faces of the targets the player chooses between
+			this.lightPos = outcomes.getSpace(o);
+			this.spaces.get(this.lightPos).setPos(outcomes.getFace(o));
+			List<Space> moveTargets = this.getMoveTargets();
+			List<Space> distinct = new ArrayList<>();
+			int numCombos = 1;
+			for (Space t: moveTargets) {
+				if (!distinct.contains(t)) {
+					distinct.add(t);
+					numCombos *= t.getNumValues();
+				}
+			}
+			for (int c = 0; c < numCombos; c++) {
+				int rest = c;
+				for (Space t: distinct) {
+					t.setPos(rest % t.getNumValues());
+					rest /= t.getNumValues();
 				}
+				Space chosen = player.chooseMoveTarget(moveTargets);
+				if (chosen == null) {
+					chosen = moveTargets.get(0);
+				}
+				this.addExpectedEffect(chosen.getValue(),
+						chosen.getCashAmount(), p / numCombos);
 			}
 		}
-		this.expCash /= 30 * this.numSpaces - this.expWhammies;
-		this.expSpins /= 30 * this.numSpaces - this.expWhammies;
-		this.expWhammies /= 30 * this.numSpaces;
+		this.expCash /= 1 - this.expWhammies;
+		this.expSpins /= 1 - this.expWhammies;
 		// Restore prior values
 		this.lightPos = 0;
 		this.prizeMin = prevPrizeMin;
 		this.prizeMax = prevPrizeMax;
+		// Precompute heuristic press thresholds (the cash EV does not depend
+		// on the score when no doubles are in play)
+		this.pressThresholds = new double[NUM_PRESS_THRESHOLDS];
+		for (int i = 0; i < NUM_PRESS_THRESHOLDS; i++) {
+			this.pressThresholds[i] = this.computePressThreshold(i,
+					this.expCash);
+		}
+		this.setSeed(seed);
+	}
+	
+	/**
+	 * Adds the effect of the passed-in face, landed on with the passed-in
+	 * probability by a player with no score and no Whammies, to the expected
+	 * cash, spins, and Whammies of a spin.
+	 *
+	 * @param value The face value, in space notation.
+	 * @param cashAmt The cash amount of the face.
+	 * @param p The probability of landing on the face.
+	 */
+	private void addExpectedEffect(String value, int cashAmt, double p)
+	{
+		char firstChar = value.charAt(0);
+		if (firstChar == 'W') {
+			this.expWhammies += p;
+		} else if (firstChar == 'P') {
+			this.expCash += p * this.prizeMin;
+		} else if (firstChar == 'D') {
+			// Doubling a score of 0 adds nothing but the spin
+			this.expSpins += p;
+		} else if (firstChar == 'A') {
+			// Add-a-One turns a score of 0 into 10
+			this.expCash += p * 10;
+		} else {
+			this.expCash += p * cashAmt;
+			if (value.charAt(value.length() - 1) == 'S') {
+				this.expSpins += p;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the name of the file this board's spaces were read from.
+	 *
+	 * @return The file name.
+	 */
+	public String getFileName()
+	{
+		return this.fn;
+	}
+	
+	/**
+	 * Returns the seed this board was created with. A board created with
+	 * {@link #Board(String, long)} from this seed and this board's file has
+	 * the same spaces in play as this board.
+	 *
+	 * @return The seed this board was created with.
+	 */
+	public long getInitialSeed()
+	{
+		return this.initialSeed;
+	}
+	
+	/**
+	 * Returns the seed this board was last set to with {@link #setSeed(long)},
+	 * or the seed it was created with if it has not been set since.
+	 *
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return this.rng.getSeed();
+	}
+	
+	/**
+	 * Sets the seed of this board's random number generators, so that
+	 * subsequent board stops and prize values are reproducible. Whether
+	 * "Double Your $$ + One Spin" is in play is not redrawn; to reproduce it
+	 * as well, create the board with {@link #Board(String, long)}.
+	 *
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed)
+	{
+		this.rng.setSeed(seed);
+		this.prizeRng.setSeed(streamSeed(seed, PRIZE_STREAM));
+		for (int i = 0; i < this.spaces.size(); i++) {
+			this.spaces.get(i).setSeed(streamSeed(seed, i + 1));
+		}
+	}
+	
+	/**
+	 * Returns the seed of the passed-in stream of a board with the passed-in
+	 * seed: the board's seed, advanced by {@code stream} SplitMix64
+	 * increments, then mixed as SplitMix64 mixes its output. The mixing keeps
+	 * the streams uncorrelated with each other, with the board's own
+	 * generator, and with the streams of nearby seeds.
+	 *
+	 * @param seed The seed of the board.
+	 * @param stream The stream.
+	 * @return The seed of the stream.
+	 */
+	private static long streamSeed(long seed, int stream)
+	{
+		long z = seed + stream * STREAM_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Sets whether this board makes lazy stops.
+	 * <p>
+	 * A lazy stop only picks the position of the light. Each space then draws
+	 * its value the first time it is read after the stop, so a spin that only
+	 * reads the lit space makes two random draws instead of one per space plus
+	 * one. Values are distributed exactly as with a full stop, but the
+	 * sequence of values drawn from a seeded board differs.
+	 *
+	 * @param lazyStops Whether to make lazy stops.
+	 */
+	public void setLazyStops(boolean lazyStops)
+	{
+		if (this.lazyStops && !lazyStops) {
+			// Draw every space now, so none is left waiting for a draw
+			for (Space s: this.spaces) {
+				s.getValue();
+			}
+		}
+		this.lazyStops = lazyStops;
+	}
+	
+	/**
+	 * Returns the number of lazy stops this board has made, which spaces use
+	 * to tell whether their value is current.
+	 *
+	 * @return The number of lazy stops this board has made.
+	 */
+	long getNumStops()
+	{
+		return this.numStops;
 	}
 	
 	/**
@@ -181,8 +409,117 @@ public class Board
 	 */
 	public void removeDoubleFromPlay()
 	{
+		this.removeDoubleFromPlay(this.getLitSpace());
+	}
+	
+	/**
+	 * Removes "Double Your $$ + One Spin" from play by replacing the current
+	 * face of the passed-in space, which the light may have moved to, with a
+	 * prize space.
+	 * <p>
+	 * This method only works when the passed-in space is currently showing
+	 * "Double Your $$ + One Spin".
+	 *
+	 * @param space The space showing "Double Your $$ + One Spin".
+	 */
+	public void removeDoubleFromPlay(Space space)
+	{
+		this.removeDoubleFromPlay(this.indexOf(space), space.getPos());
+	}
+	
+	/**
+	 * Removes "Double Your $$ + One Spin" from play by replacing the
+	 * passed-in face of the passed-in space with a prize space.
+	 * <p>
+	 * This method only works when that face is "Double Your $$ + One Spin".
+	 *
+	 * @param space The index of the space.
+	 * @param face The index of the face of that space.
+	 */
+	public void removeDoubleFromPlay(int space, int face)
+	{
+		int i = this.removedDoubles.length - 2 * this.doublesInPlay;
+		this.removedDoubles[i] = space;
+		this.removedDoubles[i + 1] = face;
 		this.doublesInPlay--;
-		this.spaces.get(this.lightPos).setCurrentValue("P");
+		this.spaces.get(space).setValue(face, "P");
+		this.spinOutcomes = null;
+	}
+	
+	/**
+	 * Puts every "Double Your $$ + One Spin" removed from play by
+	 * {@link #removeDoubleFromPlay()} back in play, so that this board has the
+	 * faces it was created with.
+	 * <p>
+	 * Games that should be played on the same board, such as games replayed
+	 * from the same seeds, must call this before each game.
+	 */
+	public void restoreDoubles()
+	{
+		int numRemoved = this.removedDoubles.length - 2 * this.doublesInPlay;
+		for (int i = 0; i < numRemoved; i += 2) {
+			this.spaces.get(this.removedDoubles[i]).setValue(
+					this.removedDoubles[i + 1], "D");
+		}
+		if (numRemoved > 0) {
+			this.doublesInPlay = this.removedDoubles.length / 2;
+			this.spinOutcomes = null;
+		}
+	}
+	
+	/**
+	 * Returns the distribution of the outcomes of a spin on this board,
+	 * computing it if a face has changed since it was last computed.
+	 *
+	 * @return The distribution of the outcomes of a spin.
+	 */
+	public SpinOutcomes getSpinOutcomes()
+	{
+		if (this.spinOutcomes == null) {
+			this.spinOutcomes = new SpinOutcomes(this.spaces);
+		}
+		return this.spinOutcomes;
+	}
+	
+	/**
+	 * Returns a random outcome of a spin on this board, drawn with one random
+	 * number.
+	 *
+	 * @return The index of the outcome in {@link #getSpinOutcomes()}.
+	 */
+	public int sampleSpinOutcome()
+	{
+		return this.getSpinOutcomes().sample(this.rng);
+	}
+	
+	/**
+	 * Sets whether spins on this board are sampled from its outcome
+	 * distribution (see {@link #getSpinOutcomes()}) when they are not
+	 * printed.
+	 * <p>
+	 * A sampled spin that does not give the player a choice of where to move
+	 * performs its outcome's effect without stopping the board. Otherwise,
+	 * the board is stopped with the light on the outcome's space, as by
+	 * {@link #stopBoardAt(int, int)}, and the spin continues as usual.
+	 * Outcomes are distributed exactly as with board stops, but a seeded
+	 * board draws a different sequence of random numbers.
+	 *
+	 * @param sampledSpins Whether to sample spins.
+	 */
+	public void setSampledSpins(boolean sampledSpins)
+	{
+		this.sampledSpins = sampledSpins;
+	}
+	
+	/**
+	 * Returns {@code true} if spins on this board are sampled from its outcome
+	 * distribution and {@code false} otherwise.
+	 *
+	 * @return Whether spins on this board are sampled.
+	 */
+	public boolean isSampledSpins()
+	{
+		return this.sampledSpins;
 	}
 	
 	/**
@@ -193,7 +530,7 @@ public class Board
 	public int getPrizeValue()
 	{
 		return this.prizeMin +
-				rng.nextInt(this.prizeMax - this.prizeMin + 1);
+				this.prizeRng.nextInt(this.prizeMax - this.prizeMin + 1);
 	}
 	
 	/**
@@ -228,16 +565,58 @@ public class Board
 	
 	/**
 	 * Stops the board, randomizing the value of every space and the position of
-	 * the light.
+	 * the light. With lazy stops, the values of the spaces are only drawn when
+	 * they are read.
 	 */
 	public void stopBoard()
 	{
-		for (Space s: this.spaces) {
-			s.randomizeValue();
+		if (this.lazyStops) {
+			this.numStops++;
+		} else {
+			for (Space s: this.spaces) {
+				s.randomizeValue();
+			}
 		}
 		this.lightPos = this.rng.nextInt(this.spaces.size());
 	}
 	
+	/**
+	 * Stops the board with the light on the passed-in face of the passed-in
+	 * space. As with a lazy stop, the values of the other spaces are drawn
+	 * when they are read.
+	 *
+	 * @param space The index of the space to light.
+	 * @param face The index of the face of that space to show.
+	 */
+	public void stopBoardAt(int space, int face)
+	{
+		this.numStops++;
+		this.lightPos = space;
+		this.spaces.get(space).setPos(face);
+	}
+	
+	/**
+	 * Returns the number of spaces on this board.
+	 *
+	 * @return The number of spaces on this board.
+	 */
+	public int getNumSpaces()
+	{
+		return this.spaces.size();
+	}
+	
+	/**
+	 * Returns the space at the passed-in index, counting clockwise from the
+	 * top-left corner.
+	 *
+	 * @param idx The index of the space.
+	 * @return The space at the index.
+	 */
+	public Space getSpace(int idx)
+	{
+		return this.spaces.get(idx);
+	}
+	
 	/**
 	 * Returns the currently lit space.
 	 *
@@ -248,6 +627,28 @@ public class Board
 		return this.spaces.get(this.lightPos);
 	}
 	
+	/**
+	 * Returns the index of the currently lit space.
+	 *
+	 * @return The index of the currently lit space.
+	 */
+	int getLightPos()
+	{
+		return this.lightPos;
+	}
+	
+	/**
+	 * Returns the index of the passed-in space on this board, or -1 if it is
+	 * not on this board.
+	 *
+	 * @param space The space.
+	 * @return The index of the space, or -1.
+	 */
+	int indexOf(Space space)
+	{
+		return this.spaces.indexOf(space);
+	}
+	
 	/**
 	 * Returns a list of all spaces that can be moved to from the currently lit
 	 * space. If the currently lit space is not a movement space, returns an
@@ -332,6 +733,48 @@ public class Board
 		return this.expWhammies;
 	}
 	
+	/**
+	 * Returns the score below which a heuristic player with the passed-in
+	 * score and number of earned spins presses their luck, outside the
+	 * special cases for the final round and Whammies.
+	 * <p>
+	 * This is the higher of the amount expected to be recouped if the next
+	 * spin hits a Whammy and the score at which spinning again has a negative
+	 * EV. While no "Double Your $$ + One Spin" spaces are in play, it is looked
+	 * up from a precomputed table.
+	 *
+	 * @param earnedSpins The player's number of earned spins.
+	 * @param score The player's current score.
+	 * @return The score below which the player presses their luck.
+	 */
+	public double getPressThreshold(int earnedSpins, long score)
+	{
+		if (this.doublesInPlay == 0 && earnedSpins >= 0 &&
+				earnedSpins < NUM_PRESS_THRESHOLDS) {
+			return this.pressThresholds[earnedSpins];
+		}
+		return this.computePressThreshold(earnedSpins, this.getExpCash(score));
+	}
+	
+	/**
+	 * Computes the heuristic press threshold described in
+	 * {@link #getPressThreshold(int, long)}.
+	 *
+	 * @param earnedSpins The player's number of earned spins.
+	 * @param expCash The average amount of cash earned when landing on a
+	 * non-Whammy space, given the player's score.
+	 * @return The score below which the player presses their luck.
+	 */
+	private double computePressThreshold(int earnedSpins, double expCash)
+	{
+		// Calculate expected amount to recoup if next spin hits a whammy
+		double recoupAmt = (earnedSpins - 1) * expCash / (1 - this.expSpins);
+		// Calculate point at which spinning again has a negative EV
+		double negExpAmt = expCash * (1 - this.expWhammies) /
+				this.expWhammies;
+		return Math.max(recoupAmt, negExpAmt);
+	}
+	
 	/**
 	 * Returns a {@code String} representation of this board.
 	 * <p>
@@ -0,0 +1,179 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * Random number generator that draws numbers from a SplitMix64 generator in
+ * bulk, a buffer at a time, and serves them from the buffer.
+ * <p>
+ * SplitMix64 is a counter-based generator: its output at any position in the
+ * stream is a function of the seed and the position alone. This makes it
+ * cheap to fill a buffer in a tight loop, and lets a stream be moved to any
+ * position with {@link #seek(long)}, so that a replay can resume a stream
+ * exactly where it left off. Every method of {@link Random} draws from the
+ * stream; {@link #nextInt(int)}, {@link #nextDouble()}, and
+ * {@link #nextLong()} use one number each.
+ * <p>
+ * Unlike {@link Random}, this class is not thread-safe.
+ *
+ * @author Archer Murray
+ */
+public class BufferedRandom extends Random
+{
+	/**
+	 * The default number of random numbers drawn at a time.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64;
+	/**
+	 * The increment of the SplitMix64 counter.
+	 */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long serialVersionUID = 1L;
+	
+	private long[] buffer;
+	private int idx;
+	private long seed, bufferStart;
+	
+	/**
+	 * Creates a new generator with a random seed and the default buffer size.
+	 */
+	public BufferedRandom()
+	{
+		this(new Random().nextLong());
+	}
+	
+	/**
+	 * Creates a new generator with the passed-in seed and the default buffer
+	 * size.
+	 *
+	 * @param seed The seed.
+	 */
+	public BufferedRandom(long seed)
+	{
+		this(seed, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Creates a new generator with the passed-in seed and buffer size.
+	 *
+	 * @param seed The seed.
+	 * @param bufferSize The number of random numbers to draw at a time.
+	 */
+	public BufferedRandom(long seed, int bufferSize)
+	{
+		super(seed);
+		this.buffer = new long[bufferSize];
+		this.setSeed(seed);
+	}
+	
+	/**
+	 * Sets the seed of this generator and moves it to the start of the
+	 * stream.
+	 *
+	 * @param seed The seed.
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		// Clears any Gaussian the superclass saved from the previous stream
+		super.setSeed(seed);
+		// Called by the superclass constructor before the buffer exists
+		if (this.buffer == null) {
+			return;
+		}
+		this.seed = seed;
+		this.seek(0);
+	}
+	
+	/**
+	 * Returns the seed this generator was last set to.
+	 *
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return this.seed;
+	}
+	
+	/**
+	 * Moves this generator to the passed-in position in its stream, so that
+	 * the next number drawn is the one drawn after that many others since the
+	 * seed was set.
+	 *
+	 * @param position The position, counting numbers drawn.
+	 */
+	public void seek(long position)
+	{
+		this.bufferStart = position - this.buffer.length;
+		this.idx = this.buffer.length;
+	}
+	
+	/**
+	 * Returns the position of this generator in its stream: the number of
+	 * numbers drawn since the seed was set.
+	 *
+	 * @return The position.
+	 */
+	public long getPosition()
+	{
+		return this.bufferStart + this.idx;
+	}
+	
+	/**
+	 * Returns the next random {@code long}, refilling the buffer when it runs
+	 * out.
+	 *
+	 * @return The next random {@code long}.
+	 */
+	@Override
+	public long nextLong()
+	{
+		if (this.idx == this.buffer.length) {
+			this.bufferStart += this.buffer.length;
+			long state = this.seed + this.bufferStart * GAMMA;
+			for (int i = 0; i < this.buffer.length; i++) {
+				state += GAMMA;
+				long z = state;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				this.buffer[i] = z ^ (z >>> 31);
+			}
+			this.idx = 0;
+		}
+		return this.buffer[this.idx++];
+	}
+	
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(this.nextLong() >>> (64 - bits));
+	}
+	
+	@Override
+	public int nextInt()
+	{
+		return (int)(this.nextLong() >>> 32);
+	}
+	
+	/**
+	 * Returns a random integer from 0 (inclusive) to the passed-in bound
+	 * (exclusive), by scaling the high 32 bits of one random number.
+	 *
+	 * @param bound The bound, which must be positive.
+	 * @return The random integer.
+	 */
+	@Override
+	public int nextInt(int bound)
+	{
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		return (int)(((this.nextLong() >>> 32) * bound) >>> 32);
+	}
+	
+	@Override
+	public double nextDouble()
+	{
+		return (this.nextLong() >>> 11) * 0x1.0p-53;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package game;
+
+import metrics.FeatureStatistics;
+import metrics.ProgressReporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that calculates statistics of the game states in Press Your Luck, as
+ * seen by the neural network inputs, over games between heuristic players.
+ * <p>
+ * Unlike {@link AverageStateCalculator}, which only calculates means, this
+ * class also calculates the variance, range, and quantiles of each input, and
+ * plays games on several threads, each recording to its own statistics, which
+ * are merged at the end.
+ *
+ * @author Archer Murray
+ */
+public class FeatureStatisticsCalculator
+{
+	private final String[] boardFilenames;
+	private final int numThreads;
+	
+	/**
+	 * This class implements a thread that plays games and records their states
+	 * until it has recorded its share of states.
+	 */
+	private class CalculatorThread extends Thread
+	{
+		private final long numStates;
+		private final FeatureStatistics statistics;
+		private final ProgressReporter progress;
+		
+		/**
+		 * Creates a new thread that records at least the passed-in number of
+		 * states.
+		 *
+		 * @param numStates The number of states to record.
+		 * @param progress The progress reporter to count recorded states on.
+		 */
+		public CalculatorThread(long numStates, ProgressReporter progress)
+		{
+			this.numStates = numStates;
+			this.statistics = new FeatureStatistics(33);
+			this.progress = progress;
+		}
+		
+		@Override
+		public void run()
+		{
+			Board[] boards = Arrays.stream(boardFilenames).map(Board::new)
+					.toArray(Board[]::new);
+			StateRecordingPlayer[] players = new StateRecordingPlayer[3];
+			for (int i = 0; i < 3; i++) {
+				players[i] = new StateRecordingPlayer(this.statistics);
+			}
+			while (this.statistics.getCount() < this.numStates) {
+				long before = this.statistics.getCount();
+				// Put back any Double removed by the last game
+				for (Board b: boards) {
+					b.restoreDoubles();
+				}
+				new Game(players, boards).play(false);
+				this.progress.add(this.statistics.getCount() - before);
+			}
+		}
+	}
+	
+	/**
+	 * Constructs a new {@code FeatureStatisticsCalculator} with the passed-in
+	 * boards and number of threads.
+	 *
+	 * @param fns The filenames of the boards.
+	 * @param numThreads The number of threads to play games on.
+	 */
+	public FeatureStatisticsCalculator(String[] fns, int numThreads)
+	{
+		this.boardFilenames = fns;
+		this.numThreads = numThreads;
+	}
+	
+	/**
+	 * Plays games until at least the passed-in number of states have been
+	 * recorded, and returns the statistics of the recorded states.
+	 *
+	 * @param numStates The number of states to record.
+	 * @param printStatus If {@code true}, displays the number of states
+	 * recorded on the console, along with the rate, while this method runs.
+	 * @return The statistics of the recorded states.
+	 */
+	public FeatureStatistics run(long numStates, boolean printStatus)
+	{
+		ProgressReporter progress = new ProgressReporter("States recorded",
+				"states", numStates, 0, printStatus);
+		List<CalculatorThread> threads = new ArrayList<>();
+		for (int i = 0; i < this.numThreads; i++) {
+			// Split the states as evenly as possible
+			long share = numStates / this.numThreads +
+					(i < numStates % this.numThreads ? 1 : 0);
+			threads.add(new CalculatorThread(share, progress));
+		}
+		for (CalculatorThread t: threads) {
+			t.start();
+		}
+		for (int i = 0; i < this.numThreads;) {
+			try {
+				threads.get(i).join();
+				i++;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+		progress.close();
+		// Merge the threads' statistics
+		FeatureStatistics ret = new FeatureStatistics(33);
+		for (CalculatorThread t: threads) {
+			ret.merge(t.statistics);
+		}
+		return ret;
+	}
+}
\ No newline at end of file
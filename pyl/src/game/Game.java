@@ -1,5 +1,8 @@
 package game;
 
+import metrics.GameCompletedEvent;
+import metrics.Metrics;
+
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -11,9 +14,13 @@ import java.util.stream.IntStream;
  */
 public class Game
 {
-	private final Random rng;
+	private final BufferedRandom rng;
 	private final Player[] players;
 	private final Board[] boards;
+	private final GameLogFile logFile;
+	private GameLog log;
+	private long logIndex;
+	private boolean logging;
 	private int round;
 	private Player currentTurn, nextTurn;
 	
@@ -24,9 +31,13 @@ public class Game
 	 * @param boards The array of boards to be used in the game.
 	 */
 	public Game(Player[] players, Board[] boards) {
-		this.rng = new Random();
+		this.rng = new BufferedRandom();
 		this.players = players;
 		this.boards = boards;
+		this.logFile = GameLogFile.fromSystemProperty();
+		this.log = null;
+		this.logIndex = -1;
+		this.logging = false;
 		this.round = 1;
 		this.currentTurn = null;
 		this.nextTurn = null;
@@ -36,6 +47,53 @@ public class Game
 		}
 	}
 	
+	/**
+	 * Sets the seed of this game's random number generator, which determines
+	 * how spins are distributed at the start of each round.
+	 *
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed)
+	{
+		this.rng.setSeed(seed);
+	}
+	
+	/**
+	 * Sets whether this game records a log of its events when it is played,
+	 * which {@link #getLog()} returns afterward. Games always record a log
+	 * when the {@value GameLogFile#PROPERTY} system property is set.
+	 *
+	 * @param logging Whether to record a log.
+	 */
+	public void setLogging(boolean logging)
+	{
+		this.logging = logging;
+	}
+	
+	/**
+	 * Returns the log of the events of the game being played or last played,
+	 * or {@code null} if it was not logged. The log is reused by the next
+	 * play.
+	 *
+	 * @return The log, or {@code null}.
+	 */
+	public GameLog getLog()
+	{
+		return this.log;
+	}
+	
+	/**
+	 * Returns the index in the {@value GameLogFile#PROPERTY} log file of the
+	 * game last played, which {@link GameLogFile#read(String, long)} reads it
+	 * back by, or -1 if it was not appended to a log file.
+	 *
+	 * @return The index of the game in the log file, or -1.
+	 */
+	public long getLogIndex()
+	{
+		return this.logIndex;
+	}
+	
 	/**
 	 * Plays the game and returns a list of all winning players.
 	 *
@@ -44,6 +102,9 @@ public class Game
 	 */
 	public List<Player> play(boolean printResults)
 	{
+		GameCompletedEvent event = new GameCompletedEvent();
+		event.begin();
+		int spinCount = 0, passCount = 0;
 		// Reset player and game variables
 		for (int i = 0; i < this.players.length; i++) {
 			this.players[i].setPlayerNum(i + 1);
@@ -53,6 +114,14 @@ public class Game
 			this.players[i].setWhammies(0);
 			this.players[i].setGame(this);
 		}
+		if (this.logging || this.logFile != null) {
+			if (this.log == null) {
+				this.log = new GameLog();
+			}
+			this.log.begin(this.rng.getSeed(), this.players, this.boards);
+		} else {
+			this.log = null;
+		}
 		List<Player> turnOrder = new ArrayList<>();
 		Collections.addAll(turnOrder, this.players);
 		this.round = 0;
@@ -89,6 +158,9 @@ public class Game
 					p.setScore(0);
 				}
 			}
+			if (this.log != null) {
+				this.log.recordRound(this.players);
+			}
 			if (printResults) {
 				System.out.println(this);
 				System.out.println("The turn order will be as follows: " +
@@ -137,6 +209,12 @@ public class Game
 						System.out.println(this);
 					}
 					this.currentTurn.playSpin(board, printResults, true);
+					Metrics.SPINS.increment();
+					spinCount++;
+					if (this.log != null) {
+						this.log.recordSpin(this.currentTurn.getPlayerNum() - 1,
+								false, this.players);
+					}
 					for (Player p: this.players) {
 						p.learn();
 					}
@@ -153,11 +231,20 @@ public class Game
 									" presses their luck!");
 						}
 						this.currentTurn.playSpin(board, printResults, true);
+						Metrics.SPINS.increment();
+						spinCount++;
+						if (this.log != null) {
+							this.log.recordSpin(
+									this.currentTurn.getPlayerNum() - 1, true,
+									this.players);
+						}
 						for (Player p: this.players) {
 							p.learn();
 						}
 					} else {
 						// Player passes
+						Metrics.PASSES.increment();
+						passCount++;
 						if (printResults) {
 							System.out.println(this.currentTurn.getName() +
 									" passes!");
@@ -176,12 +263,13 @@ public class Game
 								}
 							}
 						}
+						Player target = null;
 						if (passTargets.isEmpty()) {
 							// No opponents (active player is last one left)
 							this.currentTurn.setEarnedSpins(0);
 						} else if (passTargets.size() == 1) {
 							// One opponent has the highest score
-							Player target = passTargets.get(0);
+							target = passTargets.get(0);
 							int numSpins = this.currentTurn.getEarnedSpins();
 							target.addPassedSpins(numSpins);
 							this.currentTurn.setEarnedSpins(0);
@@ -199,7 +287,7 @@ public class Game
 												.collect(Collectors.joining(", "))
 										+ '.');
 							}
-							Player target = this.currentTurn
+							target = this.currentTurn
 									.choosePassTarget(passTargets);
 							int numSpins = this.currentTurn.getEarnedSpins();
 							target.addPassedSpins(numSpins);
@@ -210,6 +298,13 @@ public class Game
 										" to " + target.getName() + '!');
 							}
 						}
+						if (this.log != null) {
+							this.log.recordPass(
+									this.currentTurn.getPlayerNum() - 1,
+									(target == null ? this.currentTurn :
+											target).getPlayerNum() - 1,
+									this.players);
+						}
 						for (Player p: this.players) {
 							p.learn();
 						}
@@ -224,7 +319,10 @@ public class Game
 				System.out.println("Round " + this.round + " is over!\n");
 			}
 		}
+		this.logIndex = this.log != null && this.logFile != null ?
+				this.logFile.append(this.log) : -1;
 		// All rounds played; determine the winner(s)
+		Metrics.GAMES.increment();
 		Collections.sort(turnOrder);
 		Collections.reverse(turnOrder);
 		List<Player> winners = new ArrayList<>();
@@ -250,6 +348,15 @@ public class Game
 						.collect(Collectors.joining(", ")) + '!');
 			}
 		}
+		if (event.shouldCommit()) {
+			event.spins = spinCount;
+			event.passes = passCount;
+			event.winner = winners.stream().map(Player::getName)
+					.collect(Collectors.joining(", "));
+			event.winningScore = winners.isEmpty() ? 0 :
+					winners.get(0).getScore();
+			event.commit();
+		}
 		return winners;
 	}
 	
@@ -263,6 +370,16 @@ public class Game
 		return this.players;
 	}
 	
+	/**
+	 * Returns the number of the current round, starting from 1.
+	 *
+	 * @return The number of the current round.
+	 */
+	public int getRound()
+	{
+		return this.round;
+	}
+	
 	/**
 	 * Returns the board currently in use.
 	 *
@@ -294,8 +411,14 @@ public class Game
 	 */
 	public boolean isFinalSpin()
 	{
-		return this.isFinalRound() && Arrays.stream(this.players).mapToInt(
-				p -> p.getEarnedSpins() + p.getPassedSpins()).sum() == 1;
+		if (!this.isFinalRound()) {
+			return false;
+		}
+		int spinsLeft = 0;
+		for (Player p: this.players) {
+			spinsLeft += p.getEarnedSpins() + p.getPassedSpins();
+		}
+		return spinsLeft == 1;
 	}
 	
 	/**
@@ -383,11 +506,53 @@ public class Game
 	 * @return a {@code String} representation of this game.
 	 */
 	public String toString()
+	{
+		return formatScoreboard(this.players);
+	}
+	
+	/**
+	 * Returns the scoreboard for the passed-in players, in the format used by
+	 * {@link #toString()}.
+	 *
+	 * @param players The players, in seat order.
+	 * @return The scoreboard for the players.
+	 */
+	public static String formatScoreboard(Player[] players)
+	{
+		String[] names = new String[players.length];
+		long[] scores = new long[players.length];
+		int[] earnedSpins = new int[players.length];
+		int[] passedSpins = new int[players.length];
+		int[] whammies = new int[players.length];
+		for (int i = 0; i < players.length; i++) {
+			names[i] = players[i].getName();
+			scores[i] = players[i].getScore();
+			earnedSpins[i] = players[i].getEarnedSpins();
+			passedSpins[i] = players[i].getPassedSpins();
+			whammies[i] = players[i].getWhammies();
+		}
+		return formatScoreboard(names, scores, earnedSpins, passedSpins,
+				whammies);
+	}
+	
+	/**
+	 * Returns the scoreboard for players in the passed-in states, in the
+	 * format used by {@link #toString()}. Each array holds one value per
+	 * player, in seat order.
+	 *
+	 * @param names The players' names.
+	 * @param scores The players' scores.
+	 * @param earnedSpins The players' earned spins.
+	 * @param passedSpins The players' passed spins.
+	 * @param whammies The players' Whammies.
+	 * @return The scoreboard for the players.
+	 */
+	public static String formatScoreboard(String[] names, long[] scores,
+			int[] earnedSpins, int[] passedSpins, int[] whammies)
 	{
 		StringBuilder ret = new StringBuilder();
-		for (Player p: players) {
-			int whammies = p.getWhammies();
-			switch (whammies) {
+		for (int w: whammies) {
+			switch (w) {
 				case 4:
 					ret.append("|W  W  W  W");
 					break;
@@ -405,22 +570,22 @@ public class Game
 			}
 		}
 		ret.append("|\n");
-		for (Player p: players) {
-			ret.append(String.format("|%1$-10s", p.getName()));
+		for (String name: names) {
+			ret.append(String.format("|%1$-10s", name));
 		}
 		ret.append("|\n");
-		ret.append("+----------".repeat(this.players.length));
+		ret.append("+----------".repeat(names.length));
 		ret.append("+\n");
-		for (Player p: players) {
-			ret.append(String.format("|$%1$,9d", p.getScore()));
+		for (long score: scores) {
+			ret.append(String.format("|$%1$,9d", score));
 		}
 		ret.append("|\n");
-		for (Player p: players) {
-			ret.append(String.format("|E:%1$2d  P:%2$2d", p.getEarnedSpins(),
-					p.getPassedSpins()));
+		for (int i = 0; i < names.length; i++) {
+			ret.append(String.format("|E:%1$2d  P:%2$2d", earnedSpins[i],
+					passedSpins[i]));
 		}
 		ret.append("|\n");
-		ret.append("+----------".repeat(this.players.length));
+		ret.append("+----------".repeat(names.length));
 		ret.append("+\n");
 		return ret.toString();
 	}
@@ -0,0 +1,572 @@
+package game;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class representing a compact binary log of the events of one game, from
+ * which {@link GameReplayer} can reconstruct the state of the game after any
+ * event without any player logic.
+ * <p>
+ * The log records the seed of the game's random number generator, the name
+ * and strategy identity (see {@link Player#getLogId()}) of each player, and
+ * the file name, initial seed, and current seed of each board, then one
+ * entry per event, bit-packed: the start of a round, a spin, or a pass. A
+ * spin records the player who took it, whether they pressed their luck (as
+ * opposed to taking a passed spin), the space and face the light stopped on,
+ * and the space the light moved to, if any. A pass records the player who
+ * passed and the player who received the spins. Every event then records
+ * which of each player's score, earned spins, passed spins, and Whammies
+ * changed, followed by the changes, which are usually a few bits each.
+ * Fields are packed so that a typical event takes three or four writes.
+ * <p>
+ * With sampled spins (see {@link Board#setSampledSpins(boolean)}), an outcome
+ * that the light can reach from several spaces does not stop the board, so
+ * its spin is recorded without a lit space or face. Space indices take five
+ * bits and face indices three, so boards of up to 31 spaces with up to seven
+ * faces each can be logged.
+ * <p>
+ * A board's current seed is the seed it was last set to (see
+ * {@link Board#getSeed()}), so the recorded seeds reproduce the game only if
+ * each board was reseeded, with its Doubles restored, just before the game,
+ * as the learners' games are.
+ *
+ * @author Archer Murray
+ */
+public class GameLog
+{
+	/**
+	 * The type of the event that starts a round and distributes its spins.
+	 */
+	public static final int ROUND = 0;
+	/**
+	 * The type of a spin event.
+	 */
+	public static final int SPIN = 1;
+	/**
+	 * The type of a pass event.
+	 */
+	public static final int PASS = 2;
+	/**
+	 * The space or face index recorded when there is none.
+	 */
+	public static final int NONE = -1;
+	/**
+	 * The largest number of players in a game that can be logged.
+	 */
+	public static final int MAX_PLAYERS = 15;
+	
+	// Field widths, in bits; the largest value of a space or face field
+	// stands for NONE
+	static final int TYPE_BITS = 2, SPACE_BITS = 5, FACE_BITS = 3;
+	// Changes are zigzag-encoded and written after their length in bits,
+	// less one, which takes these many bits
+	static final int SCORE_LENGTH_BITS = 6, COUNT_LENGTH_BITS = 5;
+	
+	private long seed;
+	private String[] playerNames;
+	private long[] playerIds;
+	private String[] boardFiles;
+	private long[] boardInitialSeeds, boardSeeds;
+	private int numPlayers, seatBits, numEvents, numBits;
+	private long[] bits;
+	// The bits of the last, incomplete word, which is only stored in the
+	// array when it is complete or the log is read
+	private long pending;
+	// The state of each player as of the last event recorded
+	private long[] scores;
+	private int[] earnedSpins, passedSpins, whammies;
+	// The spin being recorded by the player taking it
+	private int litSpace, litFace, target;
+	
+	/**
+	 * Creates a new, empty game log.
+	 */
+	public GameLog()
+	{
+		this.bits = new long[64];
+		this.begin(0, 0);
+		this.boardFiles = new String[0];
+		this.boardInitialSeeds = new long[0];
+		this.boardSeeds = new long[0];
+	}
+	
+	/**
+	 * Clears this log and starts recording a game with the passed-in seed,
+	 * players, and boards, recording the identity of each player and the seeds
+	 * of each board. All players start with nothing.
+	 *
+	 * @param seed The seed of the game's random number generator.
+	 * @param players The players, in seat order; at most
+	 * {@value #MAX_PLAYERS}.
+	 * @param boards The boards, in round order.
+	 */
+	void begin(long seed, Player[] players, Board[] boards)
+	{
+		this.begin(seed, players.length);
+		for (int i = 0; i < players.length; i++) {
+			this.playerNames[i] = players[i].getName();
+			this.playerIds[i] = players[i].getLogId();
+		}
+		this.boardFiles = new String[boards.length];
+		this.boardInitialSeeds = new long[boards.length];
+		this.boardSeeds = new long[boards.length];
+		for (int i = 0; i < boards.length; i++) {
+			this.boardFiles[i] = boards[i].getFileName();
+			this.boardInitialSeeds[i] = boards[i].getInitialSeed();
+			this.boardSeeds[i] = boards[i].getSeed();
+		}
+	}
+	
+	/**
+	 * Clears this log and starts recording a game with the passed-in seed and
+	 * number of players, all of whom start with nothing and are unnamed. The
+	 * boards are left as they were.
+	 *
+	 * @param seed The seed of the game's random number generator.
+	 * @param numPlayers The number of players, at most
+	 * {@value #MAX_PLAYERS}.
+	 */
+	private void begin(long seed, int numPlayers)
+	{
+		if (numPlayers > MAX_PLAYERS) {
+			throw new IllegalArgumentException("Cannot log games of more " +
+					"than " + MAX_PLAYERS + " players");
+		}
+		this.seed = seed;
+		this.numPlayers = numPlayers;
+		this.playerNames = new String[numPlayers];
+		Arrays.fill(this.playerNames, "");
+		this.playerIds = new long[numPlayers];
+		this.seatBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(
+				numPlayers - 1));
+		this.numEvents = 0;
+		this.numBits = 0;
+		this.pending = 0;
+		this.scores = new long[numPlayers];
+		this.earnedSpins = new int[numPlayers];
+		this.passedSpins = new int[numPlayers];
+		this.whammies = new int[numPlayers];
+		this.setSpin(NONE, NONE, NONE);
+	}
+	
+	/**
+	 * Records the start of a round, after its spins have been distributed.
+	 *
+	 * @param players The players, in seat order.
+	 */
+	void recordRound(Player[] players)
+	{
+		this.writeChanges(ROUND, TYPE_BITS, players);
+		this.numEvents++;
+	}
+	
+	/**
+	 * Sets the spaces of the spin being played, to be recorded by
+	 * {@link #recordSpin(int, boolean, Player[])}.
+	 *
+	 * @param litSpace The index of the space the light stopped on, or
+	 * {@link #NONE}.
+	 * @param litFace The index of the face of that space, or {@link #NONE}.
+	 * @param target The index of the space the light moved to, or
+	 * {@link #NONE}.
+	 */
+	void setSpin(int litSpace, int litFace, int target)
+	{
+		this.litSpace = litSpace;
+		this.litFace = litFace;
+		this.target = target;
+	}
+	
+	/**
+	 * Records a spin, with the spaces last set by
+	 * {@link #setSpin(int, int, int)}.
+	 *
+	 * @param seat The seat of the player who took the spin, starting from 0.
+	 * @param pressed Whether the player pressed their luck, as opposed to
+	 * taking a passed spin.
+	 * @param players The players, in seat order.
+	 */
+	void recordSpin(int seat, boolean pressed, Player[] players)
+	{
+		// Pack the fields into one value, first field lowest
+		long fields = this.target & ((1 << SPACE_BITS) - 1);
+		fields = (fields << FACE_BITS) |
+				(this.litFace & ((1 << FACE_BITS) - 1));
+		fields = (fields << SPACE_BITS) |
+				(this.litSpace & ((1 << SPACE_BITS) - 1));
+		fields = (fields << 1) | (pressed ? 1 : 0);
+		fields = (fields << this.seatBits) | seat;
+		fields = (fields << TYPE_BITS) | SPIN;
+		this.writeChanges(fields, TYPE_BITS + this.seatBits + 1 +
+				2 * SPACE_BITS + FACE_BITS, players);
+		this.setSpin(NONE, NONE, NONE);
+		this.numEvents++;
+	}
+	
+	/**
+	 * Records a pass.
+	 *
+	 * @param seat The seat of the player who passed, starting from 0.
+	 * @param targetSeat The seat of the player who received the spins, or the
+	 * seat of the player who passed if there was no-one to pass to.
+	 * @param players The players, in seat order.
+	 */
+	void recordPass(int seat, int targetSeat, Player[] players)
+	{
+		this.writeChanges((((long)targetSeat << this.seatBits | seat) <<
+				TYPE_BITS) | PASS, TYPE_BITS + 2 * this.seatBits, players);
+		this.numEvents++;
+	}
+	
+	/**
+	 * Writes the fields of an event, then the change in each player's state
+	 * since the last event: a four-bit mask per player of the values that
+	 * changed, followed by the changes.
+	 *
+	 * @param fields The fields of the event, packed first field lowest.
+	 * @param numFieldBits The number of bits in the fields, at most 63.
+	 * @param players The players, in seat order.
+	 */
+	private void writeChanges(long fields, int numFieldBits,
+			Player[] players)
+	{
+		long masks = 0;
+		for (int i = 0; i < this.numPlayers; i++) {
+			Player p = players[i];
+			long mask = (p.getScore() != this.scores[i] ? 1 : 0) |
+					(p.getEarnedSpins() != this.earnedSpins[i] ? 2 : 0) |
+					(p.getPassedSpins() != this.passedSpins[i] ? 4 : 0) |
+					(p.getWhammies() != this.whammies[i] ? 8 : 0);
+			masks |= mask << (4 * i);
+		}
+		// Write the masks with the fields if they fit
+		int numMaskBits = 4 * this.numPlayers;
+		if (numFieldBits + numMaskBits <= 63) {
+			this.writeBits(fields | masks << numFieldBits,
+					numFieldBits + numMaskBits);
+		} else {
+			this.writeBits(fields, numFieldBits);
+			this.writeBits(masks, numMaskBits);
+		}
+		for (int i = 0; masks != 0; i++, masks >>>= 4) {
+			if ((masks & 15) == 0) {
+				continue;
+			}
+			Player p = players[i];
+			long dScore = p.getScore() - this.scores[i];
+			int dEarned = p.getEarnedSpins() - this.earnedSpins[i];
+			int dPassed = p.getPassedSpins() - this.passedSpins[i];
+			int dWhammies = p.getWhammies() - this.whammies[i];
+			if (dScore != 0) {
+				this.writeChange(dScore, SCORE_LENGTH_BITS);
+				this.scores[i] = p.getScore();
+			}
+			if (dEarned != 0) {
+				this.writeChange(dEarned, COUNT_LENGTH_BITS);
+				this.earnedSpins[i] = p.getEarnedSpins();
+			}
+			if (dPassed != 0) {
+				this.writeChange(dPassed, COUNT_LENGTH_BITS);
+				this.passedSpins[i] = p.getPassedSpins();
+			}
+			if (dWhammies != 0) {
+				this.writeChange(dWhammies, COUNT_LENGTH_BITS);
+				this.whammies[i] = p.getWhammies();
+			}
+		}
+	}
+	
+	/**
+	 * Writes a nonzero signed change in zigzag encoding, after its length.
+	 *
+	 * @param change The change, which must not be zero.
+	 * @param lengthBits The number of bits in the length field.
+	 */
+	private void writeChange(long change, int lengthBits)
+	{
+		long z = (change << 1) ^ (change >> 63);
+		int n = 64 - Long.numberOfLeadingZeros(z);
+		if (n + lengthBits <= 63) {
+			this.writeBits((z << lengthBits) | (n - 1), n + lengthBits);
+		} else {
+			this.writeBits(n - 1, lengthBits);
+			this.writeBits(z >>> 32, n - 32);
+			this.writeBits(z & 0xFFFFFFFFL, 32);
+		}
+	}
+	
+	/**
+	 * Appends the lowest bits of the passed-in value to this log.
+	 *
+	 * @param value The value, which must fit in the number of bits.
+	 * @param n The number of bits, from 1 to 63.
+	 */
+	private void writeBits(long value, int n)
+	{
+		int offset = this.numBits & 63;
+		this.pending |= value << offset;
+		if (offset + n >= 64) {
+			int word = this.numBits >>> 6;
+			if (word + 2 >= this.bits.length) {
+				this.bits = Arrays.copyOf(this.bits, 2 * this.bits.length);
+			}
+			this.bits[word] = this.pending;
+			// The two shifts keep a zero offset from shifting by 64
+			this.pending = (value >>> 1) >>> (63 - offset);
+		}
+		this.numBits += n;
+	}
+	
+	/**
+	 * Stores the last, incomplete word of this log in the array, so that all
+	 * of its bits can be read.
+	 */
+	void flush()
+	{
+		this.bits[this.numBits >>> 6] = this.pending;
+	}
+	
+	/**
+	 * Returns the passed-in number of bits of this log, starting at the
+	 * passed-in position. The log must have been flushed since the bits were
+	 * written.
+	 *
+	 * @param pos The position of the first bit.
+	 * @param n The number of bits, from 0 to 63.
+	 * @return The bits, as the lowest bits of a {@code long}.
+	 */
+	long readBits(int pos, int n)
+	{
+		int word = pos >>> 6, offset = pos & 63;
+		long ret = this.bits[word] >>> offset |
+				(this.bits[word + 1] << 1) << (63 - offset);
+		return ret & ((1L << n) - 1);
+	}
+	
+	/**
+	 * Writes this log to the passed-in output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeLong(this.seed);
+		out.writeByte(this.numPlayers);
+		for (int i = 0; i < this.numPlayers; i++) {
+			out.writeUTF(this.playerNames[i]);
+			out.writeLong(this.playerIds[i]);
+		}
+		out.writeByte(this.boardFiles.length);
+		for (int i = 0; i < this.boardFiles.length; i++) {
+			out.writeUTF(this.boardFiles[i]);
+			out.writeLong(this.boardInitialSeeds[i]);
+			out.writeLong(this.boardSeeds[i]);
+		}
+		out.writeInt(this.numEvents);
+		out.writeInt(this.numBits);
+		this.flush();
+		for (int i = 0; i < (this.numBits + 63) >>> 6; i++) {
+			out.writeLong(this.bits[i]);
+		}
+	}
+	
+	/**
+	 * Reads a log written by {@link #write(DataOutput)} from the passed-in
+	 * input.
+	 *
+	 * @param in The input to read from.
+	 * @return The log.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static GameLog read(DataInput in) throws IOException
+	{
+		GameLog ret = new GameLog();
+		ret.begin(in.readLong(), in.readUnsignedByte());
+		for (int i = 0; i < ret.numPlayers; i++) {
+			ret.playerNames[i] = in.readUTF();
+			ret.playerIds[i] = in.readLong();
+		}
+		int numBoards = in.readUnsignedByte();
+		ret.boardFiles = new String[numBoards];
+		ret.boardInitialSeeds = new long[numBoards];
+		ret.boardSeeds = new long[numBoards];
+		for (int i = 0; i < numBoards; i++) {
+			ret.boardFiles[i] = in.readUTF();
+			ret.boardInitialSeeds[i] = in.readLong();
+			ret.boardSeeds[i] = in.readLong();
+		}
+		ret.numEvents = in.readInt();
+		ret.numBits = in.readInt();
+		ret.bits = new long[((ret.numBits + 63) >>> 6) + 1];
+		for (int i = 0; i < ret.bits.length - 1; i++) {
+			ret.bits[i] = in.readLong();
+		}
+		ret.pending = ret.bits[ret.numBits >>> 6];
+		return ret;
+	}
+	
+	/**
+	 * Skips a log written by {@link #write(DataOutput)} in the passed-in
+	 * input, without reading its events.
+	 *
+	 * @param in The input to skip the log in.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void skip(DataInput in) throws IOException
+	{
+		skipFully(in, 8);
+		int numPlayers = in.readUnsignedByte();
+		for (int i = 0; i < numPlayers; i++) {
+			skipFully(in, in.readUnsignedShort() + 8);
+		}
+		int numBoards = in.readUnsignedByte();
+		for (int i = 0; i < numBoards; i++) {
+			skipFully(in, in.readUnsignedShort() + 16);
+		}
+		skipFully(in, 4);
+		int numBits = in.readInt();
+		skipFully(in, 8 * ((numBits + 63) >>> 6));
+	}
+	
+	/**
+	 * Skips exactly the passed-in number of bytes in the passed-in input.
+	 *
+	 * @param in The input to skip the bytes in.
+	 * @param n The number of bytes to skip.
+	 * @throws IOException If an I/O error occurs, or the input ends first.
+	 */
+	private static void skipFully(DataInput in, int n) throws IOException
+	{
+		while (n > 0) {
+			int skipped = in.skipBytes(n);
+			if (skipped <= 0) {
+				// Read a byte to find out whether the input has ended
+				in.readByte();
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+	
+	/**
+	 * Returns the seed of the game's random number generator.
+	 *
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return this.seed;
+	}
+	
+	/**
+	 * Returns the number of players in the game.
+	 *
+	 * @return The number of players.
+	 */
+	public int getNumPlayers()
+	{
+		return this.numPlayers;
+	}
+	
+	/**
+	 * Returns the name of the player in the passed-in seat.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The name of the player.
+	 */
+	public String getPlayerName(int seat)
+	{
+		return this.playerNames[seat];
+	}
+	
+	/**
+	 * Returns the identity of the strategy of the player in the passed-in seat
+	 * (see {@link Player#getLogId()}).
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The identity of the player's strategy, or 0.
+	 */
+	public long getPlayerId(int seat)
+	{
+		return this.playerIds[seat];
+	}
+	
+	/**
+	 * Returns the number of boards in the game.
+	 *
+	 * @return The number of boards.
+	 */
+	public int getNumBoards()
+	{
+		return this.boardFiles.length;
+	}
+	
+	/**
+	 * Returns the file name of the board used in the passed-in round.
+	 *
+	 * @param round The round, starting from 0.
+	 * @return The board's file name.
+	 */
+	public String getBoardFile(int round)
+	{
+		return this.boardFiles[round];
+	}
+	
+	/**
+	 * Returns the seed the board used in the passed-in round was created
+	 * with.
+	 *
+	 * @param round The round, starting from 0.
+	 * @return The board's initial seed.
+	 */
+	public long getBoardInitialSeed(int round)
+	{
+		return this.boardInitialSeeds[round];
+	}
+	
+	/**
+	 * Returns the seed the board used in the passed-in round was last set to
+	 * before the game (see {@link Board#getSeed()}).
+	 *
+	 * @param round The round, starting from 0.
+	 * @return The board's seed.
+	 */
+	public long getBoardSeed(int round)
+	{
+		return this.boardSeeds[round];
+	}
+	
+	/**
+	 * Returns the number of events recorded.
+	 *
+	 * @return The number of events.
+	 */
+	public int getNumEvents()
+	{
+		return this.numEvents;
+	}
+	
+	/**
+	 * Returns the size of the recorded events, in bits.
+	 *
+	 * @return The size of the events.
+	 */
+	public int getNumBits()
+	{
+		return this.numBits;
+	}
+	
+	/**
+	 * Returns the number of bits in a seat field.
+	 *
+	 * @return The number of bits in a seat field.
+	 */
+	int getSeatBits()
+	{
+		return this.seatBits;
+	}
+}
\ No newline at end of file
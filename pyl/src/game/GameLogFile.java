@@ -0,0 +1,147 @@
+package game;
+
+import java.io.*;
+
+/**
+ * Class representing a binary file of game logs, appended to by every game
+ * played while logging is on, from any number of threads. Only games played
+ * by {@link Game} in this virtual machine are logged; games played by
+ * {@code ml.BatchedGameSimulator} or by worker processes are not.
+ * <p>
+ * When the {@value #PROPERTY} system property is set to a file name, every
+ * game played logs itself to that file (see {@link #fromSystemProperty()}),
+ * and the file is closed when the virtual machine shuts down. A game can then
+ * be read back by its index in the file with {@link #read(String, long)},
+ * which skips the games before it without decoding them.
+ *
+ * @author Archer Murray
+ */
+public class GameLogFile
+{
+	/**
+	 * The system property naming the file every game logs itself to.
+	 */
+	public static final String PROPERTY = "pyl.gameLog";
+	/**
+	 * The magic number at the start of every game log file ("PYLG").
+	 */
+	public static final int MAGIC = 0x50594C47;
+	/**
+	 * The version of the game log format, written after the magic number.
+	 */
+	public static final int VERSION = 2;
+	
+	private static GameLogFile systemLogFile;
+	private static boolean systemLogFileOpened;
+	
+	private final DataOutputStream out;
+	private long numGames;
+	
+	/**
+	 * Creates a new game log file with the passed-in file name, replacing any
+	 * existing file.
+	 *
+	 * @param fn The file name to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public GameLogFile(String fn) throws IOException
+	{
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fn), 1 << 16));
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+		this.numGames = 0;
+	}
+	
+	/**
+	 * Returns the game log file named by the {@value #PROPERTY} system
+	 * property, opening it the first time this is called, or {@code null} if
+	 * the property is not set.
+	 *
+	 * @return The game log file, or {@code null}.
+	 */
+	public static synchronized GameLogFile fromSystemProperty()
+	{
+		if (!systemLogFileOpened) {
+			systemLogFileOpened = true;
+			String fn = System.getProperty(PROPERTY);
+			if (fn != null) {
+				try {
+					systemLogFile = new GameLogFile(fn);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				GameLogFile logFile = systemLogFile;
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					try {
+						logFile.close();
+					} catch (IOException e) {
+						System.out.println("Could not close game log file " +
+								fn + ": " + e.getMessage());
+					}
+				}, "game-log-closer"));
+			}
+		}
+		return systemLogFile;
+	}
+	
+	/**
+	 * Appends the passed-in game log to this file.
+	 *
+	 * @param log The game log to append.
+	 * @return The index of the game in this file.
+	 */
+	public synchronized long append(GameLog log)
+	{
+		try {
+			log.write(this.out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this.numGames++;
+	}
+	
+	/**
+	 * Returns the number of games appended to this file.
+	 *
+	 * @return The number of games appended.
+	 */
+	public synchronized long getNumGames()
+	{
+		return this.numGames;
+	}
+	
+	/**
+	 * Writes any buffered games and closes this file.
+	 *
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public synchronized void close() throws IOException
+	{
+		this.out.close();
+	}
+	
+	/**
+	 * Reads the game at the passed-in index from the game log file with the
+	 * passed-in file name.
+	 *
+	 * @param fn The file name to read from.
+	 * @param index The index of the game in the file.
+	 * @return The game's log.
+	 * @throws IOException If an I/O error occurs, the file is not a game log
+	 * file, or it has no game at the index.
+	 */
+	public static GameLog read(String fn, long index) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(fn), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(fn + " is not a game log file");
+			}
+			for (long i = 0; i < index; i++) {
+				GameLog.skip(in);
+			}
+			return GameLog.read(in);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,417 @@
+package game;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class that reconstructs the state of a logged game after any of its events,
+ * by applying the changes recorded in its {@link GameLog}. No player logic is
+ * run and no random numbers are drawn, so moving through a game takes a small
+ * fraction of the time it took to play.
+ * <p>
+ * Running this class prints every event of a game in a game log file (see
+ * {@link GameLogFile}), with the scoreboard after it.
+ *
+ * @author Archer Murray
+ */
+public class GameReplayer
+{
+	private final GameLog log;
+	// The state of each player, in seat order
+	private final String[] names;
+	private final long[] scores;
+	private final int[] earnedSpins, passedSpins, whammies;
+	private int numEvents, pos, round;
+	// The last event applied
+	private int type, seat, litSpace, litFace, target, passTarget;
+	private boolean pressed;
+	
+	/**
+	 * Creates a new replayer of the game with the passed-in log, at the start
+	 * of the game.
+	 *
+	 * @param log The log of the game.
+	 */
+	public GameReplayer(GameLog log)
+	{
+		this.log = log;
+		this.log.flush();
+		int numPlayers = log.getNumPlayers();
+		this.names = new String[numPlayers];
+		for (int i = 0; i < numPlayers; i++) {
+			String name = log.getPlayerName(i);
+			this.names[i] = name.isEmpty() ? "Player " + (i + 1) : name;
+		}
+		this.scores = new long[numPlayers];
+		this.earnedSpins = new int[numPlayers];
+		this.passedSpins = new int[numPlayers];
+		this.whammies = new int[numPlayers];
+		this.seek(0);
+	}
+	
+	/**
+	 * Moves to the state of the game after the passed-in number of events.
+	 * Moving forward applies only the events in between; moving backward
+	 * replays the game from the start.
+	 *
+	 * @param event The number of events, from 0 to the number of events in
+	 * the log.
+	 */
+	public void seek(int event)
+	{
+		if (event < 0 || event > this.log.getNumEvents()) {
+			throw new IndexOutOfBoundsException("Event " + event +
+					" out of bounds for " + this.log.getNumEvents() +
+					" events");
+		}
+		if (event < this.numEvents || this.numEvents == 0) {
+			this.numEvents = 0;
+			this.pos = 0;
+			this.round = 0;
+			this.type = -1;
+			this.seat = -1;
+			Arrays.fill(this.scores, 0);
+			Arrays.fill(this.earnedSpins, 0);
+			Arrays.fill(this.passedSpins, 0);
+			Arrays.fill(this.whammies, 0);
+		}
+		while (this.numEvents < event) {
+			this.applyNext();
+		}
+	}
+	
+	/**
+	 * Applies the next event in the log.
+	 */
+	private void applyNext()
+	{
+		this.type = (int)this.read(GameLog.TYPE_BITS);
+		this.litSpace = GameLog.NONE;
+		this.litFace = GameLog.NONE;
+		this.target = GameLog.NONE;
+		this.passTarget = -1;
+		this.pressed = false;
+		if (this.type == GameLog.ROUND) {
+			this.round++;
+			this.seat = -1;
+		} else {
+			this.seat = (int)this.read(this.log.getSeatBits());
+			if (this.type == GameLog.SPIN) {
+				this.pressed = this.read(1) != 0;
+				this.litSpace = this.readIndex(GameLog.SPACE_BITS);
+				this.litFace = this.readIndex(GameLog.FACE_BITS);
+				this.target = this.readIndex(GameLog.SPACE_BITS);
+			} else {
+				this.passTarget = (int)this.read(this.log.getSeatBits());
+			}
+		}
+		long masks = this.read(4 * this.names.length);
+		for (int i = 0; i < this.names.length; i++) {
+			int mask = (int)(masks & 15);
+			masks >>>= 4;
+			if ((mask & 1) != 0) {
+				this.scores[i] += this.readChange(GameLog.SCORE_LENGTH_BITS);
+			}
+			if ((mask & 2) != 0) {
+				this.earnedSpins[i] += (int)this.readChange(
+						GameLog.COUNT_LENGTH_BITS);
+			}
+			if ((mask & 4) != 0) {
+				this.passedSpins[i] += (int)this.readChange(
+						GameLog.COUNT_LENGTH_BITS);
+			}
+			if ((mask & 8) != 0) {
+				this.whammies[i] += (int)this.readChange(
+						GameLog.COUNT_LENGTH_BITS);
+			}
+		}
+		this.numEvents++;
+	}
+	
+	/**
+	 * Reads the passed-in number of bits from the log.
+	 *
+	 * @param n The number of bits.
+	 * @return The bits.
+	 */
+	private long read(int n)
+	{
+		long ret = this.log.readBits(this.pos, n);
+		this.pos += n;
+		return ret;
+	}
+	
+	/**
+	 * Reads a space or face index from the log, in which the largest value
+	 * stands for {@link GameLog#NONE}.
+	 *
+	 * @param n The number of bits in the field.
+	 * @return The index, or {@link GameLog#NONE}.
+	 */
+	private int readIndex(int n)
+	{
+		int ret = (int)this.read(n);
+		return ret == (1 << n) - 1 ? GameLog.NONE : ret;
+	}
+	
+	/**
+	 * Reads a change written by the log in zigzag encoding, after its length.
+	 * A change too long to be written with its length in one write has its
+	 * high bits first (see {@code GameLog.writeChange}).
+	 *
+	 * @param lengthBits The number of bits in the length field.
+	 * @return The change.
+	 */
+	private long readChange(int lengthBits)
+	{
+		int n = (int)this.read(lengthBits) + 1;
+		long z = n + lengthBits > 63 ? this.read(n - 32) << 32 |
+				this.read(32) : this.read(n);
+		return (z >>> 1) ^ -(z & 1);
+	}
+	
+	/**
+	 * Returns the number of events applied so far.
+	 *
+	 * @return The number of events applied.
+	 */
+	public int getNumEvents()
+	{
+		return this.numEvents;
+	}
+	
+	/**
+	 * Returns the name of the player in the passed-in seat, or "Player
+	 * [seat + 1]" if the log has none.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The name of the player.
+	 */
+	public String getName(int seat)
+	{
+		return this.names[seat];
+	}
+	
+	/**
+	 * Returns the score of the player in the passed-in seat after the events
+	 * applied so far.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The player's score.
+	 */
+	public long getScore(int seat)
+	{
+		return this.scores[seat];
+	}
+	
+	/**
+	 * Returns the number of earned spins of the player in the passed-in seat
+	 * after the events applied so far.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The player's earned spins.
+	 */
+	public int getEarnedSpins(int seat)
+	{
+		return this.earnedSpins[seat];
+	}
+	
+	/**
+	 * Returns the number of passed spins of the player in the passed-in seat
+	 * after the events applied so far.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The player's passed spins.
+	 */
+	public int getPassedSpins(int seat)
+	{
+		return this.passedSpins[seat];
+	}
+	
+	/**
+	 * Returns the number of Whammies of the player in the passed-in seat
+	 * after the events applied so far.
+	 *
+	 * @param seat The seat of the player, starting from 0.
+	 * @return The player's Whammies.
+	 */
+	public int getWhammies(int seat)
+	{
+		return this.whammies[seat];
+	}
+	
+	/**
+	 * Returns the number of the current round, starting from 1, or 0 before
+	 * the first event.
+	 *
+	 * @return The number of the current round.
+	 */
+	public int getRound()
+	{
+		return this.round;
+	}
+	
+	/**
+	 * Returns the type of the last event applied ({@link GameLog#ROUND},
+	 * {@link GameLog#SPIN}, or {@link GameLog#PASS}), or -1 before the first
+	 * event.
+	 *
+	 * @return The type of the last event.
+	 */
+	public int getEventType()
+	{
+		return this.type;
+	}
+	
+	/**
+	 * Returns the seat, starting from 0, of the player who took the last spin
+	 * or made the last pass, or -1 if the last event started a round.
+	 *
+	 * @return The seat of the player.
+	 */
+	public int getSeat()
+	{
+		return this.seat;
+	}
+	
+	/**
+	 * Returns {@code true} if the last event was a spin that the player took
+	 * by pressing their luck and {@code false} otherwise.
+	 *
+	 * @return Whether the player pressed their luck.
+	 */
+	public boolean isPressed()
+	{
+		return this.pressed;
+	}
+	
+	/**
+	 * Returns the index of the space the light stopped on in the last spin,
+	 * or {@link GameLog#NONE}.
+	 *
+	 * @return The index of the lit space.
+	 */
+	public int getLitSpace()
+	{
+		return this.litSpace;
+	}
+	
+	/**
+	 * Returns the index of the face the light stopped on in the last spin, or
+	 * {@link GameLog#NONE}.
+	 *
+	 * @return The index of the lit face.
+	 */
+	public int getLitFace()
+	{
+		return this.litFace;
+	}
+	
+	/**
+	 * Returns the index of the space the light moved to in the last spin, or
+	 * {@link GameLog#NONE} if it did not move.
+	 *
+	 * @return The index of the space moved to.
+	 */
+	public int getMoveTarget()
+	{
+		return this.target;
+	}
+	
+	/**
+	 * Returns the seat of the player who received the spins in the last pass,
+	 * which is the passing player's own seat if there was no-one to pass to,
+	 * or -1 if the last event was not a pass.
+	 *
+	 * @return The seat of the pass target.
+	 */
+	public int getPassTarget()
+	{
+		return this.passTarget;
+	}
+	
+	/**
+	 * Returns a description of the last event applied.
+	 *
+	 * @return A description of the last event.
+	 */
+	public String describeEvent()
+	{
+		if (this.type == GameLog.ROUND) {
+			return "Round " + this.round + " begins.";
+		}
+		if (this.type == GameLog.PASS) {
+			String name = this.names[this.seat];
+			return this.passTarget == this.seat ? name + " passes." :
+					name + " passes to " + this.names[this.passTarget] + '.';
+		}
+		if (this.type == GameLog.SPIN) {
+			StringBuilder ret = new StringBuilder(this.names[this.seat]);
+			ret.append(this.pressed ? " presses their luck" :
+					" takes a passed spin");
+			if (this.litSpace != GameLog.NONE) {
+				ret.append(" and stops on space ").append(this.litSpace)
+						.append(", face ").append(this.litFace);
+			}
+			if (this.target != GameLog.NONE) {
+				ret.append(", moving to space ").append(this.target);
+			}
+			return ret.append('.').toString();
+		}
+		return "The game begins.";
+	}
+	
+	/**
+	 * Returns a {@code String} representation of the state of the game: the
+	 * last event applied and the scoreboard after it.
+	 *
+	 * @return A {@code String} representation of the state of the game.
+	 */
+	public String toString()
+	{
+		return this.describeEvent() + '\n' +
+				Game.formatScoreboard(this.names, this.scores,
+						this.earnedSpins, this.passedSpins, this.whammies);
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 2) {
+			System.out.println("Usage: java game.GameReplayer <log file> " +
+					"<game index> [event index]");
+			System.exit(1);
+		}
+		GameLog log = null;
+		try {
+			log = GameLogFile.read(args[0], Long.parseLong(args[1]));
+		} catch (IOException e) {
+			System.out.println("Could not read game " + args[1] + " from " +
+					args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+		GameReplayer replayer = new GameReplayer(log);
+		System.out.println("Seed " + log.getSeed() + ", " +
+				log.getNumEvents() + " events, " + (log.getNumBits() + 7) / 8 +
+				" bytes");
+		for (int i = 0; i < log.getNumPlayers(); i++) {
+			System.out.printf("Seat %d: %s (id %016x)\n", i + 1,
+					log.getPlayerName(i), log.getPlayerId(i));
+		}
+		for (int i = 0; i < log.getNumBoards(); i++) {
+			System.out.println("Round " + (i + 1) + ": " +
+					log.getBoardFile(i) + ", initial seed " +
+					log.getBoardInitialSeed(i) + ", seed " +
+					log.getBoardSeed(i));
+		}
+		System.out.println();
+		if (args.length > 2) {
+			replayer.seek(Integer.parseInt(args[2]));
+			System.out.println(replayer);
+			return;
+		}
+		for (int e = 1; e <= log.getNumEvents(); e++) {
+			replayer.seek(e);
+			System.out.println(replayer);
+		}
+	}
+}
\ No newline at end of file
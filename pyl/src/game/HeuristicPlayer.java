@@ -1,7 +1,5 @@
 package game;
 
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -16,24 +14,29 @@ public class HeuristicPlayer extends Player
 	public boolean pressOrPass()
 	{
 		// Determine current position and pass target
-		int pos = (int)Arrays.stream(this.getGame().getPlayers())
-				.filter(p -> p.getScore() >= this.getScore()).count();
-		Player target = Arrays.stream(this.getGame().getPlayers())
-				.filter(p -> !this.equals(p))
-				.max(Comparator.comparingLong(p -> p.getScore())).orElse(null);
+		int pos = 0;
+		Player target = null;
+		for (Player p: this.getGame().getPlayers()) {
+			if (p.getScore() >= this.getScore()) {
+				pos++;
+			}
+			if (!this.equals(p) &&
+					(target == null || p.getScore() > target.getScore())) {
+				target = p;
+			}
+		}
 		assert target != null;
+		Board board = this.getGame().getCurrentBoard();
 		// Use a special strategy for the final spin
 		if (this.getGame().isFinalSpin()) {
 			long scoreDiff = Math.abs(this.getScore() - target.getScore());
 			switch (pos) {
 				case 1:
 					// 1st place: press if 2nd's cash EV < score difference
-					return scoreDiff < this.getGame().getCurrentBoard()
-							.getExpCash(target.getScore());
+					return scoreDiff < board.getExpCash(target.getScore());
 				case 2:
 					// 2nd place: press if your cash EV < score difference
-					return scoreDiff < this.getGame().getCurrentBoard()
-							.getExpCash(this.getScore());
+					return scoreDiff < board.getExpCash(this.getScore());
 				default:
 					// 3rd place: always press
 					return true;
@@ -55,17 +58,11 @@ public class HeuristicPlayer extends Player
 		if (target.getWhammies() == 3) {
 			return false;
 		}
-		double expCash = this.getGame().getCurrentBoard().getExpCash(
-				this.getScore());
-		double expSpins = this.getGame().getCurrentBoard().getExpSpins();
-		double expWhammies = this.getGame().getCurrentBoard().getExpWhammies();
-		// Calculate expected amount to recoup if next spin hits a whammy
-		double recoupAmt = (this.getEarnedSpins() - 1) * expCash /
-				(1 - expSpins);
-		// Calculate point at which spinning again has a negative EV
-		double negExpAmt = expCash * (1 - expWhammies) / expWhammies;
-		// Press if current score is below higher of the above values
-		return this.getScore() < Math.max(recoupAmt, negExpAmt);
+		// Press if current score is below the higher of the amount expected to
+		// be recouped if the next spin hits a whammy and the point at which
+		// spinning again has a negative EV
+		return this.getScore() < board.getPressThreshold(
+				this.getEarnedSpins(), this.getScore());
 	}
 	
 	@Override
@@ -81,12 +78,10 @@ public class HeuristicPlayer extends Player
 			int amt = -1;
 			if (s.getCashAmount() > 0) {
 				amt = s.getCashAmount();
-			} else if (s.getValue().equals("P")) {
+			} else if (s.isPrize()) {
 				amt = this.getGame().getCurrentBoard().getAveragePrizeValue();
 			}
-			boolean hasSpin = s.getValue().charAt(s.getValue().length() - 1) ==
-					'S';
-			if (hasSpin) {
+			if (s.hasSpin()) {
 				if (amt > maxSpinValue) {
 					maxSpinValue = amt;
 					maxSpinSpace = s;
@@ -117,7 +112,12 @@ public class HeuristicPlayer extends Player
 	public Player choosePassTarget(List<Player> targets)
 	{
 		// Strategy: Pass to the player with the most whammies
-		return targets.stream()
-				.max(Comparator.comparingInt(Player::getWhammies)).orElse(null);
+		Player ret = null;
+		for (Player p: targets) {
+			if (ret == null || p.getWhammies() > ret.getWhammies()) {
+				ret = p;
+			}
+		}
+		return ret;
 	}
 }
\ No newline at end of file
@@ -230,6 +230,18 @@ public abstract class Player implements Comparable<Player>
 		this.name = name;
 	}
 	
+	/**
+	 * Returns a number identifying this player's strategy, which is recorded
+	 * in game logs, or 0 if the strategy has no identity beyond the player's
+	 * class. By default, this returns 0.
+	 *
+	 * @return The identity of this player's strategy, or 0.
+	 */
+	public long getLogId()
+	{
+		return 0;
+	}
+	
 	/**
 	 * Returns {@code true} if this player has spins left and {@code false}
 	 * otherwise.
@@ -258,8 +270,29 @@ public abstract class Player implements Comparable<Player>
 		} else {
 			this.earnedSpins--;
 		}
+		GameLog log = this.game == null ? null : this.game.getLog();
 		// Stop the board
-		if (stopBoard) {
+		if (stopBoard && !printSpin && board.isSampledSpins()) {
+			// Sample the outcome, and only stop the board if it is needed
+			SpinOutcomes outcomes = board.getSpinOutcomes();
+			int o = board.sampleSpinOutcome();
+			if (outcomes.getSpace(o) >= 0) {
+				board.stopBoardAt(outcomes.getSpace(o), outcomes.getFace(o));
+			}
+			if (log != null) {
+				log.setSpin(outcomes.getSpace(o), outcomes.getFace(o),
+						GameLog.NONE);
+			}
+			if (!outcomes.isMoveChoice(o)) {
+				this.performEffect(board, outcomes.getValue(o),
+						outcomes.getCashAmount(o), false, null);
+				if (outcomes.getDoubleSpace(o) >= 0) {
+					board.removeDoubleFromPlay(outcomes.getDoubleSpace(o),
+							outcomes.getDoubleFace(o));
+				}
+				return;
+			}
+		} else if (stopBoard) {
 			if (printSpin) {
 				InputUtil.getLine("Press Enter to stop the board...");
 			}
@@ -290,8 +323,31 @@ public abstract class Player implements Comparable<Player>
 				System.out.println(this.getName() + " chooses " + space + '.');
 			}
 		}
-		// Perform the effect of the space
-		String value = space.getValue();
+		if (log != null) {
+			int target = moveTargets.isEmpty() ? GameLog.NONE :
+					board.indexOf(space);
+			log.setSpin(board.getLightPos(), board.getLitSpace().getPos(),
+					target);
+		}
+		this.performEffect(board, space.getValue(), space.getCashAmount(),
+				printSpin, stopBoard ? space : null);
+	}
+	
+	/**
+	 * Performs the effect of the passed-in face value on this player.
+	 *
+	 * @param board The board the spin is on.
+	 * @param value The face value, in space notation.
+	 * @param cashAmt The cash amount of the face, or 0 if it has a non-cash
+	 * value.
+	 * @param printSpin Whether to print the result of the spin.
+	 * @param stopped The space showing the face if the board was stopped for
+	 * the spin, in which case "Double Your $$ + One Spin" is removed from it,
+	 * or {@code null}.
+	 */
+	private void performEffect(Board board, String value, int cashAmt,
+			boolean printSpin, Space stopped)
+	{
 		char firstChar = value.charAt(0);
 		StringBuilder printStr = new StringBuilder();
 		if (firstChar == 'W') {
@@ -343,8 +399,8 @@ public abstract class Player implements Comparable<Player>
 			// Double Your $$ + One Spin
 			this.score *= 2;
 			this.earnedSpins++;
-			if (stopBoard) {
-				board.removeDoubleFromPlay();
+			if (stopped != null) {
+				board.removeDoubleFromPlay(stopped);
 			}
 		} else if (firstChar == 'A') {
 			// Add-a-One
@@ -358,7 +414,6 @@ public abstract class Player implements Comparable<Player>
 		} else {
 			// Cash space
 			char lastChar = value.charAt(value.length() - 1);
-			int cashAmt = space.getCashAmount();
 			if (lastChar == 'S') {
 				// Cash + One Spin
 				this.score += cashAmt;
@@ -1,7 +1,5 @@
 package game;
 
-import java.util.Random;
-
 /**
  * Class representing a space on the board in Press Your Luck.
  * <p>
@@ -36,9 +34,15 @@ import java.util.Random;
  */
 public class Space
 {
-	private final Random rng;
+	private final BufferedRandom rng;
 	private final String[] values;
+	private final Board board;
 	private int pos;
+	private long drawnStop;
+	
+	// Values pre-parsed from each face, to avoid parsing during play
+	private final int[] cashAmounts;
+	private final boolean[] spins, prizes;
 	
 	/**
 	 * Constructs a new space with the given values.
@@ -47,9 +51,66 @@ public class Space
 	 */
 	public Space(String[] values)
 	{
-		this.rng = new Random();
+		this(values, null);
+	}
+	
+	/**
+	 * Constructs a new space with the given values on the given board. While
+	 * the board makes lazy stops, this space draws its current value the first
+	 * time it is read after each stop.
+	 *
+	 * @param values The list of values, in "space notation".
+	 * @param board The board this space is on, or {@code null} if the space's
+	 * value is only changed explicitly.
+	 */
+	Space(String[] values, Board board)
+	{
+		this.rng = new BufferedRandom();
 		this.values = values;
+		this.board = board;
 		this.pos = 0;
+		this.drawnStop = board == null ? 0 : board.getNumStops();
+		this.cashAmounts = new int[values.length];
+		this.spins = new boolean[values.length];
+		this.prizes = new boolean[values.length];
+		for (int i = 0; i < values.length; i++) {
+			this.parseValue(i);
+		}
+	}
+	
+	/**
+	 * Updates the pre-parsed values for the face at the passed-in index.
+	 *
+	 * @param idx The index of the face.
+	 */
+	private void parseValue(int idx)
+	{
+		String value = this.values[idx];
+		if (!Character.isDigit(value.charAt(0))) {
+			this.cashAmounts[idx] = 0;
+		} else if (!Character.isDigit(value.charAt(value.length() - 1))) {
+			this.cashAmounts[idx] = Integer.parseInt(value.substring(0,
+					value.length() - 1));
+		} else {
+			this.cashAmounts[idx] = Integer.parseInt(value);
+		}
+		this.spins[idx] = value.charAt(value.length() - 1) == 'S';
+		this.prizes[idx] = value.equals("P");
+	}
+	
+	/**
+	 * Returns the index of this space's current value, first drawing it at
+	 * random if the board has made a lazy stop since it was last drawn.
+	 *
+	 * @return The index of this space's current value.
+	 */
+	int getPos()
+	{
+		if (this.board != null && this.drawnStop != this.board.getNumStops()) {
+			this.drawnStop = this.board.getNumStops();
+			this.pos = this.rng.nextInt(this.values.length);
+		}
+		return this.pos;
 	}
 	
 	/**
@@ -59,7 +120,19 @@ public class Space
 	 */
 	public String getValue()
 	{
-		return this.values[this.pos];
+		return this.values[this.getPos()];
+	}
+	
+	/**
+	 * Returns the value at the passed-in index in this space's list of
+	 * possible values.
+	 *
+	 * @param idx The index of the value.
+	 * @return The value at the index.
+	 */
+	public String getValue(int idx)
+	{
+		return this.values[idx];
 	}
 	
 	/**
@@ -69,16 +142,39 @@ public class Space
 	 */
 	public void setCurrentValue(String newValue)
 	{
-		this.values[this.pos] = newValue;
+		this.setValue(this.getPos(), newValue);
+	}
+	
+	/**
+	 * Sets the value at the passed-in index in this space's list of possible
+	 * values to the passed-in new value.
+	 *
+	 * @param idx The index of the value.
+	 * @param newValue The new value.
+	 */
+	void setValue(int idx, String newValue)
+	{
+		this.values[idx] = newValue;
+		this.parseValue(idx);
 	}
 	
 	/**
 	 * Sets this space's current value to a random value in its list of possible
-	 * values.
+	 * values, which counts as its draw for the board's current stop.
 	 */
 	public void randomizeValue()
 	{
-		this.pos = this.rng.nextInt(this.values.length);
+		this.setPos(this.rng.nextInt(this.values.length));
+	}
+	
+	/**
+	 * Sets the seed of this space's random number generator.
+	 *
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed)
+	{
+		this.rng.setSeed(seed);
 	}
 	
 	/**
@@ -89,6 +185,9 @@ public class Space
 	public void setPos(int pos)
 	{
 		this.pos = pos;
+		if (this.board != null) {
+			this.drawnStop = this.board.getNumStops();
+		}
 	}
 	
 	/**
@@ -168,15 +267,43 @@ public class Space
 	 */
 	public int getCashAmount()
 	{
-		String currValue = this.getValue();
-		if (!Character.isDigit(currValue.charAt(0))) {
-			return 0;
-		}
-		if (!Character.isDigit(currValue.charAt(currValue.length() - 1))) {
-			return Integer.parseInt(currValue.substring(0,
-					currValue.length() - 1));
-		}
-		return Integer.parseInt(currValue);
+		return this.cashAmounts[this.getPos()];
+	}
+	
+	/**
+	 * Returns the cash amount of the value at the passed-in index in this
+	 * space's list of possible values, or 0 if it is a non-cash value.
+	 *
+	 * @param idx The index of the value.
+	 * @return The cash amount of the value.
+	 */
+	int getCashAmount(int idx)
+	{
+		return this.cashAmounts[idx];
+	}
+	
+	/**
+	 * Returns {@code true} if this space is currently a cash amount plus one
+	 * spin and {@code false} otherwise.
+	 *
+	 * @return {@code true} if this space is currently a cash amount plus one
+	 * spin and {@code false} otherwise.
+	 */
+	public boolean hasSpin()
+	{
+		return this.spins[this.getPos()];
+	}
+	
+	/**
+	 * Returns {@code true} if this space is currently a prize and
+	 * {@code false} otherwise.
+	 *
+	 * @return {@code true} if this space is currently a prize and
+	 * {@code false} otherwise.
+	 */
+	public boolean isPrize()
+	{
+		return this.prizes[this.getPos()];
 	}
 	
 	/**
@@ -0,0 +1,374 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class representing the distribution of the outcomes of a spin on a board,
+ * which can be sampled with one random number using Walker's alias method.
+ * <p>
+ * An outcome is the face whose effect a spin performs: the face the light
+ * stops on, or, if that face is Big Bucks or moves the light a fixed number
+ * of spaces, the face the light is redirected to. Outcomes with the same face
+ * value are merged. The exceptions are the outcomes where the light stops on
+ * a movement space with a choice of targets (a Move space or Pick-a-Corner),
+ * which are left as branch points for the player to resolve on the board,
+ * and the outcomes that perform "Double Your $$ + One Spin", which is removed
+ * from the face that shows it. Both of these keep the space and face the
+ * light stopped on, and the Double outcomes also keep the space and face of
+ * the Double, which differ when the light was redirected to it.
+ * <p>
+ * The distribution is computed from the faces of the board's spaces when it
+ * is created, and must be recreated when a face changes.
+ *
+ * @author Archer Murray
+ */
+public class SpinOutcomes
+{
+	private final String[] values;
+	private final int[] cashAmounts, spaces, faces, doubleSpaces,
+			doubleFaces;
+	private final boolean[] moveChoices;
+	private final double[] probabilities;
+	// Alias table: outcome i is kept with probability cutoffs[i] and
+	// otherwise replaced by aliases[i]
+	private final double[] cutoffs;
+	private final int[] aliases;
+	
+	/**
+	 * Computes the distribution of the outcomes of a spin on a board with the
+	 * passed-in spaces, in order clockwise from the top-left corner.
+	 *
+	 * @param boardSpaces The spaces of the board.
+	 */
+	SpinOutcomes(List<Space> boardSpaces)
+	{
+		int n = boardSpaces.size();
+		List<String> valueList = new ArrayList<>();
+		List<Integer> cashList = new ArrayList<>(), spaceList =
+				new ArrayList<>(), faceList = new ArrayList<>(),
+				doubleSpaceList = new ArrayList<>(), doubleFaceList =
+				new ArrayList<>();
+		List<Boolean> choiceList = new ArrayList<>();
+		List<Double> probList = new ArrayList<>();
+		Map<String, Integer> index = new LinkedHashMap<>();
+		for (int s = 0; s < n; s++) {
+			Space lit = boardSpaces.get(s);
+			for (int f = 0; f < lit.getNumValues(); f++) {
+				double p = 1.0 / (n * lit.getNumValues());
+				String value = lit.getValue(f);
+				char firstChar = value.charAt(0);
+				// Find the faces this face resolves to, with their
+				// probabilities, as pairs of space and face indices
+				List<int[]> targets = new ArrayList<>();
+				List<Double> targetProbs = new ArrayList<>();
+				boolean choice = firstChar == 'M' || firstChar == 'C';
+				if (firstChar == '<' || firstChar == '>') {
+					int moveAmt = Integer.parseInt(value.substring(1));
+					int t = firstChar == '<' ? (n + s - moveAmt) % n :
+							(s + moveAmt) % n;
+					Space target = boardSpaces.get(t);
+					for (int tf = 0; tf < target.getNumValues(); tf++) {
+						targets.add(new int[]{t, tf});
+						targetProbs.add(1.0 / target.getNumValues());
+					}
+				} else if (firstChar == 'B') {
+					addBigBucksTargets(boardSpaces, s, f, targets,
+							targetProbs);
+				} else {
+					targets.add(new int[]{s, f});
+					targetProbs.add(1.0);
+				}
+				for (int i = 0; i < targets.size(); i++) {
+					int t = targets.get(i)[0], tf = targets.get(i)[1];
+					Space target = boardSpaces.get(t);
+					String tValue = target.getValue(tf);
+					boolean isDouble = tValue.charAt(0) == 'D';
+					boolean keepLit = choice || isDouble;
+					String key = keepLit ? tValue + '@' + s + ',' + f : tValue;
+					if (isDouble) {
+						key += ">" + t + ',' + tf;
+					}
+					Integer o = index.get(key);
+					if (o == null) {
+						o = valueList.size();
+						index.put(key, o);
+						valueList.add(tValue);
+						cashList.add(target.getCashAmount(tf));
+						spaceList.add(keepLit ? s : -1);
+						faceList.add(keepLit ? f : -1);
+						doubleSpaceList.add(isDouble ? t : -1);
+						doubleFaceList.add(isDouble ? tf : -1);
+						choiceList.add(choice);
+						probList.add(0.0);
+					}
+					probList.set(o, probList.get(o) + p * targetProbs.get(i));
+				}
+			}
+		}
+		int m = valueList.size();
+		this.values = valueList.toArray(new String[0]);
+		this.cashAmounts = new int[m];
+		this.spaces = new int[m];
+		this.faces = new int[m];
+		this.doubleSpaces = new int[m];
+		this.doubleFaces = new int[m];
+		this.moveChoices = new boolean[m];
+		this.probabilities = new double[m];
+		for (int o = 0; o < m; o++) {
+			this.cashAmounts[o] = cashList.get(o);
+			this.spaces[o] = spaceList.get(o);
+			this.faces[o] = faceList.get(o);
+			this.doubleSpaces[o] = doubleSpaceList.get(o);
+			this.doubleFaces[o] = doubleFaceList.get(o);
+			this.moveChoices[o] = choiceList.get(o);
+			this.probabilities[o] = probList.get(o);
+		}
+		this.cutoffs = new double[m];
+		this.aliases = new int[m];
+		this.buildAliasTable();
+	}
+	
+	/**
+	 * Adds the faces that Big Bucks redirects the light to, and their
+	 * probabilities, to the passed-in lists.
+	 * <p>
+	 * Big Bucks moves the light to the first space with the largest cash
+	 * amount. The light is redirected to face {@code f} of space {@code i},
+	 * with cash amount {@code c}, if every earlier space has less than
+	 * {@code c} and every later space has at most {@code c}; since the faces
+	 * of the spaces are independent, this probability is a product over the
+	 * spaces. The Big Bucks space itself has no cash amount.
+	 *
+	 * @param boardSpaces The spaces of the board.
+	 * @param lit The index of the Big Bucks space.
+	 * @param litFace The index of the Big Bucks face of that space.
+	 * @param targets The list to add the space and face indices to.
+	 * @param targetProbs The list to add the probabilities to.
+	 */
+	private static void addBigBucksTargets(List<Space> boardSpaces, int lit,
+			int litFace, List<int[]> targets, List<Double> targetProbs)
+	{
+		int n = boardSpaces.size();
+		for (int i = 0; i < n; i++) {
+			Space space = boardSpaces.get(i);
+			for (int f = 0; f < space.getNumValues(); f++) {
+				if (i == lit && f != litFace) {
+					continue;
+				}
+				int cash = space.getCashAmount(f);
+				double p = i == lit ? 1 : 1.0 / space.getNumValues();
+				for (int j = 0; j < n && p > 0; j++) {
+					if (j != i) {
+						p *= cashProbability(boardSpaces.get(j),
+								j == lit ? litFace : -1, cash, j > i);
+					}
+				}
+				if (p > 0) {
+					targets.add(new int[]{i, f});
+					targetProbs.add(p);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the probability that the cash amount of the passed-in space is
+	 * less than (or, if {@code orEqual} is {@code true}, at most) the
+	 * passed-in amount.
+	 *
+	 * @param space The space.
+	 * @param fixedFace The index of the space's face if it is known, or -1 if
+	 * it is random.
+	 * @param cash The amount to compare with.
+	 * @param orEqual Whether an equal amount counts.
+	 * @return The probability.
+	 */
+	private static double cashProbability(Space space, int fixedFace,
+			int cash, boolean orEqual)
+	{
+		int count = 0, total = 0;
+		for (int f = 0; f < space.getNumValues(); f++) {
+			if (fixedFace >= 0 && f != fixedFace) {
+				continue;
+			}
+			int c = space.getCashAmount(f);
+			if (c < cash || (orEqual && c == cash)) {
+				count++;
+			}
+			total++;
+		}
+		return (double)count / total;
+	}
+	
+	/**
+	 * Builds the alias table from the outcome probabilities, using Vose's
+	 * method.
+	 */
+	private void buildAliasTable()
+	{
+		int m = this.probabilities.length;
+		double[] scaled = new double[m];
+		int[] small = new int[m], large = new int[m];
+		int numSmall = 0, numLarge = 0;
+		for (int o = 0; o < m; o++) {
+			scaled[o] = this.probabilities[o] * m;
+			if (scaled[o] < 1) {
+				small[numSmall++] = o;
+			} else {
+				large[numLarge++] = o;
+			}
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			int s = small[--numSmall];
+			int l = large[--numLarge];
+			this.cutoffs[s] = scaled[s];
+			this.aliases[s] = l;
+			scaled[l] -= 1 - scaled[s];
+			if (scaled[l] < 1) {
+				small[numSmall++] = l;
+			} else {
+				large[numLarge++] = l;
+			}
+		}
+		// Whatever is left has probability 1, up to rounding error
+		while (numLarge > 0) {
+			int l = large[--numLarge];
+			this.cutoffs[l] = 1;
+			this.aliases[l] = l;
+		}
+		while (numSmall > 0) {
+			int s = small[--numSmall];
+			this.cutoffs[s] = 1;
+			this.aliases[s] = s;
+		}
+	}
+	
+	/**
+	 * Returns a random outcome, drawn with one random number from the
+	 * passed-in random number generator.
+	 *
+	 * @param rng The random number generator.
+	 * @return The index of the outcome.
+	 */
+	public int sample(Random rng)
+	{
+		double u = rng.nextDouble() * this.cutoffs.length;
+		int o = (int)u;
+		return u - o < this.cutoffs[o] ? o : this.aliases[o];
+	}
+	
+	/**
+	 * Returns the number of outcomes.
+	 *
+	 * @return The number of outcomes.
+	 */
+	public int getNumOutcomes()
+	{
+		return this.values.length;
+	}
+	
+	/**
+	 * Returns the probability of the outcome at the passed-in index.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The probability of the outcome.
+	 */
+	public double getProbability(int o)
+	{
+		return this.probabilities[o];
+	}
+	
+	/**
+	 * Returns the face value, in space notation, whose effect the outcome at
+	 * the passed-in index performs. For a branch point, this is the movement
+	 * face the light stopped on.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The face value.
+	 */
+	public String getValue(int o)
+	{
+		return this.values[o];
+	}
+	
+	/**
+	 * Returns the cash amount of the face of the outcome at the passed-in
+	 * index, or 0 if it has a non-cash value.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The cash amount.
+	 */
+	public int getCashAmount(int o)
+	{
+		return this.cashAmounts[o];
+	}
+	
+	/**
+	 * Returns {@code true} if the outcome at the passed-in index is a branch
+	 * point, where the light stopped on a space with a choice of targets, and
+	 * {@code false} otherwise.
+	 *
+	 * @param o The index of the outcome.
+	 * @return Whether the outcome is a branch point.
+	 */
+	public boolean isMoveChoice(int o)
+	{
+		return this.moveChoices[o];
+	}
+	
+	/**
+	 * Returns the index of the space the light stopped on for the outcome at
+	 * the passed-in index, or -1 if the outcome is merged from several
+	 * spaces.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The index of the space, or -1.
+	 */
+	public int getSpace(int o)
+	{
+		return this.spaces[o];
+	}
+	
+	/**
+	 * Returns the index of the face the light stopped on for the outcome at
+	 * the passed-in index, or -1 if the outcome is merged from several
+	 * faces.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The index of the face, or -1.
+	 */
+	public int getFace(int o)
+	{
+		return this.faces[o];
+	}
+	
+	/**
+	 * Returns the index of the space showing "Double Your $$ + One Spin" for
+	 * the outcome at the passed-in index, or -1 if the outcome does not
+	 * perform it.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The index of the space, or -1.
+	 */
+	public int getDoubleSpace(int o)
+	{
+		return this.doubleSpaces[o];
+	}
+	
+	/**
+	 * Returns the index of the face showing "Double Your $$ + One Spin" for
+	 * the outcome at the passed-in index, or -1 if the outcome does not
+	 * perform it.
+	 *
+	 * @param o The index of the outcome.
+	 * @return The index of the face, or -1.
+	 */
+	public int getDoubleFace(int o)
+	{
+		return this.doubleFaces[o];
+	}
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package game;
 
+import metrics.FeatureStatistics;
+
 import java.util.stream.IntStream;
 
 /**
@@ -11,14 +13,28 @@ import java.util.stream.IntStream;
 public class StateRecordingPlayer extends HeuristicPlayer
 {
 	private final double[] totalStateValues;
+	private final FeatureStatistics statistics;
 	private long statesMeasured;
 	
 	/**
 	 * Creates a new state-recording player.
 	 */
 	public StateRecordingPlayer()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Creates a new state-recording player that also adds each game state it
+	 * measures to the passed-in statistics.
+	 *
+	 * @param statistics The statistics to add game states to, or {@code null}
+	 * if none.
+	 */
+	public StateRecordingPlayer(FeatureStatistics statistics)
 	{
 		this.totalStateValues = new double[33];
+		this.statistics = statistics;
 		this.statesMeasured = 0;
 	}
 	
@@ -32,6 +48,9 @@ public class StateRecordingPlayer extends HeuristicPlayer
 		for (int i = 0; i < 33; i++) {
 			this.totalStateValues[i] += state[i];
 		}
+		if (this.statistics != null) {
+			this.statistics.add(state);
+		}
 		this.statesMeasured++;
 	}
 	
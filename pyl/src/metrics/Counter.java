@@ -0,0 +1,72 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing a named counter that can be incremented cheaply from many
+ * threads at once.
+ *
+ * @author Archer Murray
+ */
+public class Counter
+{
+	private final String name;
+	private final LongAdder count;
+	
+	/**
+	 * Creates a new counter with the passed-in name.
+	 *
+	 * @param name The name of the counter.
+	 */
+	public Counter(String name)
+	{
+		this.name = name;
+		this.count = new LongAdder();
+	}
+	
+	/**
+	 * Returns the name of this counter.
+	 *
+	 * @return The name of this counter.
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	/**
+	 * Adds one to this counter.
+	 */
+	public void increment()
+	{
+		this.count.increment();
+	}
+	
+	/**
+	 * Adds the passed-in amount to this counter.
+	 *
+	 * @param amount The amount to add.
+	 */
+	public void add(long amount)
+	{
+		this.count.add(amount);
+	}
+	
+	/**
+	 * Returns the current value of this counter.
+	 *
+	 * @return The current value of this counter.
+	 */
+	public long get()
+	{
+		return this.count.sum();
+	}
+	
+	/**
+	 * Resets this counter to zero.
+	 */
+	public void reset()
+	{
+		this.count.reset();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a neural network player makes a decision.
+ * The duration of the event is the latency of the decision. Since decisions
+ * are very frequent, stack traces are not recorded.
+ *
+ * @author Archer Murray
+ */
+@Name("pyl.Decision")
+@Label("Decision")
+@Category("Press Your Luck")
+@StackTrace(false)
+@Description("A neural network player made a decision")
+public class DecisionEvent extends Event
+{
+	/**
+	 * The class name of the player making the decision.
+	 */
+	@Label("Player Type")
+	public String playerType;
+	
+	/**
+	 * The kind of decision: "pressOrPass", "chooseMoveTarget",
+	 * "moneyOrLoseWhammy", or "choosePassTarget".
+	 */
+	@Label("Decision Kind")
+	public String kind;
+	
+	/**
+	 * The number of candidate options evaluated.
+	 */
+	@Label("Candidates")
+	public int candidates;
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package metrics;
+
+/**
+ * Class representing streaming statistics of a fixed-length vector of
+ * features: the mean, variance, minimum, maximum, and estimated quantiles of
+ * each feature.
+ * <p>
+ * Means and variances are accumulated with Welford's algorithm, which stays
+ * accurate over very many samples, and statistics from different threads are
+ * combined with {@link #merge(FeatureStatistics)}.
+ * <p>
+ * This class is not thread-safe; each thread should add to its own statistics,
+ * and the statistics should be merged when all threads have finished.
+ *
+ * @author Archer Murray
+ */
+public class FeatureStatistics
+{
+	private final int numFeatures;
+	private long count;
+	private final double[] mean, m2, min, max;
+	private final QuantileSketch[] sketches;
+	
+	/**
+	 * Creates new, empty statistics for the passed-in number of features.
+	 *
+	 * @param numFeatures The number of features in each sample.
+	 */
+	public FeatureStatistics(int numFeatures)
+	{
+		this.numFeatures = numFeatures;
+		this.count = 0;
+		this.mean = new double[numFeatures];
+		this.m2 = new double[numFeatures];
+		this.min = new double[numFeatures];
+		this.max = new double[numFeatures];
+		this.sketches = new QuantileSketch[numFeatures];
+		for (int i = 0; i < numFeatures; i++) {
+			this.min[i] = Double.POSITIVE_INFINITY;
+			this.max[i] = Double.NEGATIVE_INFINITY;
+			this.sketches[i] = new QuantileSketch();
+		}
+	}
+	
+	/**
+	 * Adds a sample to these statistics.
+	 *
+	 * @param sample The sample, which must have one value per feature.
+	 */
+	public void add(double[] sample)
+	{
+		assert sample.length == this.numFeatures : "sample must be length " +
+				this.numFeatures;
+		this.count++;
+		for (int i = 0; i < this.numFeatures; i++) {
+			double x = sample[i];
+			double delta = x - this.mean[i];
+			this.mean[i] += delta / this.count;
+			this.m2[i] += delta * (x - this.mean[i]);
+			if (x < this.min[i]) {
+				this.min[i] = x;
+			}
+			if (x > this.max[i]) {
+				this.max[i] = x;
+			}
+			this.sketches[i].add(x);
+		}
+	}
+	
+	/**
+	 * Adds all samples counted by the passed-in statistics to these
+	 * statistics.
+	 *
+	 * @param other The statistics to merge into these statistics, which must
+	 * have the same number of features.
+	 */
+	public void merge(FeatureStatistics other)
+	{
+		assert other.numFeatures == this.numFeatures :
+				"statistics must have the same number of features";
+		if (other.count == 0) {
+			return;
+		}
+		long total = this.count + other.count;
+		for (int i = 0; i < this.numFeatures; i++) {
+			double delta = other.mean[i] - this.mean[i];
+			this.mean[i] += delta * other.count / total;
+			this.m2[i] += other.m2[i] + delta * delta * ((double)this.count *
+					other.count / total);
+			this.min[i] = Math.min(this.min[i], other.min[i]);
+			this.max[i] = Math.max(this.max[i], other.max[i]);
+			this.sketches[i].merge(other.sketches[i]);
+		}
+		this.count = total;
+	}
+	
+	/**
+	 * Returns the number of features in each sample.
+	 *
+	 * @return The number of features in each sample.
+	 */
+	public int getNumFeatures()
+	{
+		return this.numFeatures;
+	}
+	
+	/**
+	 * Returns the number of samples added to these statistics.
+	 *
+	 * @return The number of samples added to these statistics.
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+	
+	/**
+	 * Returns the mean of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @return The mean of the feature.
+	 */
+	public double getMean(int feature)
+	{
+		return this.mean[feature];
+	}
+	
+	/**
+	 * Returns the population variance of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @return The variance of the feature, or 0 if there are no samples.
+	 */
+	public double getVariance(int feature)
+	{
+		return this.count == 0 ? 0 : this.m2[feature] / this.count;
+	}
+	
+	/**
+	 * Returns the population standard deviation of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @return The standard deviation of the feature, or 0 if there are no
+	 * samples.
+	 */
+	public double getStandardDeviation(int feature)
+	{
+		return Math.sqrt(this.getVariance(feature));
+	}
+	
+	/**
+	 * Returns the minimum value of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @return The minimum value of the feature.
+	 */
+	public double getMin(int feature)
+	{
+		return this.min[feature];
+	}
+	
+	/**
+	 * Returns the maximum value of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @return The maximum value of the feature.
+	 */
+	public double getMax(int feature)
+	{
+		return this.max[feature];
+	}
+	
+	/**
+	 * Returns an estimate of the passed-in quantile of the passed-in feature.
+	 *
+	 * @param feature The index of the feature.
+	 * @param q The quantile, from 0 to 1.
+	 * @return The estimated quantile, or {@code NaN} if there are no samples.
+	 */
+	public double getQuantile(int feature, double q)
+	{
+		return this.sketches[feature].getQuantile(q);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted when a game finishes. The duration of the event
+ * is the time taken to play the game.
+ *
+ * @author Archer Murray
+ */
+@Name("pyl.GameCompleted")
+@Label("Game Completed")
+@Category("Press Your Luck")
+@Description("A game of Press Your Luck was played to completion")
+public class GameCompletedEvent extends Event
+{
+	/**
+	 * The number of spins played in the game.
+	 */
+	@Label("Spins")
+	public int spins;
+	
+	/**
+	 * The number of times a player passed their spins in the game.
+	 */
+	@Label("Passes")
+	public int passes;
+	
+	/**
+	 * The name of the winner, or the names of the joint winners separated by
+	 * commas.
+	 */
+	@Label("Winner")
+	public String winner;
+	
+	/**
+	 * The winning score.
+	 */
+	@Label("Winning Score")
+	public long winningScore;
+}
\ No newline at end of file
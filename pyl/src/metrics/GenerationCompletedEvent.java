@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted when a genetic learner finishes a generation.
+ * The duration of the event is the time taken to play the generation.
+ *
+ * @author Archer Murray
+ */
+@Name("pyl.GenerationCompleted")
+@Label("Generation Completed")
+@Category("Press Your Luck")
+@Description("A genetic learner played one generation")
+public class GenerationCompletedEvent extends Event
+{
+	/**
+	 * The class name of the learner.
+	 */
+	@Label("Learner")
+	public String learner;
+	
+	/**
+	 * The number of the generation just completed.
+	 */
+	@Label("Generation")
+	public long generation;
+	
+	/**
+	 * The number of players in the population.
+	 */
+	@Label("Population Size")
+	public int populationSize;
+	
+	/**
+	 * The number of threads the generation was played on.
+	 */
+	@Label("Threads")
+	public int threads;
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when gradient descent is performed on a neural
+ * network. The duration of the event is the time taken by the step. Stack
+ * traces are not recorded.
+ *
+ * @author Archer Murray
+ */
+@Name("pyl.GradientStep")
+@Label("Gradient Step")
+@Category("Press Your Luck")
+@StackTrace(false)
+@Description("Gradient descent was performed on a neural network")
+public class GradientStepEvent extends Event
+{
+	/**
+	 * The number of weights in the neural network.
+	 */
+	@Label("Weights")
+	public int weights;
+	
+	/**
+	 * The evaluation difference the step was meant to bring about.
+	 */
+	@Label("Difference")
+	public double diff;
+}
\ No newline at end of file
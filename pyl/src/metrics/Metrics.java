@@ -0,0 +1,294 @@
+package metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Class holding the global simulation and learning metrics.
+ * <p>
+ * All counters and timers are backed by striped {@code LongAdder}s, so they
+ * can be updated from every game thread without contention. The metrics can be
+ * read over JMX after calling {@link #register()}, or appended to a CSV file
+ * periodically after calling {@link #startReporter(String, long)}.
+ *
+ * @author Archer Murray
+ */
+public final class Metrics implements MetricsMXBean
+{
+	/**
+	 * The JMX object name the metrics are registered under.
+	 */
+	public static final String OBJECT_NAME = "pyl:type=Metrics";
+	
+	/**
+	 * The number of games played.
+	 */
+	public static final Counter GAMES = new Counter("games");
+	/**
+	 * The number of spins played.
+	 */
+	public static final Counter SPINS = new Counter("spins");
+	/**
+	 * The number of times a player passed their spins.
+	 */
+	public static final Counter PASSES = new Counter("passes");
+	/**
+	 * The number of neural network evaluations.
+	 */
+	public static final Counter NEURAL_NET_EVALUATIONS = new Counter(
+			"nnEvaluations");
+	/**
+	 * The number of gradient descent steps.
+	 */
+	public static final Counter GRADIENT_STEPS = new Counter("gradientSteps");
+	/**
+	 * The number of neural network evaluations answered by an evaluation
+	 * cache, each of which saved an evaluation.
+	 */
+	public static final Counter EVALUATION_CACHE_HITS = new Counter(
+			"evalCacheHits");
+	/**
+	 * The number of neural network evaluations looked up in an evaluation
+	 * cache but not found.
+	 */
+	public static final Counter EVALUATION_CACHE_MISSES = new Counter(
+			"evalCacheMisses");
+	
+	/**
+	 * The time taken to play each generation of a genetic learner.
+	 */
+	public static final Timer GENERATION_TIME = new Timer("generation");
+	/**
+	 * The time taken to evaluate a learner against heuristic players.
+	 */
+	public static final Timer EVALUATION_TIME = new Timer("evaluation");
+	/**
+	 * The time taken by each neural network player decision, not counting
+	 * decisions made within another decision.
+	 */
+	public static final Timer DECISION_LATENCY = new Timer("decision");
+	
+	private static final Counter[] COUNTERS = {GAMES, SPINS, PASSES,
+			NEURAL_NET_EVALUATIONS, GRADIENT_STEPS, EVALUATION_CACHE_HITS,
+			EVALUATION_CACHE_MISSES};
+	private static final Timer[] TIMERS = {GENERATION_TIME, EVALUATION_TIME,
+			DECISION_LATENCY};
+	
+	private static boolean registered = false;
+	private static ScheduledExecutorService reporter = null;
+	
+	/**
+	 * Creates the management bean; use {@link #register()} instead.
+	 */
+	private Metrics()
+	{
+	}
+	
+	/**
+	 * Registers the metrics with the platform MBean server under
+	 * {@link #OBJECT_NAME}, if they have not been registered already.
+	 */
+	public static synchronized void register()
+	{
+		if (registered) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new Metrics(), new ObjectName(OBJECT_NAME));
+			registered = true;
+		} catch (JMException e) {
+			System.out.println("Error registering metrics: " + e);
+		}
+	}
+	
+	/**
+	 * Starts a background thread that appends a snapshot of every metric to
+	 * the passed-in CSV file at a fixed period. A header line is written
+	 * first. Does nothing if a reporter is already running.
+	 *
+	 * @param fn The filename of the CSV file.
+	 * @param periodSeconds The number of seconds between snapshots.
+	 */
+	public static synchronized void startReporter(String fn,
+			long periodSeconds)
+	{
+		if (reporter != null) {
+			return;
+		}
+		PrintWriter out;
+		try {
+			out = new PrintWriter(new FileWriter(fn, true), true);
+		} catch (IOException e) {
+			System.out.println("Error opening " + fn + ": " + e);
+			return;
+		}
+		long start = System.nanoTime();
+		out.println("seconds," + String.join(",", snapshot().keySet()));
+		reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metrics-reporter");
+			t.setDaemon(true);
+			return t;
+		});
+		reporter.scheduleAtFixedRate(() -> {
+			StringBuilder line = new StringBuilder();
+			line.append((System.nanoTime() - start) / 1_000_000_000L);
+			for (double value: snapshot().values()) {
+				line.append(',');
+				if (value == Math.rint(value)) {
+					line.append((long)value);
+				} else {
+					line.append(String.format("%.3f", value));
+				}
+			}
+			out.println(line);
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Returns a snapshot of every metric by name. Each counter contributes its
+	 * value; each timer contributes its count and its mean and maximum
+	 * durations in milliseconds.
+	 *
+	 * @return A map from metric names to values, in a fixed order.
+	 */
+	public static Map<String, Double> snapshot()
+	{
+		Map<String, Double> ret = new LinkedHashMap<>();
+		for (Counter c: COUNTERS) {
+			ret.put(c.getName(), (double)c.get());
+		}
+		for (Timer t: TIMERS) {
+			ret.put(t.getName() + "Count", (double)t.getCount());
+			ret.put(t.getName() + "MeanMillis", t.getMeanNanos() / 1e6);
+			ret.put(t.getName() + "MaxMillis", t.getMaxNanos() / 1e6);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Resets every metric.
+	 */
+	public static void resetAll()
+	{
+		for (Counter c: COUNTERS) {
+			c.reset();
+		}
+		for (Timer t: TIMERS) {
+			t.reset();
+		}
+	}
+	
+	@Override
+	public long getGames()
+	{
+		return GAMES.get();
+	}
+	
+	@Override
+	public long getSpins()
+	{
+		return SPINS.get();
+	}
+	
+	@Override
+	public long getPasses()
+	{
+		return PASSES.get();
+	}
+	
+	@Override
+	public long getNeuralNetEvaluations()
+	{
+		return NEURAL_NET_EVALUATIONS.get();
+	}
+	
+	@Override
+	public long getGradientSteps()
+	{
+		return GRADIENT_STEPS.get();
+	}
+	
+	@Override
+	public long getEvaluationCacheHits()
+	{
+		return EVALUATION_CACHE_HITS.get();
+	}
+	
+	@Override
+	public long getEvaluationCacheMisses()
+	{
+		return EVALUATION_CACHE_MISSES.get();
+	}
+	
+	@Override
+	public double getEvaluationCacheHitRate()
+	{
+		long hits = EVALUATION_CACHE_HITS.get();
+		long lookups = hits + EVALUATION_CACHE_MISSES.get();
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+	
+	@Override
+	public long getGenerations()
+	{
+		return GENERATION_TIME.getCount();
+	}
+	
+	@Override
+	public double getGenerationMeanMillis()
+	{
+		return GENERATION_TIME.getMeanNanos() / 1e6;
+	}
+	
+	@Override
+	public long getEvaluations()
+	{
+		return EVALUATION_TIME.getCount();
+	}
+	
+	@Override
+	public double getEvaluationMeanMillis()
+	{
+		return EVALUATION_TIME.getMeanNanos() / 1e6;
+	}
+	
+	@Override
+	public long getDecisions()
+	{
+		return DECISION_LATENCY.getCount();
+	}
+	
+	@Override
+	public double getDecisionMeanMicros()
+	{
+		return DECISION_LATENCY.getMeanNanos() / 1e3;
+	}
+	
+	@Override
+	public double getDecisionMaxMicros()
+	{
+		return DECISION_LATENCY.getMaxNanos() / 1e3;
+	}
+	
+	@Override
+	public Map<String, Double> getSnapshot()
+	{
+		return snapshot();
+	}
+	
+	@Override
+	public void reset()
+	{
+		resetAll();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the simulation and learning metrics over JMX.
+ *
+ * @author Archer Murray
+ */
+public interface MetricsMXBean
+{
+	/**
+	 * Returns the number of games played.
+	 *
+	 * @return The number of games played.
+	 */
+	long getGames();
+	
+	/**
+	 * Returns the number of spins played.
+	 *
+	 * @return The number of spins played.
+	 */
+	long getSpins();
+	
+	/**
+	 * Returns the number of times a player passed their spins.
+	 *
+	 * @return The number of passes.
+	 */
+	long getPasses();
+	
+	/**
+	 * Returns the number of neural network evaluations.
+	 *
+	 * @return The number of neural network evaluations.
+	 */
+	long getNeuralNetEvaluations();
+	
+	/**
+	 * Returns the number of gradient descent steps.
+	 *
+	 * @return The number of gradient descent steps.
+	 */
+	long getGradientSteps();
+	
+	/**
+	 * Returns the number of neural network evaluations answered by an
+	 * evaluation cache, which is the number of evaluations saved.
+	 *
+	 * @return The number of evaluation cache hits.
+	 */
+	long getEvaluationCacheHits();
+	
+	/**
+	 * Returns the number of neural network evaluations looked up in an
+	 * evaluation cache but not found.
+	 *
+	 * @return The number of evaluation cache misses.
+	 */
+	long getEvaluationCacheMisses();
+	
+	/**
+	 * Returns the fraction of evaluation cache lookups that were hits.
+	 *
+	 * @return The evaluation cache hit rate, or 0 if there were no lookups.
+	 */
+	double getEvaluationCacheHitRate();
+	
+	/**
+	 * Returns the number of generations played.
+	 *
+	 * @return The number of generations played.
+	 */
+	long getGenerations();
+	
+	/**
+	 * Returns the mean time taken per generation, in milliseconds.
+	 *
+	 * @return The mean time taken per generation.
+	 */
+	double getGenerationMeanMillis();
+	
+	/**
+	 * Returns the number of evaluations against heuristic players.
+	 *
+	 * @return The number of evaluations.
+	 */
+	long getEvaluations();
+	
+	/**
+	 * Returns the mean time taken per evaluation, in milliseconds.
+	 *
+	 * @return The mean time taken per evaluation.
+	 */
+	double getEvaluationMeanMillis();
+	
+	/**
+	 * Returns the number of neural network player decisions.
+	 *
+	 * @return The number of decisions.
+	 */
+	long getDecisions();
+	
+	/**
+	 * Returns the mean time taken per neural network player decision, in
+	 * microseconds.
+	 *
+	 * @return The mean time taken per decision.
+	 */
+	double getDecisionMeanMicros();
+	
+	/**
+	 * Returns the longest time taken by a neural network player decision, in
+	 * microseconds.
+	 *
+	 * @return The longest time taken by a decision.
+	 */
+	double getDecisionMaxMicros();
+	
+	/**
+	 * Returns every metric by name.
+	 *
+	 * @return A map from metric names to values.
+	 */
+	Map<String, Double> getSnapshot();
+	
+	/**
+	 * Resets every metric.
+	 */
+	void reset();
+}
\ No newline at end of file
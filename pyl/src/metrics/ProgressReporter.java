@@ -0,0 +1,149 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that displays the progress of a long-running loop on the console.
+ * <p>
+ * The loop reports progress with {@link #increment()}, which is a single
+ * striped atomic increment and safe to call from many threads at once. A
+ * background daemon thread renders the progress, along with the rate and the
+ * estimated time remaining, four times per second. Nothing is rendered if
+ * standard output is not attached to a console (for example, if it is
+ * redirected to a file).
+ *
+ * @author Archer Murray
+ */
+public class ProgressReporter
+{
+	/**
+	 * The number of milliseconds between renders.
+	 */
+	private static final long RENDER_PERIOD = 250;
+	
+	private final String label, unit;
+	private final long total, initial;
+	private final LongAdder count;
+	private final long startTime;
+	private final Thread renderer;
+	private volatile boolean running;
+	private int lastLength;
+	
+	/**
+	 * Creates a new progress reporter and, if enabled and standard output is
+	 * attached to a console, starts rendering it.
+	 *
+	 * @param label The label to display before the progress.
+	 * @param unit The unit of work, in the plural (such as "games").
+	 * @param total The total amount of work, or 0 if the total is unknown. If
+	 * the total is known, the progress is shown as a percentage with an
+	 * estimated time remaining; otherwise, the count is shown.
+	 * @param initial The amount of work already done before this reporter was
+	 * created, which is included in the count but not in the rate.
+	 * @param enabled If {@code false}, nothing is rendered.
+	 */
+	public ProgressReporter(String label, String unit, long total,
+			long initial, boolean enabled)
+	{
+		this.label = label;
+		this.unit = unit;
+		this.total = total;
+		this.initial = initial;
+		this.count = new LongAdder();
+		this.startTime = System.nanoTime();
+		this.lastLength = 0;
+		this.running = enabled && System.console() != null;
+		if (this.running) {
+			this.renderer = new Thread(this::renderLoop, "progress-reporter");
+			this.renderer.setDaemon(true);
+			this.renderer.start();
+		} else {
+			this.renderer = null;
+		}
+	}
+	
+	/**
+	 * Reports that one unit of work has been completed.
+	 */
+	public void increment()
+	{
+		this.count.increment();
+	}
+	
+	/**
+	 * Reports that the passed-in amount of work has been completed.
+	 *
+	 * @param amount The amount of work completed.
+	 */
+	public void add(long amount)
+	{
+		this.count.add(amount);
+	}
+	
+	/**
+	 * Stops rendering and clears the progress line from the console.
+	 */
+	public void close()
+	{
+		if (this.renderer == null || !this.running) {
+			return;
+		}
+		this.running = false;
+		this.renderer.interrupt();
+		while (true) {
+			try {
+				this.renderer.join();
+				break;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+		System.out.print('\r' + " ".repeat(this.lastLength) + '\r');
+		System.out.flush();
+	}
+	
+	/**
+	 * Renders the progress at a fixed rate until this reporter is closed.
+	 */
+	private void renderLoop()
+	{
+		while (this.running) {
+			this.render();
+			try {
+				Thread.sleep(RENDER_PERIOD);
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+	}
+	
+	/**
+	 * Renders the current progress over the previous progress line.
+	 */
+	private void render()
+	{
+		long done = this.count.sum();
+		double seconds = (System.nanoTime() - this.startTime) / 1e9;
+		double rate = seconds > 0 ? done / seconds : 0;
+		String line;
+		if (this.total > 0) {
+			long completed = this.initial + done;
+			line = String.format("%1$s: %2$6.2f%% complete (%3$,.1f %4$s/s",
+					this.label, 100.0 * completed / this.total, rate,
+					this.unit);
+			if (rate > 0) {
+				long eta = (long)Math.ceil((this.total - completed) / rate);
+				line += String.format(", ETA %1$d:%2$02d:%3$02d", eta / 3600,
+						eta / 60 % 60, eta % 60);
+			}
+			line += ")";
+		} else {
+			line = String.format("%1$s: %2$10d (%3$,.1f %4$s/s)", this.label,
+					this.initial + done, rate, this.unit);
+		}
+		int padding = Math.max(0, this.lastLength - line.length());
+		this.lastLength = line.length();
+		System.out.print('\r' + line + " ".repeat(padding));
+		System.out.flush();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a mergeable sketch of a distribution of values, from
+ * which quantiles can be estimated in constant memory.
+ * <p>
+ * Integers from 0 to {@link #EXACT_LIMIT} - 1 are counted exactly. Other values
+ * are counted in logarithmically-spaced buckets, so that each estimated
+ * quantile is within 1% of a value with the requested rank. Values whose
+ * magnitude is outside about 10<sup>-17</sup> to 10<sup>17</sup> are counted
+ * in the innermost or outermost buckets.
+ * <p>
+ * This class is not thread-safe; each thread should add to its own sketch, and
+ * the sketches should be merged when all threads have finished.
+ *
+ * @author Archer Murray
+ */
+public class QuantileSketch
+{
+	/**
+	 * The number of non-negative integers counted exactly.
+	 */
+	public static final int EXACT_LIMIT = 1024;
+	
+	/**
+	 * The ratio between the bounds of consecutive buckets.
+	 */
+	private static final double GAMMA = 1.02;
+	private static final double INV_LOG_GAMMA = 1 / Math.log(GAMMA);
+	/**
+	 * The number of buckets for each sign, and the index of the bucket whose
+	 * upper bound is 1.
+	 */
+	private static final int NUM_BUCKETS = 4096, BUCKET_OFFSET = 2048;
+	
+	private final long[] exact, positive, negative;
+	private long count;
+	
+	/**
+	 * Creates a new, empty sketch.
+	 */
+	public QuantileSketch()
+	{
+		this.exact = new long[EXACT_LIMIT];
+		this.positive = new long[NUM_BUCKETS];
+		this.negative = new long[NUM_BUCKETS];
+		this.count = 0;
+	}
+	
+	/**
+	 * Adds a value to this sketch.
+	 *
+	 * @param value The value to add.
+	 */
+	public void add(double value)
+	{
+		this.count++;
+		int i = (int)value;
+		if (i == value && i >= 0 && i < EXACT_LIMIT) {
+			this.exact[i]++;
+		} else if (value > 0) {
+			this.positive[bucket(value)]++;
+		} else if (value < 0) {
+			this.negative[bucket(-value)]++;
+		} else {
+			// Not a number
+			this.count--;
+		}
+	}
+	
+	/**
+	 * Adds all values counted by the passed-in sketch to this sketch.
+	 *
+	 * @param other The sketch to merge into this sketch.
+	 */
+	public void merge(QuantileSketch other)
+	{
+		for (int i = 0; i < EXACT_LIMIT; i++) {
+			this.exact[i] += other.exact[i];
+		}
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			this.positive[i] += other.positive[i];
+			this.negative[i] += other.negative[i];
+		}
+		this.count += other.count;
+	}
+	
+	/**
+	 * Returns the number of values added to this sketch.
+	 *
+	 * @return The number of values added to this sketch.
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+	
+	/**
+	 * Returns an estimate of the passed-in quantile of the values added to this
+	 * sketch.
+	 *
+	 * @param q The quantile, from 0 to 1.
+	 * @return The estimated quantile, or {@code NaN} if this sketch is empty.
+	 */
+	public double getQuantile(double q)
+	{
+		if (this.count == 0) {
+			return Double.NaN;
+		}
+		// Gather the non-empty buckets and their values
+		int numEntries = 0;
+		double[] values = new double[EXACT_LIMIT + 2 * NUM_BUCKETS];
+		long[] counts = new long[values.length];
+		for (int i = NUM_BUCKETS - 1; i >= 0; i--) {
+			if (this.negative[i] > 0) {
+				values[numEntries] = -bucketValue(i);
+				counts[numEntries++] = this.negative[i];
+			}
+		}
+		for (int i = 0; i < EXACT_LIMIT; i++) {
+			if (this.exact[i] > 0) {
+				values[numEntries] = i;
+				counts[numEntries++] = this.exact[i];
+			}
+		}
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			if (this.positive[i] > 0) {
+				values[numEntries] = bucketValue(i);
+				counts[numEntries++] = this.positive[i];
+			}
+		}
+		// Sort by value, since exact values and positive buckets overlap
+		Integer[] order = new Integer[numEntries];
+		for (int i = 0; i < numEntries; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		// Find the value with the requested rank
+		long rank = (long)(Math.min(Math.max(q, 0), 1) * (this.count - 1));
+		long seen = 0;
+		for (int i: order) {
+			seen += counts[i];
+			if (seen > rank) {
+				return values[i];
+			}
+		}
+		return values[order[numEntries - 1]];
+	}
+	
+	/**
+	 * Returns the bucket for the passed-in positive value.
+	 *
+	 * @param value The value.
+	 * @return The index of the bucket.
+	 */
+	private static int bucket(double value)
+	{
+		int i = (int)Math.ceil(Math.log(value) * INV_LOG_GAMMA) +
+				BUCKET_OFFSET;
+		return Math.min(Math.max(i, 0), NUM_BUCKETS - 1);
+	}
+	
+	/**
+	 * Returns the value representing the passed-in bucket, which is within 1%
+	 * of every value in the bucket.
+	 *
+	 * @param i The index of the bucket.
+	 * @return The value representing the bucket.
+	 */
+	private static double bucketValue(int i)
+	{
+		return 2 * Math.pow(GAMMA, i - BUCKET_OFFSET) / (GAMMA + 1);
+	}
+}
\ No newline at end of file
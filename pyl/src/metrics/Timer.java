@@ -0,0 +1,115 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing a named timer that records the number, total duration,
+ * and maximum duration of timed events from many threads at once.
+ *
+ * @author Archer Murray
+ */
+public class Timer
+{
+	private final String name;
+	private final LongAdder count, totalNanos;
+	private final LongAccumulator maxNanos;
+	
+	/**
+	 * Creates a new timer with the passed-in name.
+	 *
+	 * @param name The name of the timer.
+	 */
+	public Timer(String name)
+	{
+		this.name = name;
+		this.count = new LongAdder();
+		this.totalNanos = new LongAdder();
+		this.maxNanos = new LongAccumulator(Long::max, 0);
+	}
+	
+	/**
+	 * Returns the name of this timer.
+	 *
+	 * @return The name of this timer.
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	/**
+	 * Records one event that took the passed-in amount of time.
+	 *
+	 * @param nanos The duration of the event, in nanoseconds.
+	 */
+	public void record(long nanos)
+	{
+		this.count.increment();
+		this.totalNanos.add(nanos);
+		this.maxNanos.accumulate(nanos);
+	}
+	
+	/**
+	 * Records one event that started at the passed-in time, as returned by
+	 * {@link System#nanoTime()}, and ends now.
+	 *
+	 * @param startNanos The start time of the event.
+	 */
+	public void recordSince(long startNanos)
+	{
+		this.record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Returns the number of events recorded.
+	 *
+	 * @return The number of events recorded.
+	 */
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+	
+	/**
+	 * Returns the total duration of all events recorded, in nanoseconds.
+	 *
+	 * @return The total duration of all events recorded.
+	 */
+	public long getTotalNanos()
+	{
+		return this.totalNanos.sum();
+	}
+	
+	/**
+	 * Returns the longest duration of any event recorded, in nanoseconds.
+	 *
+	 * @return The longest duration of any event recorded.
+	 */
+	public long getMaxNanos()
+	{
+		return this.maxNanos.get();
+	}
+	
+	/**
+	 * Returns the mean duration of the events recorded, in nanoseconds, or 0 if
+	 * no events have been recorded.
+	 *
+	 * @return The mean duration of the events recorded.
+	 */
+	public double getMeanNanos()
+	{
+		long n = this.getCount();
+		return n == 0 ? 0 : (double)this.getTotalNanos() / n;
+	}
+	
+	/**
+	 * Resets this timer, discarding all recorded events.
+	 */
+	public void reset()
+	{
+		this.count.reset();
+		this.totalNanos.reset();
+		this.maxNanos.reset();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,1187 @@
+package ml;
+
+import game.Board;
+import game.Space;
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Class that plays many 3-player games of Press Your Luck between neural
+ * networks at once, evaluating the neural networks on a whole batch of
+ * decisions at a time.
+ * <p>
+ * The state of every game is stored in arrays indexed by game (and seat), and
+ * all games are advanced in lockstep: each game is played until a player must
+ * make a decision, then the candidate game states of every waiting decision
+ * are gathered into one input matrix, grouped by neural network, and each
+ * neural network evaluates its rows with a single call to
+ * {@link NeuralNet#evaluateBatch(double[], int, int, double[])}. The choices
+ * are then scattered back to the games, which are played until their next
+ * decision.
+ * <p>
+ * Players make the same decisions as a {@link NeuralNetPlayer} with the same
+ * neural network, and the games follow the same rules as
+ * {@link game.Game#play(boolean)}, so the distribution of results is the same.
+ * Random numbers are drawn from a SplitMix64 generator in bulk, a buffer at a
+ * time.
+ * <p>
+ * The faces of the boards are copied when the simulator is created. Each game
+ * starts with those faces, and a "Double Your $$ + One Spin" space that is
+ * hit is only replaced by a prize for the rest of that game.
+ * <p>
+ * This class is not thread-safe; each thread should use its own simulator.
+ *
+ * @author Archer Murray
+ */
+public class BatchedGameSimulator
+{
+	/**
+	 * The most candidate game states a single decision can have: four corners
+	 * to move to, each a prize evaluated at ten prize values.
+	 */
+	private static final int MAX_CANDIDATES = 40;
+	/**
+	 * The indices of the corner spaces.
+	 */
+	private static final int[] CORNER_SPACES = {0, 5, 9, 14};
+	/**
+	 * The number of random numbers drawn at a time.
+	 */
+	private static final int RANDOM_BUFFER_SIZE = 4096;
+	
+	// Kinds of space faces
+	private static final int CASH = 0, CASH_SPIN = 1, CASH_OR_LOSE_WHAMMY = 2,
+			WHAMMY = 3, PRIZE = 4, DOUBLE = 5, ADD_ONE = 6, MOVE = 7, BACK = 8,
+			ADVANCE = 9, CORNER = 10, BIG_BUCKS = 11;
+	// Game phases
+	private static final int ROUND_START = 0, TURN_START = 1, SPINS = 2,
+			DONE = 3;
+	// Decisions
+	private static final int NONE = 0, PRESS_OR_PASS = 1, MOVE_TARGET = 2,
+			MONEY_OR_LOSE_WHAMMY = 3, PASS_TARGET = 4;
+	
+	// Board faces, indexed by board, then by space or face
+	private final int numBoards, maxSpaces;
+	private final int[] numSpaces, numDoubles, prizeMin, prizeMax;
+	private final int[][] faceStart, faceCount, faceKind, faceAmount;
+	private final int[][] doubleBit;
+	
+	// Game state, indexed by game or by 3 * game + seat
+	private int capacity;
+	private long[] score;
+	private int[] earned, passed, whammies, seatNets;
+	private int[] order, orderLength;
+	private int[] round, phase, current, next, decision;
+	private long[] removedDoubles;
+	// Board stops, indexed by game or by game * maxSpaces + space; a face is
+	// only drawn once it is needed
+	private long[] drawn;
+	private int[] faces;
+	// Pending decisions, indexed by game or by 4 * game + target
+	private int[] targets, numTargets, amount, rowStart;
+	
+	// The game state as seen by a deciding player, and the input matrix and
+	// outputs of the candidate game states
+	private final double[] state;
+	private double[] inputs, outputs;
+	
+	// Bulk random number generation
+	private final long[] randomBuffer;
+	private int randomIdx;
+	private long randomState;
+	
+	// Totals over all games played
+	private long numGames, numSpins, numPasses, numDecisions, numEvaluations;
+	
+	/**
+	 * Creates a new simulator that plays on copies of the passed-in boards,
+	 * seeded from the system clock.
+	 *
+	 * @param boards The boards to be used in each game.
+	 */
+	public BatchedGameSimulator(Board[] boards)
+	{
+		this(boards, System.nanoTime());
+	}
+	
+	/**
+	 * Creates a new simulator that plays on copies of the passed-in boards,
+	 * with the passed-in seed.
+	 *
+	 * @param boards The boards to be used in each game.
+	 * @param seed The seed of the random number generator.
+	 */
+	public BatchedGameSimulator(Board[] boards, long seed)
+	{
+		this.numBoards = boards.length;
+		this.numSpaces = new int[this.numBoards];
+		this.numDoubles = new int[this.numBoards];
+		this.prizeMin = new int[this.numBoards];
+		this.prizeMax = new int[this.numBoards];
+		this.faceStart = new int[this.numBoards][];
+		this.faceCount = new int[this.numBoards][];
+		this.faceKind = new int[this.numBoards][];
+		this.faceAmount = new int[this.numBoards][];
+		this.doubleBit = new int[this.numBoards][];
+		int max = 0;
+		for (int b = 0; b < this.numBoards; b++) {
+			this.parseBoard(b, boards[b]);
+			max = Math.max(max, this.numSpaces[b]);
+		}
+		this.maxSpaces = max;
+		this.capacity = 0;
+		this.state = new double[NeuralNet.INPUT_LENGTH];
+		this.randomBuffer = new long[RANDOM_BUFFER_SIZE];
+		this.setSeed(seed);
+	}
+	
+	/**
+	 * Copies the current faces of the passed-in board into the arrays of the
+	 * board with the passed-in index.
+	 *
+	 * @param b The index of the board.
+	 * @param board The board.
+	 */
+	private void parseBoard(int b, Board board)
+	{
+		int n = board.getNumSpaces();
+		assert n <= 64 : "boards may have at most 64 spaces";
+		this.numSpaces[b] = n;
+		this.prizeMin[b] = board.getMinPrizeValue();
+		this.prizeMax[b] = board.getMaxPrizeValue();
+		this.faceStart[b] = new int[n];
+		this.faceCount[b] = new int[n];
+		int total = 0;
+		for (int s = 0; s < n; s++) {
+			this.faceStart[b][s] = total;
+			this.faceCount[b][s] = board.getSpace(s).getNumValues();
+			total += this.faceCount[b][s];
+		}
+		this.faceKind[b] = new int[total];
+		this.faceAmount[b] = new int[total];
+		this.doubleBit[b] = new int[total];
+		int numDoubles = 0;
+		for (int s = 0; s < n; s++) {
+			Space space = board.getSpace(s);
+			for (int i = 0; i < this.faceCount[b][s]; i++) {
+				int f = this.faceStart[b][s] + i;
+				String value = space.getValue(i);
+				char firstChar = value.charAt(0);
+				char lastChar = value.charAt(value.length() - 1);
+				int kind;
+				int amt = 0;
+				if (firstChar == 'W') {
+					kind = WHAMMY;
+				} else if (firstChar == 'P') {
+					kind = PRIZE;
+				} else if (firstChar == 'D') {
+					kind = DOUBLE;
+					assert numDoubles < 64 : "boards may have at most 64 " +
+							"Double Your $$ + One Spin spaces";
+					this.doubleBit[b][f] = numDoubles++;
+				} else if (firstChar == 'A') {
+					kind = ADD_ONE;
+				} else if (firstChar == 'M') {
+					kind = MOVE;
+					amt = Integer.parseInt(value.substring(1));
+				} else if (firstChar == '<') {
+					kind = BACK;
+					amt = Integer.parseInt(value.substring(1));
+				} else if (firstChar == '>') {
+					kind = ADVANCE;
+					amt = Integer.parseInt(value.substring(1));
+				} else if (firstChar == 'C') {
+					kind = CORNER;
+				} else if (firstChar == 'B') {
+					kind = BIG_BUCKS;
+				} else if (lastChar == 'S') {
+					kind = CASH_SPIN;
+					amt = Integer.parseInt(value.substring(0,
+							value.length() - 1));
+				} else if (lastChar == 'L') {
+					kind = CASH_OR_LOSE_WHAMMY;
+					amt = Integer.parseInt(value.substring(0,
+							value.length() - 1));
+				} else {
+					kind = CASH;
+					amt = Integer.parseInt(value);
+				}
+				this.faceKind[b][f] = kind;
+				this.faceAmount[b][f] = amt;
+			}
+		}
+		this.numDoubles[b] = numDoubles;
+	}
+	
+	/**
+	 * Sets the seed of this simulator's random number generator, so that
+	 * subsequent games are reproducible.
+	 *
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed)
+	{
+		this.randomState = seed;
+		this.randomIdx = RANDOM_BUFFER_SIZE;
+	}
+	
+	/**
+	 * Plays one game for every three entries in the passed-in array of seat
+	 * assignments, and returns the winners of each game.
+	 * <p>
+	 * Entry {@code 3 * g + k} of {@code seatNets} is the index in {@code nets}
+	 * of the neural network playing in seat {@code k} of game {@code g}. Seat
+	 * {@code k} corresponds to index {@code k} of the players passed to
+	 * {@link game.Game#Game(game.Player[], Board[])}.
+	 *
+	 * @param nets The neural networks playing the games.
+	 * @param seatNets The neural network in each seat of each game; its
+	 * length must be divisible by 3.
+	 * @return An array containing, for each game, a bit mask of the winning
+	 * seats, where bit {@code k} is set if seat {@code k} won. A game that
+	 * no-one won has a mask of 0.
+	 */
+	public int[] play(NeuralNet[] nets, int[] seatNets)
+	{
+		assert seatNets.length % 3 == 0 : "seatNets length must be divisible " +
+				"by 3";
+		int n = seatNets.length / 3;
+		this.ensureCapacity(n);
+		System.arraycopy(seatNets, 0, this.seatNets, 0, seatNets.length);
+		// Reset game state
+		Arrays.fill(this.score, 0, 3 * n, 0);
+		Arrays.fill(this.earned, 0, 3 * n, 0);
+		Arrays.fill(this.passed, 0, 3 * n, 0);
+		Arrays.fill(this.whammies, 0, 3 * n, 0);
+		int[] live = new int[n];
+		for (int g = 0; g < n; g++) {
+			for (int k = 0; k < 3; k++) {
+				this.order[3 * g + k] = k;
+			}
+			this.orderLength[g] = 3;
+			this.round[g] = 0;
+			this.phase[g] = ROUND_START;
+			this.decision[g] = NONE;
+			live[g] = g;
+		}
+		int numLive = n;
+		int[] pending = new int[n];
+		int[] sorted = new int[n];
+		int[] netCounts = new int[nets.length + 1];
+		int[] netRows = new int[nets.length + 1];
+		int[] winners = new int[n];
+		while (true) {
+			// Play each game until its next decision
+			int numPending = 0;
+			for (int i = 0; i < numLive;) {
+				int g = live[i];
+				this.advance(g);
+				if (this.phase[g] == DONE) {
+					winners[g] = this.winners(g);
+					live[i] = live[--numLive];
+				} else {
+					pending[numPending++] = g;
+					i++;
+				}
+			}
+			if (numPending == 0) {
+				break;
+			}
+			// Group the waiting games by the neural network deciding
+			Arrays.fill(netCounts, 0);
+			for (int i = 0; i < numPending; i++) {
+				int g = pending[i];
+				netCounts[this.seatNets[3 * g + this.current[g]] + 1]++;
+			}
+			for (int k = 0; k < nets.length; k++) {
+				netCounts[k + 1] += netCounts[k];
+			}
+			for (int i = 0; i < numPending; i++) {
+				int g = pending[i];
+				sorted[netCounts[this.seatNets[3 * g + this.current[g]]]++] =
+						g;
+			}
+			// Gather the candidate game states into the input matrix
+			this.ensureRows(numPending * MAX_CANDIDATES);
+			int numRows = 0;
+			Arrays.fill(netRows, 0);
+			for (int i = 0; i < numPending; i++) {
+				int g = sorted[i];
+				this.rowStart[g] = numRows;
+				numRows += this.fillRows(g, numRows);
+				netRows[this.seatNets[3 * g + this.current[g]] + 1] = numRows;
+			}
+			// Evaluate each neural network on its rows
+			for (int k = 0; k < nets.length; k++) {
+				netRows[k + 1] = Math.max(netRows[k + 1], netRows[k]);
+				if (netRows[k + 1] > netRows[k]) {
+					nets[k].evaluateBatch(this.inputs, netRows[k],
+							netRows[k + 1] - netRows[k], this.outputs);
+				}
+			}
+			this.numDecisions += numPending;
+			this.numEvaluations += numRows;
+			// Scatter the choices back to the games
+			for (int i = 0; i < numPending; i++) {
+				this.resolve(pending[i]);
+			}
+		}
+		this.numGames += n;
+		Metrics.GAMES.add(n);
+		return winners;
+	}
+	
+	/**
+	 * Plays a game from its current state until its current player must make
+	 * a decision or the game is over.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void advance(int g)
+	{
+		while (this.decision[g] == NONE) {
+			switch (this.phase[g]) {
+				case ROUND_START:
+					if (this.round[g] == this.numBoards) {
+						this.phase[g] = DONE;
+						return;
+					}
+					this.startRound(g);
+					this.phase[g] = TURN_START;
+					break;
+				case TURN_START:
+					this.startTurn(g);
+					break;
+				case SPINS: {
+					// Play all passed spins, then play or pass earned spins
+					int p = 3 * g + this.current[g];
+					if (this.passed[p] > 0) {
+						this.spin(g);
+					} else if (this.earned[p] > 0) {
+						this.decision[g] = PRESS_OR_PASS;
+					} else {
+						// If player has 4 whammies, remove them from the game
+						if (this.whammies[p] == 4) {
+							this.removeFromOrder(g, this.current[g]);
+						}
+						this.phase[g] = TURN_START;
+					}
+					break;
+				}
+				default:
+					return;
+			}
+		}
+	}
+	
+	/**
+	 * Randomly distributes spins for the current round of the passed-in game
+	 * and determines the turn order.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void startRound(int g)
+	{
+		int len = this.orderLength[g];
+		int base = 3 * g;
+		if (len > 0) {
+			for (int q = 0; q < 4; q++) {
+				int buzzIdx = this.nextInt(len);
+				for (int i = 0; i < len; i++) {
+					if (this.nextDouble() < (i == buzzIdx ? 0.6 : 0.8)) {
+						this.earned[base + this.order[base + i]] +=
+								i == buzzIdx ? 3 : 1;
+					}
+				}
+			}
+		}
+		// Determine turn order (spin count in round 1; money afterward), with
+		// ties going to the lower seat
+		for (int i = 1; i < len; i++) {
+			int seat = this.order[base + i];
+			long key = this.orderKey(g, seat);
+			int j = i - 1;
+			while (j >= 0 && (this.orderKey(g, this.order[base + j]) > key ||
+					this.orderKey(g, this.order[base + j]) == key &&
+							this.order[base + j] > seat)) {
+				this.order[base + j + 1] = this.order[base + j];
+				j--;
+			}
+			this.order[base + j + 1] = seat;
+		}
+		this.removedDoubles[g] = 0;
+	}
+	
+	/**
+	 * Returns the value the passed-in seat is sorted by when determining the
+	 * turn order of the passed-in game.
+	 *
+	 * @param g The index of the game.
+	 * @param seat The seat.
+	 * @return The number of earned spins in round 1 and the score afterward.
+	 */
+	private long orderKey(int g, int seat)
+	{
+		int p = 3 * g + seat;
+		return this.round[g] == 0 ? this.earned[p] : this.score[p];
+	}
+	
+	/**
+	 * Determines the current and next player of the passed-in game, or ends
+	 * the round if no player has spins.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void startTurn(int g)
+	{
+		int base = 3 * g;
+		int len = this.orderLength[g];
+		int activeIdx = 0;
+		while (activeIdx < len && !this.hasSpins(base +
+				this.order[base + activeIdx])) {
+			activeIdx++;
+		}
+		if (activeIdx == len) {
+			// No player has spins; end the round
+			this.round[g]++;
+			this.phase[g] = ROUND_START;
+			return;
+		}
+		this.current[g] = this.order[base + activeIdx];
+		this.next[g] = -1;
+		for (int i = activeIdx + 1; i < len; i++) {
+			if (this.hasSpins(base + this.order[base + i])) {
+				this.next[g] = this.order[base + i];
+				break;
+			}
+		}
+		this.phase[g] = SPINS;
+	}
+	
+	/**
+	 * Returns {@code true} if the passed-in player has spins left.
+	 *
+	 * @param p The index of the player, {@code 3 * game + seat}.
+	 * @return {@code true} if the player has spins left and {@code false}
+	 * otherwise.
+	 */
+	private boolean hasSpins(int p)
+	{
+		return this.earned[p] > 0 || this.passed[p] > 0;
+	}
+	
+	/**
+	 * Removes the passed-in seat from the turn order of the passed-in game.
+	 *
+	 * @param g The index of the game.
+	 * @param seat The seat to remove.
+	 */
+	private void removeFromOrder(int g, int seat)
+	{
+		int base = 3 * g;
+		int len = this.orderLength[g];
+		int j = 0;
+		for (int i = 0; i < len; i++) {
+			if (this.order[base + i] != seat) {
+				this.order[base + j++] = this.order[base + i];
+			}
+		}
+		this.orderLength[g] = j;
+	}
+	
+	/**
+	 * Returns a bit mask of the winning seats of the passed-in finished game:
+	 * the players still in the game with the highest score.
+	 *
+	 * @param g The index of the game.
+	 * @return The bit mask of the winning seats.
+	 */
+	private int winners(int g)
+	{
+		int base = 3 * g;
+		long maxScore = -1;
+		int ret = 0;
+		for (int i = 0; i < this.orderLength[g]; i++) {
+			int seat = this.order[base + i];
+			if (this.score[base + seat] > maxScore) {
+				maxScore = this.score[base + seat];
+				ret = 0;
+			}
+			if (this.score[base + seat] == maxScore) {
+				ret |= 1 << seat;
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Has the current player of the passed-in game play a spin: stops the
+	 * board and either lands on the lit space or, if the light can move to
+	 * one of several spaces, waits for the player to choose one.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void spin(int g)
+	{
+		int p = 3 * g + this.current[g];
+		// Deduct a spin from the player
+		if (this.passed[p] > 0) {
+			this.passed[p]--;
+		} else {
+			this.earned[p]--;
+		}
+		this.numSpins++;
+		Metrics.SPINS.increment();
+		// Stop the board
+		int b = this.round[g];
+		int n = this.numSpaces[b];
+		this.drawn[g] = 0;
+		int lit = this.nextInt(n);
+		int f = this.face(g, lit);
+		int kind = this.kind(g, f);
+		// Move the light if necessary
+		int t = 4 * g;
+		int amt = this.faceAmount[b][f];
+		switch (kind) {
+			case MOVE:
+				this.targets[t] = (n + lit - amt) % n;
+				this.targets[t + 1] = (lit + amt) % n;
+				this.numTargets[g] = 2;
+				break;
+			case BACK:
+				this.targets[t] = (n + lit - amt) % n;
+				this.numTargets[g] = 1;
+				break;
+			case ADVANCE:
+				this.targets[t] = (lit + amt) % n;
+				this.numTargets[g] = 1;
+				break;
+			case CORNER: {
+				int numCorners = 0;
+				for (int i: CORNER_SPACES) {
+					if (i != lit) {
+						this.targets[t + numCorners++] = i;
+					}
+				}
+				this.numTargets[g] = numCorners;
+				break;
+			}
+			case BIG_BUCKS: {
+				// Move to max cash amount
+				long maxCash = this.cashAmount(g, this.face(g, 0));
+				int maxCashIdx = 0;
+				for (int i = 1; i < n; i++) {
+					long cashAmt = this.cashAmount(g, this.face(g, i));
+					if (cashAmt > maxCash) {
+						maxCash = cashAmt;
+						maxCashIdx = i;
+					}
+				}
+				this.targets[t] = maxCashIdx;
+				this.numTargets[g] = 1;
+				break;
+			}
+			default:
+				this.targets[t] = lit;
+				this.numTargets[g] = 1;
+		}
+		if (this.numTargets[g] > 1) {
+			// Draw the faces of the targets before the player sees them
+			for (int i = 0; i < this.numTargets[g]; i++) {
+				this.face(g, this.targets[t + i]);
+			}
+			this.decision[g] = MOVE_TARGET;
+		} else {
+			this.land(g, this.targets[t]);
+		}
+	}
+	
+	/**
+	 * Performs the effect of the passed-in space on the current player of the
+	 * passed-in game, waiting for the player to choose if the space offers
+	 * money or the loss of a Whammy.
+	 *
+	 * @param g The index of the game.
+	 * @param space The index of the space.
+	 */
+	private void land(int g, int space)
+	{
+		int p = 3 * g + this.current[g];
+		int b = this.round[g];
+		int f = this.face(g, space);
+		int amt = this.faceAmount[b][f];
+		switch (this.kind(g, f)) {
+			case WHAMMY:
+				this.score[p] = 0;
+				this.whammies[p]++;
+				// If 4 whammies, also remove all spins
+				if (this.whammies[p] == 4) {
+					this.earned[p] = 0;
+					this.passed[p] = 0;
+				}
+				// If any passed spins, move to "earned" column
+				this.earned[p] += this.passed[p];
+				this.passed[p] = 0;
+				break;
+			case PRIZE:
+				this.score[p] += this.prizeMin[b] + this.nextInt(
+						this.prizeMax[b] - this.prizeMin[b] + 1);
+				break;
+			case DOUBLE:
+				this.score[p] *= 2;
+				this.earned[p]++;
+				this.removedDoubles[g] |= 1L << this.doubleBit[b][f];
+				break;
+			case ADD_ONE:
+				this.score[p] += addOneAmount(this.score[p]);
+				break;
+			case CASH_SPIN:
+				this.score[p] += amt;
+				this.earned[p]++;
+				break;
+			case CASH_OR_LOSE_WHAMMY:
+				if (this.whammies[p] == 0) {
+					this.score[p] += amt;
+				} else {
+					this.amount[g] = amt;
+					this.decision[g] = MONEY_OR_LOSE_WHAMMY;
+				}
+				break;
+			case CASH:
+				this.score[p] += amt;
+				break;
+			default:
+				// Movement spaces have no effect when moved to
+		}
+	}
+	
+	/**
+	 * Has the current player of the passed-in game pass their earned spins to
+	 * the opponent with the highest score, waiting for the player to choose if
+	 * two opponents are tied.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void pass(int g)
+	{
+		int base = 3 * g;
+		int p = base + this.current[g];
+		this.numPasses++;
+		Metrics.PASSES.increment();
+		// Determine pass targets
+		long maxScore = -1;
+		int target = -1, numPassTargets = 0;
+		for (int i = 0; i < this.orderLength[g]; i++) {
+			int seat = this.order[base + i];
+			if (seat != this.current[g] &&
+					this.score[base + seat] >= maxScore) {
+				if (this.score[base + seat] > maxScore) {
+					maxScore = this.score[base + seat];
+					numPassTargets = 0;
+				}
+				target = seat;
+				numPassTargets++;
+			}
+		}
+		if (numPassTargets == 0) {
+			// No opponents (active player is last one left)
+			this.earned[p] = 0;
+		} else if (numPassTargets == 1) {
+			// One opponent has the highest score
+			this.passed[base + target] += this.earned[p];
+			this.earned[p] = 0;
+		} else {
+			// Both opponents tied for the highest score
+			this.decision[g] = PASS_TARGET;
+		}
+	}
+	
+	/**
+	 * Writes the candidate game states of the pending decision of the
+	 * passed-in game to the input matrix, starting at the passed-in row, in the
+	 * order {@link NeuralNetPlayer} evaluates them.
+	 *
+	 * @param g The index of the game.
+	 * @param row The first row to write to.
+	 * @return The number of rows written.
+	 */
+	private int fillRows(int g, int row)
+	{
+		final int len = NeuralNet.INPUT_LENGTH;
+		double[] in = this.inputs;
+		int p = 3 * g + this.current[g];
+		int r = row * len;
+		this.writeState(g);
+		if (this.decision[g] == MOVE_TARGET) {
+			return this.fillMoveRows(g, row);
+		}
+		System.arraycopy(this.state, 0, in, r, len);
+		System.arraycopy(this.state, 0, in, r + len, len);
+		switch (this.decision[g]) {
+			case PRESS_OR_PASS:
+				// Evaluate "press your luck", then "pass" to the last eligible
+				// opponent, as NeuralNetPlayer does
+				in[r + 3] = 1;
+				r += len;
+				if (in[r + 32] == 1) {
+					in[r + 31] += this.earned[p];
+				} else if (in[r + 22] == 1) {
+					in[r + 21] += this.earned[p];
+				}
+				in[r + 12] = 0;
+				break;
+			case PASS_TARGET:
+				// Evaluate passing to each opponent
+				in[r + 21] += this.earned[p];
+				in[r + 12] = 0;
+				in[r + len + 31] += this.earned[p];
+				in[r + len + 12] = 0;
+				break;
+			default:
+				// Evaluate "money", then "lose one Whammy"
+				in[r + 10] += this.amount[g];
+				in[r + len + 5 + this.whammies[p]] = 0;
+		}
+		return 2;
+	}
+	
+	/**
+	 * Writes the candidate game states of a move target decision of the
+	 * passed-in game to the input matrix, starting at the passed-in row, where
+	 * the unchanged game state has already been written to {@link #state}.
+	 *
+	 * @param g The index of the game.
+	 * @param row The first row to write to.
+	 * @return The number of rows written.
+	 */
+	private int fillMoveRows(int g, int row)
+	{
+		final int len = NeuralNet.INPUT_LENGTH;
+		double[] in = this.inputs;
+		int p = 3 * g + this.current[g];
+		int b = this.round[g];
+		int base = row * len;
+		int r = base;
+		for (int i = 0; i < this.numTargets[g]; i++) {
+			int f = this.face(g, this.targets[4 * g + i]);
+			int kind = this.kind(g, f);
+			int amt = this.faceAmount[b][f];
+			int numRows = kind == PRIZE ? 10 : kind == CASH_OR_LOSE_WHAMMY &&
+					this.whammies[p] > 0 ? 2 : 1;
+			for (int j = 0; j < numRows; j++) {
+				System.arraycopy(this.state, 0, in, r + j * len, len);
+			}
+			// Simulate the effect of the space
+			switch (kind) {
+				case WHAMMY:
+					in[r + 10] = 0;
+					in[r + 6 + this.whammies[p]] = 1;
+					if (this.whammies[p] == 3) {
+						// If there would be 4 whammies, remove all spins
+						in[r + 11] = 0;
+						in[r + 12] = 0;
+					}
+					// If there are passed spins, move them to the earned column
+					in[r + 11] += in[r + 12];
+					in[r + 12] = 0;
+					break;
+				case PRIZE: {
+					// Simulate 10 different prize values
+					double interval = (this.prizeMax[b] - this.prizeMin[b]) /
+							9.0;
+					double pv = this.prizeMin[b];
+					for (int j = 0; j < 10; j++) {
+						in[r + j * len + 10] += pv;
+						pv += interval;
+					}
+					break;
+				}
+				case DOUBLE:
+					in[r + 2] = 0;
+					in[r + 10] *= 2;
+					in[r + 11]++;
+					break;
+				case ADD_ONE:
+					in[r + 10] += addOneAmount(this.score[p]);
+					break;
+				case CASH_SPIN:
+					in[r + 10] += amt;
+					in[r + 11]++;
+					break;
+				case CASH_OR_LOSE_WHAMMY:
+					in[r + 10] += amt;
+					if (this.whammies[p] > 0) {
+						in[r + len + 5 + this.whammies[p]] = 0;
+					}
+					break;
+				case CASH:
+					in[r + 10] += amt;
+					break;
+				default:
+					// Movement spaces have no effect when moved to
+			}
+			r += numRows * len;
+		}
+		return (r - base) / len;
+	}
+	
+	/**
+	 * Writes the game state of the passed-in game, as seen by its current
+	 * player, to {@link #state}. The values are the same as those returned by
+	 * {@link game.Game#getNeuralNetInput(int)}.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void writeState(int g)
+	{
+		double[] in = this.state;
+		Arrays.fill(in, 0);
+		int base = 3 * g;
+		int cur = this.current[g];
+		// Global values (constant, round, double in play)
+		in[0] = 1;
+		in[1] = this.round[g];
+		in[2] = this.isDoubleInPlay(g) ? 1 : 0;
+		// Player-specific values
+		int oppNum = 0;
+		long maxOppScore = 0;
+		for (int seat = 0; seat < 3; seat++) {
+			int p = base + seat;
+			int offset = 4;
+			if (seat != cur) {
+				oppNum++;
+				offset += 10 * oppNum - 1;
+				maxOppScore = Math.max(maxOppScore, this.score[p]);
+				if (seat == this.next[g]) {
+					in[offset + 1] = 1;
+				}
+			} else {
+				in[offset] = 1;
+				if (this.passed[p] > 0) {
+					in[3] = 1;
+				}
+			}
+			// Whammy count
+			for (int i = 0; i < this.whammies[p]; i++) {
+				in[offset + 2 + i] = 1;
+			}
+			// Score, earned spin count, and passed spin count
+			in[offset + 6] = this.score[p];
+			in[offset + 7] = this.earned[p];
+			in[offset + 8] = this.passed[p];
+		}
+		// Each opponent's pass target eligibility
+		oppNum = 0;
+		for (int seat = 0; seat < 3; seat++) {
+			if (seat != cur) {
+				oppNum++;
+				if (this.score[base + seat] == maxOppScore) {
+					in[12 + 10 * oppNum] = 1;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Applies the choice the current player of the passed-in game makes, given
+	 * the evaluations of the candidate game states of its pending decision.
+	 *
+	 * @param g The index of the game.
+	 */
+	private void resolve(int g)
+	{
+		double[] out = this.outputs;
+		int r = this.rowStart[g];
+		int base = 3 * g;
+		int p = base + this.current[g];
+		int type = this.decision[g];
+		this.decision[g] = NONE;
+		switch (type) {
+			case PRESS_OR_PASS:
+				if (out[r] > out[r + 1]) {
+					this.spin(g);
+				} else {
+					this.pass(g);
+				}
+				break;
+			case PASS_TARGET: {
+				// Pass to the opponent with the higher evaluation, favouring
+				// the lower seat
+				int opp = out[r + 1] > out[r] ? 1 : 0;
+				int seat = opp < this.current[g] ? opp : opp + 1;
+				this.passed[base + seat] += this.earned[p];
+				this.earned[p] = 0;
+				break;
+			}
+			case MONEY_OR_LOSE_WHAMMY:
+				if (out[r] > out[r + 1]) {
+					this.score[p] += this.amount[g];
+				} else {
+					this.whammies[p]--;
+				}
+				break;
+			default: {
+				// Find maximum space evaluation
+				int maxIdx = 0;
+				double maxEval = 0;
+				for (int i = 0; i < this.numTargets[g]; i++) {
+					int kind = this.kind(g, this.face(g,
+							this.targets[4 * g + i]));
+					double eval;
+					if (kind == PRIZE) {
+						eval = 0;
+						for (int j = 0; j < 10; j++) {
+							eval += out[r + j];
+						}
+						eval /= 10;
+						r += 10;
+					} else if (kind == CASH_OR_LOSE_WHAMMY &&
+							this.whammies[p] > 0) {
+						// The player would choose the money or the loss of a
+						// Whammy by the same evaluations
+						eval = out[r] > out[r + 1] ? out[r] : out[r + 1];
+						r += 2;
+					} else {
+						eval = out[r];
+						r++;
+					}
+					if (i == 0 || eval > maxEval) {
+						maxEval = eval;
+						maxIdx = i;
+					}
+				}
+				this.land(g, this.targets[4 * g + maxIdx]);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the face the passed-in space of the passed-in game stopped on,
+	 * drawing it if it has not been drawn since the board was last stopped.
+	 *
+	 * @param g The index of the game.
+	 * @param space The index of the space.
+	 * @return The index of the face, among all faces of the current board.
+	 */
+	private int face(int g, int space)
+	{
+		int idx = g * this.maxSpaces + space;
+		if ((this.drawn[g] & 1L << space) == 0) {
+			int b = this.round[g];
+			this.faces[idx] = this.faceStart[b][space] +
+					this.nextInt(this.faceCount[b][space]);
+			this.drawn[g] |= 1L << space;
+		}
+		return this.faces[idx];
+	}
+	
+	/**
+	 * Returns the kind of the passed-in face of the current board of the
+	 * passed-in game, treating a "Double Your $$ + One Spin" face that has
+	 * been hit as a prize.
+	 *
+	 * @param g The index of the game.
+	 * @param f The index of the face.
+	 * @return The kind of the face.
+	 */
+	private int kind(int g, int f)
+	{
+		int b = this.round[g];
+		int kind = this.faceKind[b][f];
+		if (kind == DOUBLE &&
+				(this.removedDoubles[g] & 1L << this.doubleBit[b][f]) != 0) {
+			return PRIZE;
+		}
+		return kind;
+	}
+	
+	/**
+	 * Returns the cash amount of the passed-in face of the current board of
+	 * the passed-in game, or 0 if the face has a non-cash value.
+	 *
+	 * @param g The index of the game.
+	 * @param f The index of the face.
+	 * @return The cash amount of the face.
+	 */
+	private long cashAmount(int g, int f)
+	{
+		int b = this.round[g];
+		int kind = this.faceKind[b][f];
+		return kind == CASH || kind == CASH_SPIN ||
+				kind == CASH_OR_LOSE_WHAMMY ? this.faceAmount[b][f] : 0;
+	}
+	
+	/**
+	 * Returns {@code true} if "Double Your $$ + One Spin" is in play on the
+	 * current board of the passed-in game and {@code false} otherwise.
+	 *
+	 * @param g The index of the game.
+	 * @return {@code true} if "Double Your $$ + One Spin" is in play and
+	 * {@code false} otherwise.
+	 */
+	private boolean isDoubleInPlay(int g)
+	{
+		return Long.bitCount(this.removedDoubles[g]) <
+				this.numDoubles[this.round[g]];
+	}
+	
+	/**
+	 * Returns the amount Add-a-One adds to the passed-in score: the digit 1
+	 * put in front of it.
+	 *
+	 * @param score The score.
+	 * @return The amount added.
+	 */
+	private static long addOneAmount(long score)
+	{
+		long ret = 10;
+		while (ret <= score) {
+			ret *= 10;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Makes sure the game state arrays can hold the passed-in number of games.
+	 *
+	 * @param n The number of games.
+	 */
+	private void ensureCapacity(int n)
+	{
+		if (n <= this.capacity) {
+			return;
+		}
+		this.capacity = n;
+		this.score = new long[3 * n];
+		this.earned = new int[3 * n];
+		this.passed = new int[3 * n];
+		this.whammies = new int[3 * n];
+		this.seatNets = new int[3 * n];
+		this.order = new int[3 * n];
+		this.orderLength = new int[n];
+		this.round = new int[n];
+		this.phase = new int[n];
+		this.current = new int[n];
+		this.next = new int[n];
+		this.decision = new int[n];
+		this.removedDoubles = new long[n];
+		this.drawn = new long[n];
+		this.faces = new int[n * this.maxSpaces];
+		this.targets = new int[4 * n];
+		this.numTargets = new int[n];
+		this.amount = new int[n];
+		this.rowStart = new int[n];
+	}
+	
+	/**
+	 * Makes sure the input matrix can hold the passed-in number of rows.
+	 *
+	 * @param rows The number of rows.
+	 */
+	private void ensureRows(int rows)
+	{
+		if (this.outputs == null || this.outputs.length < rows) {
+			this.inputs = new double[rows * NeuralNet.INPUT_LENGTH];
+			this.outputs = new double[rows];
+		}
+	}
+	
+	/**
+	 * Returns the next random {@code long}, refilling the buffer of random
+	 * numbers from the SplitMix64 generator when it runs out.
+	 *
+	 * @return The next random {@code long}.
+	 */
+	private long nextLong()
+	{
+		if (this.randomIdx == RANDOM_BUFFER_SIZE) {
+			long state = this.randomState;
+			for (int i = 0; i < RANDOM_BUFFER_SIZE; i++) {
+				state += 0x9E3779B97F4A7C15L;
+				long z = state;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				this.randomBuffer[i] = z ^ (z >>> 31);
+			}
+			this.randomState = state;
+			this.randomIdx = 0;
+		}
+		return this.randomBuffer[this.randomIdx++];
+	}
+	
+	/**
+	 * Returns a random integer from 0 (inclusive) to the passed-in bound
+	 * (exclusive).
+	 *
+	 * @param bound The bound, which must be positive.
+	 * @return The random integer.
+	 */
+	private int nextInt(int bound)
+	{
+		return (int)(((this.nextLong() >>> 32) * bound) >>> 32);
+	}
+	
+	/**
+	 * Returns a random {@code double} from 0 (inclusive) to 1 (exclusive).
+	 *
+	 * @return The random {@code double}.
+	 */
+	private double nextDouble()
+	{
+		return (this.nextLong() >>> 11) * 0x1.0p-53;
+	}
+	
+	/**
+	 * Returns the total number of games this simulator has played.
+	 *
+	 * @return The total number of games played.
+	 */
+	public long getNumGames()
+	{
+		return this.numGames;
+	}
+	
+	/**
+	 * Returns the total number of spins played in this simulator's games.
+	 *
+	 * @return The total number of spins played.
+	 */
+	public long getNumSpins()
+	{
+		return this.numSpins;
+	}
+	
+	/**
+	 * Returns the total number of times a player passed in this simulator's
+	 * games.
+	 *
+	 * @return The total number of passes.
+	 */
+	public long getNumPasses()
+	{
+		return this.numPasses;
+	}
+	
+	/**
+	 * Returns the total number of decisions made by neural networks in this
+	 * simulator's games.
+	 *
+	 * @return The total number of decisions.
+	 */
+	public long getNumDecisions()
+	{
+		return this.numDecisions;
+	}
+	
+	/**
+	 * Returns the total number of game states neural networks have evaluated
+	 * in this simulator's games.
+	 *
+	 * @return The total number of evaluations.
+	 */
+	public long getNumEvaluations()
+	{
+		return this.numEvaluations;
+	}
+}
\ No newline at end of file
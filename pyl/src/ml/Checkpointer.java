@@ -0,0 +1,269 @@
+package ml;
+
+import game.Board;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class that writes binary checkpoints of learner state in the background.
+ * <p>
+ * Each checkpoint is first written to a temporary file, which is then renamed
+ * over the previous checkpoint, so a crash at any point leaves either the old
+ * or the new checkpoint intact.
+ *
+ * @author Archer Murray
+ */
+public class Checkpointer
+{
+	/**
+	 * The magic number at the start of every checkpoint file ("PYLC").
+	 */
+	private static final int MAGIC = 0x50594C43;
+	/**
+	 * The version of the checkpoint file format.
+	 */
+	private static final int VERSION = 3;
+	
+	private final ExecutorService executor;
+	private Future<?> pending;
+	
+	/**
+	 * Interface for writing a snapshot of learner state to a checkpoint.
+	 * <p>
+	 * Implementations must not reference state that the learner continues to
+	 * modify, since they are run on a background thread.
+	 */
+	@FunctionalInterface
+	public interface StateWriter
+	{
+		/**
+		 * Writes the snapshot to the passed-in output.
+		 *
+		 * @param out The output to write to.
+		 * @throws IOException If an I/O error occurs.
+		 */
+		void write(DataOutputStream out) throws IOException;
+	}
+	
+	/**
+	 * Creates a new checkpointer with its own background writer thread.
+	 */
+	public Checkpointer()
+	{
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "checkpoint-writer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.pending = null;
+	}
+	
+	/**
+	 * Writes a checkpoint to the passed-in filename in the background. If the
+	 * previous checkpoint is still being written, waits for it to finish
+	 * first.
+	 *
+	 * @param fn The filename to write the checkpoint to.
+	 * @param writer The snapshot to write.
+	 */
+	public synchronized void save(String fn, StateWriter writer)
+	{
+		this.await();
+		this.pending = this.executor.submit(() -> {
+			try {
+				writeAtomically(fn, writer);
+			} catch (IOException e) {
+				System.out.println("Error writing checkpoint " + fn + ": " + e);
+			}
+		});
+	}
+	
+	/**
+	 * Waits for any checkpoint currently being written to finish.
+	 */
+	public synchronized void await()
+	{
+		if (this.pending == null) {
+			return;
+		}
+		while (true) {
+			try {
+				this.pending.get();
+				break;
+			} catch (InterruptedException e) {
+				// do nothing
+			} catch (Exception e) {
+				System.out.println("Error writing checkpoint: " + e);
+				break;
+			}
+		}
+		this.pending = null;
+	}
+	
+	/**
+	 * Waits for any pending checkpoint and stops the background writer thread.
+	 */
+	public void close()
+	{
+		this.await();
+		this.executor.shutdown();
+	}
+	
+	/**
+	 * Writes a checkpoint to a temporary file, forces it to disk, and renames
+	 * it to the passed-in filename.
+	 *
+	 * @param fn The filename to write the checkpoint to.
+	 * @param writer The snapshot to write.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeAtomically(String fn, StateWriter writer)
+			throws IOException
+	{
+		String tmpFn = fn + ".tmp";
+		FileOutputStream fos = new FileOutputStream(tmpFn);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(fos, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writer.write(out);
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(Paths.get(tmpFn), Paths.get(fn),
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Returns {@code true} if a checkpoint exists at the passed-in filename and
+	 * {@code false} otherwise.
+	 *
+	 * @param fn The filename to check.
+	 * @return {@code true} if a checkpoint exists and {@code false} otherwise.
+	 */
+	public static boolean exists(String fn)
+	{
+		return new File(fn).isFile();
+	}
+	
+	/**
+	 * Opens the checkpoint at the passed-in filename for reading, positioned
+	 * just after the file header.
+	 *
+	 * @param fn The filename of the checkpoint.
+	 * @return The input to read the checkpoint's snapshot from.
+	 * @throws IOException If an I/O error occurs or the file is not a
+	 * checkpoint.
+	 */
+	public static DataInputStream open(String fn) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fn), 1 << 16));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			in.close();
+			throw new IOException(fn + " is not a valid checkpoint");
+		}
+		return in;
+	}
+	
+	/**
+	 * Writes the complete state of the passed-in random number generator.
+	 *
+	 * @param rng The random number generator.
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void writeRandom(Random rng, DataOutput out)
+			throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(rng);
+		}
+		out.writeInt(bytes.size());
+		out.write(bytes.toByteArray());
+	}
+	
+	/**
+	 * Reads a random number generator written by
+	 * {@link #writeRandom(Random, DataOutput)}.
+	 *
+	 * @param in The input to read from.
+	 * @return The random number generator, in the same state it was written in.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static Random readRandom(DataInput in) throws IOException
+	{
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		try (ObjectInputStream ois = new ObjectInputStream(
+				new ByteArrayInputStream(bytes))) {
+			return (Random)ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Malformed random number generator state", e);
+		}
+	}
+	
+	/**
+	 * Writes the configuration of the passed-in boards: the file and initial
+	 * seed of each board (see {@link Board#getInitialSeed()}).
+	 *
+	 * @param boards The boards.
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void writeBoards(Board[] boards, DataOutput out)
+			throws IOException
+	{
+		out.writeInt(boards.length);
+		for (Board b: boards) {
+			out.writeUTF(b.getFileName());
+			out.writeLong(b.getInitialSeed());
+		}
+	}
+	
+	/**
+	 * Reads boards written by {@link #writeBoards(Board[], DataOutput)}.
+	 *
+	 * @param in The input to read from.
+	 * @return New boards with the same configuration as the boards that were
+	 * written, and so with the same spaces in play.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static Board[] readBoards(DataInput in) throws IOException
+	{
+		Board[] ret = new Board[in.readInt()];
+		for (int i = 0; i < ret.length; i++) {
+			String fn = in.readUTF();
+			ret[i] = new Board(fn, in.readLong());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns a copy of the passed-in random number generator that will produce
+	 * the same sequence of values.
+	 *
+	 * @param rng The random number generator to copy.
+	 * @return The copy.
+	 */
+	public static Random copyRandom(Random rng)
+	{
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			writeRandom(rng, new DataOutputStream(bytes));
+			return readRandom(new DataInputStream(new ByteArrayInputStream(
+					bytes.toByteArray())));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
\ No newline at end of file
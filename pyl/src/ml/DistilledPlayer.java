@@ -0,0 +1,125 @@
+package ml;
+
+import game.HeuristicPlayer;
+import game.Player;
+import game.Space;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing a player who plays according to a distilled policy,
+ * making the decisions of the neural network it was distilled from by table
+ * lookup rather than evaluation.
+ * <p>
+ * In situations the policy never saw while distilling, the player falls back on
+ * the heuristic strategy.
+ *
+ * @author Archer Murray
+ */
+public class DistilledPlayer extends HeuristicPlayer
+{
+	private final DistilledPolicy policy;
+	private final long[] keys;
+	private long numDecisions, numFallbacks;
+	
+	/**
+	 * Creates a new player that plays according to the passed-in policy.
+	 *
+	 * @param policy The policy to play according to.
+	 */
+	public DistilledPlayer(DistilledPolicy policy)
+	{
+		this.policy = policy;
+		this.keys = new long[DistilledPolicy.NUM_LEVELS];
+		this.numDecisions = 0;
+		this.numFallbacks = 0;
+	}
+	
+	/**
+	 * Returns this player's policy.
+	 *
+	 * @return This player's policy.
+	 */
+	public DistilledPolicy getPolicy()
+	{
+		return this.policy;
+	}
+	
+	/**
+	 * Returns the number of decisions this player has made.
+	 *
+	 * @return The number of decisions this player has made.
+	 */
+	public long getNumDecisions()
+	{
+		return this.numDecisions;
+	}
+	
+	/**
+	 * Returns the number of decisions this player has made with the heuristic
+	 * strategy because the policy had no entry for them.
+	 *
+	 * @return The number of decisions made with the heuristic strategy.
+	 */
+	public long getNumFallbacks()
+	{
+		return this.numFallbacks;
+	}
+	
+	/**
+	 * Looks up the option the policy chose for the decision whose keys were
+	 * just computed, counting the decision.
+	 *
+	 * @param hasKeys Whether the decision's keys could be computed.
+	 * @param numOptions The number of options available.
+	 * @return The index of the chosen option, or -1 if the heuristic strategy
+	 * should be used instead.
+	 */
+	private int lookup(boolean hasKeys, int numOptions)
+	{
+		this.numDecisions++;
+		int ret = hasKeys ? this.policy.lookup(this.keys) : -1;
+		if (ret < 0 || ret >= numOptions) {
+			this.numFallbacks++;
+			return -1;
+		}
+		return ret;
+	}
+	
+	@Override
+	public boolean pressOrPass()
+	{
+		int option = this.lookup(DistilledPolicy.pressOrPassKeys(this,
+				this.keys), 2);
+		return option < 0 ? super.pressOrPass() : option == 0;
+	}
+	
+	@Override
+	public Space chooseMoveTarget(List<Space> moveTargets)
+	{
+		List<Space> sorted = new ArrayList<>(moveTargets);
+		int option = this.lookup(DistilledPolicy.moveTargetKeys(this, sorted,
+				this.keys), sorted.size());
+		return option < 0 ? super.chooseMoveTarget(moveTargets) :
+				sorted.get(option);
+	}
+	
+	@Override
+	public boolean moneyOrLoseWhammy(int amount)
+	{
+		int option = this.lookup(DistilledPolicy.moneyOrLoseWhammyKeys(this,
+				amount, this.keys), 2);
+		return option < 0 ? super.moneyOrLoseWhammy(amount) : option == 0;
+	}
+	
+	@Override
+	public Player choosePassTarget(List<Player> targets)
+	{
+		List<Player> sorted = new ArrayList<>(targets);
+		int option = this.lookup(DistilledPolicy.passTargetKeys(this, sorted,
+				this.keys), sorted.size());
+		return option < 0 ? super.choosePassTarget(targets) :
+				sorted.get(option);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,471 @@
+package ml;
+
+import game.Game;
+import game.Player;
+import game.Space;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing a neural network's decisions compiled into a quantized
+ * decision table, as produced by {@link PolicyDistiller}.
+ * <p>
+ * Each decision is described by a key at each of three levels of detail, from
+ * fine to coarse. Every level includes the decision type, a description of
+ * each option where the options vary (move targets, pass targets, and the
+ * amount in a money or lose-a-Whammy choice), whether it is the final round or
+ * final spin, and the player's Whammies and earned spins. The medium level
+ * adds the round, Double Your $$, the player's score, their lead over the
+ * leading opponent, the leading opponent's Whammies, and the opponents'
+ * remaining spins. The fine level adds whether the opponents are tied for the
+ * lead and the other opponent's score, Whammies, and spins.
+ * <p>
+ * The table maps each key to the index of the option the neural network chose
+ * most often in that situation. A decision is looked up at the finest level
+ * that was seen while distilling.
+ *
+ * @author Archer Murray
+ */
+public class DistilledPolicy
+{
+	/**
+	 * The decision type for pressing or passing.
+	 */
+	public static final int PRESS_OR_PASS = 0;
+	/**
+	 * The decision type for choosing a move target.
+	 */
+	public static final int MOVE_TARGET = 1;
+	/**
+	 * The decision type for taking money or losing a Whammy.
+	 */
+	public static final int MONEY_OR_LOSE_WHAMMY = 2;
+	/**
+	 * The decision type for choosing a pass target.
+	 */
+	public static final int PASS_TARGET = 3;
+	/**
+	 * The maximum number of options a decision can have.
+	 */
+	public static final int MAX_OPTIONS = 4;
+	/**
+	 * The number of levels of detail each decision is described at.
+	 */
+	public static final int NUM_LEVELS = 3;
+	
+	/**
+	 * The magic number at the start of every policy file ("PYLD").
+	 */
+	private static final int MAGIC = 0x50594C44;
+	/**
+	 * The key value marking an empty slot in the table.
+	 */
+	private static final long EMPTY = -1;
+	
+	private final long[] keys;
+	private final byte[] actions;
+	private final int size;
+	
+	/**
+	 * Creates a policy from the passed-in votes, mapping each key to the
+	 * option with the most votes (the lowest-numbered option on ties).
+	 *
+	 * @param votes A map from keys to the number of times each option was
+	 * chosen.
+	 */
+	public DistilledPolicy(Map<Long, int[]> votes)
+	{
+		this(votes.size());
+		for (Map.Entry<Long, int[]> e: votes.entrySet()) {
+			int[] counts = e.getValue();
+			int best = 0;
+			for (int i = 1; i < counts.length; i++) {
+				if (counts[i] > counts[best]) {
+					best = i;
+				}
+			}
+			this.put(e.getKey(), best);
+		}
+	}
+	
+	/**
+	 * Creates a policy read from the passed-in binary input, as written by
+	 * {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the policy from.
+	 * @throws IOException If an I/O error occurs or the input is not a policy.
+	 */
+	public DistilledPolicy(DataInput in) throws IOException
+	{
+		this(readSize(in));
+		for (int i = 0; i < this.size; i++) {
+			long key = in.readLong();
+			this.put(key, in.readByte());
+		}
+	}
+	
+	/**
+	 * Creates an empty policy with room for the passed-in number of entries.
+	 *
+	 * @param numEntries The number of entries.
+	 */
+	private DistilledPolicy(int numEntries)
+	{
+		int capacity = Integer.highestOneBit(Math.max(numEntries, 1)) * 4;
+		this.keys = new long[capacity];
+		this.actions = new byte[capacity];
+		Arrays.fill(this.keys, EMPTY);
+		this.size = numEntries;
+	}
+	
+	/**
+	 * Reads and checks the header of a policy, returning the number of entries.
+	 *
+	 * @param in The input to read from.
+	 * @return The number of entries in the policy.
+	 * @throws IOException If an I/O error occurs or the input is not a policy.
+	 */
+	private static int readSize(DataInput in) throws IOException
+	{
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a distilled policy");
+		}
+		return in.readInt();
+	}
+	
+	/**
+	 * Reads a policy from the passed-in file, as written by
+	 * {@link #export(String)}.
+	 *
+	 * @param fn The filename to read from.
+	 * @return The policy.
+	 * @throws IOException If an I/O error occurs or the file is not a policy.
+	 */
+	public static DistilledPolicy load(String fn) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fn), 1 << 16))) {
+			return new DistilledPolicy(in);
+		}
+	}
+	
+	/**
+	 * Writes this policy to the passed-in binary output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(this.size);
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != EMPTY) {
+				out.writeLong(this.keys[i]);
+				out.writeByte(this.actions[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Writes this policy to the specified filename.
+	 *
+	 * @param fn The filename to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void export(String fn) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(fn), 1 << 16))) {
+			this.write(out);
+		}
+	}
+	
+	/**
+	 * Returns the number of entries in this policy.
+	 *
+	 * @return The number of entries in this policy.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Returns the option chosen for the finest of the passed-in keys that was
+	 * seen while distilling.
+	 *
+	 * @param keys The keys of the decision, from finest to coarsest.
+	 * @return The index of the chosen option, or -1 if none of the keys were
+	 * seen.
+	 */
+	public int lookup(long[] keys)
+	{
+		for (long key: keys) {
+			int ret = this.get(key);
+			if (ret >= 0) {
+				return ret;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the option stored for the passed-in key, or -1 if there is none.
+	 *
+	 * @param key The key.
+	 * @return The index of the stored option, or -1 if there is none.
+	 */
+	private int get(long key)
+	{
+		int mask = this.keys.length - 1;
+		for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+			if (this.keys[i] == key) {
+				return this.actions[i];
+			}
+			if (this.keys[i] == EMPTY) {
+				return -1;
+			}
+		}
+	}
+	
+	/**
+	 * Adds an entry to the table.
+	 *
+	 * @param key The key of the decision.
+	 * @param action The index of the chosen option.
+	 */
+	private void put(long key, int action)
+	{
+		int mask = this.keys.length - 1;
+		int i = slot(key, mask);
+		while (this.keys[i] != EMPTY && this.keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		this.keys[i] = key;
+		this.actions[i] = (byte)action;
+	}
+	
+	/**
+	 * Returns the home slot of the passed-in key.
+	 *
+	 * @param key The key.
+	 * @param mask The table size minus 1.
+	 * @return The home slot of the key.
+	 */
+	private static int slot(long key, int mask)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+	
+	/**
+	 * Mixes a feature into a partial key.
+	 *
+	 * @param h The partial key.
+	 * @param value The feature to mix in.
+	 * @return The new partial key.
+	 */
+	private static long mix(long h, long value)
+	{
+		h = (h ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+	
+	/**
+	 * Quantizes a non-negative amount of money on a logarithmic scale, with the
+	 * passed-in number of steps per doubling, capped at the passed-in maximum.
+	 *
+	 * @param amount The amount of money.
+	 * @param steps The number of steps per doubling.
+	 * @param max The maximum quantized amount.
+	 * @return The quantized amount.
+	 */
+	private static int quantize(long amount, int steps, int max)
+	{
+		if (amount <= 0) {
+			return 0;
+		}
+		return Math.min(max, 1 + (int)(steps * Math.log(1 + amount / 500.0) /
+				Math.log(2)));
+	}
+	
+	/**
+	 * Computes the keys of a decision at every level of detail from the state
+	 * of the game, as seen by the passed-in player, and the description of the
+	 * options.
+	 *
+	 * @param player The player making the decision.
+	 * @param type The decision type.
+	 * @param options The description of the options.
+	 * @param keys The array to store the keys in, from finest to coarsest.
+	 */
+	private static void computeKeys(Player player, int type, long options,
+			long[] keys)
+	{
+		Game game = player.getGame();
+		Player leader = null, other = null;
+		for (Player p: game.getPlayers()) {
+			if (p.getPlayerNum() == player.getPlayerNum()) {
+				continue;
+			}
+			if (leader == null) {
+				leader = p;
+			} else if (p.getScore() > leader.getScore()) {
+				other = leader;
+				leader = p;
+			} else {
+				other = p;
+			}
+		}
+		// Coarse level
+		long h = mix(type, options);
+		h = mix(h, game.isFinalRound() ? 1 : 0);
+		h = mix(h, game.isFinalSpin() ? 1 : 0);
+		h = mix(h, player.getWhammies());
+		h = mix(h, Math.min(player.getEarnedSpins(), 7));
+		keys[2] = mix(h, 2) >>> 2;
+		// Medium level
+		h = mix(h, game.getRound());
+		h = mix(h, game.getCurrentBoard().isDoubleInPlay() ? 1 : 0);
+		h = mix(h, quantize(player.getScore(), 6, 63));
+		if (leader != null) {
+			long lead = player.getScore() - leader.getScore();
+			h = mix(h, (lead < 0 ? 64 : 0) | quantize(Math.abs(lead), 6, 63));
+			h = mix(h, leader.getWhammies());
+			h = mix(h, Math.min(leader.getEarnedSpins() +
+					leader.getPassedSpins() + (other == null ? 0 :
+					other.getEarnedSpins() + other.getPassedSpins()), 7));
+		}
+		keys[1] = mix(h, 1) >>> 2;
+		// Fine level
+		if (other != null) {
+			h = mix(h, other.getScore() == leader.getScore() ? 1 : 0);
+			h = mix(h, quantize(other.getScore(), 6, 63));
+			h = mix(h, other.getWhammies());
+			h = mix(h, Math.min(leader.getEarnedSpins(), 7));
+			h = mix(h, Math.min(leader.getPassedSpins(), 7));
+			h = mix(h, Math.min(other.getEarnedSpins(), 7));
+			h = mix(h, Math.min(other.getPassedSpins(), 7));
+		}
+		keys[0] = mix(h, 0) >>> 2;
+	}
+	
+	/**
+	 * Computes the keys of a press or pass decision. Option 0 is to press, and
+	 * option 1 is to pass.
+	 *
+	 * @param player The player making the decision.
+	 * @param keys The array to store the keys in, from finest to coarsest.
+	 * @return {@code true}, since every such decision can be described.
+	 */
+	public static boolean pressOrPassKeys(Player player, long[] keys)
+	{
+		computeKeys(player, PRESS_OR_PASS, 0, keys);
+		return true;
+	}
+	
+	/**
+	 * Computes the keys of a money or lose-a-Whammy decision. Option 0 is to
+	 * take the money, and option 1 is to lose a Whammy.
+	 *
+	 * @param player The player making the decision.
+	 * @param amount The amount of money on offer.
+	 * @param keys The array to store the keys in, from finest to coarsest.
+	 * @return {@code true}, since every such decision can be described.
+	 */
+	public static boolean moneyOrLoseWhammyKeys(Player player, int amount,
+			long[] keys)
+	{
+		computeKeys(player, MONEY_OR_LOSE_WHAMMY, quantize(amount, 2, 31),
+				keys);
+		return true;
+	}
+	
+	/**
+	 * Computes the keys of a move target decision, and sorts the move targets
+	 * into the order that option indices refer to.
+	 *
+	 * @param player The player making the decision.
+	 * @param moveTargets The move targets.
+	 * @param keys The array to store the keys in, from finest to coarsest.
+	 * @return {@code true} if the decision could be described and
+	 * {@code false} if there are too many move targets.
+	 */
+	public static boolean moveTargetKeys(Player player, List<Space> moveTargets,
+			long[] keys)
+	{
+		if (moveTargets.size() > MAX_OPTIONS) {
+			return false;
+		}
+		moveTargets.sort((a, b) -> Integer.compare(describe(a), describe(b)));
+		long options = 0;
+		for (int i = 0; i < moveTargets.size(); i++) {
+			options |= (long)describe(moveTargets.get(i)) << (8 * i);
+		}
+		computeKeys(player, MOVE_TARGET, options, keys);
+		return true;
+	}
+	
+	/**
+	 * Computes the keys of a pass target decision, and sorts the pass targets
+	 * into the order that option indices refer to.
+	 *
+	 * @param player The player making the decision.
+	 * @param targets The pass targets.
+	 * @param keys The array to store the keys in, from finest to coarsest.
+	 * @return {@code true} if the decision could be described and
+	 * {@code false} if there are too many pass targets.
+	 */
+	public static boolean passTargetKeys(Player player, List<Player> targets,
+			long[] keys)
+	{
+		if (targets.size() > MAX_OPTIONS) {
+			return false;
+		}
+		Collections.sort(targets);
+		long options = 0;
+		for (int i = 0; i < targets.size(); i++) {
+			Player p = targets.get(i);
+			int desc = Math.min(p.getWhammies(), 3) |
+					Math.min(p.getEarnedSpins() + p.getPassedSpins(), 3) << 2 |
+					(quantize(p.getScore(), 2, 31) >> 1) << 4;
+			options |= (long)desc << (8 * i);
+		}
+		computeKeys(player, PASS_TARGET, options, keys);
+		return true;
+	}
+	
+	/**
+	 * Returns an 8-bit description of a space's current value: 3 bits for the
+	 * kind of space and 5 bits for its cash amount in units of $250.
+	 *
+	 * @param space The space to describe.
+	 * @return The description of the space.
+	 */
+	private static int describe(Space space)
+	{
+		String value = space.getValue();
+		char firstChar = value.charAt(0);
+		char lastChar = value.charAt(value.length() - 1);
+		int kind;
+		if (space.getCashAmount() > 0) {
+			kind = lastChar == 'S' ? 1 : lastChar == 'L' ? 2 : 0;
+		} else if (firstChar == 'W') {
+			kind = 3;
+		} else if (firstChar == 'P') {
+			kind = 4;
+		} else if (firstChar == 'D') {
+			kind = 5;
+		} else if (firstChar == 'A') {
+			kind = 6;
+		} else {
+			kind = 7;
+		}
+		return kind << 5 | Math.min(space.getCashAmount() / 250, 31);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+package ml;
+
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a fixed-size cache of neural network evaluations, keyed
+ * by the neural network input.
+ * <p>
+ * Many game states recur across games (such as the start of round 1), and a
+ * single decision often evaluates the same input more than once. Each input is
+ * hashed to 64 bits and looked up in an open-addressed index; a hit is only
+ * returned when the whole stored input matches, so cached evaluations are
+ * exact. When the cache is full, entries are evicted with the CLOCK algorithm:
+ * a hand sweeps the entries, evicting the first one that has not been hit since
+ * the hand last passed it.
+ * <p>
+ * The cache belongs to one neural network at a time and is cleared whenever
+ * it is used with a different neural network or the weights of its neural
+ * network change. Hits and misses are counted in
+ * {@link Metrics#EVALUATION_CACHE_HITS} and
+ * {@link Metrics#EVALUATION_CACHE_MISSES}.
+ * <p>
+ * This class is not thread-safe; each thread should use its own cache, as each
+ * {@link NeuralNetPlayer} does.
+ *
+ * @author Archer Murray
+ */
+public class EvaluationCache
+{
+	/**
+	 * The system property giving the number of entries in the evaluation
+	 * cache of each neural network player. Players have no cache if it is not
+	 * set or is 0.
+	 */
+	public static final String PROPERTY = "pyl.evaluationCache";
+	
+	private final int capacity;
+	// Index from hash to entry number + 1 (0 if empty), with linear probing
+	private final int[] index;
+	private final int indexMask;
+	// Entries: input values, hashes, evaluations and referenced bits
+	private final double[] keys;
+	private final long[] hashes;
+	private final double[] values;
+	private final boolean[] referenced;
+	private int size, hand;
+	private NeuralNet net;
+	private int weightVersion;
+	
+	/**
+	 * Creates an empty cache with the passed-in number of entries.
+	 *
+	 * @param capacity The number of entries, which must be positive.
+	 */
+	public EvaluationCache(int capacity)
+	{
+		assert capacity > 0 : "capacity must be positive";
+		this.capacity = capacity;
+		// Keep the index at most half full
+		int indexLength = Integer.highestOneBit(capacity) * 4;
+		this.index = new int[indexLength];
+		this.indexMask = indexLength - 1;
+		this.keys = new double[capacity * NeuralNet.INPUT_LENGTH];
+		this.hashes = new long[capacity];
+		this.values = new double[capacity];
+		this.referenced = new boolean[capacity];
+		this.size = 0;
+		this.hand = 0;
+		this.net = null;
+	}
+	
+	/**
+	 * Returns a new cache with the number of entries given by the
+	 * {@value #PROPERTY} system property, or {@code null} if it is not set or
+	 * is 0.
+	 *
+	 * @return The cache, or {@code null}.
+	 */
+	public static EvaluationCache fromSystemProperty()
+	{
+		int capacity = Integer.getInteger(PROPERTY, 0);
+		return capacity > 0 ? new EvaluationCache(capacity) : null;
+	}
+	
+	/**
+	 * Returns a 64-bit hash of the passed-in neural network input.
+	 *
+	 * @param input The neural network input.
+	 * @return The hash of the input.
+	 */
+	public static long hash(double[] input)
+	{
+		long h = 0;
+		for (int i = 0; i < NeuralNet.INPUT_LENGTH; i++) {
+			// Adding 0 turns -0.0 into 0.0, which compares equal to it
+			h += Double.doubleToLongBits(input[i] + 0.0);
+			h = Long.rotateLeft(h * 0x9E3779B97F4A7C15L, 29);
+		}
+		// Finish with the SplitMix64 mixing function
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+	
+	/**
+	 * Returns the evaluation of the passed-in input by the passed-in neural
+	 * network, from the cache if possible.
+	 *
+	 * @param nn The neural network to evaluate with.
+	 * @param input The input to evaluate, which is not changed.
+	 * @return The output of the neural network.
+	 */
+	public double evaluate(NeuralNet nn, double[] input)
+	{
+		if (nn != this.net || nn.getWeightVersion() != this.weightVersion) {
+			this.clear();
+			this.net = nn;
+			this.weightVersion = nn.getWeightVersion();
+		}
+		long h = hash(input);
+		int i = (int)h & this.indexMask;
+		while (this.index[i] != 0) {
+			int entry = this.index[i] - 1;
+			if (this.hashes[entry] == h && this.matches(entry, input)) {
+				this.referenced[entry] = true;
+				Metrics.EVALUATION_CACHE_HITS.increment();
+				return this.values[entry];
+			}
+			i = (i + 1) & this.indexMask;
+		}
+		Metrics.EVALUATION_CACHE_MISSES.increment();
+		double ret = nn.evaluate(input);
+		int entry = this.size < this.capacity ? this.size++ : this.evict();
+		System.arraycopy(input, 0, this.keys, entry * NeuralNet.INPUT_LENGTH,
+				NeuralNet.INPUT_LENGTH);
+		this.hashes[entry] = h;
+		this.values[entry] = ret;
+		this.referenced[entry] = false;
+		// Add the entry to the index
+		i = (int)h & this.indexMask;
+		while (this.index[i] != 0) {
+			i = (i + 1) & this.indexMask;
+		}
+		this.index[i] = entry + 1;
+		return ret;
+	}
+	
+	/**
+	 * Returns whether the stored input of the passed-in entry equals the
+	 * passed-in input.
+	 *
+	 * @param entry The entry number.
+	 * @param input The input to compare against.
+	 * @return {@code true} if the inputs are equal; {@code false} otherwise.
+	 */
+	private boolean matches(int entry, double[] input)
+	{
+		int offset = entry * NeuralNet.INPUT_LENGTH;
+		for (int j = 0; j < NeuralNet.INPUT_LENGTH; j++) {
+			if (this.keys[offset + j] != input[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Advances the CLOCK hand to an entry that has not been hit since the hand
+	 * last passed it, clearing the referenced bit of every entry it skips,
+	 * and removes that entry from the index.
+	 *
+	 * @return The number of the evicted entry.
+	 */
+	private int evict()
+	{
+		while (this.referenced[this.hand]) {
+			this.referenced[this.hand] = false;
+			this.hand = (this.hand + 1) % this.capacity;
+		}
+		int entry = this.hand;
+		this.hand = (this.hand + 1) % this.capacity;
+		// Find the entry in the index
+		int i = (int)this.hashes[entry] & this.indexMask;
+		while (this.index[i] != entry + 1) {
+			i = (i + 1) & this.indexMask;
+		}
+		// Shift later slots of the probe sequence back over the removed slot
+		for (int j = (i + 1) & this.indexMask; this.index[j] != 0;
+				j = (j + 1) & this.indexMask) {
+			int home = (int)this.hashes[this.index[j] - 1] & this.indexMask;
+			if (((j - home) & this.indexMask) >= ((j - i) & this.indexMask)) {
+				this.index[i] = this.index[j];
+				i = j;
+			}
+		}
+		this.index[i] = 0;
+		return entry;
+	}
+	
+	/**
+	 * Removes every entry from this cache.
+	 */
+	public void clear()
+	{
+		if (this.size > 0) {
+			Arrays.fill(this.index, 0);
+			this.size = 0;
+			this.hand = 0;
+		}
+	}
+	
+	/**
+	 * Returns the number of entries this cache can hold.
+	 *
+	 * @return The number of entries this cache can hold.
+	 */
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+	
+	/**
+	 * Returns the number of entries in this cache.
+	 *
+	 * @return The number of entries in this cache.
+	 */
+	public int getSize()
+	{
+		return this.size;
+	}
+}
\ No newline at end of file
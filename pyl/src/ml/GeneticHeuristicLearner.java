@@ -1,15 +1,19 @@
 package ml;
 
 import game.Board;
-import game.Game;
 import game.HeuristicPlayer;
 import game.Player;
+import metrics.GenerationCompletedEvent;
+import metrics.Metrics;
+import metrics.ProgressReporter;
 
+import java.io.DataInput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,9 +35,37 @@ public class GeneticHeuristicLearner
 	 * The number of threads to be running at a time.
 	 */
 	public static final int NUM_THREADS = 5;
+	/**
+	 * The system property giving the average number of games per player when
+	 * generations race the players. Each player plays 100 games if it is not
+	 * set or is 0.
+	 */
+	public static final String RACING_PROPERTY = "pyl.racing";
+	/**
+	 * The number of games each player plays against the heuristic players in
+	 * one generation when the players are not raced.
+	 */
+	private static final int MAX_GAMES = 100;
+	/**
+	 * The number of games each undecided player plays in one round of a race.
+	 */
+	private static final int RACING_ROUND = 10;
+	/**
+	 * The most games a player plays in one race.
+	 */
+	private static final int MAX_RACING_GAMES = 4 * MAX_GAMES;
+	/**
+	 * The z-score of the confidence intervals used in races (99%).
+	 */
+	private static final double RACING_Z = 2.5758293035489;
 	
+	private final Random rng, evalRng;
+	private final Board[] boards;
+	private final int numThreads;
 	private final List<NeuralNetPlayer> players, survivors;
 	private long numGens;
+	private int racingGames;
+	private ProgressReporter trainingProgress;
 	
 	/**
 	 * This class implements a thread to perform multithreaded genetic
@@ -41,54 +73,39 @@ public class GeneticHeuristicLearner
 	 */
 	private class GeneticHeuristicLearnerThread extends Thread
 	{
-		private final List<NeuralNetPlayer> players;
+		private final List<NeuralNetPlayer> players, threadSurvivors;
+		private final Random threadRng;
 		
 		/**
-		 * Creates a new thread with the given players.
+		 * Creates a new thread with the given players, whose games are seeded
+		 * from the given seed.
 		 *
 		 * @param players The players to use.
+		 * @param seed The seed of the players' games.
 		 */
-		public GeneticHeuristicLearnerThread(List<NeuralNetPlayer> players)
+		public GeneticHeuristicLearnerThread(List<NeuralNetPlayer> players,
+				long seed)
 		{
 			this.players = players;
+			this.threadSurvivors = new ArrayList<>();
+			this.threadRng = new Random(seed);
 		}
 		
 		@Override
 		public void run()
 		{
-			int[] winCounts = new int[this.players.size()];
-			// Have each player play 100 games against two heuristic players
-			for (int i = 0; i < this.players.size(); i++) {
-				Player[] competitors = {
-						this.players.get(i), new HeuristicPlayer(),
-						new HeuristicPlayer()
-				};
-				for (int j = 0; j < 100; j++) {
-					List<Player> compList = Arrays.asList(competitors);
-					Collections.shuffle(compList);
-					List<Player> winners;
-					synchronized (BOARDS) {
-						winners = new Game(compList.toArray(new Player[0]),
-								BOARDS).play(false);
-					}
-					// See if the neural net player is a winner
-					if (winners.stream().anyMatch(p ->
-							p instanceof NeuralNetPlayer)) {
-						winCounts[i]++;
-					}
-				}
-			}
+			long[] scores = racingGames > 0 ?
+					race(this.players, boards, racingGames, this.threadRng) :
+					playFixed(this.players, boards, this.threadRng);
 			// The top half of players survive
 			for (int i = 0; i < this.players.size(); i++) {
-				this.players.get(i).setScore(winCounts[i]);
+				this.players.get(i).setScore(scores[i]);
 				this.players.get(i).setPlayerNum(i);
 			}
 			Collections.sort(this.players);
-			synchronized (survivors) {
-				for (int i = this.players.size() - 1; i >= this.players.size() /
-						2; i--) {
-					survivors.add(this.players.get(i));
-				}
+			for (int i = this.players.size() - 1; i >= this.players.size() / 2;
+					i--) {
+				this.threadSurvivors.add(this.players.get(i));
 			}
 		}
 	}
@@ -108,32 +125,312 @@ public class GeneticHeuristicLearner
 	 * @param numPlayers The population size, which must be divisible by 2.
 	 */
 	public GeneticHeuristicLearner(int numPlayers)
+	{
+		this(numPlayers, NUM_THREADS, BOARDS, new Random());
+	}
+	
+	/**
+	 * Creates a new genetic heuristic learner with the specified population
+	 * size, number of threads, boards, and random number generator, and with
+	 * hidden layer sizes given by the {@value NeuralNet#HIDDEN_LAYERS_PROPERTY}
+	 * system property.
+	 *
+	 * @param numPlayers The population size, which must be divisible by 2.
+	 * @param numThreads The number of threads to play games on.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize, shuffle, and
+	 * mutate the population, and to seed every game.
+	 */
+	public GeneticHeuristicLearner(int numPlayers, int numThreads,
+			Board[] boards, Random rng)
+	{
+		this(numPlayers, NeuralNet.hiddenLayerSizesFromSystemProperty(),
+				numThreads, boards, rng);
+	}
+	
+	/**
+	 * Creates a new genetic heuristic learner with the specified population
+	 * size, hidden layer sizes, number of threads, boards, and random number
+	 * generator.
+	 *
+	 * @param numPlayers The population size, which must be divisible by 2.
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer of the
+	 * population's neural networks.
+	 * @param numThreads The number of threads to play games on.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize, shuffle, and
+	 * mutate the population, and to seed every game.
+	 */
+	public GeneticHeuristicLearner(int numPlayers, int[] hiddenLayerSizes,
+			int numThreads, Board[] boards, Random rng)
 	{
 		assert numPlayers % 2 == 0 : "Number of players must be divisible by 2";
+		this.rng = rng;
+		this.boards = boards;
+		this.numThreads = numThreads;
 		this.players = new ArrayList<>();
 		this.survivors = new ArrayList<>();
 		for (int i = 0; i < numPlayers; i++) {
-			this.players.add(new NeuralNetPlayer());
+			this.players.add(new NeuralNetPlayer(NeuralNet.create(this.rng,
+					hiddenLayerSizes)));
 		}
+		this.evalRng = new Random(this.rng.nextLong());
 		this.numGens = 0;
+		this.racingGames = checkRacingGames(Integer.getInteger(RACING_PROPERTY,
+				0));
+		this.trainingProgress = null;
+	}
+	
+	/**
+	 * Creates a genetic heuristic learner with the population, generation
+	 * count, random number generator states, boards, and number of threads
+	 * read from the passed-in checkpoint, as written by the snapshot returned
+	 * by {@link #snapshot()}. Since every game is seeded from the random
+	 * number generators, the resumed learner plays the same generations as the
+	 * learner that wrote the checkpoint would have.
+	 *
+	 * @param in The input to read the checkpoint from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public GeneticHeuristicLearner(DataInput in) throws IOException
+	{
+		this.numGens = in.readLong();
+		this.racingGames = checkRacingGames(Integer.getInteger(RACING_PROPERTY,
+				0));
+		this.trainingProgress = null;
+		this.rng = Checkpointer.readRandom(in);
+		this.evalRng = Checkpointer.readRandom(in);
+		this.boards = Checkpointer.readBoards(in);
+		this.numThreads = in.readInt();
+		this.players = new ArrayList<>();
+		this.survivors = new ArrayList<>();
+		int numPlayers = in.readInt();
+		for (int i = 0; i < numPlayers; i++) {
+			this.players.add(new NeuralNetPlayer(NeuralNet.read(in)));
+		}
+	}
+	
+	/**
+	 * Sets the average number of games per player when generations race the
+	 * players (see {@link #race(List, Board[], int, Random)}), or 0 to have
+	 * each player play 100 games. By default, this is set by the
+	 * {@value #RACING_PROPERTY} system property.
+	 *
+	 * @param racingGames The average number of games per player, which must be
+	 * at least {@value #RACING_ROUND} if it is not 0.
+	 * @throws IllegalArgumentException If the number of games is negative or
+	 * too small to pay for one round of a race.
+	 */
+	public void setRacingGames(int racingGames)
+	{
+		this.racingGames = checkRacingGames(racingGames);
+	}
+	
+	/**
+	 * Returns the passed-in average number of games per player if it is 0 or
+	 * large enough to pay for one round of a race.
+	 *
+	 * @param racingGames The average number of games per player.
+	 * @return The average number of games per player.
+	 * @throws IllegalArgumentException If the number of games is negative or
+	 * too small to pay for one round of a race.
+	 */
+	private static int checkRacingGames(int racingGames)
+	{
+		if (racingGames != 0 && racingGames < RACING_ROUND) {
+			throw new IllegalArgumentException("Racing games per player " +
+					"must be 0 or at least " + RACING_ROUND + ": " +
+					racingGames);
+		}
+		return racingGames;
+	}
+	
+	/**
+	 * Returns a snapshot of the population, generation count, random number
+	 * generator states, boards, and number of threads that can be written to a
+	 * checkpoint while this learner continues to run.
+	 * <p>
+	 * This method must not be called while a generation is being played.
+	 *
+	 * @return The snapshot.
+	 */
+	public Checkpointer.StateWriter snapshot()
+	{
+		long gens = this.numGens;
+		Random rngCopy = Checkpointer.copyRandom(this.rng);
+		Random evalRngCopy = Checkpointer.copyRandom(this.evalRng);
+		Board[] boardsRef = this.boards;
+		int threads = this.numThreads;
+		List<NeuralNet> nets = this.players.stream()
+				.map(p -> p.getNeuralNet().copy())
+				.collect(Collectors.toList());
+		return out -> {
+			out.writeLong(gens);
+			Checkpointer.writeRandom(rngCopy, out);
+			Checkpointer.writeRandom(evalRngCopy, out);
+			Checkpointer.writeBoards(boardsRef, out);
+			out.writeInt(threads);
+			out.writeInt(nets.size());
+			for (NeuralNet net: nets) {
+				net.write(out);
+			}
+		};
+	}
+	
+	/**
+	 * Plays the passed-in number of games between the passed-in neural network
+	 * player and two heuristic players, and returns the number of games the
+	 * neural network player won.
+	 *
+	 * @param player The neural network player.
+	 * @param boards The boards to use in the games, which are locked while
+	 * each game is played.
+	 * @param numGames The number of games to play.
+	 * @param rng The random number generator to draw the seats and seeds of
+	 * the games from.
+	 * @return The number of games won by the neural network player.
+	 */
+	private static int playGames(NeuralNetPlayer player, Board[] boards,
+			int numGames, Random rng)
+	{
+		Player[] competitors = {
+				player, new HeuristicPlayer(), new HeuristicPlayer()
+		};
+		int ret = 0;
+		for (int j = 0; j < numGames; j++) {
+			List<Player> winners;
+			synchronized (boards) {
+				winners = MatchUnit.playGame(competitors, boards, rng);
+			}
+			// See if the neural net player is a winner
+			if (winners.stream().anyMatch(p -> p instanceof NeuralNetPlayer)) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Has each of the passed-in players play 100 games against two heuristic
+	 * players, and returns their scores: the number of games each won.
+	 *
+	 * @param players The players.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator to draw the seats and seeds of
+	 * the games from.
+	 * @return The score of each player.
+	 */
+	static long[] playFixed(List<NeuralNetPlayer> players, Board[] boards,
+			Random rng)
+	{
+		long[] ret = new long[players.size()];
+		for (int i = 0; i < players.size(); i++) {
+			ret[i] = playGames(players.get(i), boards, MAX_GAMES, rng);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Races the passed-in players against two heuristic players to find the
+	 * top half of them within a budget of games, and returns their scores:
+	 * each player's win rate in millionths.
+	 * <p>
+	 * Games are played in rounds. In each round, every player whose place is
+	 * undecided plays {@value #RACING_ROUND} more games, and a 99% Wilson
+	 * score interval is found for each player's win rate. The survival cutoff
+	 * is estimated as the win rate midway between the top and bottom halves,
+	 * and a player's place is decided once its interval lies wholly above or
+	 * below the cutoff, or once it has played {@value #MAX_RACING_GAMES}
+	 * games. Players far from the cutoff drop out after a few rounds, and the
+	 * rest of the budget is spent on the players near it. The race ends when
+	 * every place is decided or the budget cannot pay for another round.
+	 *
+	 * @param players The players, of which there must be an even number.
+	 * @param boards The boards to use in the games.
+	 * @param gamesPerPlayer The budget of games, as an average per player,
+	 * which must be at least {@value #RACING_ROUND}.
+	 * @param rng The random number generator to draw the seats and seeds of
+	 * the games from.
+	 * @return The score of each player.
+	 * @throws IllegalArgumentException If the budget cannot pay for one round.
+	 */
+	static long[] race(List<NeuralNetPlayer> players, Board[] boards,
+			int gamesPerPlayer, Random rng)
+	{
+		if (gamesPerPlayer < RACING_ROUND) {
+			throw new IllegalArgumentException("Racing games per player must " +
+					"be at least " + RACING_ROUND + ": " + gamesPerPlayer);
+		}
+		int n = players.size();
+		int[] wins = new int[n], games = new int[n];
+		double[] lower = new double[n], upper = new double[n];
+		boolean[] decided = new boolean[n];
+		int numUndecided = n;
+		long budget = (long)n * gamesPerPlayer;
+		while (numUndecided > 0 && budget >= (long)numUndecided *
+				RACING_ROUND) {
+			budget -= (long)numUndecided * RACING_ROUND;
+			for (int i = 0; i < n; i++) {
+				if (!decided[i]) {
+					wins[i] += playGames(players.get(i), boards, RACING_ROUND,
+							rng);
+					games[i] += RACING_ROUND;
+					// Wilson score interval of the win rate
+					double p = (double)wins[i] / games[i];
+					double z2n = RACING_Z * RACING_Z / games[i];
+					double centre = (p + z2n / 2) / (1 + z2n);
+					double margin = RACING_Z / (1 + z2n) * Math.sqrt(
+							p * (1 - p) / games[i] + z2n / (4 * games[i]));
+					lower[i] = centre - margin;
+					upper[i] = centre + margin;
+				}
+			}
+			// The survival cutoff is midway between the win rates of the
+			// worst player in the top half and the best in the bottom half
+			double[] rates = new double[n];
+			for (int i = 0; i < n; i++) {
+				rates[i] = (double)wins[i] / games[i];
+			}
+			Arrays.sort(rates);
+			double cutoff = (rates[n / 2 - 1] + rates[n / 2]) / 2;
+			for (int i = 0; i < n; i++) {
+				if (!decided[i] && (upper[i] < cutoff || lower[i] > cutoff ||
+						games[i] >= MAX_RACING_GAMES)) {
+					decided[i] = true;
+					numUndecided--;
+				}
+			}
+		}
+		long[] ret = new long[n];
+		for (int i = 0; i < n; i++) {
+			ret[i] = 1000000L * wins[i] / games[i];
+		}
+		return ret;
 	}
 	
 	/**
 	 * Plays one generation of the genetic algorithm.
 	 *
-	 * @param printStatus If {@code true}, prints the progress of the current
-	 * generation to the console while this method runs.
+	 * @param printStatus If {@code true}, displays the total number of
+	 * generations played on the console, along with the rate, until the next
+	 * evaluation.
 	 */
 	public void playGeneration(boolean printStatus)
 	{
-		if (printStatus) {
-			System.out.printf("\rGenerations completed: %1$10d", this.numGens);
+		long start = System.nanoTime();
+		GenerationCompletedEvent event = new GenerationCompletedEvent();
+		event.begin();
+		if (printStatus && this.trainingProgress == null) {
+			this.trainingProgress = new ProgressReporter(
+					"Generations completed", "generations", 0, this.numGens,
+					true);
 		}
 		this.numGens++;
 		// Shuffle players
-		Collections.shuffle(this.players);
+		Collections.shuffle(this.players, this.rng);
 		// Assign each pair of players to a group
-		List<List<NeuralNetPlayer>> groups = IntStream.range(0, NUM_THREADS)
+		List<List<NeuralNetPlayer>> groups = IntStream.range(0,
+						this.numThreads)
 				.<List<NeuralNetPlayer>>mapToObj(i -> new ArrayList<>())
 				.collect(Collectors.toList());
 		int gn = -1;
@@ -141,17 +438,19 @@ public class GeneticHeuristicLearner
 			if (i % 2 == 0) {
 				gn++;
 			}
-			groups.get(gn % NUM_THREADS).add(this.players.get(i));
+			groups.get(gn % this.numThreads).add(this.players.get(i));
 		}
-		// Run a thread for each group
+		// Run a thread for each group, seeding its games
+		long[] seeds = this.rng.longs(this.numThreads).toArray();
 		List<GeneticHeuristicLearnerThread> threads =
-				IntStream.range(0, NUM_THREADS).mapToObj(i -> new
-								GeneticHeuristicLearnerThread(groups.get(i)))
+				IntStream.range(0, this.numThreads).mapToObj(i -> new
+								GeneticHeuristicLearnerThread(groups.get(i),
+								seeds[i]))
 				.collect(Collectors.toList());
 		for (GeneticHeuristicLearnerThread t: threads) {
 			t.start();
 		}
-		for (int i = 0; i < NUM_THREADS;) {
+		for (int i = 0; i < this.numThreads;) {
 			try {
 				threads.get(i).join();
 				i++;
@@ -159,19 +458,40 @@ public class GeneticHeuristicLearner
 				// do nothing
 			}
 		}
+		// Gather the survivors in thread order, so they mutate in the same
+		// order however the threads finish
+		for (GeneticHeuristicLearnerThread t: threads) {
+			this.survivors.addAll(t.threadSurvivors);
+		}
 		// Survivors reproduce and mutate
 		this.players.clear();
 		this.players.addAll(this.survivors);
 		for (NeuralNetPlayer p: this.survivors) {
-			this.players.add(new NeuralNetPlayer(p.getNeuralNet().mutate()));
+			this.players.add(new NeuralNetPlayer(
+					p.getNeuralNet().mutate(this.rng)));
 		}
 		this.survivors.clear();
+		if (this.trainingProgress != null) {
+			this.trainingProgress.increment();
+		}
+		Metrics.GENERATION_TIME.recordSince(start);
+		if (event.shouldCommit()) {
+			event.learner = this.getClass().getSimpleName();
+			event.generation = this.numGens;
+			event.populationSize = this.players.size();
+			event.threads = this.numThreads;
+			event.commit();
+		}
 	}
 	
 	/**
 	 * Evaluates the learning progress by determining the population's win rate
 	 * against two heuristic players.
 	 * <p>
+	 * The games are seeded from a random number generator kept apart from the
+	 * one that seeds the generations, so when evaluations happen does not
+	 * change the games of later generations.
+	 * <p>
 	 * Also, writes the top-performing neural network in the population to the
 	 * file "gah_net_[generation_number].txt".
 	 *
@@ -181,27 +501,30 @@ public class GeneticHeuristicLearner
 	 */
 	public double evaluate(boolean printStatus)
 	{
+		long start = System.nanoTime();
+		if (this.trainingProgress != null) {
+			this.trainingProgress.close();
+			this.trainingProgress = null;
+		}
+		ProgressReporter progress = new ProgressReporter("Evaluation", "games",
+				this.players.size() / 2 * 100, 0, printStatus);
 		int[] winCounts = new int[this.players.size() / 2];
 		for (int i = 0; i < this.players.size() / 2; i++) {
 			Player[] competitors = {
 					this.players.get(i), new HeuristicPlayer(),
 					new HeuristicPlayer()
 			};
+			Random gameRng = new Random(this.evalRng.nextLong());
 			// Play 100 games
 			for (int j = 0; j < 100; j++) {
-				List<Player> gCompList = Arrays.asList(competitors);
-				Collections.shuffle(gCompList);
-				List<Player> winners = new Game(gCompList.toArray(
-						new Player[0]), BOARDS).play(false);
+				List<Player> winners = MatchUnit.playGame(competitors,
+						this.boards, gameRng);
 				// See if the neural net player is a winner
 				if (winners.stream()
 						.anyMatch(p -> p instanceof NeuralNetPlayer)) {
 					winCounts[i]++;
 				}
-				if (printStatus) {
-					System.out.printf("\rEvaluation: %1$6.2f%% complete",
-							(i * 100.0 + j) / (this.players.size() / 2));
-				}
+				progress.increment();
 			}
 		}
 		// Export the player with the most wins
@@ -216,9 +539,8 @@ public class GeneticHeuristicLearner
 						System.out.println("Error writing to file: " + e);
 					}
 				});
-		if (printStatus) {
-			System.out.print("\r");
-		}
+		progress.close();
+		Metrics.EVALUATION_TIME.recordSince(start);
 		return 2.0 * Arrays.stream(winCounts).sum() / (100 *
 				this.players.size());
 	}
@@ -1,9 +1,14 @@
 package ml;
 
+import metrics.Metrics;
+
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 
 /**
  * Class to run the genetic heuristic algorithm.
@@ -12,6 +17,19 @@ import java.io.PrintWriter;
  */
 public final class GeneticHeuristicRunner
 {
+	/**
+	 * The file that evaluations are written to.
+	 */
+	public static final String EVALS_FN = "gah_evals.csv";
+	/**
+	 * The file that checkpoints are written to and resumed from.
+	 */
+	public static final String CHECKPOINT_FN = "gah_checkpoint.bin";
+	/**
+	 * The file that periodic metrics snapshots are appended to.
+	 */
+	public static final String METRICS_FN = "gah_metrics.csv";
+	
 	/**
 	 * Don't let anyone instantiate this class.
 	 */
@@ -32,35 +50,84 @@ public final class GeneticHeuristicRunner
 		return 2.5758293035489 * Math.sqrt(p * (1 - p) / n);
 	}
 	
+	/**
+	 * Writes a checkpoint of the learner after the given number of minutes in
+	 * the background.
+	 *
+	 * @param checkpointer The checkpointer to write with.
+	 * @param minutes The number of minutes completed.
+	 * @param snapshot The snapshot of the learner.
+	 */
+	private static void saveCheckpoint(Checkpointer checkpointer, int minutes,
+			Checkpointer.StateWriter snapshot)
+	{
+		long evalsLength = new File(EVALS_FN).length();
+		checkpointer.save(CHECKPOINT_FN, out -> {
+			out.writeInt(minutes);
+			out.writeLong(evalsLength);
+			snapshot.write(out);
+		});
+	}
+	
 	public static void main(String[] args)
 	{
+		GeneticHeuristicLearner ghl = null;
+		int startMinute = 1;
+		// Resume from the latest checkpoint, if there is one
+		if (Checkpointer.exists(CHECKPOINT_FN)) {
+			try (DataInputStream in = Checkpointer.open(CHECKPOINT_FN)) {
+				startMinute = in.readInt() + 1;
+				long evalsLength = in.readLong();
+				ghl = new GeneticHeuristicLearner(in);
+				// Discard evaluations written after the checkpoint
+				try (RandomAccessFile raf = new RandomAccessFile(EVALS_FN,
+						"rw")) {
+					raf.setLength(evalsLength);
+				}
+			} catch (IOException e) {
+				System.out.println("Error reading " + CHECKPOINT_FN + ": " + e);
+				System.exit(1);
+			}
+			System.out.println("Resuming from checkpoint after " +
+					(startMinute - 1) + " minutes.");
+		}
 		PrintWriter out = null;
 		try {
-			out = new PrintWriter(new BufferedWriter(new FileWriter(
-					"gah_evals.csv")));
-			out.println("Minutes,Evaluation,MOE");
+			out = new PrintWriter(new BufferedWriter(new FileWriter(EVALS_FN,
+					ghl != null)));
 		} catch (IOException e) {
-			System.out.println("Error opening gah_evals.csv: " + e);
+			System.out.println("Error opening " + EVALS_FN + ": " + e);
 			System.exit(1);
 		}
-		GeneticHeuristicLearner ghl = new GeneticHeuristicLearner();
-		double eval = ghl.evaluate(true);
-		System.out.printf("Win rate after %1$3d minutes: %2$7.3f%%\n", 0,
-				100 * eval);
-		out.println("0," + eval + ',' + getMOE(eval, 50000));
+		Metrics.register();
+		Metrics.startReporter(METRICS_FN, 10);
+		Checkpointer checkpointer = new Checkpointer();
+		if (ghl == null) {
+			out.println("Minutes,Evaluation,MOE");
+			ghl = new GeneticHeuristicLearner();
+			double eval = ghl.evaluate(true);
+			System.out.printf("Win rate after %1$3d minutes: %2$7.3f%%\n", 0,
+					100 * eval);
+			out.println("0," + eval + ',' + getMOE(eval, 50000));
+			out.flush();
+			saveCheckpoint(checkpointer, 0, ghl.snapshot());
+		}
 		// Run learner for 8 hours
-		for (int i = 1; i <= 480; i++) {
+		for (int i = startMinute; i <= 480; i++) {
 			long t1 = System.currentTimeMillis();
 			long t2 = t1;
 			while (t2 - t1 < 60000) {
 				ghl.playGeneration(true);
 				t2 = System.currentTimeMillis();
 			}
-			eval = ghl.evaluate(true);
+			double eval = ghl.evaluate(true);
 			System.out.printf("Win rate after %1$3d minutes: %2$7.3f%%\n", i,
 					100 * eval);
 			out.println(i + "," + eval + ',' + getMOE(eval, 50000));
+			out.flush();
+			saveCheckpoint(checkpointer, i, ghl.snapshot());
 		}
+		checkpointer.close();
 		out.close();
 	}
 }
\ No newline at end of file
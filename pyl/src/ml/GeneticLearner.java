@@ -4,12 +4,16 @@ import game.Board;
 import game.Game;
 import game.HeuristicPlayer;
 import game.Player;
+import metrics.GenerationCompletedEvent;
+import metrics.Metrics;
+import metrics.ProgressReporter;
 
+import java.io.DataInput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,9 +35,41 @@ public class GeneticLearner
 	 * The number of threads to be running at a time.
 	 */
 	public static final int NUM_THREADS = 5;
+	/**
+	 * The system property that, if set to {@code true}, makes genetic learners
+	 * play generations with a {@link BatchedGameSimulator} by default.
+	 */
+	public static final String BATCHED_GAMES_PROPERTY = "pyl.batchedGames";
+	/**
+	 * The number of groups of three whose games are played in one batch when
+	 * playing generations with a {@link BatchedGameSimulator}.
+	 */
+	private static final int GROUPS_PER_BATCH = 10;
+	/**
+	 * The system property giving the number of deals in each group's match
+	 * when playing with common random numbers. Matches are 100 independent
+	 * games if it is not set or is 0.
+	 */
+	public static final String MATCH_DEALS_PROPERTY = "pyl.matchDeals";
+	/**
+	 * Every seating of three players, as indices into the competitors.
+	 */
+	private static final int[][] SEATINGS = {
+			{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+	};
 	
-	private final List<NeuralNetPlayer> players, survivors;
+	private final Random rng, evalRng;
+	private final Board[] boards;
+	private final int numThreads;
+	private final PopulationArena arena;
+	private final int[] population, survivors, survivorWins;
+	private final long[] groupSeeds;
+	private final NeuralNetPlayer[][] threadPlayers;
 	private long numGens;
+	private boolean batchedGames;
+	private int matchDeals;
+	private MatchCoordinator coordinator;
+	private ProgressReporter trainingProgress;
 	
 	/**
 	 * This class implements a thread to perform multithreaded genetic
@@ -41,53 +77,139 @@ public class GeneticLearner
 	 */
 	private class GeneticLearnerThread extends Thread
 	{
-		private final List<NeuralNetPlayer> players;
+		private final List<Integer> groups;
+		private final NeuralNetPlayer[] competitors;
 		
 		/**
-		 * Creates a new thread with the given players.
+		 * Creates a new thread that plays the given groups of three players
+		 * using the given reusable players.
 		 *
-		 * @param players The players to use.
+		 * @param groups The indices of the groups of three to play.
+		 * @param competitors Three players to load each group's genomes into.
 		 */
-		public GeneticLearnerThread(List<NeuralNetPlayer> players)
+		public GeneticLearnerThread(List<Integer> groups,
+				NeuralNetPlayer[] competitors)
 		{
-			this.players = players;
+			this.groups = groups;
+			this.competitors = competitors;
 		}
 		
 		@Override
 		public void run()
 		{
+			if (batchedGames) {
+				this.runBatched();
+				return;
+			}
 			// Have players play each other in groups of three
-			for (int i = 0; i < this.players.size(); i += 3) {
-				NeuralNetPlayer[] competitors = {
-						this.players.get(i), this.players.get(i + 1),
-						this.players.get(i + 2)
+			for (int g: this.groups) {
+				Random groupRng = new Random(groupSeeds[g]);
+				int[] rows = {
+						population[3 * g], population[3 * g + 1],
+						population[3 * g + 2]
 				};
-				int[] winCounts = {0, 0, 0};
-				// Play 100 games
-				for (int j = 0; j < 100; j++) {
-					List<NeuralNetPlayer> compList = Arrays.asList(competitors);
-					Collections.shuffle(compList);
-					List<Player> winners;
-					synchronized (BOARDS) {
-						winners = new Game(compList.toArray(new
-								NeuralNetPlayer[0]), BOARDS).play(false);
+				for (int k = 0; k < 3; k++) {
+					arena.load(rows[k], this.competitors[k].getNeuralNet());
+				}
+				int[] winCounts;
+				if (matchDeals > 0) {
+					synchronized (boards) {
+						winCounts = playMatch(this.competitors, boards,
+								matchDeals, groupRng);
 					}
-					// For each player, see if they are a winner
-					for (int k = 0; k < 3; k++) {
-						for (Player p: winners) {
-							if (competitors[k].equals(p)) {
-								winCounts[k]++;
-								break;
+				} else {
+					winCounts = new int[3];
+					// Play 100 games
+					for (int j = 0; j < 100; j++) {
+						List<Player> winners;
+						synchronized (boards) {
+							winners = MatchUnit.playGame(this.competitors,
+									boards, groupRng);
+						}
+						// For each player, see if they are a winner
+						for (int k = 0; k < 3; k++) {
+							for (Player p: winners) {
+								if (this.competitors[k].equals(p)) {
+									winCounts[k]++;
+									break;
+								}
 							}
 						}
 					}
 				}
 				// The player with the most wins survives
-				int maxWins = Arrays.stream(winCounts).max().orElse(-1);
-				synchronized (survivors) {
-					IntStream.range(0, 3).filter(j -> winCounts[j] == maxWins)
-							.findFirst().ifPresent(
-									j -> survivors.add(competitors[j]));
+				int best = 0;
+				for (int k = 1; k < 3; k++) {
+					if (winCounts[k] > winCounts[best]) {
+						best = k;
+					}
+				}
+				survivors[g] = rows[best];
+				survivorWins[g] = winCounts[best];
+			}
+		}
+		
+		/**
+		 * Plays the same games as {@link #run()}, but plays the games of
+		 * several groups at once with a batched game simulator. The seats and
+		 * spins of each batch are drawn from the seed of its first group.
+		 */
+		private void runBatched()
+		{
+			BatchedGameSimulator sim;
+			synchronized (boards) {
+				for (Board b: boards) {
+					b.restoreDoubles();
+				}
+				sim = new BatchedGameSimulator(boards, 0);
+			}
+			NeuralNet[] nets = new NeuralNet[3 * GROUPS_PER_BATCH];
+			for (int i = 0; i < nets.length; i++) {
+				nets[i] = arena.newNeuralNet();
+			}
+			for (int start = 0; start < this.groups.size();
+					start += GROUPS_PER_BATCH) {
+				int numGroups = Math.min(GROUPS_PER_BATCH,
+						this.groups.size() - start);
+				Random batchRng = new Random(
+						groupSeeds[this.groups.get(start)]);
+				sim.setSeed(batchRng.nextLong());
+				for (int i = 0; i < numGroups; i++) {
+					int g = this.groups.get(start + i);
+					for (int k = 0; k < 3; k++) {
+						arena.load(population[3 * g + k], nets[3 * i + k]);
+					}
+				}
+				// Play 100 games per group, shuffling the seats of each game
+				int[] seatNets = new int[300 * numGroups];
+				for (int m = 0; m < 100 * numGroups; m++) {
+					int i = m / 100;
+					for (int k = 0; k < 3; k++) {
+						int j = batchRng.nextInt(k + 1);
+						seatNets[3 * m + k] = seatNets[3 * m + j];
+						seatNets[3 * m + j] = 3 * i + k;
+					}
+				}
+				int[] winners = sim.play(nets, seatNets);
+				int[] winCounts = new int[3 * numGroups];
+				for (int m = 0; m < winners.length; m++) {
+					for (int k = 0; k < 3; k++) {
+						if ((winners[m] & 1 << k) != 0) {
+							winCounts[seatNets[3 * m + k]]++;
+						}
+					}
+				}
+				// The player with the most wins in each group survives
+				for (int i = 0; i < numGroups; i++) {
+					int best = 3 * i;
+					for (int k = 1; k < 3; k++) {
+						if (winCounts[3 * i + k] > winCounts[best]) {
+							best = 3 * i + k;
+						}
+					}
+					int g = this.groups.get(start + i);
+					survivors[g] = population[3 * g + best - 3 * i];
+					survivorWins[g] = winCounts[best];
 				}
 			}
 		}
@@ -102,54 +224,423 @@ public class GeneticLearner
 	}
 	
 	/**
-	 * Creates a new genetic learner with the specified population size.
+	 * Creates a new genetic learner with the specified population size, storing
+	 * weights in double precision.
 	 *
 	 * @param numPlayers The population size, which must be divisible by 3.
 	 */
 	public GeneticLearner(int numPlayers)
+	{
+		this(numPlayers, false);
+	}
+	
+	/**
+	 * Creates a new genetic learner with the specified population size and
+	 * weight precision.
+	 *
+	 * @param numPlayers The population size, which must be divisible by 3.
+	 * @param singlePrecision If {@code true}, the population's weights are
+	 * stored in single precision; otherwise, they are stored in double
+	 * precision.
+	 */
+	public GeneticLearner(int numPlayers, boolean singlePrecision)
+	{
+		this(numPlayers, NUM_THREADS, singlePrecision, BOARDS, new Random());
+	}
+	
+	/**
+	 * Creates a new genetic learner with the specified population size, number
+	 * of threads, weight precision, boards, and random number generator, and
+	 * with hidden layer sizes given by the
+	 * {@value NeuralNet#HIDDEN_LAYERS_PROPERTY} system property.
+	 *
+	 * @param numPlayers The population size, which must be divisible by 3.
+	 * @param numThreads The number of threads to play games on.
+	 * @param singlePrecision If {@code true}, the population's weights are
+	 * stored in single precision; otherwise, they are stored in double
+	 * precision.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize, shuffle, and
+	 * mutate the population, and to seed every game.
+	 */
+	public GeneticLearner(int numPlayers, int numThreads,
+			boolean singlePrecision, Board[] boards, Random rng)
+	{
+		this(numPlayers, NeuralNet.hiddenLayerSizesFromSystemProperty(),
+				numThreads, singlePrecision, boards, rng);
+	}
+	
+	/**
+	 * Creates a new genetic learner with the specified population size, hidden
+	 * layer sizes, number of threads, weight precision, boards, and random
+	 * number generator.
+	 *
+	 * @param numPlayers The population size, which must be divisible by 3.
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer of the
+	 * population's neural networks.
+	 * @param numThreads The number of threads to play games on.
+	 * @param singlePrecision If {@code true}, the population's weights are
+	 * stored in single precision; otherwise, they are stored in double
+	 * precision.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize, shuffle, and
+	 * mutate the population, and to seed every game.
+	 */
+	public GeneticLearner(int numPlayers, int[] hiddenLayerSizes,
+			int numThreads, boolean singlePrecision, Board[] boards, Random rng)
 	{
 		assert numPlayers % 3 == 0 : "Number of players must be divisible by 3";
-		this.players = new ArrayList<>();
-		this.survivors = new ArrayList<>();
+		this.rng = rng;
+		this.boards = boards;
+		this.numThreads = numThreads;
+		this.arena = new PopulationArena(NeuralNet.create(new Random(),
+				hiddenLayerSizes), numPlayers, singlePrecision);
+		this.population = new int[numPlayers];
 		for (int i = 0; i < numPlayers; i++) {
-			this.players.add(new NeuralNetPlayer());
+			this.arena.randomize(i, this.rng);
+			this.population[i] = i;
 		}
+		this.evalRng = new Random(this.rng.nextLong());
+		this.survivors = new int[numPlayers / 3];
+		this.survivorWins = new int[numPlayers / 3];
+		this.groupSeeds = new long[numPlayers / 3];
+		this.threadPlayers = this.createThreadPlayers();
 		this.numGens = 0;
+		this.batchedGames = Boolean.getBoolean(BATCHED_GAMES_PROPERTY);
+		this.matchDeals = Integer.getInteger(MATCH_DEALS_PROPERTY, 0);
+		this.coordinator = null;
+		this.trainingProgress = null;
+	}
+	
+	/**
+	 * Creates a genetic learner with the population, generation count,
+	 * random number generator states, boards, and number of threads read
+	 * from the passed-in checkpoint, as written by the snapshot returned by
+	 * {@link #snapshot()}. Since every game is seeded from the random number
+	 * generators, the resumed learner plays the same generations as the
+	 * learner that wrote the checkpoint would have.
+	 *
+	 * @param in The input to read the checkpoint from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public GeneticLearner(DataInput in) throws IOException
+	{
+		this.numGens = in.readLong();
+		this.trainingProgress = null;
+		this.rng = Checkpointer.readRandom(in);
+		this.evalRng = Checkpointer.readRandom(in);
+		this.boards = Checkpointer.readBoards(in);
+		this.numThreads = in.readInt();
+		this.arena = new PopulationArena(in);
+		this.population = new int[in.readInt()];
+		for (int i = 0; i < this.population.length; i++) {
+			this.population[i] = in.readInt();
+		}
+		this.survivors = new int[this.population.length / 3];
+		this.survivorWins = new int[this.population.length / 3];
+		this.groupSeeds = new long[this.population.length / 3];
+		this.threadPlayers = this.createThreadPlayers();
+		this.batchedGames = Boolean.getBoolean(BATCHED_GAMES_PROPERTY);
+		this.matchDeals = Integer.getInteger(MATCH_DEALS_PROPERTY, 0);
+		this.coordinator = null;
+	}
+	
+	/**
+	 * Creates three reusable players for each thread to load genomes into.
+	 *
+	 * @return The reusable players, indexed by thread.
+	 */
+	private NeuralNetPlayer[][] createThreadPlayers()
+	{
+		NeuralNetPlayer[][] ret = new NeuralNetPlayer[this.numThreads][3];
+		for (NeuralNetPlayer[] competitors: ret) {
+			for (int k = 0; k < 3; k++) {
+				competitors[k] = new NeuralNetPlayer(this.arena.newNeuralNet());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns a snapshot of the population, generation count, random number
+	 * generator states, boards, and number of threads that can be written to a
+	 * checkpoint while this learner continues to run.
+	 * <p>
+	 * This method must not be called while a generation is being played.
+	 *
+	 * @return The snapshot.
+	 */
+	public Checkpointer.StateWriter snapshot()
+	{
+		long gens = this.numGens;
+		Random rngCopy = Checkpointer.copyRandom(this.rng);
+		Random evalRngCopy = Checkpointer.copyRandom(this.evalRng);
+		PopulationArena arenaCopy = new PopulationArena(this.arena);
+		int[] populationCopy = this.population.clone();
+		Board[] boardsRef = this.boards;
+		int threads = this.numThreads;
+		return out -> {
+			out.writeLong(gens);
+			Checkpointer.writeRandom(rngCopy, out);
+			Checkpointer.writeRandom(evalRngCopy, out);
+			Checkpointer.writeBoards(boardsRef, out);
+			out.writeInt(threads);
+			arenaCopy.write(out);
+			out.writeInt(populationCopy.length);
+			for (int row: populationCopy) {
+				out.writeInt(row);
+			}
+		};
+	}
+	
+	/**
+	 * Sets whether generations are played with a {@link BatchedGameSimulator},
+	 * which plays games by the same rules as {@link Game}, but faster. By
+	 * default, this is set by the {@value #BATCHED_GAMES_PROPERTY} system
+	 * property.
+	 *
+	 * @param batchedGames If {@code true}, generations are played with a
+	 * batched game simulator; otherwise, each game is played with
+	 * {@link Game}.
+	 */
+	public void setBatchedGames(boolean batchedGames)
+	{
+		this.batchedGames = batchedGames;
+	}
+	
+	/**
+	 * Sets the number of deals in each group's match when generations are
+	 * played with common random numbers (see
+	 * {@link #playMatch(Player[], Board[], int, Random)}), or 0 to play 100
+	 * independent games per group. Only applies when games are played with
+	 * {@link Game} on this learner's threads. By default, this is set by the
+	 * {@value #MATCH_DEALS_PROPERTY} system property.
+	 *
+	 * @param matchDeals The number of deals, each of which is six games.
+	 */
+	public void setMatchDeals(int matchDeals)
+	{
+		this.matchDeals = matchDeals;
+	}
+	
+	/**
+	 * Plays a match between the passed-in three players using common random
+	 * numbers, and returns the number of games won by each player.
+	 * <p>
+	 * For each deal, seeds for the boards and for the spin distribution are
+	 * drawn once, and the deal is replayed from those seeds in all six
+	 * seatings of the players, with any "Double Your $$ + One Spin" removed by
+	 * an earlier game put back in play. Every player therefore faces the same
+	 * board stops, prizes, and spin counts from every seat, at least until
+	 * their decisions lead the games apart, so much of the luck cancels out of
+	 * the win counts.
+	 * <p>
+	 * The boards must not be used by other threads while the match is played.
+	 *
+	 * @param competitors The three players.
+	 * @param boards The boards to use in the games.
+	 * @param numDeals The number of deals, each of which is six games.
+	 * @param rng The random number generator to draw the seeds from.
+	 * @return The number of games won by each player.
+	 */
+	public static int[] playMatch(Player[] competitors, Board[] boards,
+			int numDeals, Random rng)
+	{
+		int[] winCounts = new int[3];
+		long[] boardSeeds = new long[boards.length];
+		for (int d = 0; d < numDeals; d++) {
+			for (int i = 0; i < boards.length; i++) {
+				boardSeeds[i] = rng.nextLong();
+			}
+			long gameSeed = rng.nextLong();
+			for (int[] seating: SEATINGS) {
+				Player[] seats = new Player[3];
+				for (int k = 0; k < 3; k++) {
+					seats[k] = competitors[seating[k]];
+				}
+				for (int i = 0; i < boards.length; i++) {
+					boards[i].restoreDoubles();
+					boards[i].setSeed(boardSeeds[i]);
+				}
+				Game game = new Game(seats, boards);
+				game.setSeed(gameSeed);
+				List<Player> winners = game.play(false);
+				// For each player, see if they are a winner
+				for (int k = 0; k < 3; k++) {
+					if (winners.contains(competitors[k])) {
+						winCounts[k]++;
+					}
+				}
+			}
+		}
+		return winCounts;
+	}
+	
+	/**
+	 * Sets the coordinator that generations and evaluations send their games
+	 * to, to be played by worker processes instead of this learner's threads.
+	 * The games are the same as those played by this learner's threads, but
+	 * drawn from seeds chosen by this learner's random number generator.
+	 *
+	 * @param coordinator The coordinator, or {@code null} to play games on
+	 * this learner's threads.
+	 */
+	public void setCoordinator(MatchCoordinator coordinator)
+	{
+		this.coordinator = coordinator;
+	}
+	
+	/**
+	 * Returns the number of generations this learner has played.
+	 *
+	 * @return The number of generations played.
+	 */
+	public long getNumGenerations()
+	{
+		return this.numGens;
+	}
+	
+	/**
+	 * Returns copies of the survivors of the last generation with the most
+	 * wins in their groups, from most to fewest wins. Before the first
+	 * generation, returns arbitrary members of the population.
+	 *
+	 * @param count The number of survivors to return, which must be at most a
+	 * third of the population size.
+	 * @return The neural networks of the survivors.
+	 */
+	NeuralNet[] getElites(int count)
+	{
+		Integer[] order = new Integer[this.survivors.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(this.survivorWins[b],
+				this.survivorWins[a]));
+		NeuralNet[] ret = new NeuralNet[count];
+		for (int i = 0; i < count; i++) {
+			ret[i] = this.arena.getNeuralNet(this.population[order[i]]);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns a copy of the passed-in member of the first third of the
+	 * population, which holds the survivors of the last generation.
+	 *
+	 * @param i The index of the survivor.
+	 * @return The neural network of the survivor.
+	 */
+	NeuralNet getSurvivor(int i)
+	{
+		return this.arena.getNeuralNet(this.population[i]);
+	}
+	
+	/**
+	 * Overwrites one of the offspring of the last generation with the
+	 * passed-in neural network, which must have the same shape as the
+	 * population. Offspring are overwritten from the end of the population.
+	 *
+	 * @param i The index of the offspring to overwrite, which must be less
+	 * than two thirds of the population size.
+	 * @param nn The neural network to store.
+	 */
+	void replaceOffspring(int i, NeuralNet nn)
+	{
+		this.arena.store(this.population[this.population.length - 1 - i], nn);
 	}
 	
 	/**
 	 * Plays one generation of the genetic algorithm.
 	 *
-	 * @param printStatus If {@code true}, prints the progress of the current
-	 * generation to the console while this method runs.
+	 * @param printStatus If {@code true}, displays the total number of
+	 * generations played on the console, along with the rate, until the next
+	 * evaluation.
 	 */
 	public void playGeneration(boolean printStatus)
 	{
-		if (printStatus) {
-			System.out.printf("\rGenerations completed: %1$10d", this.numGens);
+		long start = System.nanoTime();
+		GenerationCompletedEvent event = new GenerationCompletedEvent();
+		event.begin();
+		if (printStatus && this.trainingProgress == null) {
+			this.trainingProgress = new ProgressReporter(
+					"Generations completed", "generations", 0, this.numGens,
+					true);
 		}
 		this.numGens++;
 		// Shuffle players
-		Collections.shuffle(this.players);
+		for (int i = this.population.length - 1; i > 0; i--) {
+			int j = this.rng.nextInt(i + 1);
+			int tmp = this.population[i];
+			this.population[i] = this.population[j];
+			this.population[j] = tmp;
+		}
+		// Draw the seed of each group's games
+		for (int g = 0; g < this.groupSeeds.length; g++) {
+			this.groupSeeds[g] = this.rng.nextLong();
+		}
+		if (this.coordinator != null) {
+			this.playGroupsRemotely();
+		} else {
+			this.playGroups();
+		}
+		// Survivors reproduce and mutate, overwriting the rows of the
+		// eliminated players in place
+		boolean[] survived = new boolean[this.arena.getNumRows()];
+		for (int row: this.survivors) {
+			survived[row] = true;
+		}
+		System.arraycopy(this.survivors, 0, this.population, 0,
+				this.survivors.length);
+		int idx = this.survivors.length;
+		int deadRow = 0;
+		for (int row: this.survivors) {
+			for (int i = 0; i < 2; i++) {
+				while (survived[deadRow]) {
+					deadRow++;
+				}
+				this.arena.mutate(row, deadRow, this.rng);
+				this.population[idx] = deadRow;
+				idx++;
+				deadRow++;
+			}
+		}
+		if (this.trainingProgress != null) {
+			this.trainingProgress.increment();
+		}
+		Metrics.GENERATION_TIME.recordSince(start);
+		if (event.shouldCommit()) {
+			event.learner = this.getClass().getSimpleName();
+			event.generation = this.numGens;
+			event.populationSize = this.population.length;
+			event.threads = this.numThreads;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Plays each group of three players' games on this learner's threads and
+	 * records the survivor of each group.
+	 */
+	private void playGroups()
+	{
 		// Assign each set of three players to a group
-		List<List<NeuralNetPlayer>> groups = IntStream.range(0, NUM_THREADS)
-				.<List<NeuralNetPlayer>>mapToObj(i -> new ArrayList<>())
+		List<List<Integer>> groups = IntStream.range(0, this.numThreads)
+				.<List<Integer>>mapToObj(i -> new ArrayList<>())
 				.collect(Collectors.toList());
-		int gn = -1;
-		for (int i = 0; i < this.players.size(); i++) {
-			if (i % 3 == 0) {
-				gn++;
-			}
-			groups.get(gn % NUM_THREADS).add(this.players.get(i));
+		for (int g = 0; g < this.survivors.length; g++) {
+			groups.get(g % this.numThreads).add(g);
 		}
 		// Run a thread for each group
-		List<GeneticLearnerThread> threads = IntStream.range(0, NUM_THREADS)
-				.mapToObj(i -> new GeneticLearnerThread(groups.get(i)))
+		List<GeneticLearnerThread> threads = IntStream.range(0,
+						this.numThreads)
+				.mapToObj(i -> new GeneticLearnerThread(groups.get(i),
+						this.threadPlayers[i]))
 				.collect(Collectors.toList());
 		for (GeneticLearnerThread t: threads) {
 			t.start();
 		}
-		for (int i = 0; i < NUM_THREADS;) {
+		for (int i = 0; i < this.numThreads;) {
 			try {
 				threads.get(i).join();
 				i++;
@@ -157,16 +648,35 @@ public class GeneticLearner
 				// do nothing
 			}
 		}
-		// Survivors reproduce and mutate
-		this.players.clear();
-		this.players.addAll(this.survivors);
-		for (NeuralNetPlayer p: this.survivors) {
-			for (int i = 0; i < 2; i++) {
-				this.players.add(new NeuralNetPlayer(
-						p.getNeuralNet().mutate()));
+	}
+	
+	/**
+	 * Plays each group of three players' games on the coordinator's workers
+	 * and records the survivor of each group.
+	 */
+	private void playGroupsRemotely()
+	{
+		List<MatchUnit> units = new ArrayList<>();
+		for (int g = 0; g < this.survivors.length; g++) {
+			NeuralNet[] nets = new NeuralNet[3];
+			for (int k = 0; k < 3; k++) {
+				nets[k] = this.arena.getNeuralNet(this.population[3 * g + k]);
+			}
+			units.add(new MatchUnit(nets, this.boards, this.groupSeeds[g],
+					100));
+		}
+		int[][] winCounts = this.coordinator.play(units);
+		// The player with the most wins in each group survives
+		for (int g = 0; g < this.survivors.length; g++) {
+			int best = 0;
+			for (int k = 1; k < 3; k++) {
+				if (winCounts[g][k] > winCounts[g][best]) {
+					best = k;
+				}
 			}
+			this.survivors[g] = this.population[3 * g + best];
+			this.survivorWins[g] = winCounts[g][best];
 		}
-		this.survivors.clear();
 	}
 	
 	/**
@@ -182,45 +692,78 @@ public class GeneticLearner
 	 */
 	public double evaluate(boolean printStatus)
 	{
-		int[] winCounts = new int[this.players.size() / 3];
-		for (int i = 0; i < this.players.size() / 3; i++) {
-			Player[] competitors = {
-					this.players.get(i), new HeuristicPlayer(),
-					new HeuristicPlayer()
-			};
-			// Play 100 games
-			for (int j = 0; j < 100; j++) {
-				List<Player> gCompList = Arrays.asList(competitors);
-				Collections.shuffle(gCompList);
-				List<Player> winners = new Game(gCompList.toArray(
-						new Player[0]), BOARDS).play(false);
-				// See if the neural net player is a winner
-				if (winners.stream()
-						.anyMatch(p -> p instanceof NeuralNetPlayer)) {
-					winCounts[i]++;
-				}
-				if (printStatus) {
-					System.out.printf("\rEvaluation: %1$6.2f%% complete",
-							(i * 100.0 + j) / (this.players.size() / 3));
-				}
-			}
+		long start = System.nanoTime();
+		if (this.trainingProgress != null) {
+			this.trainingProgress.close();
+			this.trainingProgress = null;
 		}
+		ProgressReporter progress = new ProgressReporter("Evaluation", "games",
+				this.population.length / 3 * 100, 0, printStatus);
+		int[] winCounts = this.playHeuristicGames(progress);
 		// Export the player with the most wins
 		int maxWins = Arrays.stream(winCounts).max().orElse(-1);
-		IntStream.range(0, this.players.size() / 3)
+		IntStream.range(0, this.population.length / 3)
 				.filter(j -> winCounts[j] == maxWins)
 				.findFirst().ifPresent(j -> {
 					try {
-						this.players.get(j).getNeuralNet()
+						this.arena.getNeuralNet(this.population[j])
 								.export("ga_net_" + this.numGens);
 					} catch (IOException e) {
 						System.out.println("Error writing to file: " + e);
 					}
 				});
-		if (printStatus) {
-			System.out.print("\r");
-		}
+		progress.close();
+		Metrics.EVALUATION_TIME.recordSince(start);
 		return 3.0 * Arrays.stream(winCounts).sum() / (100 *
-				this.players.size());
+				this.population.length);
+	}
+	
+	/**
+	 * Plays 100 games between each of the first third of the population
+	 * (the survivors of the last generation) and two heuristic players.
+	 * <p>
+	 * The games are seeded from a random number generator kept apart from the
+	 * one that seeds the generations, so when evaluations happen does not
+	 * change the games of later generations.
+	 *
+	 * @param progress The reporter to count each game in.
+	 * @return The number of games won by each of the first third of the
+	 * population.
+	 */
+	int[] playHeuristicGames(ProgressReporter progress)
+	{
+		if (this.coordinator != null) {
+			List<MatchUnit> units = new ArrayList<>();
+			for (int i = 0; i < this.population.length / 3; i++) {
+				units.add(new MatchUnit(new NeuralNet[] {
+						this.arena.getNeuralNet(this.population[i])
+				}, this.boards, this.evalRng.nextLong(), 100));
+			}
+			int[] ret = Arrays.stream(this.coordinator.play(units))
+					.mapToInt(w -> w[0]).toArray();
+			progress.add(100L * units.size());
+			return ret;
+		}
+		int[] winCounts = new int[this.population.length / 3];
+		NeuralNetPlayer player = this.threadPlayers[0][0];
+		for (int i = 0; i < this.population.length / 3; i++) {
+			this.arena.load(this.population[i], player.getNeuralNet());
+			Player[] competitors = {
+					player, new HeuristicPlayer(), new HeuristicPlayer()
+			};
+			Random gameRng = new Random(this.evalRng.nextLong());
+			// Play 100 games
+			for (int j = 0; j < 100; j++) {
+				List<Player> winners = MatchUnit.playGame(competitors,
+						this.boards, gameRng);
+				// See if the neural net player is a winner
+				if (winners.stream()
+						.anyMatch(p -> p instanceof NeuralNetPlayer)) {
+					winCounts[i]++;
+				}
+				progress.increment();
+			}
+		}
+		return winCounts;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package ml;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Class representing a connection to an {@link InferenceServer} on the same
+ * machine.
+ * <p>
+ * Each request waits for its response, so a client has one request in flight
+ * at a time; programs that make requests from several threads should give
+ * each thread its own client. This class is not thread-safe.
+ *
+ * @author Archer Murray
+ */
+public class InferenceClient implements Closeable
+{
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final ByteArrayOutputStream bytes;
+	private final DataOutputStream request;
+	
+	/**
+	 * Class representing the response to a request: the evaluation of each
+	 * state and the index of the best state.
+	 */
+	public static class Result
+	{
+		private final double[] evaluations;
+		private final int best;
+		
+		/**
+		 * Creates a new result.
+		 *
+		 * @param evaluations The evaluation of each state.
+		 * @param best The index of the state with the highest evaluation.
+		 */
+		public Result(double[] evaluations, int best)
+		{
+			this.evaluations = evaluations;
+			this.best = best;
+		}
+		
+		/**
+		 * Returns the evaluation of each state, in the order they were sent.
+		 *
+		 * @return The evaluation of each state.
+		 */
+		public double[] getEvaluations()
+		{
+			return this.evaluations;
+		}
+		
+		/**
+		 * Returns the index of the state with the highest evaluation, the
+		 * first if several are tied.
+		 *
+		 * @return The index of the best state.
+		 */
+		public int getBest()
+		{
+			return this.best;
+		}
+	}
+	
+	/**
+	 * Connects to the server listening on the passed-in port of the loopback
+	 * interface.
+	 *
+	 * @param port The port the server is listening on.
+	 * @throws IOException If the connection fails.
+	 */
+	public InferenceClient(int port) throws IOException
+	{
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(
+				this.socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				this.socket.getOutputStream()));
+		this.bytes = new ByteArrayOutputStream();
+		this.request = new DataOutputStream(this.bytes);
+	}
+	
+	/**
+	 * Sends the passed-in states to the server and returns its evaluations.
+	 *
+	 * @param states The states, each of length
+	 * {@value NeuralNet#INPUT_LENGTH}; at least one and at most
+	 * {@value InferenceServer#MAX_STATES}.
+	 * @return The evaluations of the states and the index of the best one.
+	 * @throws IOException If an I/O error occurs or the response is malformed.
+	 */
+	public Result evaluate(double[]... states) throws IOException
+	{
+		if (states.length == 0 || states.length > InferenceServer.MAX_STATES) {
+			throw new IllegalArgumentException("Number of states must be " +
+					"from 1 to " + InferenceServer.MAX_STATES);
+		}
+		this.bytes.reset();
+		this.request.writeByte(InferenceServer.EVALUATE);
+		this.request.writeInt(states.length);
+		for (double[] state: states) {
+			if (state.length != NeuralNet.INPUT_LENGTH) {
+				throw new IllegalArgumentException("State must be length " +
+						NeuralNet.INPUT_LENGTH);
+			}
+			for (double v: state) {
+				this.request.writeDouble(v);
+			}
+		}
+		DataInputStream response = this.send();
+		if (response.readByte() != InferenceServer.EVALUATIONS ||
+				response.readInt() != states.length) {
+			throw new IOException("malformed response");
+		}
+		double[] evaluations = new double[states.length];
+		for (int i = 0; i < evaluations.length; i++) {
+			evaluations[i] = response.readDouble();
+		}
+		return new Result(evaluations, response.readInt());
+	}
+	
+	/**
+	 * Returns the statistics of the server.
+	 *
+	 * @return The statistics of the server.
+	 * @throws IOException If an I/O error occurs or the response is malformed.
+	 */
+	public InferenceServer.Stats getServerStats() throws IOException
+	{
+		this.bytes.reset();
+		this.request.writeByte(InferenceServer.STATS);
+		DataInputStream response = this.send();
+		if (response.readByte() != InferenceServer.STATS_RESULT) {
+			throw new IOException("malformed response");
+		}
+		return InferenceServer.Stats.read(response);
+	}
+	
+	/**
+	 * Sends the request written so far and returns a stream over the
+	 * contents of the response.
+	 *
+	 * @return The contents of the response.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private DataInputStream send() throws IOException
+	{
+		this.request.flush();
+		MatchCoordinator.writeFrame(this.out, this.bytes.toByteArray());
+		return new DataInputStream(new ByteArrayInputStream(
+				MatchCoordinator.readFrame(this.in)));
+	}
+	
+	/**
+	 * Closes the connection to the server.
+	 *
+	 * @throws IOException If an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.socket.close();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,546 @@
+package ml;
+
+import metrics.QuantileSketch;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that serves evaluations of a neural network to other programs on the
+ * same machine over loopback TCP.
+ * <p>
+ * Clients ({@link InferenceClient}) send requests of one or more game states,
+ * each an array of {@value NeuralNet#INPUT_LENGTH} values as returned by
+ * {@link game.Game#getNeuralNetInput(int)}, and receive the network's
+ * evaluation of each state and the index of the best one. When the states are
+ * the states that would result from each of a player's options, as in
+ * {@link NeuralNetPlayer}, this is the option the network would choose.
+ * Messages are frames as in {@link MatchCoordinator}.
+ * <p>
+ * Requests from all connections are collected into batches, which are
+ * evaluated together with {@link NeuralNet#evaluateBatch}. A batch is
+ * evaluated once it holds the maximum number of requests, or the maximum wait
+ * has passed since its first request arrived. The server records the latency
+ * of each request, from receiving it to sending its response, and clients can
+ * request these statistics.
+ * <p>
+ * Usage: {@code java ml.InferenceServer <network file> [--port 0]
+ * [--batch 64] [--wait-us 200]}. The server prints the port it is listening
+ * on, then its statistics every {@value #REPORT_PERIOD} seconds while it is
+ * receiving requests.
+ *
+ * @author Archer Murray
+ */
+public class InferenceServer implements Closeable
+{
+	/**
+	 * The default maximum number of requests in a batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 64;
+	/**
+	 * The default maximum time to wait for a batch to fill, in microseconds.
+	 */
+	public static final int DEFAULT_MAX_WAIT_MICROS = 200;
+	/**
+	 * The maximum number of states in a request.
+	 */
+	public static final int MAX_STATES = 1024;
+	/**
+	 * Message type of a request to evaluate states.
+	 */
+	static final byte EVALUATE = 1;
+	/**
+	 * Message type of the evaluations of a request.
+	 */
+	static final byte EVALUATIONS = 2;
+	/**
+	 * Message type of a request for the server's statistics.
+	 */
+	static final byte STATS = 3;
+	/**
+	 * Message type of the server's statistics.
+	 */
+	static final byte STATS_RESULT = 4;
+	/**
+	 * The number of seconds between the statistics printed by the main method.
+	 */
+	private static final int REPORT_PERIOD = 10;
+	
+	private final NeuralNet net;
+	private final int maxBatch;
+	private final long maxWaitNanos;
+	private final ServerSocket server;
+	private final BlockingQueue<Request> queue;
+	private final Set<Socket> clients;
+	private final Thread batcher;
+	private final long startTime;
+	private volatile boolean closed;
+	// Statistics, guarded by the sketch
+	private final QuantileSketch latencies;
+	private long numStates, numBatches;
+	
+	/**
+	 * Class representing a request waiting to be evaluated.
+	 */
+	private static class Request
+	{
+		private final double[] states;
+		private final int count;
+		private final double[] evaluations;
+		private final CountDownLatch done;
+		private int best;
+		
+		/**
+		 * Creates a new request for the passed-in states.
+		 *
+		 * @param states The states, one after another.
+		 * @param count The number of states.
+		 */
+		public Request(double[] states, int count)
+		{
+			this.states = states;
+			this.count = count;
+			this.evaluations = new double[count];
+			this.done = new CountDownLatch(1);
+			this.best = 0;
+		}
+	}
+	
+	/**
+	 * Class representing the statistics of a server.
+	 */
+	public static class Stats
+	{
+		private final long numRequests, numStates, numBatches;
+		private final double seconds, p50, p99;
+		
+		/**
+		 * Creates a new set of statistics.
+		 *
+		 * @param numRequests The number of requests answered.
+		 * @param numStates The number of states evaluated.
+		 * @param numBatches The number of batches evaluated.
+		 * @param seconds The number of seconds the server has been running.
+		 * @param p50 The median latency, in microseconds.
+		 * @param p99 The 99th percentile latency, in microseconds.
+		 */
+		public Stats(long numRequests, long numStates, long numBatches,
+				double seconds, double p50, double p99)
+		{
+			this.numRequests = numRequests;
+			this.numStates = numStates;
+			this.numBatches = numBatches;
+			this.seconds = seconds;
+			this.p50 = p50;
+			this.p99 = p99;
+		}
+		
+		/**
+		 * Reads statistics written by {@link #write(DataOutput)} from the
+		 * passed-in input.
+		 *
+		 * @param in The input to read from.
+		 * @return The statistics.
+		 * @throws IOException If an I/O error occurs.
+		 */
+		public static Stats read(DataInput in) throws IOException
+		{
+			return new Stats(in.readLong(), in.readLong(), in.readLong(),
+					in.readDouble(), in.readDouble(), in.readDouble());
+		}
+		
+		/**
+		 * Writes these statistics to the passed-in output.
+		 *
+		 * @param out The output to write to.
+		 * @throws IOException If an I/O error occurs.
+		 */
+		public void write(DataOutput out) throws IOException
+		{
+			out.writeLong(this.numRequests);
+			out.writeLong(this.numStates);
+			out.writeLong(this.numBatches);
+			out.writeDouble(this.seconds);
+			out.writeDouble(this.p50);
+			out.writeDouble(this.p99);
+		}
+		
+		/**
+		 * Returns the number of requests answered.
+		 *
+		 * @return The number of requests answered.
+		 */
+		public long getNumRequests()
+		{
+			return this.numRequests;
+		}
+		
+		/**
+		 * Returns the number of requests answered per second.
+		 *
+		 * @return The number of requests answered per second.
+		 */
+		public double getThroughput()
+		{
+			return this.numRequests / this.seconds;
+		}
+		
+		/**
+		 * Returns the average number of requests in a batch.
+		 *
+		 * @return The average number of requests in a batch.
+		 */
+		public double getMeanBatchSize()
+		{
+			return this.numBatches == 0 ? 0 :
+					(double)this.numRequests / this.numBatches;
+		}
+		
+		/**
+		 * Returns the average number of states in a request.
+		 *
+		 * @return The average number of states in a request.
+		 */
+		public double getMeanStates()
+		{
+			return this.numRequests == 0 ? 0 :
+					(double)this.numStates / this.numRequests;
+		}
+		
+		/**
+		 * Returns the median latency of a request, in microseconds.
+		 *
+		 * @return The median latency.
+		 */
+		public double getP50()
+		{
+			return this.p50;
+		}
+		
+		/**
+		 * Returns the 99th percentile latency of a request, in microseconds.
+		 *
+		 * @return The 99th percentile latency.
+		 */
+		public double getP99()
+		{
+			return this.p99;
+		}
+		
+		/**
+		 * Returns a {@code String} representation of these statistics.
+		 *
+		 * @return A {@code String} representation of these statistics.
+		 */
+		public String toString()
+		{
+			return String.format("%d requests, %.0f/s, %.1f per batch, " +
+					"%.1f states each, latency p50 %.0f us, p99 %.0f us",
+					this.numRequests, this.getThroughput(),
+					this.getMeanBatchSize(), this.getMeanStates(), this.p50,
+					this.p99);
+		}
+	}
+	
+	/**
+	 * Creates a new server for the passed-in neural network, listening on the
+	 * passed-in port of the loopback interface, and starts it.
+	 *
+	 * @param net The neural network to evaluate states with.
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @param maxBatch The maximum number of requests in a batch.
+	 * @param maxWaitMicros The maximum time to wait for a batch to fill, in
+	 * microseconds.
+	 * @throws IOException If the server cannot listen for connections.
+	 */
+	public InferenceServer(NeuralNet net, int port, int maxBatch,
+			int maxWaitMicros) throws IOException
+	{
+		this.net = net;
+		this.maxBatch = maxBatch;
+		this.maxWaitNanos = 1000L * maxWaitMicros;
+		this.server = new ServerSocket(port, 50,
+				InetAddress.getLoopbackAddress());
+		this.queue = new LinkedBlockingQueue<>();
+		this.clients = ConcurrentHashMap.newKeySet();
+		this.latencies = new QuantileSketch();
+		this.numStates = 0;
+		this.numBatches = 0;
+		this.startTime = System.nanoTime();
+		this.closed = false;
+		this.batcher = new Thread(this::batchLoop, "inference-batcher");
+		this.batcher.setDaemon(true);
+		this.batcher.start();
+		Thread acceptor = new Thread(this::acceptClients,
+				"inference-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Returns the port this server is listening on.
+	 *
+	 * @return The port.
+	 */
+	public int getPort()
+	{
+		return this.server.getLocalPort();
+	}
+	
+	/**
+	 * Accepts client connections until this server is closed, serving each on
+	 * its own thread.
+	 */
+	private void acceptClients()
+	{
+		while (!this.closed) {
+			try {
+				Socket socket = this.server.accept();
+				socket.setTcpNoDelay(true);
+				this.clients.add(socket);
+				Thread t = new Thread(() -> this.serve(socket),
+						"inference-client-" + socket.getPort());
+				t.setDaemon(true);
+				t.start();
+			} catch (IOException e) {
+				// Closed, or a failed connection
+			}
+		}
+	}
+	
+	/**
+	 * Answers the requests of one client until it closes the connection or
+	 * sends a malformed request.
+	 *
+	 * @param socket The socket connected to the client.
+	 */
+	private void serve(Socket socket)
+	{
+		try (Socket s = socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(s.getOutputStream()));
+			while (true) {
+				byte[] frame;
+				try {
+					frame = MatchCoordinator.readFrame(in);
+				} catch (EOFException e) {
+					return;
+				}
+				long received = System.nanoTime();
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream response = new DataOutputStream(bytes);
+				if (frame[0] == STATS) {
+					response.writeByte(STATS_RESULT);
+					this.getStats().write(response);
+					response.flush();
+					MatchCoordinator.writeFrame(out, bytes.toByteArray());
+					continue;
+				}
+				if (frame[0] != EVALUATE) {
+					throw new IOException("unexpected message type " +
+							frame[0]);
+				}
+				Request request = readRequest(frame);
+				if (this.closed) {
+					return;
+				}
+				this.queue.add(request);
+				while (!request.done.await(100, TimeUnit.MILLISECONDS)) {
+					if (this.closed) {
+						return;
+					}
+				}
+				response.writeByte(EVALUATIONS);
+				response.writeInt(request.count);
+				for (double e: request.evaluations) {
+					response.writeDouble(e);
+				}
+				response.writeInt(request.best);
+				response.flush();
+				MatchCoordinator.writeFrame(out, bytes.toByteArray());
+				synchronized (this.latencies) {
+					this.latencies.add((System.nanoTime() - received) / 1e3);
+				}
+			}
+		} catch (IOException | InterruptedException e) {
+			// Drop this client
+		} finally {
+			this.clients.remove(socket);
+		}
+	}
+	
+	/**
+	 * Reads a request from the contents of an {@link #EVALUATE} frame.
+	 *
+	 * @param frame The contents of the frame.
+	 * @return The request.
+	 * @throws IOException If the request is malformed.
+	 */
+	private static Request readRequest(byte[] frame) throws IOException
+	{
+		DataInputStream body = new DataInputStream(new ByteArrayInputStream(
+				frame, 1, frame.length - 1));
+		int count = body.readInt();
+		if (count <= 0 || count > MAX_STATES ||
+				frame.length != 5 + 8 * count * NeuralNet.INPUT_LENGTH) {
+			throw new IOException("malformed request");
+		}
+		double[] states = new double[count * NeuralNet.INPUT_LENGTH];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = body.readDouble();
+		}
+		return new Request(states, count);
+	}
+	
+	/**
+	 * Collects requests into batches and evaluates them until this server is
+	 * closed.
+	 */
+	private void batchLoop()
+	{
+		List<Request> batch = new ArrayList<>();
+		double[] inputs = new double[0], outputs = new double[0];
+		while (!this.closed) {
+			// Wait for the first request, then for the batch to fill
+			try {
+				batch.add(this.queue.take());
+				long deadline = System.nanoTime() + this.maxWaitNanos;
+				while (batch.size() < this.maxBatch) {
+					Request next = this.queue.poll(deadline -
+							System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException e) {
+				// Closing: evaluate everything waiting, then stop
+				this.queue.drainTo(batch);
+				if (batch.isEmpty()) {
+					break;
+				}
+			}
+			int rows = 0;
+			for (Request r: batch) {
+				rows += r.count;
+			}
+			if (rows > outputs.length) {
+				inputs = new double[rows * NeuralNet.INPUT_LENGTH];
+				outputs = new double[rows];
+			}
+			int row = 0;
+			for (Request r: batch) {
+				System.arraycopy(r.states, 0, inputs,
+						row * NeuralNet.INPUT_LENGTH, r.states.length);
+				row += r.count;
+			}
+			this.net.evaluateBatch(inputs, 0, rows, outputs);
+			row = 0;
+			for (Request r: batch) {
+				System.arraycopy(outputs, row, r.evaluations, 0, r.count);
+				for (int i = 1; i < r.count; i++) {
+					if (r.evaluations[i] > r.evaluations[r.best]) {
+						r.best = i;
+					}
+				}
+				row += r.count;
+				r.done.countDown();
+			}
+			synchronized (this.latencies) {
+				this.numStates += rows;
+				this.numBatches++;
+			}
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * Returns the statistics of this server since it started.
+	 *
+	 * @return The statistics.
+	 */
+	public Stats getStats()
+	{
+		synchronized (this.latencies) {
+			return new Stats(this.latencies.getCount(), this.numStates,
+					this.numBatches, (System.nanoTime() - this.startTime) / 1e9,
+					this.latencies.getQuantile(0.5),
+					this.latencies.getQuantile(0.99));
+		}
+	}
+	
+	/**
+	 * Stops accepting requests and disconnects every client.
+	 *
+	 * @throws IOException If an I/O error occurs while closing the server.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.closed = true;
+		this.server.close();
+		this.batcher.interrupt();
+		for (Socket s: this.clients) {
+			s.close();
+		}
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 1 || args.length % 2 != 1) {
+			System.out.println("Usage: java ml.InferenceServer " +
+					"<network file> [--port 0] [--batch 64] [--wait-us 200]");
+			System.exit(1);
+		}
+		Map<String, String> opts = new HashMap<>();
+		opts.put("port", "0");
+		opts.put("batch", Integer.toString(DEFAULT_MAX_BATCH));
+		opts.put("wait-us", Integer.toString(DEFAULT_MAX_WAIT_MICROS));
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--") ||
+					!opts.containsKey(args[i].substring(2))) {
+				System.out.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+			opts.put(args[i].substring(2), args[i + 1]);
+		}
+		NeuralNet net = NeuralNet.load(args[0]);
+		InferenceServer server = null;
+		try {
+			server = new InferenceServer(net,
+					Integer.parseInt(opts.get("port")),
+					Integer.parseInt(opts.get("batch")),
+					Integer.parseInt(opts.get("wait-us")));
+		} catch (NumberFormatException e) {
+			System.out.println("Options must be integers");
+			System.exit(1);
+		} catch (IOException e) {
+			System.out.println("Error starting server: " + e);
+			System.exit(1);
+		}
+		System.out.println("Listening on port " + server.getPort());
+		long lastRequests = 0;
+		while (true) {
+			try {
+				Thread.sleep(1000L * REPORT_PERIOD);
+			} catch (InterruptedException e) {
+				return;
+			}
+			Stats stats = server.getStats();
+			if (stats.getNumRequests() > lastRequests) {
+				lastRequests = stats.getNumRequests();
+				System.out.println(stats);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,300 @@
+package ml;
+
+import game.Board;
+import metrics.Metrics;
+import metrics.ProgressReporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Class that uses an island model genetic algorithm to train a neural network
+ * to play Press Your Luck.
+ * <p>
+ * The population is split into islands, each of which is a single-threaded
+ * {@link GeneticLearner} with its own boards and random number generator, run
+ * on its own thread. Islands play generations independently, without waiting
+ * for each other. Every few generations, each island sends copies of its
+ * survivors with the most wins to the next island in a ring through a
+ * lock-free queue, and each island replaces some of its offspring with any
+ * migrants waiting in its queue before its next generation.
+ * <p>
+ * Since islands only exchange a few genomes, throughput scales with the number
+ * of cores, and the islands' subpopulations stay more diverse than a single
+ * population would.
+ *
+ * @author Archer Murray
+ */
+public class IslandGeneticLearner
+{
+	/**
+	 * The default number of generations each island plays between sending
+	 * migrants.
+	 */
+	public static final int MIGRATION_INTERVAL = 10;
+	/**
+	 * The default number of migrants each island sends at a time.
+	 */
+	public static final int NUM_MIGRANTS = 2;
+	
+	private final GeneticLearner[] islands;
+	private final List<Queue<NeuralNet>> inboxes;
+	private final int migrationInterval, numMigrants;
+	private final int islandSize;
+	
+	/**
+	 * Creates a new island genetic learner with a total population size of
+	 * about 1500, split into one island per available processor.
+	 */
+	public IslandGeneticLearner()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a new island genetic learner with a total population size of
+	 * about 1500, split into the specified number of islands.
+	 *
+	 * @param numIslands The number of islands.
+	 */
+	public IslandGeneticLearner(int numIslands)
+	{
+		this(numIslands, 1500 / numIslands / 3 * 3, MIGRATION_INTERVAL,
+				NUM_MIGRANTS, false, new Random());
+	}
+	
+	/**
+	 * Creates a new island genetic learner with the specified number of
+	 * islands, island population size, migration schedule, weight precision,
+	 * and random number generator.
+	 *
+	 * @param numIslands The number of islands.
+	 * @param islandSize The population size of each island, which must be
+	 * divisible by 3.
+	 * @param migrationInterval The number of generations each island plays
+	 * between sending migrants.
+	 * @param numMigrants The number of migrants each island sends at a time,
+	 * which must be at most a third of the island population size.
+	 * @param singlePrecision If {@code true}, the population's weights are
+	 * stored in single precision; otherwise, they are stored in double
+	 * precision.
+	 * @param rng The random number generator used to seed each island's random
+	 * number generator and boards.
+	 */
+	public IslandGeneticLearner(int numIslands, int islandSize,
+			int migrationInterval, int numMigrants, boolean singlePrecision,
+			Random rng)
+	{
+		assert numMigrants <= islandSize / 3 :
+				"Number of migrants must be at most a third of the island size";
+		this.islands = new GeneticLearner[numIslands];
+		this.inboxes = new ArrayList<>();
+		for (int i = 0; i < numIslands; i++) {
+			Board[] boards = {
+					new Board("board1.txt", rng.nextLong()),
+					new Board("board2.txt", rng.nextLong())
+			};
+			this.islands[i] = new GeneticLearner(islandSize, 1,
+					singlePrecision, boards, new Random(rng.nextLong()));
+			this.inboxes.add(new ConcurrentLinkedQueue<>());
+		}
+		this.migrationInterval = migrationInterval;
+		this.numMigrants = numMigrants;
+		this.islandSize = islandSize;
+	}
+	
+	/**
+	 * Sets whether the islands play generations with a
+	 * {@link BatchedGameSimulator}.
+	 *
+	 * @param batchedGames If {@code true}, generations are played with a
+	 * batched game simulator; otherwise, each game is played with
+	 * {@link game.Game}.
+	 * @see GeneticLearner#setBatchedGames(boolean)
+	 */
+	public void setBatchedGames(boolean batchedGames)
+	{
+		for (GeneticLearner island: this.islands) {
+			island.setBatchedGames(batchedGames);
+		}
+	}
+	
+	/**
+	 * Returns the number of islands.
+	 *
+	 * @return The number of islands.
+	 */
+	public int getNumIslands()
+	{
+		return this.islands.length;
+	}
+	
+	/**
+	 * Returns the total number of generations played by all islands.
+	 * <p>
+	 * This method must not be called while generations are being played.
+	 *
+	 * @return The total number of generations played.
+	 */
+	public long getNumGenerations()
+	{
+		long ret = 0;
+		for (GeneticLearner island: this.islands) {
+			ret += island.getNumGenerations();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Plays the passed-in number of generations on every island. The islands
+	 * do not wait for each other until they have all finished.
+	 *
+	 * @param numGens The number of generations for each island to play.
+	 */
+	public void playGenerations(int numGens)
+	{
+		long[] target = new long[this.islands.length];
+		for (int i = 0; i < this.islands.length; i++) {
+			target[i] = this.islands[i].getNumGenerations() + numGens;
+		}
+		this.runIslands(i -> this.islands[i].getNumGenerations() < target[i]);
+	}
+	
+	/**
+	 * Plays generations on every island for the passed-in amount of time. Each
+	 * island finishes the generation it is playing when time runs out.
+	 *
+	 * @param millis The number of milliseconds to play for.
+	 */
+	public void playFor(long millis)
+	{
+		long deadline = System.nanoTime() + millis * 1_000_000L;
+		this.runIslands(i -> System.nanoTime() - deadline < 0);
+	}
+	
+	/**
+	 * Runs each island on its own thread for as long as the passed-in
+	 * condition holds for it, and waits for every island to finish.
+	 *
+	 * @param keepPlaying Returns, for an island index, whether the island
+	 * should play another generation.
+	 */
+	private void runIslands(IntPredicate keepPlaying)
+	{
+		Thread[] threads = new Thread[this.islands.length];
+		for (int i = 0; i < this.islands.length; i++) {
+			int idx = i;
+			threads[i] = new Thread(() -> this.runIsland(idx, keepPlaying),
+					"island-" + i);
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length;) {
+			try {
+				threads[i].join();
+				i++;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+	}
+	
+	/**
+	 * Plays generations on the passed-in island for as long as the passed-in
+	 * condition holds, exchanging migrants with its neighbors.
+	 *
+	 * @param i The index of the island.
+	 * @param keepPlaying Returns, for an island index, whether the island
+	 * should play another generation.
+	 */
+	private void runIsland(int i, IntPredicate keepPlaying)
+	{
+		GeneticLearner island = this.islands[i];
+		Queue<NeuralNet> inbox = this.inboxes.get(i);
+		Queue<NeuralNet> next = this.inboxes.get((i + 1) %
+				this.islands.length);
+		while (keepPlaying.test(i)) {
+			// Migrants replace offspring from the last generation; any more
+			// than there are offspring are dropped
+			int numOffspring = this.islandSize - this.islandSize / 3;
+			NeuralNet migrant;
+			for (int k = 0; (migrant = inbox.poll()) != null; k++) {
+				if (k < numOffspring) {
+					island.replaceOffspring(k, migrant);
+				}
+			}
+			island.playGeneration(false);
+			if (this.islands.length > 1 && island.getNumGenerations() %
+					this.migrationInterval == 0) {
+				for (NeuralNet elite: island.getElites(this.numMigrants)) {
+					next.offer(elite);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Evaluates the learning progress by determining the win rate of every
+	 * island's survivors against two heuristic players, playing each island's
+	 * games on its own thread.
+	 * <p>
+	 * Also, writes the top-performing neural network in the population to the
+	 * file "island_net_[generation_number].txt", where the generation number
+	 * is the total number of generations played by all islands.
+	 * <p>
+	 * This method must not be called while generations are being played.
+	 *
+	 * @param printStatus If {@code true}, prints the progress of the evaluation
+	 * to the console while this method runs.
+	 * @return The proportion of games won by the neural network players.
+	 */
+	public double evaluate(boolean printStatus)
+	{
+		long start = System.nanoTime();
+		ProgressReporter progress = new ProgressReporter("Evaluation", "games",
+				(long)this.islands.length * (this.islandSize / 3) * 100, 0,
+				printStatus);
+		int[][] winCounts = new int[this.islands.length][];
+		Thread[] threads = new Thread[this.islands.length];
+		for (int i = 0; i < this.islands.length; i++) {
+			int idx = i;
+			threads[i] = new Thread(() -> winCounts[idx] =
+					this.islands[idx].playHeuristicGames(progress));
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length;) {
+			try {
+				threads[i].join();
+				i++;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+		// Export the player with the most wins
+		int bestIsland = 0, bestIdx = 0;
+		long totalWins = 0;
+		for (int i = 0; i < winCounts.length; i++) {
+			for (int j = 0; j < winCounts[i].length; j++) {
+				totalWins += winCounts[i][j];
+				if (winCounts[i][j] > winCounts[bestIsland][bestIdx]) {
+					bestIsland = i;
+					bestIdx = j;
+				}
+			}
+		}
+		try {
+			this.islands[bestIsland].getSurvivor(bestIdx).export(
+					"island_net_" + this.getNumGenerations());
+		} catch (IOException e) {
+			System.out.println("Error writing to file: " + e);
+		}
+		progress.close();
+		Metrics.EVALUATION_TIME.recordSince(start);
+		return (double)totalWins / (100L * this.islands.length *
+				(this.islandSize / 3));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,638 @@
+package ml;
+
+import metrics.GradientStepEvent;
+import metrics.Metrics;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Class representing a Press Your Luck neural network with any number of
+ * sigmoid hidden layers.
+ * <p>
+ * The network takes the same inputs as {@link NeuralNet} and outputs an
+ * estimated probability of winning in a single sigmoid output node. Every node
+ * after the first hidden layer also has a bias weight, since only the input
+ * layer has a constant node. The weights are numbered layer by layer, and
+ * within each layer node by node, with each node's input weights followed by
+ * its bias weight (if any).
+ * <p>
+ * For evaluation, each layer's weights are also stored in a blocked layout:
+ * the nodes are padded with zero-weight nodes to a multiple of four, and the
+ * weights of each block of four nodes are interleaved by input, so that each
+ * input is multiplied against four nodes' weights held in registers. Forward
+ * and backward passes reuse scratch buffers, so a network must not be used by
+ * more than one thread at a time; use {@link #copy()} to give each thread its
+ * own network.
+ * <p>
+ * A layered network can be used anywhere a {@link NeuralNet} is used. It is
+ * imported and read by {@link NeuralNet#load(String)} and
+ * {@link NeuralNet#read(DataInput)}.
+ *
+ * @author Archer Murray
+ */
+public class LayeredNeuralNet extends NeuralNet
+{
+	/**
+	 * The number of nodes in each block of the blocked weight layout.
+	 */
+	private static final int TILE = 4;
+	
+	private final double[] scale;
+	// Node counts of every layer, from the input layer to the output layer
+	private final int[] sizes;
+	private final int numLayers;
+	private final double[] weights;
+	// Index of each layer's first weight in weights
+	private final int[] weightOffsets;
+	// Blocked weights (with normalization folded into the first layer) and
+	// biases, indexed by layer
+	private final double[][] blocked, biases;
+	// Scratch buffers for each layer's outputs and error terms
+	private final double[][] activations, deltas;
+	
+	/**
+	 * Creates a new neural network with the given hidden layer sizes.
+	 *
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer, from
+	 * the input side to the output side.
+	 */
+	public LayeredNeuralNet(int... hiddenLayerSizes)
+	{
+		this(new Random(), hiddenLayerSizes);
+	}
+	
+	/**
+	 * Creates a new neural network with the given hidden layer sizes, drawing
+	 * its initial weights and later mutations from the passed-in random number
+	 * generator.
+	 *
+	 * @param rng The random number generator to use.
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer, from
+	 * the input side to the output side.
+	 */
+	public LayeredNeuralNet(Random rng, int... hiddenLayerSizes)
+	{
+		super(rng);
+		this.scale = NeuralNet.getNormalization().getScales();
+		this.sizes = layerSizes(hiddenLayerSizes);
+		this.numLayers = this.sizes.length - 1;
+		this.weightOffsets = new int[this.numLayers + 1];
+		this.weights = new double[this.countWeights()];
+		double[] weightScales = this.getWeightScales();
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = rng.nextGaussian() * weightScales[i];
+		}
+		this.blocked = new double[this.numLayers][];
+		this.biases = new double[this.numLayers][];
+		this.activations = new double[this.numLayers + 1][];
+		this.deltas = new double[this.numLayers + 1][];
+		this.allocateBuffers();
+		this.pack();
+	}
+	
+	/**
+	 * Creates a neural network with weights imported from the given file, as
+	 * written by {@link #export(String)}.
+	 *
+	 * @param fn The filename to import weights from.
+	 */
+	public LayeredNeuralNet(String fn)
+	{
+		super(new Random());
+		this.scale = NeuralNet.getNormalization().getScales();
+		int[] hidden = null;
+		double[] read = null;
+		try (BufferedReader in = new BufferedReader(new FileReader(fn))) {
+			// Read hidden layer sizes first
+			String line = in.readLine();
+			try {
+				hidden = Arrays.stream(line.split(",")).mapToInt(
+						s -> Integer.parseInt(s.trim())).toArray();
+			} catch (NullPointerException | NumberFormatException e) {
+				System.out.println("Line 1 of file " + fn + " must be a " +
+						"comma-separated list of integers");
+				System.exit(1);
+			}
+			// Then read the weights
+			read = new double[countWeights(layerSizes(hidden))];
+			for (int i = 0; i < read.length; i++) {
+				line = in.readLine();
+				if (line == null) {
+					System.out.println("Unexpected EOF while reading " + fn);
+					System.exit(1);
+				}
+				try {
+					read[i] = Double.parseDouble(line);
+				} catch (NumberFormatException e) {
+					read[i] = 0.0;
+					System.out.println("Warning - malformed weight at line " +
+							(i + 2) + " of file " + fn + "; weight set to 0");
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Error while reading file: " + e);
+			System.exit(1);
+		}
+		this.sizes = layerSizes(hidden);
+		this.numLayers = this.sizes.length - 1;
+		this.weightOffsets = new int[this.numLayers + 1];
+		this.weights = new double[this.countWeights()];
+		System.arraycopy(read, 0, this.weights, 0, this.weights.length);
+		this.blocked = new double[this.numLayers][];
+		this.biases = new double[this.numLayers][];
+		this.activations = new double[this.numLayers + 1][];
+		this.deltas = new double[this.numLayers + 1][];
+		this.allocateBuffers();
+		this.pack();
+	}
+	
+	/**
+	 * Creates a neural network with the given hidden layer sizes and weights
+	 * read from the passed-in binary input, as written by
+	 * {@link #write(DataOutput)} after the layer sizes.
+	 *
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer.
+	 * @param in The input to read the weights from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	LayeredNeuralNet(int[] hiddenLayerSizes, DataInput in) throws IOException
+	{
+		super(new Random());
+		this.scale = NeuralNet.getNormalization().getScales();
+		this.sizes = layerSizes(hiddenLayerSizes);
+		this.numLayers = this.sizes.length - 1;
+		this.weightOffsets = new int[this.numLayers + 1];
+		this.weights = new double[this.countWeights()];
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = in.readDouble();
+		}
+		this.blocked = new double[this.numLayers][];
+		this.biases = new double[this.numLayers][];
+		this.activations = new double[this.numLayers + 1][];
+		this.deltas = new double[this.numLayers + 1][];
+		this.allocateBuffers();
+		this.pack();
+	}
+	
+	/**
+	 * Creates a neural network with the same shape, weights, and
+	 * normalization as the passed-in neural network.
+	 *
+	 * @param other The neural network to copy.
+	 */
+	private LayeredNeuralNet(LayeredNeuralNet other)
+	{
+		super(new Random());
+		this.scale = other.scale;
+		this.sizes = other.sizes;
+		this.numLayers = other.numLayers;
+		this.weightOffsets = other.weightOffsets;
+		this.weights = other.weights.clone();
+		this.blocked = new double[this.numLayers][];
+		this.biases = new double[this.numLayers][];
+		this.activations = new double[this.numLayers + 1][];
+		this.deltas = new double[this.numLayers + 1][];
+		for (int l = 0; l < this.numLayers; l++) {
+			this.blocked[l] = other.blocked[l].clone();
+			this.biases[l] = other.biases[l].clone();
+		}
+		for (int l = 1; l <= this.numLayers; l++) {
+			this.activations[l] = new double[other.activations[l].length];
+			this.deltas[l] = new double[other.deltas[l].length];
+		}
+	}
+	
+	/**
+	 * Returns the node counts of every layer of a network with the passed-in
+	 * hidden layer sizes, from the input layer to the output layer.
+	 *
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer.
+	 * @return The node counts of every layer.
+	 */
+	private static int[] layerSizes(int[] hiddenLayerSizes)
+	{
+		assert hiddenLayerSizes.length > 0 : "there must be a hidden layer";
+		int[] ret = new int[hiddenLayerSizes.length + 2];
+		ret[0] = INPUT_LENGTH;
+		for (int i = 0; i < hiddenLayerSizes.length; i++) {
+			assert hiddenLayerSizes[i] > 0 : "layer sizes must be positive";
+			ret[i + 1] = hiddenLayerSizes[i];
+		}
+		ret[ret.length - 1] = 1;
+		return ret;
+	}
+	
+	/**
+	 * Returns the total number of weights of a network with the passed-in
+	 * layer sizes.
+	 *
+	 * @param sizes The node counts of every layer.
+	 * @return The total number of weights.
+	 */
+	private static int countWeights(int[] sizes)
+	{
+		int ret = 0;
+		for (int l = 0; l + 1 < sizes.length; l++) {
+			ret += sizes[l + 1] * (sizes[l] + (l > 0 ? 1 : 0));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Computes the index of each layer's first weight, and returns the total
+	 * number of weights.
+	 *
+	 * @return The total number of weights.
+	 */
+	private int countWeights()
+	{
+		int ret = 0;
+		for (int l = 0; l < this.numLayers; l++) {
+			this.weightOffsets[l] = ret;
+			ret += this.sizes[l + 1] * this.stride(l);
+		}
+		this.weightOffsets[this.numLayers] = ret;
+		return ret;
+	}
+	
+	/**
+	 * Returns the number of weights of each node of the passed-in layer: its
+	 * input weights, plus a bias weight after the first layer.
+	 *
+	 * @param l The index of the layer, where layer 0 is fed by the inputs.
+	 * @return The number of weights of each node of the layer.
+	 */
+	private int stride(int l)
+	{
+		return this.sizes[l] + (l > 0 ? 1 : 0);
+	}
+	
+	/**
+	 * Returns the passed-in node count rounded up to a multiple of the block
+	 * size.
+	 *
+	 * @param n The node count.
+	 * @return The padded node count.
+	 */
+	private static int pad(int n)
+	{
+		return (n + TILE - 1) / TILE * TILE;
+	}
+	
+	/**
+	 * Returns the number of inputs of the passed-in layer in the blocked
+	 * layout: the number of network inputs for the first layer and the padded
+	 * size of the previous layer otherwise.
+	 *
+	 * @param l The index of the layer.
+	 * @return The number of inputs in the blocked layout.
+	 */
+	private int blockedInputs(int l)
+	{
+		return l == 0 ? INPUT_LENGTH : pad(this.sizes[l]);
+	}
+	
+	/**
+	 * Allocates the blocked weights and the scratch buffers.
+	 */
+	private void allocateBuffers()
+	{
+		for (int l = 0; l < this.numLayers; l++) {
+			int nodes = pad(this.sizes[l + 1]);
+			this.blocked[l] = new double[nodes * this.blockedInputs(l)];
+			this.biases[l] = new double[nodes];
+			this.activations[l + 1] = new double[nodes];
+			this.deltas[l + 1] = new double[nodes];
+		}
+	}
+	
+	/**
+	 * Copies the weights into the blocked layout, folding each input's
+	 * normalization scale into the first layer. Must be called whenever the
+	 * weights change.
+	 */
+	private void pack()
+	{
+		this.weightsChanged();
+		for (int l = 0; l < this.numLayers; l++) {
+			double[] dst = this.blocked[l];
+			int inputs = this.blockedInputs(l);
+			int stride = this.stride(l);
+			for (int i = 0; i < this.sizes[l + 1]; i++) {
+				int src = this.weightOffsets[l] + i * stride;
+				int blockStart = i / TILE * TILE * inputs + i % TILE;
+				for (int j = 0; j < this.sizes[l]; j++) {
+					double w = this.weights[src + j];
+					dst[blockStart + j * TILE] = l == 0 ? w * this.scale[j] :
+							w;
+				}
+				if (l > 0) {
+					this.biases[l][i] = this.weights[src + this.sizes[l]];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs a forward pass on the input starting at the passed-in index of the
+	 * passed-in array, leaving each layer's outputs in the scratch buffers.
+	 *
+	 * @param input The array holding the input values.
+	 * @param offset The index of the first input value.
+	 * @return The output of the neural network.
+	 */
+	private double forward(double[] input, int offset)
+	{
+		double[] x = input;
+		int xOffset = offset;
+		for (int l = 0; l < this.numLayers; l++) {
+			double[] w = this.blocked[l];
+			double[] bias = this.biases[l];
+			double[] y = this.activations[l + 1];
+			int inputs = this.blockedInputs(l);
+			int weightIdx = 0;
+			for (int i = 0; i < y.length; i += TILE) {
+				// Multiply a block of four nodes' weights by the inputs
+				double a0 = bias[i], a1 = bias[i + 1], a2 = bias[i + 2],
+						a3 = bias[i + 3];
+				for (int j = 0; j < inputs; j++) {
+					double xj = x[xOffset + j];
+					a0 += w[weightIdx] * xj;
+					a1 += w[weightIdx + 1] * xj;
+					a2 += w[weightIdx + 2] * xj;
+					a3 += w[weightIdx + 3] * xj;
+					weightIdx += TILE;
+				}
+				y[i] = sigmoid(a0);
+				y[i + 1] = sigmoid(a1);
+				y[i + 2] = sigmoid(a2);
+				y[i + 3] = sigmoid(a3);
+			}
+			x = y;
+			xOffset = 0;
+		}
+		return x[0];
+	}
+	
+	/**
+	 * Runs a forward and backward pass on the passed-in input, and adds the
+	 * passed-in factor times the partial derivative of the output with respect
+	 * to each weight to the passed-in array.
+	 *
+	 * @param input The input values.
+	 * @param dst The array to add to, in weight order.
+	 * @param factor The factor to multiply each partial derivative by.
+	 */
+	private void backward(double[] input, double[] dst, double factor)
+	{
+		double output = this.forward(input, 0);
+		// Error term of the output node
+		double[] delta = this.deltas[this.numLayers];
+		Arrays.fill(delta, 0);
+		delta[0] = output * (1 - output);
+		for (int l = this.numLayers - 1; l >= 0; l--) {
+			double[] x = l == 0 ? input : this.activations[l];
+			delta = this.deltas[l + 1];
+			// Propagate the error terms to the previous layer first, since dst
+			// may be the weights themselves
+			if (l > 0) {
+				double[] w = this.blocked[l];
+				double[] prev = this.deltas[l];
+				int inputs = this.blockedInputs(l);
+				Arrays.fill(prev, 0);
+				int weightIdx = 0;
+				for (int i = 0; i < delta.length; i += TILE) {
+					double d0 = delta[i], d1 = delta[i + 1], d2 = delta[i + 2],
+							d3 = delta[i + 3];
+					for (int j = 0; j < inputs; j++) {
+						prev[j] += w[weightIdx] * d0 + w[weightIdx + 1] * d1 +
+								w[weightIdx + 2] * d2 + w[weightIdx + 3] * d3;
+						weightIdx += TILE;
+					}
+				}
+				for (int j = 0; j < inputs; j++) {
+					prev[j] *= x[j] * (1 - x[j]);
+				}
+			}
+			// Partial derivatives of this layer's weights
+			int stride = this.stride(l);
+			for (int i = 0; i < this.sizes[l + 1]; i++) {
+				double d = factor * delta[i];
+				if (d == 0) {
+					continue;
+				}
+				int idx = this.weightOffsets[l] + i * stride;
+				if (l == 0) {
+					for (int j = 0; j < this.sizes[l]; j++) {
+						dst[idx + j] += d * x[j] * this.scale[j];
+					}
+				} else {
+					for (int j = 0; j < this.sizes[l]; j++) {
+						dst[idx + j] += d * x[j];
+					}
+					dst[idx + this.sizes[l]] += d;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Evaluates the neural network on the given input values.
+	 * <p>
+	 * Unlike {@link NeuralNet#evaluate(double[])}, this method is not safe to
+	 * call from several threads at once, since it writes each layer's outputs
+	 * to this network's shared scratch buffers. Give each thread its own copy
+	 * of the network instead.
+	 *
+	 * @param input The input values.
+	 * @return The output of the neural network.
+	 */
+	@Override
+	public double evaluate(double[] input)
+	{
+		// Input must be the correct size
+		assert input.length == INPUT_LENGTH : "input must be length " +
+				INPUT_LENGTH;
+		Metrics.NEURAL_NET_EVALUATIONS.increment();
+		return this.forward(input, 0);
+	}
+	
+	@Override
+	public void evaluateBatch(double[] inputs, int start, int count,
+			double[] outputs)
+	{
+		Metrics.NEURAL_NET_EVALUATIONS.add(count);
+		for (int r = start; r < start + count; r++) {
+			outputs[r] = this.forward(inputs, r * INPUT_LENGTH);
+		}
+	}
+	
+	/**
+	 * Returns the gradient of this neural network at the given input values,
+	 * computed exactly by backpropagation.
+	 *
+	 * @param input The input values.
+	 * @return The gradient of this neural network.
+	 */
+	@Override
+	public double[] gradient(double[] input)
+	{
+		// Input must be the correct size
+		assert input.length == INPUT_LENGTH : "input must be length " +
+				INPUT_LENGTH;
+		double[] ret = new double[this.weights.length];
+		this.backward(input, ret, 1);
+		return ret;
+	}
+	
+	@Override
+	public void gradientDescent(double[] prevInput, double diff)
+	{
+		GradientStepEvent event = new GradientStepEvent();
+		event.begin();
+		Metrics.GRADIENT_STEPS.increment();
+		this.backward(prevInput, this.weights, diff);
+		this.pack();
+		if (event.shouldCommit()) {
+			event.weights = this.weights.length;
+			event.diff = diff;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Exports the weights of this neural network to the specified filename.
+	 * The first line lists the hidden layer sizes, each followed by a comma,
+	 * so that the file is not mistaken for a {@link NeuralNet} file.
+	 *
+	 * @param fn The filename to export to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	@Override
+	public void export(String fn) throws IOException
+	{
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(
+				new FileWriter(fn)))) {
+			// Write hidden layer sizes
+			out.println(Arrays.stream(this.getHiddenLayerSizes())
+					.mapToObj(n -> n + ",").collect(Collectors.joining()));
+			// Write weights
+			for (double w: this.weights) {
+				out.println(w);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of nodes in the first hidden layer.
+	 *
+	 * @return The number of nodes in the first hidden layer.
+	 */
+	@Override
+	public int getHiddenLength()
+	{
+		return this.sizes[1];
+	}
+	
+	/**
+	 * Returns the number of nodes in each hidden layer, from the input side to
+	 * the output side.
+	 *
+	 * @return The number of nodes in each hidden layer.
+	 */
+	public int[] getHiddenLayerSizes()
+	{
+		return Arrays.copyOfRange(this.sizes, 1, this.numLayers);
+	}
+	
+	@Override
+	public int getNumWeights()
+	{
+		return this.weights.length;
+	}
+	
+	@Override
+	double[] getWeightScales()
+	{
+		double[] ret = new double[this.weights.length];
+		for (int l = 0; l < this.numLayers; l++) {
+			Arrays.fill(ret, this.weightOffsets[l], this.weightOffsets[l + 1],
+					1 / Math.sqrt(this.sizes[l]));
+		}
+		return ret;
+	}
+	
+	@Override
+	void loadWeights(double[] src, int offset)
+	{
+		System.arraycopy(src, offset, this.weights, 0, this.weights.length);
+		this.pack();
+	}
+	
+	@Override
+	void loadWeights(float[] src, int offset)
+	{
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = src[offset + i];
+		}
+		this.pack();
+	}
+	
+	@Override
+	void storeWeights(double[] dst, int offset)
+	{
+		System.arraycopy(this.weights, 0, dst, offset, this.weights.length);
+	}
+	
+	@Override
+	void storeWeights(float[] dst, int offset)
+	{
+		for (int i = 0; i < this.weights.length; i++) {
+			dst[offset + i] = (float)this.weights[i];
+		}
+	}
+	
+	/**
+	 * Writes this neural network to the passed-in binary output: the negated
+	 * number of hidden layers, the size of each hidden layer, and the weights.
+	 * The network can be read back with {@link NeuralNet#read(DataInput)}.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(1 - this.numLayers);
+		for (int l = 1; l < this.numLayers; l++) {
+			out.writeInt(this.sizes[l]);
+		}
+		for (double w: this.weights) {
+			out.writeDouble(w);
+		}
+	}
+	
+	@Override
+	public LayeredNeuralNet copy()
+	{
+		return new LayeredNeuralNet(this);
+	}
+	
+	@Override
+	public LayeredNeuralNet mutate(double mutationRate, Random rng)
+	{
+		LayeredNeuralNet newNet = new LayeredNeuralNet(this);
+		// Mutate copied weights
+		double[] weightScales = this.getWeightScales();
+		for (int i = 0; i < this.weights.length; i++) {
+			if (rng.nextDouble() < mutationRate) {
+				newNet.weights[i] += rng.nextGaussian() * weightScales[i];
+			}
+		}
+		newNet.pack();
+		return newNet;
+	}
+}
\ No newline at end of file
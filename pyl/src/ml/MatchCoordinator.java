@@ -0,0 +1,531 @@
+package ml;
+
+import game.Board;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that distributes {@link MatchUnit}s to worker processes over TCP and
+ * collects their results.
+ * <p>
+ * Workers ({@link MatchWorker}) connect to the coordinator, which can also
+ * start workers on the local machine as child processes. Each worker plays
+ * one unit at a time: the coordinator sends the unit and waits for the
+ * worker's win counts. Messages are frames consisting of a length, a message
+ * type, and a body, written with {@link DataOutputStream}.
+ * <p>
+ * If a worker's connection fails or the worker takes longer than
+ * {@value #UNIT_TIMEOUT_MILLIS} milliseconds to return a result, the worker is
+ * dropped and its unit is reassigned to another worker. Child processes that
+ * exit are replaced. A unit that has failed {@value #MAX_ATTEMPTS} times, or
+ * any unit while no worker is connected or starting, is played by the
+ * coordinator itself, so every unit is eventually played.
+ * <p>
+ * Child workers are started with the same class path, working directory, and
+ * engine system properties ({@value NormalizationProfile#PROPERTY},
+ * {@value Board#LAZY_STOPS_PROPERTY}, {@value Board#SAMPLED_SPINS_PROPERTY},
+ * and {@value EvaluationCache#PROPERTY}) as the coordinator, so a unit plays
+ * the same on a worker as it would here. Workers on other machines must be
+ * started with the same properties.
+ *
+ * @author Archer Murray
+ */
+public class MatchCoordinator implements Closeable
+{
+	/**
+	 * The system property giving the number of local worker processes for
+	 * learners to distribute their games to. Games are played in-process if it
+	 * is not set or is 0.
+	 */
+	public static final String WORKERS_PROPERTY = "pyl.workers";
+	/**
+	 * The number of milliseconds a worker may take to return the result of a
+	 * unit before it is dropped.
+	 */
+	public static final int UNIT_TIMEOUT_MILLIS = 60000;
+	/**
+	 * The number of times a unit is sent to workers before the coordinator
+	 * plays it itself.
+	 */
+	public static final int MAX_ATTEMPTS = 3;
+	/**
+	 * Message type of a unit sent to a worker.
+	 */
+	static final byte UNIT = 1;
+	/**
+	 * Message type of the result of a unit sent to the coordinator.
+	 */
+	static final byte RESULT = 2;
+	/**
+	 * Message type telling a worker to exit.
+	 */
+	static final byte SHUTDOWN = 3;
+	/**
+	 * The largest frame length accepted, in bytes.
+	 */
+	private static final int MAX_FRAME_LENGTH = 1 << 26;
+	/**
+	 * The system properties that change how games are played or evaluated,
+	 * which local workers inherit so that a unit plays the same wherever it
+	 * runs.
+	 */
+	private static final String[] ENGINE_PROPERTIES = {
+			NormalizationProfile.PROPERTY, Board.LAZY_STOPS_PROPERTY,
+			Board.SAMPLED_SPINS_PROPERTY, EvaluationCache.PROPERTY
+	};
+	
+	private final ServerSocket server;
+	private final BlockingQueue<Task> pending;
+	private final Set<Connection> connections;
+	private final List<Process> children;
+	private final AtomicInteger respawnsLeft;
+	// The boards of the last unit played here, guarded by this coordinator
+	private Board[] boards;
+	private volatile boolean closed;
+	
+	/**
+	 * Class representing a unit that has been submitted to be played.
+	 */
+	private static class Task
+	{
+		private final byte[] unit;
+		private final MatchUnit source;
+		private final int[][] results;
+		private final int idx;
+		private final CountDownLatch done;
+		private int attempts;
+		
+		/**
+		 * Creates a new task for the passed-in unit, whose result is stored at
+		 * the passed-in index of the passed-in array.
+		 *
+		 * @param source The unit.
+		 * @param results The array to store the result in.
+		 * @param idx The index to store the result at.
+		 * @param done The latch to count down when the result is stored.
+		 * @throws IOException If the unit cannot be serialized.
+		 */
+		public Task(MatchUnit source, int[][] results, int idx,
+				CountDownLatch done) throws IOException
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(UNIT);
+			source.write(out);
+			out.flush();
+			this.unit = bytes.toByteArray();
+			this.source = source;
+			this.results = results;
+			this.idx = idx;
+			this.done = done;
+			this.attempts = 0;
+		}
+		
+		/**
+		 * Stores the result of this task and marks it as done.
+		 *
+		 * @param winCounts The number of games won by each neural network.
+		 */
+		public void complete(int[] winCounts)
+		{
+			this.results[this.idx] = winCounts;
+			this.done.countDown();
+		}
+	}
+	
+	/**
+	 * This class implements a thread that sends units to one worker and reads
+	 * back their results.
+	 */
+	private class Connection extends Thread
+	{
+		private final Socket socket;
+		
+		/**
+		 * Creates a new thread for the passed-in worker connection.
+		 *
+		 * @param socket The socket connected to the worker.
+		 */
+		public Connection(Socket socket)
+		{
+			super("match-connection-" + socket.getPort());
+			this.socket = socket;
+			this.setDaemon(true);
+		}
+		
+		@Override
+		public void run()
+		{
+			Task task = null;
+			try (Socket s = this.socket) {
+				s.setTcpNoDelay(true);
+				s.setSoTimeout(UNIT_TIMEOUT_MILLIS);
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(s.getInputStream()));
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(s.getOutputStream()));
+				while (true) {
+					try {
+						task = pending.take();
+					} catch (InterruptedException e) {
+						if (closed) {
+							writeFrame(out, new byte[] {SHUTDOWN});
+							return;
+						}
+						continue;
+					}
+					writeFrame(out, task.unit);
+					DataInputStream result = new DataInputStream(
+							new ByteArrayInputStream(readFrame(in)));
+					int[] winCounts = new int[task.source.getNumNets()];
+					if (result.readByte() != RESULT ||
+							result.readInt() != winCounts.length) {
+						throw new IOException("malformed result");
+					}
+					for (int k = 0; k < winCounts.length; k++) {
+						winCounts[k] = result.readInt();
+					}
+					task.complete(winCounts);
+					task = null;
+				}
+			} catch (IOException e) {
+				// Drop this worker
+			} finally {
+				connections.remove(this);
+				if (task != null) {
+					failed(task);
+				}
+			}
+		}
+		
+		/**
+		 * Closes the connection to the worker.
+		 */
+		public void disconnect()
+		{
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				// do nothing
+			}
+		}
+	}
+	
+	/**
+	 * Creates a new coordinator listening on the loopback interface and starts
+	 * the passed-in number of local workers.
+	 *
+	 * @param numLocalWorkers The number of worker processes to start.
+	 * @throws IOException If the coordinator cannot listen for connections.
+	 */
+	public MatchCoordinator(int numLocalWorkers) throws IOException
+	{
+		this(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()),
+				numLocalWorkers);
+	}
+	
+	/**
+	 * Creates a new coordinator listening on the passed-in port of every
+	 * interface, so that workers on other machines can connect, and starts the
+	 * passed-in number of local workers.
+	 *
+	 * @param port The port to listen on.
+	 * @param numLocalWorkers The number of worker processes to start.
+	 * @throws IOException If the coordinator cannot listen for connections.
+	 */
+	public MatchCoordinator(int port, int numLocalWorkers) throws IOException
+	{
+		this(new ServerSocket(port), numLocalWorkers);
+	}
+	
+	/**
+	 * Creates a new coordinator accepting workers on the passed-in socket and
+	 * starts the passed-in number of local workers.
+	 *
+	 * @param server The socket to accept workers on.
+	 * @param numLocalWorkers The number of worker processes to start.
+	 * @throws IOException If a worker process cannot be started.
+	 */
+	private MatchCoordinator(ServerSocket server, int numLocalWorkers)
+			throws IOException
+	{
+		this.server = server;
+		this.pending = new LinkedBlockingQueue<>();
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.children = new ArrayList<>();
+		this.respawnsLeft = new AtomicInteger(numLocalWorkers * MAX_ATTEMPTS);
+		this.boards = null;
+		this.closed = false;
+		Thread acceptor = new Thread(this::acceptWorkers, "match-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		for (int i = 0; i < numLocalWorkers; i++) {
+			this.startWorker();
+		}
+	}
+	
+	/**
+	 * Returns a new coordinator with the number of local workers given by the
+	 * {@value #WORKERS_PROPERTY} system property, or {@code null} if it is not
+	 * set or is 0.
+	 *
+	 * @return The coordinator, or {@code null}.
+	 */
+	public static MatchCoordinator fromSystemProperty()
+	{
+		int numWorkers = Integer.getInteger(WORKERS_PROPERTY, 0);
+		if (numWorkers <= 0) {
+			return null;
+		}
+		try {
+			return new MatchCoordinator(numWorkers);
+		} catch (IOException e) {
+			System.out.println("Error starting workers: " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes a frame with the passed-in contents, which start with the
+	 * message type, to the passed-in output and flushes it.
+	 *
+	 * @param out The output to write to.
+	 * @param contents The message type followed by the message body.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	static void writeFrame(DataOutputStream out, byte[] contents)
+			throws IOException
+	{
+		out.writeInt(contents.length);
+		out.write(contents);
+		out.flush();
+	}
+	
+	/**
+	 * Reads a frame from the passed-in input.
+	 *
+	 * @param in The input to read from.
+	 * @return The contents of the frame: the message type followed by the
+	 * message body.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	static byte[] readFrame(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length <= 0 || length > MAX_FRAME_LENGTH) {
+			throw new IOException("invalid frame length " + length);
+		}
+		byte[] ret = new byte[length];
+		in.readFully(ret);
+		return ret;
+	}
+	
+	/**
+	 * Accepts worker connections until this coordinator is closed.
+	 */
+	private void acceptWorkers()
+	{
+		while (!this.closed) {
+			try {
+				Connection c = new Connection(this.server.accept());
+				this.connections.add(c);
+				c.start();
+			} catch (IOException e) {
+				// Server socket closed
+			}
+		}
+	}
+	
+	/**
+	 * Starts a local worker process that connects to this coordinator, and
+	 * replaces it when it exits, up to a limited number of times.
+	 *
+	 * @throws IOException If the process cannot be started.
+	 */
+	private void startWorker() throws IOException
+	{
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+				.toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		for (String property: ENGINE_PROPERTIES) {
+			String value = System.getProperty(property);
+			if (value != null) {
+				command.add("-D" + property + "=" + value);
+			}
+		}
+		command.add(MatchWorker.class.getName());
+		command.add(InetAddress.getLoopbackAddress().getHostAddress());
+		command.add(Integer.toString(this.server.getLocalPort()));
+		Process p = new ProcessBuilder(command).inheritIO().start();
+		synchronized (this.children) {
+			this.children.add(p);
+		}
+		p.onExit().thenRun(() -> {
+			synchronized (this.children) {
+				this.children.remove(p);
+			}
+			if (!this.closed && this.respawnsLeft.getAndDecrement() > 0) {
+				try {
+					this.startWorker();
+				} catch (IOException e) {
+					System.out.println("Error restarting worker: " + e);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Reassigns the passed-in task after a worker failed to play it, or plays
+	 * it here if it has failed too many times.
+	 *
+	 * @param task The task.
+	 */
+	private void failed(Task task)
+	{
+		task.attempts++;
+		if (task.attempts >= MAX_ATTEMPTS) {
+			this.playLocally(task);
+		} else {
+			this.pending.add(task);
+		}
+	}
+	
+	/**
+	 * Plays the passed-in task on this coordinator's own boards, built from the
+	 * task's board configuration.
+	 *
+	 * @param task The task.
+	 */
+	private void playLocally(Task task)
+	{
+		int[] winCounts;
+		synchronized (this) {
+			if (!task.source.usesBoards(this.boards)) {
+				this.boards = task.source.createBoards();
+			}
+			winCounts = task.source.play(this.boards);
+		}
+		task.complete(winCounts);
+	}
+	
+	/**
+	 * Returns whether any worker is connected or any local worker process is
+	 * running.
+	 *
+	 * @return {@code true} if there are workers; {@code false} otherwise.
+	 */
+	private boolean hasWorkers()
+	{
+		if (!this.connections.isEmpty()) {
+			return true;
+		}
+		synchronized (this.children) {
+			return this.children.stream().anyMatch(Process::isAlive);
+		}
+	}
+	
+	/**
+	 * Returns the port this coordinator accepts workers on.
+	 *
+	 * @return The port.
+	 */
+	public int getPort()
+	{
+		return this.server.getLocalPort();
+	}
+	
+	/**
+	 * Returns the number of workers currently connected.
+	 *
+	 * @return The number of workers currently connected.
+	 */
+	public int getNumWorkers()
+	{
+		return this.connections.size();
+	}
+	
+	/**
+	 * Plays the passed-in units on the workers and waits for their results.
+	 * May be called from several threads at once.
+	 *
+	 * @param units The units to play.
+	 * @return The number of games won by each neural network of each unit, in
+	 * unit order.
+	 */
+	public int[][] play(List<MatchUnit> units)
+	{
+		int[][] ret = new int[units.size()][];
+		CountDownLatch done = new CountDownLatch(units.size());
+		for (int i = 0; i < units.size(); i++) {
+			try {
+				this.pending.add(new Task(units.get(i), ret, i, done));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		while (true) {
+			try {
+				if (done.await(1, TimeUnit.SECONDS)) {
+					return ret;
+				}
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+			// Play units here if every worker is gone
+			Task task;
+			while (!this.hasWorkers() && (task = this.pending.poll()) != null) {
+				this.playLocally(task);
+			}
+		}
+	}
+	
+	/**
+	 * Tells every worker to exit and stops accepting workers. Units still
+	 * being played are abandoned.
+	 */
+	@Override
+	public void close()
+	{
+		this.closed = true;
+		try {
+			this.server.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+		// Idle connections are waiting for a task; wake them to shut down
+		for (Connection c: this.connections) {
+			c.interrupt();
+		}
+		List<Process> procs;
+		synchronized (this.children) {
+			procs = new ArrayList<>(this.children);
+		}
+		for (Process p: procs) {
+			try {
+				if (!p.waitFor(5, TimeUnit.SECONDS)) {
+					p.destroy();
+				}
+			} catch (InterruptedException e) {
+				p.destroy();
+			}
+		}
+		for (Connection c: this.connections) {
+			c.disconnect();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+package ml;
+
+import game.Board;
+import game.Game;
+import game.HeuristicPlayer;
+import game.Player;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class representing a unit of tournament work that can be played in another
+ * process: a group of neural networks, a board configuration, a seed, and a
+ * number of games.
+ * <p>
+ * A unit of three neural networks plays games between them, as in a genetic
+ * learner's generation; a unit of one neural network plays games between it
+ * and two heuristic players, as in an evaluation; and a unit of two neural
+ * networks plays games between them and one heuristic player, as in a
+ * {@link RatingLeague} match. Seats are shuffled before each game, and the
+ * seat order, boards, and spin distribution are all drawn from the unit's
+ * seed. The board configuration is the file and initial seed of each board
+ * (see {@link Board#getInitialSeed()}), so the unit's games are played on the
+ * same boards, with the same spaces in play, in every process. The result of
+ * a unit is the number of games won by each of its neural networks.
+ *
+ * @author Archer Murray
+ */
+public class MatchUnit
+{
+	private final NeuralNet[] nets;
+	private final String[] boardFiles;
+	private final long[] boardSeeds;
+	private final long seed;
+	private final int numGames;
+	
+	/**
+	 * Creates a new unit with the passed-in neural networks, boards, seed, and
+	 * number of games.
+	 *
+	 * @param nets The one to three neural networks, whose games are filled out
+	 * with heuristic players. They must not be changed until the unit has
+	 * been played.
+	 * @param boards The boards whose configuration the games are played with.
+	 * @param seed The seed to draw seat orders, boards, and spins from.
+	 * @param numGames The number of games to play.
+	 */
+	public MatchUnit(NeuralNet[] nets, Board[] boards, long seed, int numGames)
+	{
+		this(nets, new String[boards.length], new long[boards.length], seed,
+				numGames);
+		for (int i = 0; i < boards.length; i++) {
+			this.boardFiles[i] = boards[i].getFileName();
+			this.boardSeeds[i] = boards[i].getInitialSeed();
+		}
+	}
+	
+	/**
+	 * Creates a new unit with the passed-in neural networks, board
+	 * configuration, seed, and number of games.
+	 *
+	 * @param nets The one to three neural networks.
+	 * @param boardFiles The file of each board.
+	 * @param boardSeeds The initial seed of each board.
+	 * @param seed The seed to draw seat orders, boards, and spins from.
+	 * @param numGames The number of games to play.
+	 */
+	private MatchUnit(NeuralNet[] nets, String[] boardFiles, long[] boardSeeds,
+			long seed, int numGames)
+	{
+		assert nets.length >= 1 && nets.length <= 3 :
+				"a unit must have one to three neural networks";
+		this.nets = nets;
+		this.boardFiles = boardFiles;
+		this.boardSeeds = boardSeeds;
+		this.seed = seed;
+		this.numGames = numGames;
+	}
+	
+	/**
+	 * Reads a unit written by {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the unit from.
+	 * @return The unit.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static MatchUnit read(DataInput in) throws IOException
+	{
+		NeuralNet[] nets = new NeuralNet[in.readByte()];
+		for (int i = 0; i < nets.length; i++) {
+			nets[i] = NeuralNet.read(in);
+		}
+		String[] boardFiles = new String[in.readByte()];
+		long[] boardSeeds = new long[boardFiles.length];
+		for (int i = 0; i < boardFiles.length; i++) {
+			boardFiles[i] = in.readUTF();
+			boardSeeds[i] = in.readLong();
+		}
+		long seed = in.readLong();
+		return new MatchUnit(nets, boardFiles, boardSeeds, seed, in.readInt());
+	}
+	
+	/**
+	 * Writes this unit to the passed-in binary output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeByte(this.nets.length);
+		for (NeuralNet nn: this.nets) {
+			nn.write(out);
+		}
+		out.writeByte(this.boardFiles.length);
+		for (int i = 0; i < this.boardFiles.length; i++) {
+			out.writeUTF(this.boardFiles[i]);
+			out.writeLong(this.boardSeeds[i]);
+		}
+		out.writeLong(this.seed);
+		out.writeInt(this.numGames);
+	}
+	
+	/**
+	 * Returns the number of neural networks in this unit.
+	 *
+	 * @return The number of neural networks in this unit.
+	 */
+	public int getNumNets()
+	{
+		return this.nets.length;
+	}
+	
+	/**
+	 * Returns the number of games in this unit.
+	 *
+	 * @return The number of games in this unit.
+	 */
+	public int getNumGames()
+	{
+		return this.numGames;
+	}
+	
+	/**
+	 * Creates boards with this unit's board configuration.
+	 *
+	 * @return The boards.
+	 */
+	public Board[] createBoards()
+	{
+		Board[] ret = new Board[this.boardFiles.length];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = new Board(this.boardFiles[i], this.boardSeeds[i]);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns {@code true} if the passed-in boards have this unit's board
+	 * configuration, so that they can be reused to play it, and {@code false}
+	 * otherwise.
+	 *
+	 * @param boards The boards, which may be {@code null}.
+	 * @return Whether the boards have this unit's board configuration.
+	 */
+	public boolean usesBoards(Board[] boards)
+	{
+		if (boards == null || boards.length != this.boardFiles.length) {
+			return false;
+		}
+		for (int i = 0; i < boards.length; i++) {
+			if (!boards[i].getFileName().equals(this.boardFiles[i]) ||
+					boards[i].getInitialSeed() != this.boardSeeds[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Plays one game between the passed-in players in shuffled seats, and
+	 * returns the winners. The seat order is drawn from the passed-in random
+	 * number generator, and before the game, any "Double Your $$ + One Spin"
+	 * removed by an earlier game is put back in play and the boards and the
+	 * game are seeded from it, so the game depends only on the state of the
+	 * random number generator.
+	 *
+	 * @param competitors The three players, which are not reordered.
+	 * @param boards The boards to use in the game.
+	 * @param rng The random number generator to draw the seats and seeds
+	 * from.
+	 * @return The winners of the game.
+	 */
+	static List<Player> playGame(Player[] competitors, Board[] boards,
+			Random rng)
+	{
+		List<Player> compList = Arrays.asList(competitors.clone());
+		Collections.shuffle(compList, rng);
+		for (Board b: boards) {
+			b.restoreDoubles();
+			b.setSeed(rng.nextLong());
+		}
+		Game game = new Game(compList.toArray(new Player[0]), boards);
+		game.setSeed(rng.nextLong());
+		return game.play(false);
+	}
+	
+	/**
+	 * Plays the games of this unit on the passed-in boards, which must have
+	 * this unit's board configuration (see {@link #usesBoards(Board[])}).
+	 * Before each game, any "Double Your $$ + One Spin" removed by an earlier
+	 * game is put back in play and the boards are reseeded from this unit's
+	 * seed, so the result does not depend on what the boards played before.
+	 *
+	 * @param boards The boards to use in the games.
+	 * @return The number of games won by each neural network in this unit.
+	 */
+	public int[] play(Board[] boards)
+	{
+		assert this.usesBoards(boards) :
+				"boards must have the unit's board configuration";
+		Random rng = new Random(this.seed);
+		Player[] competitors = new Player[3];
+		for (int k = 0; k < 3; k++) {
+			competitors[k] = k < this.nets.length ?
+					new NeuralNetPlayer(this.nets[k]) : new HeuristicPlayer();
+		}
+		int[] winCounts = new int[this.nets.length];
+		for (int j = 0; j < this.numGames; j++) {
+			List<Player> winners = playGame(competitors, boards, rng);
+			// For each neural network player, see if they are a winner
+			for (int k = 0; k < this.nets.length; k++) {
+				if (winners.contains(competitors[k])) {
+					winCounts[k]++;
+				}
+			}
+		}
+		return winCounts;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package ml;
+
+import game.Board;
+
+import java.io.*;
+import java.net.Socket;
+
+/**
+ * Class to run a worker process that plays {@link MatchUnit}s sent by a
+ * {@link MatchCoordinator}.
+ * <p>
+ * Usage: {@code java ml.MatchWorker <host> <port>}, run from the directory
+ * containing the board files. The worker connects to the coordinator at the
+ * passed-in host and port and plays units until it is told to shut down or
+ * the connection is closed. Each unit is played on boards built from the
+ * unit's board configuration, so its result does not depend on which worker
+ * plays it.
+ *
+ * @author Archer Murray
+ */
+public final class MatchWorker
+{
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private MatchWorker()
+	{
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length != 2) {
+			System.out.println("Usage: java ml.MatchWorker <host> <port>");
+			System.exit(1);
+		}
+		int port = 0;
+		try {
+			port = Integer.parseInt(args[1]);
+		} catch (NumberFormatException e) {
+			System.out.println("Port must be an integer");
+			System.exit(1);
+		}
+		// The boards of the last unit played, reused while units share them
+		Board[] boards = null;
+		try (Socket socket = new Socket(args[0], port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()));
+			while (true) {
+				byte[] frame;
+				try {
+					frame = MatchCoordinator.readFrame(in);
+				} catch (EOFException e) {
+					// Coordinator closed the connection
+					return;
+				}
+				if (frame[0] == MatchCoordinator.SHUTDOWN) {
+					return;
+				}
+				if (frame[0] != MatchCoordinator.UNIT) {
+					throw new IOException("unexpected message type " +
+							frame[0]);
+				}
+				MatchUnit unit = MatchUnit.read(new DataInputStream(
+						new ByteArrayInputStream(frame, 1, frame.length - 1)));
+				if (!unit.usesBoards(boards)) {
+					boards = unit.createBoards();
+				}
+				int[] winCounts = unit.play(boards);
+				// Send back the win counts
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream result = new DataOutputStream(bytes);
+				result.writeByte(MatchCoordinator.RESULT);
+				result.writeInt(winCounts.length);
+				for (int w: winCounts) {
+					result.writeInt(w);
+				}
+				result.flush();
+				MatchCoordinator.writeFrame(out, bytes.toByteArray());
+			}
+		} catch (IOException e) {
+			System.out.println("Worker connection error: " + e);
+			System.exit(1);
+		}
+	}
+}
\ No newline at end of file
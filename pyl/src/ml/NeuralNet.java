@@ -1,5 +1,8 @@
 package ml;
 
+import metrics.GradientStepEvent;
+import metrics.Metrics;
+
 import java.io.*;
 import java.util.Random;
 import java.util.stream.IntStream;
@@ -38,6 +41,10 @@ import java.util.stream.IntStream;
  * <p>
  * - 1 binary (0/1) node that is 1 when the player is a valid pass target (not
  * used for the player run by this neural network).
+ * <p>
+ * The score and spin count divisors can be changed with a
+ * {@link NormalizationProfile}. Networks with more than one hidden layer are
+ * represented by the {@link LayeredNeuralNet} subclass.
  *
  * @author Archer Murray
  */
@@ -47,10 +54,36 @@ public class NeuralNet
 	 * The number of values to input.
 	 */
 	public static final int INPUT_LENGTH = 33;
+	/**
+	 * The names of the inputs, in input order.
+	 */
+	public static final String[] INPUT_NAMES = {
+			"Constant", "IsRound2", "DoubleInPlay", "AboutToSpin",
+			"MyTurnNow", "MyTurnNext", "MyWhammy1", "MyWhammy2",
+			"MyWhammy3", "MyWhammy4", "MyScore", "MyEarnedSpins",
+			"MyPassedSpins", "Opp1TurnNow", "Opp1TurnNext", "Opp1Whammy1",
+			"Opp1Whammy2", "Opp1Whammy3", "Opp1Whammy4", "Opp1Score",
+			"Opp1EarnedSpins", "Opp1PassedSpins", "Opp1IsTarget",
+			"Opp2TurnNow", "Opp2TurnNext", "Opp2Whammy1", "Opp2Whammy2",
+			"Opp2Whammy3", "Opp2Whammy4", "Opp2Score", "Opp2EarnedSpins",
+			"Opp2PassedSpins", "Opp2IsTarget"
+	};
+	/**
+	 * The system property giving the hidden layer sizes of the neural networks
+	 * that learners create, separated by commas, such as "64,32". The networks
+	 * have one hidden layer of size 40 if it is not set.
+	 */
+	public static final String HIDDEN_LAYERS_PROPERTY = "pyl.hiddenLayers";
+	
+	private static volatile NormalizationProfile normalization =
+			NormalizationProfile.fromSystemProperty();
 	
 	private final Random rng;
+	private final double[] scale;
 	private int hiddenLength;
-	private double[] weights;
+	private double[] weights, foldedWeights;
+	// Incremented whenever the weights change
+	private int weightVersion;
 	
 	/**
 	 * Creates a new neural network with a hidden layer of size 40.
@@ -67,7 +100,21 @@ public class NeuralNet
 	 */
 	public NeuralNet(int hiddenLayerSize)
 	{
-		this.rng = new Random();
+		this(hiddenLayerSize, new Random());
+	}
+	
+	/**
+	 * Creates a new neural network with the given hidden layer size, drawing
+	 * its initial weights and later mutations from the passed-in random number
+	 * generator.
+	 *
+	 * @param hiddenLayerSize The number of nodes in the hidden layer.
+	 * @param rng The random number generator to use.
+	 */
+	public NeuralNet(int hiddenLayerSize, Random rng)
+	{
+		this.rng = rng;
+		this.scale = normalization.getScales();
 		this.hiddenLength = hiddenLayerSize;
 		this.weights = new double[hiddenLayerSize * (INPUT_LENGTH + 1)];
 		// Initialize input-side weights
@@ -80,6 +127,7 @@ public class NeuralNet
 			this.weights[i] = this.rng.nextGaussian() /
 					Math.sqrt(hiddenLayerSize);
 		}
+		this.foldWeights();
 	}
 	
 	/**
@@ -91,6 +139,7 @@ public class NeuralNet
 	{
 		// Initialize RNG
 		this.rng = new Random();
+		this.scale = normalization.getScales();
 		try {
 			// Set up file reading
 			BufferedReader in = new BufferedReader(new FileReader(fn));
@@ -124,6 +173,206 @@ public class NeuralNet
 			System.out.println("Error while reading file: " + e);
 			System.exit(1);
 		}
+		this.foldWeights();
+	}
+	
+	/**
+	 * Creates a neural network with weights read from the passed-in binary
+	 * input, as written by {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the neural network from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public NeuralNet(DataInput in) throws IOException
+	{
+		this(in.readInt(), in);
+	}
+	
+	/**
+	 * Creates a neural network with the passed-in hidden layer size and
+	 * weights read from the passed-in binary input.
+	 *
+	 * @param hiddenLayerSize The number of nodes in the hidden layer.
+	 * @param in The input to read the weights from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private NeuralNet(int hiddenLayerSize, DataInput in) throws IOException
+	{
+		this.rng = new Random();
+		this.scale = normalization.getScales();
+		this.hiddenLength = hiddenLayerSize;
+		this.weights = new double[this.hiddenLength * (INPUT_LENGTH + 1)];
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = in.readDouble();
+		}
+		this.foldWeights();
+	}
+	
+	/**
+	 * Creates a neural network with no weights, for subclasses that store
+	 * their own weights. Subclasses must override every method that uses the
+	 * weights.
+	 *
+	 * @param rng The random number generator to draw mutations from.
+	 */
+	protected NeuralNet(Random rng)
+	{
+		this.rng = rng;
+		this.scale = normalization.getScales();
+		this.hiddenLength = 0;
+		this.weights = new double[0];
+		this.foldedWeights = new double[0];
+	}
+	
+	/**
+	 * Reads a neural network written by {@link #write(DataOutput)}, which may
+	 * be a {@link LayeredNeuralNet}.
+	 *
+	 * @param in The input to read the neural network from.
+	 * @return The neural network.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static NeuralNet read(DataInput in) throws IOException
+	{
+		int hiddenLayerSize = in.readInt();
+		if (hiddenLayerSize < 0) {
+			// Layered neural network, which writes its negated layer count
+			int[] sizes = new int[-hiddenLayerSize];
+			for (int i = 0; i < sizes.length; i++) {
+				sizes[i] = in.readInt();
+			}
+			return new LayeredNeuralNet(sizes, in);
+		}
+		return new NeuralNet(hiddenLayerSize, in);
+	}
+	
+	/**
+	 * Imports a neural network exported by {@link #export(String)}, which may
+	 * be a {@link LayeredNeuralNet}.
+	 *
+	 * @param fn The filename to import the neural network from.
+	 * @return The neural network.
+	 */
+	public static NeuralNet load(String fn)
+	{
+		String line = null;
+		try (BufferedReader in = new BufferedReader(new FileReader(fn))) {
+			line = in.readLine();
+		} catch (IOException e) {
+			System.out.println("Error while reading file: " + e);
+			System.exit(1);
+		}
+		if (line != null && line.contains(",")) {
+			// Layered neural networks list their hidden layer sizes
+			return new LayeredNeuralNet(fn);
+		}
+		return new NeuralNet(fn);
+	}
+	
+	/**
+	 * Creates a new neural network with the given hidden layer sizes, drawing
+	 * its initial weights and later mutations from the passed-in random number
+	 * generator. A network with one hidden layer is a {@link NeuralNet}, and a
+	 * network with more is a {@link LayeredNeuralNet}.
+	 *
+	 * @param rng The random number generator to use.
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer, from
+	 * the input side to the output side.
+	 * @return The neural network.
+	 */
+	public static NeuralNet create(Random rng, int... hiddenLayerSizes)
+	{
+		if (hiddenLayerSizes.length == 1) {
+			return new NeuralNet(hiddenLayerSizes[0], rng);
+		}
+		return new LayeredNeuralNet(rng, hiddenLayerSizes);
+	}
+	
+	/**
+	 * Returns the hidden layer sizes given by the
+	 * {@value #HIDDEN_LAYERS_PROPERTY} system property, or a single hidden
+	 * layer of size 40 if it is not set.
+	 *
+	 * @return The number of nodes in each hidden layer.
+	 * @throws IllegalArgumentException If the property is not a list of
+	 * positive sizes.
+	 */
+	public static int[] hiddenLayerSizesFromSystemProperty()
+	{
+		String prop = System.getProperty(HIDDEN_LAYERS_PROPERTY);
+		if (prop == null) {
+			return new int[]{40};
+		}
+		String[] parts = prop.split(",");
+		int[] ret = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				ret[i] = Integer.parseInt(parts[i].trim());
+			} catch (NumberFormatException e) {
+				ret[i] = 0;
+			}
+			if (ret[i] <= 0) {
+				throw new IllegalArgumentException(HIDDEN_LAYERS_PROPERTY +
+						" must list positive layer sizes: " + prop);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Creates a neural network with the same weights and normalization as the
+	 * passed-in neural network.
+	 *
+	 * @param other The neural network to copy.
+	 */
+	private NeuralNet(NeuralNet other)
+	{
+		this.rng = new Random();
+		this.scale = other.scale;
+		this.hiddenLength = other.hiddenLength;
+		this.weights = other.weights.clone();
+		this.foldedWeights = other.foldedWeights.clone();
+	}
+	
+	/**
+	 * Recomputes the input-side weights with each input's normalization scale
+	 * folded in, so that raw inputs can be evaluated without being adjusted.
+	 */
+	private void foldWeights()
+	{
+		this.weightsChanged();
+		if (this.foldedWeights == null) {
+			this.foldedWeights = new double[this.hiddenLength * INPUT_LENGTH];
+		}
+		int weightIdx = 0;
+		for (int i = 0; i < this.hiddenLength; i++) {
+			for (int j = 0; j < INPUT_LENGTH; j++) {
+				this.foldedWeights[weightIdx] = this.weights[weightIdx] *
+						this.scale[j];
+				weightIdx++;
+			}
+		}
+	}
+	
+	/**
+	 * Records that the weights of this neural network have changed, so that
+	 * cached evaluations are discarded. Subclasses that store their own
+	 * weights must call this whenever they change.
+	 */
+	protected void weightsChanged()
+	{
+		this.weightVersion++;
+	}
+	
+	/**
+	 * Returns a number that changes whenever the weights of this neural
+	 * network change.
+	 *
+	 * @return The version of the weights.
+	 */
+	int getWeightVersion()
+	{
+		return this.weightVersion;
 	}
 	
 	/**
@@ -145,39 +394,56 @@ public class NeuralNet
 		return 1.0 / (1 + Math.exp(-x));
 	}
 	
+	/**
+	 * Returns the normalization profile used to adjust inputs.
+	 *
+	 * @return The normalization profile used to adjust inputs.
+	 */
+	public static NormalizationProfile getNormalization()
+	{
+		return normalization;
+	}
+	
+	/**
+	 * Sets the normalization profile used to adjust inputs. Neural networks
+	 * should be trained and played with the same profile.
+	 * <p>
+	 * Each neural network folds the profile into its weights when it is
+	 * created, so the new profile applies only to neural networks created or
+	 * loaded afterwards. Copies and mutations keep the original's profile.
+	 *
+	 * @param profile The normalization profile to use.
+	 */
+	public static void setNormalization(NormalizationProfile profile)
+	{
+		normalization = profile;
+	}
+	
 	/**
 	 * Adjusts the given input to be better suited to a Press Your Luck neural
 	 * network.
 	 * <p>
-	 * Specifically, this method divides each player's score by 6700, each
-	 * player's number of earned spins by 4, and each player's number of passed
-	 * spins by 0.8. Data collection from heuristic play shows that these
-	 * adjustments should give the respective nodes mean values around 0.5.
+	 * Specifically, this method divides each input by its divisor in the
+	 * current normalization profile. By default, each player's score is divided
+	 * by 6700, each player's number of earned spins by 4, and each player's
+	 * number of passed spins by 0.8. Data collection from heuristic play shows
+	 * that these adjustments should give the respective nodes mean values
+	 * around 0.5.
 	 *
 	 * @param input The input to adjust.
 	 * @return The adjusted input.
 	 */
 	public static double[] adjustInput(double[] input)
 	{
-		double[] ret = new double[33];
-		System.arraycopy(input, 0, ret, 0, 33);
-		// Score
-		ret[10] /= 6700;
-		ret[19] /= 6700;
-		ret[29] /= 6700;
-		// Earned spins
-		ret[11] /= 4;
-		ret[20] /= 4;
-		ret[30] /= 4;
-		// Passed spins
-		ret[12] /= 0.8;
-		ret[21] /= 0.8;
-		ret[31] /= 0.8;
-		return ret;
+		return normalization.apply(input);
 	}
 	
 	/**
 	 * Evaluates the neural network on the given input values.
+	 * <p>
+	 * This method may be called from several threads at once while the
+	 * weights are not being changed. A {@link LayeredNeuralNet} may not be
+	 * evaluated by several threads at once.
 	 *
 	 * @param input The input values.
 	 * @return The output of the neural network.
@@ -187,14 +453,14 @@ public class NeuralNet
 		// Input must be the correct size
 		assert input.length == INPUT_LENGTH : "input must be length " +
 				INPUT_LENGTH;
+		Metrics.NEURAL_NET_EVALUATIONS.increment();
 		int weightIdx = 0;
-		double[] adjIn = adjustInput(input);
-		// Calculate hidden layer
+		// Calculate hidden layer (normalization is folded into the weights)
 		double[] hiddenLayer = new double[this.hiddenLength];
 		for (int i = 0; i < this.hiddenLength; i++) {
 			hiddenLayer[i] = 0;
 			for (int j = 0; j < INPUT_LENGTH; j++) {
-				hiddenLayer[i] += adjIn[j] * this.weights[weightIdx];
+				hiddenLayer[i] += input[j] * this.foldedWeights[weightIdx];
 				weightIdx++;
 			}
 			hiddenLayer[i] = sigmoid(hiddenLayer[i]);
@@ -208,6 +474,72 @@ public class NeuralNet
 		return sigmoid(output);
 	}
 	
+	/**
+	 * Evaluates the neural network on a batch of inputs stored one after
+	 * another in a single array, writing each output to the passed-in output
+	 * array. The input of row {@code r} starts at index
+	 * {@code r * INPUT_LENGTH} and its output is written to index {@code r}.
+	 * <p>
+	 * This computes the same outputs as calling {@link #evaluate(double[])} on
+	 * each row, but multiplies the weights by four rows at a time, so that
+	 * each weight is loaded once per four rows, and allocates nothing.
+	 *
+	 * @param inputs The input values, row by row.
+	 * @param start The index of the first row to evaluate.
+	 * @param count The number of rows to evaluate.
+	 * @param outputs The array to write the outputs to.
+	 */
+	public void evaluateBatch(double[] inputs, int start, int count,
+			double[] outputs)
+	{
+		Metrics.NEURAL_NET_EVALUATIONS.add(count);
+		int outputIdx = this.hiddenLength * INPUT_LENGTH;
+		int end = start + count;
+		int r = start;
+		// Evaluate four rows at a time
+		for (; r + 4 <= end; r += 4) {
+			int in0 = r * INPUT_LENGTH, in1 = in0 + INPUT_LENGTH,
+					in2 = in1 + INPUT_LENGTH, in3 = in2 + INPUT_LENGTH;
+			double out0 = 0, out1 = 0, out2 = 0, out3 = 0;
+			int weightIdx = 0;
+			for (int i = 0; i < this.hiddenLength; i++) {
+				double h0 = 0, h1 = 0, h2 = 0, h3 = 0;
+				for (int j = 0; j < INPUT_LENGTH; j++) {
+					double w = this.foldedWeights[weightIdx + j];
+					h0 += inputs[in0 + j] * w;
+					h1 += inputs[in1 + j] * w;
+					h2 += inputs[in2 + j] * w;
+					h3 += inputs[in3 + j] * w;
+				}
+				weightIdx += INPUT_LENGTH;
+				double w = this.weights[outputIdx + i];
+				out0 += sigmoid(h0) * w;
+				out1 += sigmoid(h1) * w;
+				out2 += sigmoid(h2) * w;
+				out3 += sigmoid(h3) * w;
+			}
+			outputs[r] = sigmoid(out0);
+			outputs[r + 1] = sigmoid(out1);
+			outputs[r + 2] = sigmoid(out2);
+			outputs[r + 3] = sigmoid(out3);
+		}
+		// Evaluate the remaining rows one at a time
+		for (; r < end; r++) {
+			int in = r * INPUT_LENGTH;
+			double output = 0;
+			int weightIdx = 0;
+			for (int i = 0; i < this.hiddenLength; i++) {
+				double h = 0;
+				for (int j = 0; j < INPUT_LENGTH; j++) {
+					h += inputs[in + j] * this.foldedWeights[weightIdx + j];
+				}
+				weightIdx += INPUT_LENGTH;
+				output += sigmoid(h) * this.weights[outputIdx + i];
+			}
+			outputs[r] = sigmoid(output);
+		}
+	}
+	
 	/**
 	 * Returns the gradient of this neural network at the given input values.
 	 *
@@ -220,7 +552,6 @@ public class NeuralNet
 		assert input.length == INPUT_LENGTH : "input must be length " +
 				INPUT_LENGTH;
 		// Set up variables
-		double[] adjIn = adjustInput(input);
 		double[] gradient = new double[this.weights.length];
 		// Evaluate at original input ("pre" values are pre-sigmoid)
 		double[] hl1pre = new double[this.hiddenLength];
@@ -228,7 +559,8 @@ public class NeuralNet
 		for (int i = 0; i < this.hiddenLength; i++) {
 			hl1pre[i] = 0;
 			for (int j = 0; j < INPUT_LENGTH; j++) {
-				hl1pre[i] += adjIn[j] * this.weights[i * INPUT_LENGTH + j];
+				hl1pre[i] += input[j] *
+						this.foldedWeights[i * INPUT_LENGTH + j];
 			}
 			hl1[i] = sigmoid(hl1pre[i]);
 		}
@@ -249,7 +581,7 @@ public class NeuralNet
 		for (int i = 0; i < this.hiddenLength; i++) {
 			for (int j = 0; j < INPUT_LENGTH; j++) {
 				// Recalculate relevant nodes
-				hl2pre[i] += adjIn[j] / 8192;
+				hl2pre[i] += input[j] * this.scale[j] / 8192;
 				hl2[i] = sigmoid(hl2pre[i]);
 				eval2pre += (hl2[i] - hl1[i]) * this.weights[
 						this.hiddenLength * INPUT_LENGTH + i];
@@ -282,10 +614,19 @@ public class NeuralNet
 	 */
 	public void gradientDescent(double[] prevInput, double diff)
 	{
+		GradientStepEvent event = new GradientStepEvent();
+		event.begin();
+		Metrics.GRADIENT_STEPS.increment();
 		double[] grad = this.gradient(prevInput);
 		for (int i = 0; i < this.weights.length; i++) {
 			this.weights[i] += diff * grad[i];
 		}
+		this.foldWeights();
+		if (event.shouldCommit()) {
+			event.weights = this.weights.length;
+			event.diff = diff;
+			event.commit();
+		}
 	}
 	
 	/**
@@ -308,6 +649,138 @@ public class NeuralNet
 		out.close();
 	}
 	
+	/**
+	 * Returns the number of nodes in the hidden layer.
+	 *
+	 * @return The number of nodes in the hidden layer.
+	 */
+	public int getHiddenLength()
+	{
+		return this.hiddenLength;
+	}
+	
+	/**
+	 * Returns the total number of weights in this neural network.
+	 *
+	 * @return The total number of weights in this neural network.
+	 */
+	public int getNumWeights()
+	{
+		return this.weights.length;
+	}
+	
+	/**
+	 * Returns a hash of this neural network's weights, which identifies the
+	 * network in game logs. Networks with equal weights have equal hashes.
+	 *
+	 * @return A hash of the weights.
+	 */
+	public long getWeightsHash()
+	{
+		double[] w = new double[this.getNumWeights()];
+		this.storeWeights(w, 0);
+		long h = this.getClass().getName().hashCode();
+		for (double x: w) {
+			h = 31 * h + Double.doubleToLongBits(x);
+		}
+		return h;
+	}
+	
+	/**
+	 * Returns the standard deviation used for each weight when initializing or
+	 * mutating this neural network.
+	 *
+	 * @return An array containing the standard deviation of each weight.
+	 */
+	double[] getWeightScales()
+	{
+		double[] ret = new double[this.weights.length];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = 1 / Math.sqrt(i < this.hiddenLength * INPUT_LENGTH ?
+					INPUT_LENGTH : this.hiddenLength);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Replaces the weights of this neural network with the weights stored in
+	 * the passed-in array, starting at the passed-in offset.
+	 *
+	 * @param src The array to read weights from.
+	 * @param offset The index of the first weight in {@code src}.
+	 */
+	void loadWeights(double[] src, int offset)
+	{
+		System.arraycopy(src, offset, this.weights, 0, this.weights.length);
+		this.foldWeights();
+	}
+	
+	/**
+	 * Replaces the weights of this neural network with the weights stored in
+	 * the passed-in single-precision array, starting at the passed-in offset.
+	 *
+	 * @param src The array to read weights from.
+	 * @param offset The index of the first weight in {@code src}.
+	 */
+	void loadWeights(float[] src, int offset)
+	{
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = src[offset + i];
+		}
+		this.foldWeights();
+	}
+	
+	/**
+	 * Copies the weights of this neural network into the passed-in array,
+	 * starting at the passed-in offset.
+	 *
+	 * @param dst The array to write weights to.
+	 * @param offset The index in {@code dst} of the first weight.
+	 */
+	void storeWeights(double[] dst, int offset)
+	{
+		System.arraycopy(this.weights, 0, dst, offset, this.weights.length);
+	}
+	
+	/**
+	 * Copies the weights of this neural network into the passed-in
+	 * single-precision array, starting at the passed-in offset.
+	 *
+	 * @param dst The array to write weights to.
+	 * @param offset The index in {@code dst} of the first weight.
+	 */
+	void storeWeights(float[] dst, int offset)
+	{
+		for (int i = 0; i < this.weights.length; i++) {
+			dst[offset + i] = (float)this.weights[i];
+		}
+	}
+	
+	/**
+	 * Writes the weights of this neural network to the passed-in binary output.
+	 * The network can be read back with {@link #NeuralNet(DataInput)}.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(this.hiddenLength);
+		for (double w: this.weights) {
+			out.writeDouble(w);
+		}
+	}
+	
+	/**
+	 * Returns a copy of this neural network with identical weights.
+	 *
+	 * @return A copy of this neural network.
+	 */
+	public NeuralNet copy()
+	{
+		return new NeuralNet(this);
+	}
+	
 	/**
 	 * Returns a mutated version of this neural network with a default mutation
 	 * rate causing the square root of the total number of weights to be mutated
@@ -319,7 +792,7 @@ public class NeuralNet
 	 */
 	public NeuralNet mutate()
 	{
-		return this.mutate(1 / Math.sqrt(this.weights.length));
+		return this.mutate(1 / Math.sqrt(this.getNumWeights()));
 	}
 	
 	/**
@@ -334,17 +807,49 @@ public class NeuralNet
 	 */
 	public NeuralNet mutate(double mutationRate)
 	{
-		NeuralNet newNet = new NeuralNet(this.hiddenLength);
-		// Copy weights with chance of mutation
+		return this.mutate(mutationRate, this.rng);
+	}
+	
+	/**
+	 * Returns a mutated version of this neural network with the default
+	 * mutation rate, drawing mutations from the passed-in random number
+	 * generator.
+	 * <p>
+	 * This neural network is not changed.
+	 *
+	 * @param rng The random number generator to draw mutations from.
+	 * @return The mutated neural network.
+	 */
+	public NeuralNet mutate(Random rng)
+	{
+		return this.mutate(1 / Math.sqrt(this.getNumWeights()), rng);
+	}
+	
+	/**
+	 * Returns a mutated version of this neural network with the passed-in
+	 * mutation rate, drawing mutations from the passed-in random number
+	 * generator.
+	 * <p>
+	 * This neural network is not changed.
+	 *
+	 * @param mutationRate The probability that any given weight will be
+	 * mutated.
+	 * @param rng The random number generator to draw mutations from.
+	 * @return The mutated neural network.
+	 */
+	public NeuralNet mutate(double mutationRate, Random rng)
+	{
+		NeuralNet newNet = new NeuralNet(this);
+		// Mutate copied weights
 		for (int i = 0; i < this.weights.length; i++) {
-			newNet.weights[i] = this.weights[i];
-			if (this.rng.nextDouble() < mutationRate) {
-				double mutAmt = this.rng.nextGaussian();
+			if (rng.nextDouble() < mutationRate) {
+				double mutAmt = rng.nextGaussian();
 				mutAmt /= Math.sqrt(i < this.hiddenLength * INPUT_LENGTH ?
 						INPUT_LENGTH : this.hiddenLength);
 				newNet.weights[i] += mutAmt;
 			}
 		}
+		newNet.foldWeights();
 		return newNet;
 	}
 }
\ No newline at end of file
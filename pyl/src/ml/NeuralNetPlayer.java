@@ -3,6 +3,8 @@ package ml;
 import game.Board;
 import game.Player;
 import game.Space;
+import metrics.DecisionEvent;
+import metrics.Metrics;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -19,6 +21,10 @@ public class NeuralNetPlayer extends Player
 {
 	private final NeuralNet net;
 	private final List<Double> lastAnalysis;
+	private EvaluationCache cache;
+	// The number of decisions in progress, which is more than one while a
+	// decision asks for another (chooseMoveTarget asks moneyOrLoseWhammy)
+	private int decisionDepth;
 	
 	/**
 	 * Creates a new player controlled by a random neural network.
@@ -37,6 +43,8 @@ public class NeuralNetPlayer extends Player
 	{
 		this.net = nn;
 		this.lastAnalysis = new ArrayList<>();
+		this.cache = EvaluationCache.fromSystemProperty();
+		this.decisionDepth = 0;
 	}
 	
 	/**
@@ -49,6 +57,55 @@ public class NeuralNetPlayer extends Player
 		return this.net;
 	}
 	
+	/**
+	 * Returns the hash of this player's neural network's weights (see
+	 * {@link NeuralNet#getWeightsHash()}).
+	 *
+	 * @return The hash of the neural network's weights.
+	 */
+	@Override
+	public long getLogId()
+	{
+		return this.net.getWeightsHash();
+	}
+	
+	/**
+	 * Returns this player's evaluation cache.
+	 *
+	 * @return This player's evaluation cache, or {@code null} if this player
+	 * evaluates every input with its neural network.
+	 */
+	public EvaluationCache getEvaluationCache()
+	{
+		return this.cache;
+	}
+	
+	/**
+	 * Sets the cache this player looks up evaluations in before evaluating
+	 * them with its neural network. By default, this is set by the
+	 * {@value EvaluationCache#PROPERTY} system property.
+	 *
+	 * @param cache The evaluation cache, or {@code null} to evaluate every
+	 * input with this player's neural network.
+	 */
+	public void setEvaluationCache(EvaluationCache cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * Returns the evaluation of the passed-in input by this player's neural
+	 * network, using this player's evaluation cache if it has one.
+	 *
+	 * @param input The input to evaluate.
+	 * @return The output of the neural network.
+	 */
+	protected double evaluate(double[] input)
+	{
+		return this.cache == null ? this.net.evaluate(input) :
+				this.cache.evaluate(this.net, input);
+	}
+	
 	/**
 	 * Returns this player's analysis of the previous decision in the form of a
 	 * list of doubles, where each double value is the evaluation of one of the
@@ -61,13 +118,56 @@ public class NeuralNetPlayer extends Player
 		return this.lastAnalysis;
 	}
 	
+	/**
+	 * Starts a decision, beginning the passed-in Flight Recorder event for it.
+	 *
+	 * @param event The event for the decision.
+	 * @return The start time of the decision, as returned by
+	 * {@link System#nanoTime()}.
+	 */
+	private long beginDecision(DecisionEvent event)
+	{
+		this.decisionDepth++;
+		event.begin();
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Records the latency of the decision that started at the passed-in time,
+	 * and commits the passed-in Flight Recorder event for it if enabled. Must
+	 * be called after the last analysis has been updated. A decision made
+	 * within another is not recorded, since its time is part of the enclosing
+	 * decision's.
+	 *
+	 * @param event The event for the decision.
+	 * @param start The start time of the decision, as returned by
+	 * {@link System#nanoTime()}.
+	 * @param kind The kind of decision.
+	 */
+	private void endDecision(DecisionEvent event, long start, String kind)
+	{
+		this.decisionDepth--;
+		if (this.decisionDepth > 0) {
+			return;
+		}
+		Metrics.DECISION_LATENCY.recordSince(start);
+		if (event.shouldCommit()) {
+			event.playerType = this.getClass().getSimpleName();
+			event.kind = kind;
+			event.candidates = this.lastAnalysis.size();
+			event.commit();
+		}
+	}
+	
 	@Override
 	public boolean pressOrPass()
 	{
+		DecisionEvent event = new DecisionEvent();
+		long start = this.beginDecision(event);
 		double[] input = this.getGame().getNeuralNetInput(this.getPlayerNum());
 		// Evaluate "press your luck"
 		input[3] = 1;
-		double pressEval = this.net.evaluate(input);
+		double pressEval = this.evaluate(input);
 		input[3] = 0;
 		// Evaluate "pass" to each eligible opponent
 		double pass1Eval = -1, pass2Eval = -1;
@@ -75,7 +175,7 @@ public class NeuralNetPlayer extends Player
 			// Opponent 1 is an eligible pass target
 			input[21] += this.getEarnedSpins();
 			input[12] = 0;
-			pass1Eval = this.net.evaluate(input);
+			pass1Eval = this.evaluate(input);
 			input[21] -= this.getEarnedSpins();
 			input[12] = this.getEarnedSpins();
 		}
@@ -83,7 +183,7 @@ public class NeuralNetPlayer extends Player
 			// Opponent 2 is an eligible pass target
 			input[31] += this.getEarnedSpins();
 			input[12] = 0;
-			pass1Eval = this.net.evaluate(input);
+			pass1Eval = this.evaluate(input);
 			input[31] -= this.getEarnedSpins();
 			input[12] = this.getEarnedSpins();
 		}
@@ -92,7 +192,7 @@ public class NeuralNetPlayer extends Player
 		if (passEval < 0) {
 			// No pass targets; assume last one standing
 			input[12] = 0;
-			passEval = this.net.evaluate(input);
+			passEval = this.evaluate(input);
 		}
 		// Update last analysis
 		this.lastAnalysis.clear();
@@ -100,6 +200,7 @@ public class NeuralNetPlayer extends Player
 		if (passEval >= 0) {
 			this.lastAnalysis.add(passEval);
 		}
+		this.endDecision(event, start, "pressOrPass");
 		// Return based on evaluations
 		return pressEval > passEval;
 	}
@@ -107,6 +208,8 @@ public class NeuralNetPlayer extends Player
 	@Override
 	public Space chooseMoveTarget(List<Space> moveTargets)
 	{
+		DecisionEvent event = new DecisionEvent();
+		long start = this.beginDecision(event);
 		double[] input = this.getGame().getNeuralNetInput(this.getPlayerNum());
 		double[] spaceEvals = new double[moveTargets.size()];
 		for (int i = 0; i < moveTargets.size(); i++) {
@@ -138,7 +241,7 @@ public class NeuralNetPlayer extends Player
 				double interval = (prizeMax - prizeMin) / 9.0;
 				for (double pv = prizeMin; pv < prizeMax + 1; pv += interval) {
 					newIn[10] += pv;
-					spaceEvals[i] += this.net.evaluate(newIn);
+					spaceEvals[i] += this.evaluate(newIn);
 					newIn[10] -= pv;
 				}
 				spaceEvals[i] /= 10;
@@ -176,7 +279,7 @@ public class NeuralNetPlayer extends Player
 					newIn[10] += cashAmt;
 				}
 			}
-			spaceEvals[i] = this.net.evaluate(newIn);
+			spaceEvals[i] = this.evaluate(newIn);
 		}
 		// Update last analysis
 		this.lastAnalysis.clear();
@@ -192,22 +295,25 @@ public class NeuralNetPlayer extends Player
 				maxIdx = i;
 			}
 		}
+		this.endDecision(event, start, "chooseMoveTarget");
 		return moveTargets.get(maxIdx);
 	}
 	
 	@Override
 	public boolean moneyOrLoseWhammy(int amount)
 	{
+		DecisionEvent event = new DecisionEvent();
+		long start = this.beginDecision(event);
 		double[] input = this.getGame().getNeuralNetInput(this.getPlayerNum());
 		// Evaluate "money"
 		input[10] += amount;
-		double moneyEval = this.net.evaluate(input);
+		double moneyEval = this.evaluate(input);
 		input[10] -= amount;
 		// Evaluate "lose one Whammy"
 		double loseEval = -1;
 		if (this.getWhammies() > 0) {
 			input[5 + this.getWhammies()] = 0;
-			loseEval = this.net.evaluate(input);
+			loseEval = this.evaluate(input);
 			input[5 + this.getWhammies()] = 1;
 		}
 		// Update last analysis
@@ -216,6 +322,7 @@ public class NeuralNetPlayer extends Player
 		if (loseEval >= 0) {
 			this.lastAnalysis.add(loseEval);
 		}
+		this.endDecision(event, start, "moneyOrLoseWhammy");
 		// Return based on evaluations
 		return moneyEval > loseEval;
 	}
@@ -223,13 +330,15 @@ public class NeuralNetPlayer extends Player
 	@Override
 	public Player choosePassTarget(List<Player> targets)
 	{
+		DecisionEvent event = new DecisionEvent();
+		long start = this.beginDecision(event);
 		double[] input = this.getGame().getNeuralNetInput(this.getPlayerNum());
 		Collections.sort(targets);
 		double[] targetEvals = new double[targets.size()];
 		for (int i = 0; i < targets.size(); i++) {
 			input[21 + 10 * i] += this.getEarnedSpins();
 			input[12] = 0;
-			targetEvals[i] = this.net.evaluate(input);
+			targetEvals[i] = this.evaluate(input);
 			input[21 + 10 * i] -= this.getEarnedSpins();
 			input[12] = this.getEarnedSpins();
 		}
@@ -247,6 +356,7 @@ public class NeuralNetPlayer extends Player
 				maxIdx = i;
 			}
 		}
+		this.endDecision(event, start, "choosePassTarget");
 		return targets.get(maxIdx);
 	}
 }
\ No newline at end of file
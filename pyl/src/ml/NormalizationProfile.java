@@ -0,0 +1,192 @@
+package ml;
+
+import metrics.FeatureStatistics;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Class representing a normalization profile for neural network inputs, which
+ * gives the divisor each input is divided by before it is fed into a neural
+ * network.
+ * <p>
+ * A profile is stored as a text file with one divisor per line, in input
+ * order. The profile used by {@link NeuralNet} is {@link #DEFAULT} unless the
+ * {@value #PROPERTY} system property names a profile file to load instead.
+ *
+ * @author Archer Murray
+ */
+public class NormalizationProfile
+{
+	/**
+	 * The system property naming the profile file for neural networks to use.
+	 */
+	public static final String PROPERTY = "pyl.normalization";
+	/**
+	 * The indices of the inputs that are normalized: each player's score,
+	 * earned spin count, and passed spin count. All other inputs are binary.
+	 */
+	public static final int[] SCALED_INPUTS = {10, 11, 12, 19, 20, 21, 29, 30,
+			31};
+	/**
+	 * The default profile, which divides each player's score by 6700, each
+	 * player's number of earned spins by 4, and each player's number of passed
+	 * spins by 0.8.
+	 */
+	public static final NormalizationProfile DEFAULT = new NormalizationProfile(
+			new double[] {
+					1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 6700, 4, 0.8, 1, 1, 1, 1, 1,
+					1, 6700, 4, 0.8, 1, 1, 1, 1, 1, 1, 1, 6700, 4, 0.8, 1
+			});
+	
+	private final double[] divisors, scales;
+	private final int[] scaled;
+	
+	/**
+	 * Creates a profile with the passed-in divisors.
+	 *
+	 * @param divisors The divisor of each input, which must be nonzero.
+	 */
+	public NormalizationProfile(double[] divisors)
+	{
+		assert divisors.length == NeuralNet.INPUT_LENGTH :
+				"divisors must be length " + NeuralNet.INPUT_LENGTH;
+		this.divisors = divisors.clone();
+		this.scales = Arrays.stream(divisors).map(d -> 1 / d).toArray();
+		this.scaled = IntStream.range(0, divisors.length)
+				.filter(i -> divisors[i] != 1).toArray();
+	}
+	
+	/**
+	 * Creates a profile with divisors imported from the given file.
+	 *
+	 * @param fn The filename to import divisors from.
+	 */
+	public NormalizationProfile(String fn)
+	{
+		this(readDivisors(fn));
+	}
+	
+	/**
+	 * Reads divisors from the given file, one per line.
+	 *
+	 * @param fn The filename to read divisors from.
+	 * @return The divisors.
+	 */
+	private static double[] readDivisors(String fn)
+	{
+		double[] ret = new double[NeuralNet.INPUT_LENGTH];
+		try (BufferedReader in = new BufferedReader(new FileReader(fn))) {
+			for (int i = 0; i < ret.length; i++) {
+				String line = in.readLine();
+				if (line == null) {
+					System.out.println("Unexpected EOF while reading " + fn);
+					System.exit(1);
+				}
+				try {
+					ret[i] = Double.parseDouble(line);
+				} catch (NumberFormatException e) {
+					ret[i] = 0;
+				}
+				if (ret[i] == 0 || Double.isNaN(ret[i])) {
+					System.out.println("Line " + (i + 1) + " of file " + fn +
+							" must be a nonzero number");
+					System.exit(1);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Error while reading file: " + e);
+			System.exit(1);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Creates a profile from the passed-in statistics of neural network
+	 * inputs, dividing each of the {@link #SCALED_INPUTS} by twice its mean so
+	 * that it has a mean of 0.5. Inputs with a mean of 0 are not scaled.
+	 *
+	 * @param stats The statistics of the neural network inputs.
+	 * @return The profile.
+	 */
+	public static NormalizationProfile fromStatistics(FeatureStatistics stats)
+	{
+		double[] divisors = new double[NeuralNet.INPUT_LENGTH];
+		Arrays.fill(divisors, 1);
+		for (int i: SCALED_INPUTS) {
+			double mean = stats.getMean(i);
+			if (mean > 0) {
+				divisors[i] = 2 * mean;
+			}
+		}
+		return new NormalizationProfile(divisors);
+	}
+	
+	/**
+	 * Returns the profile named by the {@value #PROPERTY} system property, or
+	 * the default profile if it is not set.
+	 *
+	 * @return The profile.
+	 */
+	public static NormalizationProfile fromSystemProperty()
+	{
+		String fn = System.getProperty(PROPERTY);
+		return fn == null ? DEFAULT : new NormalizationProfile(fn);
+	}
+	
+	/**
+	 * Returns the divisor of the passed-in input.
+	 *
+	 * @param input The index of the input.
+	 * @return The divisor of the input.
+	 */
+	public double getDivisor(int input)
+	{
+		return this.divisors[input];
+	}
+	
+	/**
+	 * Returns the scale of each input: the reciprocal of its divisor. The
+	 * returned array must not be modified.
+	 *
+	 * @return The scale of each input.
+	 */
+	double[] getScales()
+	{
+		return this.scales;
+	}
+	
+	/**
+	 * Returns a copy of the passed-in input with each value divided by its
+	 * divisor.
+	 *
+	 * @param input The input to normalize.
+	 * @return The normalized input.
+	 */
+	public double[] apply(double[] input)
+	{
+		double[] ret = new double[NeuralNet.INPUT_LENGTH];
+		System.arraycopy(input, 0, ret, 0, NeuralNet.INPUT_LENGTH);
+		for (int i: this.scaled) {
+			ret[i] /= this.divisors[i];
+		}
+		return ret;
+	}
+	
+	/**
+	 * Writes this profile to the specified filename.
+	 *
+	 * @param fn The filename to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void export(String fn) throws IOException
+	{
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(
+				new FileWriter(fn)))) {
+			for (double d: this.divisors) {
+				out.println(d);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package ml;
+
+import game.FeatureStatisticsCalculator;
+import metrics.FeatureStatistics;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Main class to derive a {@link NormalizationProfile} for a set of boards from
+ * the statistics of the neural network inputs over games between heuristic
+ * players.
+ * <p>
+ * The statistics are collected on one thread per available processor. The
+ * mean, standard deviation, range, and quartiles of each input are printed,
+ * and the profile is written to the passed-in file, to be loaded with the
+ * {@value NormalizationProfile#PROPERTY} system property.
+ * <p>
+ * Usage: {@code NormalizationTuner <profile file> [states] [board file...]}
+ *
+ * @author Archer Murray
+ */
+public final class NormalizationTuner
+{
+	/**
+	 * The default number of states to collect statistics from.
+	 */
+	public static final long DEFAULT_STATES = 10000000;
+	/**
+	 * The default board files.
+	 */
+	public static final String[] DEFAULT_BOARDS = {"board1.txt", "board2.txt"};
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private NormalizationTuner()
+	{
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 1) {
+			System.out.println("Usage: NormalizationTuner <profile file> " +
+					"[states] [board file...]");
+			System.exit(1);
+		}
+		long numStates = DEFAULT_STATES;
+		if (args.length > 1) {
+			try {
+				numStates = Long.parseLong(args[1]);
+			} catch (NumberFormatException e) {
+				System.out.println("Invalid number of states: " + args[1]);
+				System.exit(1);
+			}
+		}
+		String[] boards = args.length > 2 ? Arrays.copyOfRange(args, 2,
+				args.length) : DEFAULT_BOARDS;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		// Collect statistics
+		long start = System.nanoTime();
+		FeatureStatistics stats = new FeatureStatisticsCalculator(boards,
+				numThreads).run(numStates, true);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Recorded %,d states on %d threads in %.1f s " +
+				"(%,.0f states/s)\n", stats.getCount(), numThreads, seconds,
+				stats.getCount() / seconds);
+		System.out.printf("%-16s %11s %11s %9s %9s %9s %9s %11s\n", "Input",
+				"Mean", "Std dev", "Min", "Q1", "Median", "Q3", "Max");
+		for (int i = 0; i < NeuralNet.INPUT_LENGTH; i++) {
+			System.out.printf("%-16s %11.4f %11.4f %9.0f %9.0f %9.0f %9.0f " +
+					"%11.0f\n", NeuralNet.INPUT_NAMES[i], stats.getMean(i),
+					stats.getStandardDeviation(i), stats.getMin(i),
+					stats.getQuantile(i, 0.25), stats.getQuantile(i, 0.5),
+					stats.getQuantile(i, 0.75), stats.getMax(i));
+		}
+		// Derive and write the profile
+		NormalizationProfile profile = NormalizationProfile.fromStatistics(
+				stats);
+		System.out.println("Divisors:");
+		for (int i: NormalizationProfile.SCALED_INPUTS) {
+			System.out.printf("  %-16s %.4f (default %.4f)\n",
+					NeuralNet.INPUT_NAMES[i], profile.getDivisor(i),
+					NormalizationProfile.DEFAULT.getDivisor(i));
+		}
+		try {
+			profile.export(args[0]);
+		} catch (IOException e) {
+			System.out.println("Error writing to file: " + e);
+			System.exit(1);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,387 @@
+package ml;
+
+import game.Board;
+import game.Game;
+import game.HeuristicPlayer;
+import game.Player;
+import game.Space;
+import metrics.ProgressReporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that distills a trained neural network into a {@link DistilledPolicy}.
+ * <p>
+ * The distiller plays sample games with the neural network, both against
+ * heuristic players and against itself, and records the option it chooses in
+ * every decision under the decision's key at each level of detail. Each key
+ * is mapped to the option chosen most often. The policy is then tested on
+ * fresh games, reporting how often a {@link DistilledPlayer} agrees with the
+ * neural network, how much faster its decisions are, and both players' win
+ * rates against two heuristic players.
+ * <p>
+ * Usage: {@code PolicyDistiller <network file> <policy file> [sample games]
+ * [test games]}
+ *
+ * @author Archer Murray
+ */
+public final class PolicyDistiller
+{
+	/**
+	 * The boards to use in the games.
+	 */
+	public static final Board[] BOARDS = {
+			new Board("board1.txt"), new Board("board2.txt")
+	};
+	/**
+	 * The default number of games to sample decisions from.
+	 */
+	public static final int DEFAULT_SAMPLE_GAMES = 100000;
+	/**
+	 * The default number of games to test the policy on.
+	 */
+	public static final int DEFAULT_TEST_GAMES = 10000;
+	/**
+	 * The names of the decision types, indexed by type.
+	 */
+	private static final String[] TYPE_NAMES = {
+			"Press or pass", "Move target", "Money or lose Whammy",
+			"Pass target"
+	};
+	
+	/**
+	 * Neural network player that records the option it chooses in each
+	 * decision and, when testing, compares it with the option a distilled
+	 * player would choose in the same state.
+	 */
+	private static class RecordingPlayer extends NeuralNetPlayer
+	{
+		private final Map<Long, int[]> votes;
+		private final DistilledPlayer shadow;
+		private final long[] keys, decisions, agreements;
+		private long netNanos, distilledNanos;
+		private boolean deciding;
+		
+		/**
+		 * Creates a new recording player.
+		 *
+		 * @param nn The neural network to play with.
+		 * @param votes The map to record chosen options in, or {@code null}
+		 * if not recording.
+		 * @param policy The policy to compare decisions against, or
+		 * {@code null} if not testing.
+		 */
+		RecordingPlayer(NeuralNet nn, Map<Long, int[]> votes,
+				DistilledPolicy policy)
+		{
+			super(nn);
+			this.votes = votes;
+			this.shadow = policy == null ? null : new DistilledPlayer(policy);
+			this.keys = new long[DistilledPolicy.NUM_LEVELS];
+			this.decisions = new long[4];
+			this.agreements = new long[4];
+			this.netNanos = 0;
+			this.distilledNanos = 0;
+			this.deciding = false;
+		}
+		
+		/**
+		 * Copies this player's state to the shadow distilled player, so that it
+		 * makes the decision this player is about to make.
+		 */
+		private void syncShadow()
+		{
+			this.shadow.setGame(this.getGame());
+			this.shadow.setPlayerNum(this.getPlayerNum());
+			this.shadow.setScore(this.getScore());
+			this.shadow.setEarnedSpins(this.getEarnedSpins());
+			this.shadow.setPassedSpins(this.getPassedSpins());
+			this.shadow.setWhammies(this.getWhammies());
+		}
+		
+		/**
+		 * Records the option chosen in a decision.
+		 *
+		 * @param type The decision type.
+		 * @param hasKeys Whether the decision's keys could be computed.
+		 * @param option The index of the option chosen by the neural network.
+		 * @param distilledOption The index of the option chosen by the shadow
+		 * distilled player, if testing.
+		 */
+		private void record(int type, boolean hasKeys, int option,
+				int distilledOption)
+		{
+			if (this.votes != null && hasKeys) {
+				for (long key: this.keys) {
+					this.votes.computeIfAbsent(key, k ->
+							new int[DistilledPolicy.MAX_OPTIONS])[option]++;
+				}
+			}
+			this.decisions[type]++;
+			if (option == distilledOption) {
+				this.agreements[type]++;
+			}
+		}
+		
+		@Override
+		public boolean pressOrPass()
+		{
+			boolean hasKeys = DistilledPolicy.pressOrPassKeys(this, this.keys);
+			long start = System.nanoTime();
+			boolean ret = super.pressOrPass();
+			this.netNanos += System.nanoTime() - start;
+			int distilledOption = -1;
+			if (this.shadow != null) {
+				this.syncShadow();
+				start = System.nanoTime();
+				distilledOption = this.shadow.pressOrPass() ? 0 : 1;
+				this.distilledNanos += System.nanoTime() - start;
+			}
+			this.record(DistilledPolicy.PRESS_OR_PASS, hasKeys, ret ? 0 : 1,
+					distilledOption);
+			return ret;
+		}
+		
+		@Override
+		public Space chooseMoveTarget(List<Space> moveTargets)
+		{
+			List<Space> sorted = new ArrayList<>(moveTargets);
+			boolean hasKeys = DistilledPolicy.moveTargetKeys(this, sorted,
+					this.keys);
+			this.deciding = true;
+			long start = System.nanoTime();
+			Space ret = super.chooseMoveTarget(moveTargets);
+			this.netNanos += System.nanoTime() - start;
+			this.deciding = false;
+			int distilledOption = -1;
+			if (this.shadow != null) {
+				this.syncShadow();
+				start = System.nanoTime();
+				distilledOption = sorted.indexOf(
+						this.shadow.chooseMoveTarget(moveTargets));
+				this.distilledNanos += System.nanoTime() - start;
+			}
+			this.record(DistilledPolicy.MOVE_TARGET, hasKeys,
+					sorted.indexOf(ret), distilledOption);
+			return ret;
+		}
+		
+		@Override
+		public boolean moneyOrLoseWhammy(int amount)
+		{
+			if (this.deciding) {
+				// Evaluating a move target; not a decision in its own right
+				return super.moneyOrLoseWhammy(amount);
+			}
+			boolean hasKeys = DistilledPolicy.moneyOrLoseWhammyKeys(this,
+					amount, this.keys);
+			long start = System.nanoTime();
+			boolean ret = super.moneyOrLoseWhammy(amount);
+			this.netNanos += System.nanoTime() - start;
+			int distilledOption = -1;
+			if (this.shadow != null) {
+				this.syncShadow();
+				start = System.nanoTime();
+				distilledOption = this.shadow.moneyOrLoseWhammy(amount) ? 0 : 1;
+				this.distilledNanos += System.nanoTime() - start;
+			}
+			this.record(DistilledPolicy.MONEY_OR_LOSE_WHAMMY, hasKeys,
+					ret ? 0 : 1, distilledOption);
+			return ret;
+		}
+		
+		@Override
+		public Player choosePassTarget(List<Player> targets)
+		{
+			List<Player> sorted = new ArrayList<>(targets);
+			boolean hasKeys = DistilledPolicy.passTargetKeys(this, sorted,
+					this.keys);
+			long start = System.nanoTime();
+			Player ret = super.choosePassTarget(targets);
+			this.netNanos += System.nanoTime() - start;
+			int distilledOption = -1;
+			if (this.shadow != null) {
+				this.syncShadow();
+				start = System.nanoTime();
+				distilledOption = sorted.indexOf(
+						this.shadow.choosePassTarget(targets));
+				this.distilledNanos += System.nanoTime() - start;
+			}
+			this.record(DistilledPolicy.PASS_TARGET, hasKeys,
+					sorted.indexOf(ret), distilledOption);
+			return ret;
+		}
+	}
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private PolicyDistiller()
+	{
+	}
+	
+	/**
+	 * Plays one game on {@link #BOARDS} between the passed-in players, rotated
+	 * by the passed-in number of seats, and returns the winners. Before the
+	 * game, any "Double Your $$ + One Spin" removed by an earlier game is put
+	 * back in play.
+	 *
+	 * @param competitors The three players, which are not reordered.
+	 * @param rotation The number of seats to rotate the players by.
+	 * @return The winners of the game.
+	 */
+	private static List<Player> playGame(Player[] competitors, int rotation)
+	{
+		Player[] seats = new Player[competitors.length];
+		for (int j = 0; j < seats.length; j++) {
+			seats[(rotation + j) % seats.length] = competitors[j];
+		}
+		for (Board b: BOARDS) {
+			b.restoreDoubles();
+		}
+		return new Game(seats, BOARDS).play(false);
+	}
+	
+	/**
+	 * Plays sample games with the passed-in neural network and distills its
+	 * decisions into a policy. Even-numbered games are played against two
+	 * heuristic players, with the network taking each seat equally often, and
+	 * odd-numbered games against itself.
+	 *
+	 * @param nn The neural network to distill.
+	 * @param numGames The number of games to sample decisions from.
+	 * @param printStatus If {@code true}, displays the progress on the
+	 * console.
+	 * @return The distilled policy.
+	 */
+	public static DistilledPolicy distill(NeuralNet nn, int numGames,
+			boolean printStatus)
+	{
+		Map<Long, int[]> votes = new HashMap<>();
+		Player[] vsHeuristic = {
+				new RecordingPlayer(nn, votes, null), new HeuristicPlayer(),
+				new HeuristicPlayer()
+		};
+		Player[] selfPlay = {
+				new RecordingPlayer(nn, votes, null),
+				new RecordingPlayer(nn, votes, null),
+				new RecordingPlayer(nn, votes, null)
+		};
+		ProgressReporter progress = new ProgressReporter("Sampling", "games",
+				numGames, 0, printStatus);
+		for (int i = 0; i < numGames; i++) {
+			if (i % 2 == 0) {
+				playGame(vsHeuristic, i / 2);
+			} else {
+				playGame(selfPlay, 0);
+			}
+			progress.increment();
+		}
+		progress.close();
+		return new DistilledPolicy(votes);
+	}
+	
+	/**
+	 * Returns the proportion of games the passed-in player wins against two
+	 * heuristic players.
+	 *
+	 * @param player The player to test.
+	 * @param numGames The number of games to play.
+	 * @return The proportion of games won.
+	 */
+	private static double getWinRate(Player player, int numGames)
+	{
+		Player[] competitors = {
+				player, new HeuristicPlayer(), new HeuristicPlayer()
+		};
+		int wins = 0;
+		for (int i = 0; i < numGames; i++) {
+			// Rotate seats so that the player takes each seat equally often
+			if (playGame(competitors, i).contains(player)) {
+				wins++;
+			}
+		}
+		return (double)wins / numGames;
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 2) {
+			System.out.println("Usage: PolicyDistiller <network file> " +
+					"<policy file> [sample games] [test games]");
+			System.exit(1);
+		}
+		int numSampleGames = DEFAULT_SAMPLE_GAMES;
+		int numTestGames = DEFAULT_TEST_GAMES;
+		try {
+			if (args.length > 2) {
+				numSampleGames = Integer.parseInt(args[2]);
+			}
+			if (args.length > 3) {
+				numTestGames = Integer.parseInt(args[3]);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Game counts must be integers");
+			System.exit(1);
+		}
+		NeuralNet nn = NeuralNet.load(args[0]);
+		// Distill the policy
+		long start = System.nanoTime();
+		DistilledPolicy policy = distill(nn, numSampleGames, true);
+		System.out.printf("Distilled %1$,d table entries from %2$,d games " +
+				"in %3$.1f s\n", policy.size(), numSampleGames,
+				(System.nanoTime() - start) / 1e9);
+		try {
+			policy.export(args[1]);
+		} catch (IOException e) {
+			System.out.println("Error writing to file: " + e);
+			System.exit(1);
+		}
+		// Test agreement on fresh games against heuristic players
+		RecordingPlayer tester = new RecordingPlayer(nn, null, policy);
+		Player[] competitors = {
+				tester, new HeuristicPlayer(), new HeuristicPlayer()
+		};
+		for (int i = 0; i < numTestGames; i++) {
+			playGame(competitors, i);
+		}
+		System.out.printf("Agreement with the neural network over %1$,d " +
+				"test games:\n", numTestGames);
+		long totalDecisions = 0, totalAgreements = 0;
+		for (int i = 0; i < TYPE_NAMES.length; i++) {
+			totalDecisions += tester.decisions[i];
+			totalAgreements += tester.agreements[i];
+			System.out.printf("  %1$-22s %2$7.3f%% of %3$,d decisions\n",
+					TYPE_NAMES[i] + ':', 100.0 * tester.agreements[i] /
+					Math.max(tester.decisions[i], 1), tester.decisions[i]);
+		}
+		System.out.printf("  %1$-22s %2$7.3f%% of %3$,d decisions " +
+				"(%4$.3f%% fell back on the heuristic strategy)\n",
+				"Overall:", 100.0 * totalAgreements / Math.max(totalDecisions,
+				1), totalDecisions, 100.0 * tester.shadow.getNumFallbacks() /
+				Math.max(tester.shadow.getNumDecisions(), 1));
+		double netMicros = tester.netNanos / 1e3 / Math.max(totalDecisions, 1);
+		double distilledMicros = tester.distilledNanos / 1e3 /
+				Math.max(totalDecisions, 1);
+		System.out.printf("Mean decision time: neural network %1$.3f us, " +
+				"distilled %2$.3f us (%3$.1fx faster)\n", netMicros,
+				distilledMicros, netMicros / distilledMicros);
+		// Compare strength and game throughput
+		start = System.nanoTime();
+		double netWinRate = getWinRate(new NeuralNetPlayer(nn), numTestGames);
+		double netSeconds = (System.nanoTime() - start) / 1e9;
+		start = System.nanoTime();
+		double distilledWinRate = getWinRate(new DistilledPlayer(policy),
+				numTestGames);
+		double distilledSeconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Win rate against two heuristic players: neural " +
+				"network %1$.3f%% (%2$,.0f games/s), distilled %3$.3f%% " +
+				"(%4$,.0f games/s)\n", 100 * netWinRate,
+				numTestGames / netSeconds, 100 * distilledWinRate,
+				numTestGames / distilledSeconds);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,281 @@
+package ml;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Class that stores the weights of a population of neural networks in a single
+ * contiguous array, one row per genome.
+ * <p>
+ * Genomes are referred to by row index. Rather than creating a new neural
+ * network for every offspring, mutated offspring are written in place over the
+ * rows of genomes that did not survive. To play games, a genome is loaded into
+ * a reusable neural network with {@link #load(int, NeuralNet)}.
+ * <p>
+ * Weights may be stored in double or single precision. Single precision halves
+ * the size of the arena; weights are widened to double precision when loaded.
+ *
+ * @author Archer Murray
+ */
+public class PopulationArena
+{
+	private final NeuralNet template;
+	private final int numRows, rowLength;
+	private final double[] doubleWeights;
+	private final float[] floatWeights;
+	private final double[] weightScales;
+	
+	/**
+	 * Creates a new arena with the passed-in number of rows, each holding a
+	 * neural network shaped like the passed-in template. All rows are
+	 * initialized to zero.
+	 *
+	 * @param template A neural network with the desired shape.
+	 * @param numRows The number of genomes the arena can hold.
+	 * @param singlePrecision If {@code true}, weights are stored as
+	 * {@code float}s; otherwise, they are stored as {@code double}s.
+	 */
+	public PopulationArena(NeuralNet template, int numRows,
+			boolean singlePrecision)
+	{
+		this.template = template.copy();
+		this.numRows = numRows;
+		this.rowLength = template.getNumWeights();
+		if (singlePrecision) {
+			this.doubleWeights = null;
+			this.floatWeights = new float[numRows * this.rowLength];
+		} else {
+			this.doubleWeights = new double[numRows * this.rowLength];
+			this.floatWeights = null;
+		}
+		this.weightScales = template.getWeightScales();
+	}
+	
+	/**
+	 * Creates an arena read from the passed-in binary input, as written by
+	 * {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the arena from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public PopulationArena(DataInput in) throws IOException
+	{
+		this(NeuralNet.read(in), in.readInt(), in.readBoolean());
+		if (this.doubleWeights != null) {
+			for (int i = 0; i < this.doubleWeights.length; i++) {
+				this.doubleWeights[i] = in.readDouble();
+			}
+		} else {
+			for (int i = 0; i < this.floatWeights.length; i++) {
+				this.floatWeights[i] = in.readFloat();
+			}
+		}
+	}
+	
+	/**
+	 * Creates a copy of the passed-in arena.
+	 *
+	 * @param other The arena to copy.
+	 */
+	public PopulationArena(PopulationArena other)
+	{
+		this.template = other.template.copy();
+		this.numRows = other.numRows;
+		this.rowLength = other.rowLength;
+		this.doubleWeights = other.doubleWeights == null ? null :
+				other.doubleWeights.clone();
+		this.floatWeights = other.floatWeights == null ? null :
+				other.floatWeights.clone();
+		this.weightScales = other.weightScales;
+	}
+	
+	/**
+	 * Writes this arena to the passed-in binary output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		this.template.write(out);
+		out.writeInt(this.numRows);
+		out.writeBoolean(this.isSinglePrecision());
+		if (this.doubleWeights != null) {
+			for (double w: this.doubleWeights) {
+				out.writeDouble(w);
+			}
+		} else {
+			for (float w: this.floatWeights) {
+				out.writeFloat(w);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of genomes this arena can hold.
+	 *
+	 * @return The number of genomes this arena can hold.
+	 */
+	public int getNumRows()
+	{
+		return this.numRows;
+	}
+	
+	/**
+	 * Returns {@code true} if this arena stores weights in single precision
+	 * and {@code false} otherwise.
+	 *
+	 * @return {@code true} if this arena stores weights in single precision
+	 * and {@code false} otherwise.
+	 */
+	public boolean isSinglePrecision()
+	{
+		return this.floatWeights != null;
+	}
+	
+	/**
+	 * Returns a new neural network with the same shape as the genomes in this
+	 * arena, suitable for passing to {@link #load(int, NeuralNet)}.
+	 *
+	 * @return A new neural network.
+	 */
+	public NeuralNet newNeuralNet()
+	{
+		return this.template.copy();
+	}
+	
+	/**
+	 * Fills the passed-in row with random initial weights, using the same
+	 * distribution as a newly constructed neural network.
+	 *
+	 * @param row The row to initialize.
+	 * @param rng The random number generator to draw weights from.
+	 */
+	public void randomize(int row, Random rng)
+	{
+		int offset = row * this.rowLength;
+		for (int i = 0; i < this.rowLength; i++) {
+			double w = rng.nextGaussian() * this.weightScales[i];
+			if (this.doubleWeights != null) {
+				this.doubleWeights[offset + i] = w;
+			} else {
+				this.floatWeights[offset + i] = (float)w;
+			}
+		}
+	}
+	
+	/**
+	 * Loads the genome in the passed-in row into the passed-in neural network,
+	 * which must have the same shape as the genomes in this arena.
+	 *
+	 * @param row The row to load.
+	 * @param net The neural network to load the genome into.
+	 */
+	public void load(int row, NeuralNet net)
+	{
+		if (this.doubleWeights != null) {
+			net.loadWeights(this.doubleWeights, row * this.rowLength);
+		} else {
+			net.loadWeights(this.floatWeights, row * this.rowLength);
+		}
+	}
+	
+	/**
+	 * Stores the weights of the passed-in neural network, which must have the
+	 * same shape as the genomes in this arena, in the passed-in row.
+	 *
+	 * @param row The row to store the genome in.
+	 * @param net The neural network to store.
+	 */
+	public void store(int row, NeuralNet net)
+	{
+		if (this.doubleWeights != null) {
+			net.storeWeights(this.doubleWeights, row * this.rowLength);
+		} else {
+			net.storeWeights(this.floatWeights, row * this.rowLength);
+		}
+	}
+	
+	/**
+	 * Returns a new neural network containing the genome in the passed-in row.
+	 *
+	 * @param row The row to copy.
+	 * @return A new neural network containing the genome.
+	 */
+	public NeuralNet getNeuralNet(int row)
+	{
+		NeuralNet ret = this.newNeuralNet();
+		this.load(row, ret);
+		return ret;
+	}
+	
+	/**
+	 * Writes a mutated copy of the genome in one row over the genome in
+	 * another row, with a default mutation rate causing the square root of the
+	 * total number of weights to be mutated on average.
+	 *
+	 * @param src The row of the parent genome.
+	 * @param dst The row to write the offspring to.
+	 * @param rng The random number generator to draw mutations from.
+	 */
+	public void mutate(int src, int dst, Random rng)
+	{
+		this.mutate(src, dst, 1 / Math.sqrt(this.rowLength), rng);
+	}
+	
+	/**
+	 * Writes a mutated copy of the genome in one row over the genome in
+	 * another row, with the passed-in mutation rate.
+	 * <p>
+	 * Rather than drawing a random number for every weight, the gap until the
+	 * next mutated weight is drawn from the geometric distribution, which
+	 * mutates each weight with the same probability.
+	 *
+	 * @param src The row of the parent genome.
+	 * @param dst The row to write the offspring to.
+	 * @param mutationRate The probability that any given weight will be
+	 * mutated.
+	 * @param rng The random number generator to draw mutations from.
+	 */
+	public void mutate(int src, int dst, double mutationRate, Random rng)
+	{
+		int srcOffset = src * this.rowLength;
+		int dstOffset = dst * this.rowLength;
+		if (this.doubleWeights != null) {
+			System.arraycopy(this.doubleWeights, srcOffset, this.doubleWeights,
+					dstOffset, this.rowLength);
+		} else {
+			System.arraycopy(this.floatWeights, srcOffset, this.floatWeights,
+					dstOffset, this.rowLength);
+		}
+		if (mutationRate <= 0) {
+			return;
+		}
+		double logKeep = Math.log1p(-mutationRate);
+		int i = -1;
+		while (true) {
+			// Skip ahead to the next mutated weight
+			if (mutationRate >= 1) {
+				i++;
+			} else {
+				double skip = Math.floor(Math.log(1 - rng.nextDouble()) /
+						logKeep);
+				if (skip >= this.rowLength - i - 1) {
+					break;
+				}
+				i += (int)skip + 1;
+			}
+			if (i >= this.rowLength) {
+				break;
+			}
+			double mutAmt = rng.nextGaussian() * this.weightScales[i];
+			if (this.doubleWeights != null) {
+				this.doubleWeights[dstOffset + i] += mutAmt;
+			} else {
+				this.floatWeights[dstOffset + i] += (float)mutAmt;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,494 @@
+package ml;
+
+import game.Board;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class that keeps Glicko ratings for exported neural networks and the
+ * heuristic strategy, and plays matches between them where the ratings are
+ * uncertain.
+ * <p>
+ * Every registered player has a rating, a rating deviation (RD), and a count
+ * of the games it has played. The heuristic strategy is the anchor of the
+ * scale: its rating is fixed at {@value #INITIAL_RATING} with no deviation,
+ * so a neural network's rating says how it compares to the heuristic
+ * strategy. New players start at {@value #INITIAL_RATING} with a deviation
+ * of {@value #INITIAL_RD}. Each round, the players whose deviation is above
+ * {@value #TARGET_RD} each play a match of {@value #MATCH_GAMES} games against
+ * the two other players whose ratings are closest to theirs, and every player
+ * in the match is updated from its results. Players whose deviation is at the
+ * target play only as opponents, so adding a player to a settled league costs
+ * a few matches rather than a new evaluation of every player.
+ * <p>
+ * A three-player game is counted as one result between each pair of its
+ * players: a win for whichever of the two won the game, or a draw if the
+ * third player won it. Since these results are correlated, deviations shrink
+ * somewhat faster than they would for independent two-player games.
+ * <p>
+ * Players are identified by file name, and each entry also records a hash of
+ * the file's contents when it was registered. A file that has been
+ * overwritten with a different network since is a new player, and is
+ * registered again with a new rating.
+ * <p>
+ * The ratings are stored in "league.bin". Running this class registers every
+ * neural network exported by a learner in the working directory, along with
+ * any files passed as arguments, plays matches until every deviation is at
+ * most {@value #TARGET_RD}, and prints the ratings. Matches are played on
+ * worker processes if the {@value MatchCoordinator#WORKERS_PROPERTY} system
+ * property is set.
+ *
+ * @author Archer Murray
+ */
+public class RatingLeague
+{
+	/**
+	 * The file that the ratings are stored in.
+	 */
+	public static final String LEAGUE_FN = "league.bin";
+	/**
+	 * The name of the heuristic strategy in the league.
+	 */
+	public static final String HEURISTIC = "heuristic";
+	/**
+	 * The rating of new players, and the fixed rating of the heuristic
+	 * strategy.
+	 */
+	public static final double INITIAL_RATING = 1500;
+	/**
+	 * The rating deviation of new players.
+	 */
+	public static final double INITIAL_RD = 350;
+	/**
+	 * The rating deviation above which players are scheduled for matches.
+	 */
+	public static final double TARGET_RD = 25;
+	/**
+	 * The number of games in a match.
+	 */
+	public static final int MATCH_GAMES = 100;
+	/**
+	 * The pattern matched by the names of files exported by learners.
+	 */
+	private static final String EXPORT_PATTERN = "(ga|gah|td|island)_net_\\d+";
+	/**
+	 * The Glicko scale constant, ln(10) / 400.
+	 */
+	private static final double Q = Math.log(10) / 400;
+	
+	private final Map<String, Entry> entries;
+	// Loaded neural networks, by the hash of the file they were loaded from
+	private final Map<Long, NeuralNet> nets;
+	private final Random rng;
+	
+	/**
+	 * Class holding the rating of one player.
+	 */
+	private static class Entry
+	{
+		final String name;
+		final long hash;
+		double rating, rd;
+		long games;
+		
+		/**
+		 * Creates a new entry with the passed-in name, file hash, rating,
+		 * deviation, and number of games.
+		 *
+		 * @param name The name of the player.
+		 * @param hash The hash of the player's file, or 0 for the heuristic
+		 * strategy.
+		 * @param rating The rating.
+		 * @param rd The rating deviation.
+		 * @param games The number of games played.
+		 */
+		public Entry(String name, long hash, double rating, double rd,
+				long games)
+		{
+			this.name = name;
+			this.hash = hash;
+			this.rating = rating;
+			this.rd = rd;
+			this.games = games;
+		}
+	}
+	
+	/**
+	 * Creates a new league containing only the heuristic strategy.
+	 */
+	public RatingLeague()
+	{
+		this.entries = new LinkedHashMap<>();
+		this.nets = new HashMap<>();
+		this.rng = new Random();
+		this.entries.put(HEURISTIC, new Entry(HEURISTIC, 0, INITIAL_RATING, 0,
+				0));
+	}
+	
+	/**
+	 * Creates a league with the ratings read from the passed-in input, as
+	 * written by the snapshot returned by {@link #snapshot()}.
+	 *
+	 * @param in The input to read the ratings from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public RatingLeague(DataInput in) throws IOException
+	{
+		this.entries = new LinkedHashMap<>();
+		this.nets = new HashMap<>();
+		this.rng = new Random();
+		int numEntries = in.readInt();
+		for (int i = 0; i < numEntries; i++) {
+			Entry e = new Entry(in.readUTF(), in.readLong(), in.readDouble(),
+					in.readDouble(), in.readLong());
+			this.entries.put(e.name, e);
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the ratings that can be written to a checkpoint
+	 * while this league continues to play.
+	 *
+	 * @return The snapshot.
+	 */
+	public Checkpointer.StateWriter snapshot()
+	{
+		List<Entry> copies = new ArrayList<>();
+		for (Entry e: this.entries.values()) {
+			copies.add(new Entry(e.name, e.hash, e.rating, e.rd, e.games));
+		}
+		return out -> {
+			out.writeInt(copies.size());
+			for (Entry e: copies) {
+				out.writeUTF(e.name);
+				out.writeLong(e.hash);
+				out.writeDouble(e.rating);
+				out.writeDouble(e.rd);
+				out.writeLong(e.games);
+			}
+		};
+	}
+	
+	/**
+	 * Returns a hash of the contents of the passed-in file: the first eight
+	 * bytes of its SHA-256 digest.
+	 *
+	 * @param fn The file.
+	 * @return The hash of the file.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static long hashFile(String fn) throws IOException
+	{
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+					Files.readAllBytes(Paths.get(fn)));
+			return ByteBuffer.wrap(digest).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+	
+	/**
+	 * Registers the neural network exported to the passed-in file, if it is
+	 * not already in this league. If the file is in this league but its
+	 * contents have changed since it was registered, it holds a different
+	 * network, so its rating is replaced by a new player's rating.
+	 *
+	 * @param fn The file the neural network was exported to.
+	 * @return {@code true} if the neural network was newly registered.
+	 * @throws IOException If an I/O error occurs reading the file.
+	 */
+	public boolean register(String fn) throws IOException
+	{
+		long hash = hashFile(fn);
+		Entry old = this.entries.get(fn);
+		if (old != null && old.hash == hash) {
+			return false;
+		}
+		this.entries.put(fn, new Entry(fn, hash, INITIAL_RATING, INITIAL_RD,
+				0));
+		return true;
+	}
+	
+	/**
+	 * Returns whether the passed-in player can play matches: the heuristic
+	 * strategy always can, and a neural network can if its file still exists.
+	 *
+	 * @param e The player.
+	 * @return Whether the player can play matches.
+	 */
+	private boolean isPlayable(Entry e)
+	{
+		return e.name.equals(HEURISTIC) || new File(e.name).isFile();
+	}
+	
+	/**
+	 * Returns the neural network of the passed-in player, loading it the first
+	 * time it is needed. Networks are cached by the hash of their file, so a
+	 * file registered again with new contents is loaded again.
+	 *
+	 * @param e The player, which must not be the heuristic strategy.
+	 * @return The neural network.
+	 */
+	private NeuralNet getNeuralNet(Entry e)
+	{
+		return this.nets.computeIfAbsent(e.hash, h -> NeuralNet.load(e.name));
+	}
+	
+	/**
+	 * Returns the Glicko g function of the passed-in rating deviation, which
+	 * discounts results against opponents with uncertain ratings.
+	 *
+	 * @param rd The rating deviation.
+	 * @return The value of the g function.
+	 */
+	private static double g(double rd)
+	{
+		return 1 / Math.sqrt(1 + 3 * Q * Q * rd * rd / (Math.PI * Math.PI));
+	}
+	
+	/**
+	 * Updates the ratings of the players of a match from its results.
+	 * <p>
+	 * Each player is updated as if the match were one Glicko rating period,
+	 * using its opponents' ratings from before the match.
+	 *
+	 * @param seats The player in each of the three seats. The heuristic
+	 * strategy may fill more than one seat.
+	 * @param wins The number of games won by the player in each seat.
+	 * @param numGames The number of games in the match.
+	 */
+	private static void update(Entry[] seats, double[] wins, int numGames)
+	{
+		Map<Entry, double[]> sums = new LinkedHashMap<>();
+		for (int a = 0; a < 3; a++) {
+			for (int b = 0; b < 3; b++) {
+				if (seats[a] == seats[b]) {
+					continue;
+				}
+				// Games won by the third player are draws between these two
+				double draws = Math.max(0, numGames - wins[a] - wins[b]);
+				double pairGames = wins[a] + wins[b] + draws;
+				Entry opp = seats[b];
+				double gOpp = g(opp.rd);
+				double expected = 1 / (1 + Math.pow(10, -gOpp *
+						(seats[a].rating - opp.rating) / 400));
+				// Sum of g^2 E (1 - E), then sum of g (s - E)
+				double[] sum = sums.computeIfAbsent(seats[a],
+						e -> new double[2]);
+				sum[0] += gOpp * gOpp * expected * (1 - expected) * pairGames;
+				sum[1] += gOpp * (wins[a] + draws / 2 - expected * pairGames);
+			}
+		}
+		for (Map.Entry<Entry, double[]> e: sums.entrySet()) {
+			Entry player = e.getKey();
+			player.games += numGames;
+			if (player.name.equals(HEURISTIC)) {
+				continue;
+			}
+			double precision = 1 / (player.rd * player.rd) +
+					Q * Q * e.getValue()[0];
+			player.rating += Q / precision * e.getValue()[1];
+			player.rd = Math.sqrt(1 / precision);
+		}
+	}
+	
+	/**
+	 * Plays one round of matches, one for each of up to the passed-in number
+	 * of players whose rating deviation is above {@value #TARGET_RD}, most
+	 * uncertain first, and updates the ratings.
+	 *
+	 * @param maxMatches The most matches to play.
+	 * @param coordinator The coordinator to play the matches on, or
+	 * {@code null} to play them on this thread.
+	 * @param boards The boards to use when playing on this thread.
+	 * @return The number of games played, which is 0 if every rating is
+	 * settled.
+	 */
+	public int playRound(int maxMatches, MatchCoordinator coordinator,
+			Board[] boards)
+	{
+		List<Entry> playable = new ArrayList<>();
+		for (Entry e: this.entries.values()) {
+			if (this.isPlayable(e)) {
+				playable.add(e);
+			}
+		}
+		if (playable.size() < 2) {
+			return 0;
+		}
+		List<Entry> uncertain = new ArrayList<>();
+		for (Entry e: playable) {
+			if (e.rd > TARGET_RD) {
+				uncertain.add(e);
+			}
+		}
+		uncertain.sort(Comparator.comparingDouble((Entry e) -> -e.rd));
+		List<Entry[]> matches = new ArrayList<>();
+		List<MatchUnit> units = new ArrayList<>();
+		for (Entry focus: uncertain.subList(0, Math.min(maxMatches,
+				uncertain.size()))) {
+			// The opponents are the players with the closest ratings, and the
+			// heuristic strategy fills any seats left over
+			List<Entry> others = new ArrayList<>(playable);
+			others.remove(focus);
+			others.sort(Comparator.comparingDouble(e -> Math.abs(e.rating -
+					focus.rating)));
+			Entry[] seats = {focus, others.get(0), others.size() > 1 ?
+					others.get(1) : this.entries.get(HEURISTIC)};
+			// Put the neural networks first, as in a match unit
+			Entry[] ordered = new Entry[3];
+			List<NeuralNet> unitNets = new ArrayList<>();
+			int k = 0;
+			for (Entry e: seats) {
+				if (!e.name.equals(HEURISTIC)) {
+					ordered[k++] = e;
+					unitNets.add(this.getNeuralNet(e));
+				}
+			}
+			while (k < 3) {
+				ordered[k++] = this.entries.get(HEURISTIC);
+			}
+			matches.add(ordered);
+			units.add(new MatchUnit(unitNets.toArray(new NeuralNet[0]),
+					boards, this.rng.nextLong(), MATCH_GAMES));
+		}
+		if (units.isEmpty()) {
+			return 0;
+		}
+		int[][] results;
+		if (coordinator != null) {
+			results = coordinator.play(units);
+		} else {
+			results = new int[units.size()][];
+			for (int i = 0; i < units.size(); i++) {
+				results[i] = units.get(i).play(boards);
+			}
+		}
+		for (int i = 0; i < matches.size(); i++) {
+			// The heuristic seats share the games the networks did not win
+			int numNets = units.get(i).getNumNets();
+			double[] wins = new double[3];
+			double heuristicWins = MATCH_GAMES;
+			for (int k = 0; k < numNets; k++) {
+				wins[k] = results[i][k];
+				heuristicWins -= results[i][k];
+			}
+			for (int k = numNets; k < 3; k++) {
+				wins[k] = Math.max(0, heuristicWins) / (3 - numNets);
+			}
+			update(matches.get(i), wins, MATCH_GAMES);
+		}
+		return MATCH_GAMES * units.size();
+	}
+	
+	/**
+	 * Returns the number of playable players whose rating deviation is above
+	 * {@value #TARGET_RD}.
+	 *
+	 * @return The number of unsettled players.
+	 */
+	public int getNumUnsettled()
+	{
+		int ret = 0;
+		for (Entry e: this.entries.values()) {
+			if (e.rd > TARGET_RD && this.isPlayable(e)) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Prints the ratings of every player to the console, best first.
+	 */
+	public void print()
+	{
+		List<Entry> sorted = new ArrayList<>(this.entries.values());
+		sorted.sort(Comparator.comparingDouble((Entry e) -> -e.rating));
+		System.out.printf("%-24s %8s %6s %9s\n", "Player", "Rating", "RD",
+				"Games");
+		for (Entry e: sorted) {
+			System.out.printf("%-24s %8.1f %6.1f %9d\n", e.name, e.rating,
+					e.rd, e.games);
+		}
+	}
+	
+	public static void main(String[] args)
+	{
+		RatingLeague league = new RatingLeague();
+		if (Checkpointer.exists(LEAGUE_FN)) {
+			try (DataInputStream in = Checkpointer.open(LEAGUE_FN)) {
+				league = new RatingLeague(in);
+			} catch (IOException e) {
+				System.out.println("Error reading " + LEAGUE_FN + ": " + e);
+				System.exit(1);
+			}
+		}
+		// Register new exports and the passed-in files
+		List<String> fns = new ArrayList<>();
+		String[] names = new File(".").list();
+		if (names != null) {
+			for (String name: names) {
+				if (name.matches(EXPORT_PATTERN)) {
+					fns.add(name);
+				}
+			}
+		}
+		for (String arg: args) {
+			if (!new File(arg).isFile()) {
+				System.out.println("No such file: " + arg);
+				System.exit(1);
+			}
+			fns.add(arg);
+		}
+		int numNew = 0;
+		for (String fn: fns) {
+			try {
+				if (league.register(fn)) {
+					numNew++;
+				}
+			} catch (IOException e) {
+				System.out.println("Error reading " + fn + ": " + e);
+				System.exit(1);
+			}
+		}
+		System.out.println("Registered " + numNew + " new or changed players.");
+		// Play matches until every rating is settled
+		MatchCoordinator coordinator = MatchCoordinator.fromSystemProperty();
+		int maxMatches = coordinator == null ? 1 : Integer.getInteger(
+				MatchCoordinator.WORKERS_PROPERTY);
+		Board[] boards = {new Board("board1.txt"), new Board("board2.txt")};
+		Checkpointer checkpointer = new Checkpointer();
+		long totalGames = 0;
+		int games;
+		while ((games = league.playRound(maxMatches, coordinator, boards)) >
+				0) {
+			totalGames += games;
+			checkpointer.save(LEAGUE_FN, league.snapshot());
+			System.out.printf("%d games played, %d players unsettled\n",
+					totalGames, league.getNumUnsettled());
+		}
+		checkpointer.save(LEAGUE_FN, league.snapshot());
+		checkpointer.close();
+		if (coordinator != null) {
+			coordinator.close();
+		}
+		league.print();
+	}
+}
\ No newline at end of file
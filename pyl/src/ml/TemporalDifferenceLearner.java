@@ -1,14 +1,16 @@
 package ml;
 
 import game.Board;
-import game.Game;
 import game.HeuristicPlayer;
 import game.Player;
+import metrics.Metrics;
+import metrics.ProgressReporter;
 
+import java.io.DataInput;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 /**
@@ -26,42 +28,140 @@ public class TemporalDifferenceLearner
 			new Board("board1.txt"), new Board("board2.txt")
 	};
 	
+	private final Random rng, evalRng;
+	private final Board[] boards;
 	private final TemporalDifferencePlayer[] players;
 	private long numGames;
+	private ProgressReporter trainingProgress;
 	
 	/**
 	 * Creates a new temporal difference learner.
 	 */
 	public TemporalDifferenceLearner()
 	{
-		this.players = new TemporalDifferencePlayer[]{
-				new TemporalDifferencePlayer(), new TemporalDifferencePlayer(),
-				new TemporalDifferencePlayer()
-		};
+		this(BOARDS, new Random());
+	}
+	
+	/**
+	 * Creates a new temporal difference learner with the passed-in boards and
+	 * random number generator, and with hidden layer sizes given by the
+	 * {@value NeuralNet#HIDDEN_LAYERS_PROPERTY} system property.
+	 *
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize the players'
+	 * neural networks and to seed every game.
+	 */
+	public TemporalDifferenceLearner(Board[] boards, Random rng)
+	{
+		this(NeuralNet.hiddenLayerSizesFromSystemProperty(), boards, rng);
+	}
+	
+	/**
+	 * Creates a new temporal difference learner with the passed-in hidden
+	 * layer sizes, boards, and random number generator.
+	 *
+	 * @param hiddenLayerSizes The number of nodes in each hidden layer of the
+	 * players' neural networks.
+	 * @param boards The boards to use in the games.
+	 * @param rng The random number generator used to initialize the players'
+	 * neural networks and to seed every game.
+	 */
+	public TemporalDifferenceLearner(int[] hiddenLayerSizes, Board[] boards,
+			Random rng)
+	{
+		this.rng = rng;
+		this.boards = boards;
+		this.players = new TemporalDifferencePlayer[3];
+		for (int i = 0; i < 3; i++) {
+			this.players[i] = new TemporalDifferencePlayer(NeuralNet.create(
+					this.rng, hiddenLayerSizes));
+		}
+		this.evalRng = new Random(this.rng.nextLong());
 		this.numGames = 0;
+		this.trainingProgress = null;
+	}
+	
+	/**
+	 * Creates a temporal difference learner with the players, game count,
+	 * random number generator states, and boards read from the passed-in
+	 * checkpoint, as written by the snapshot returned by {@link #snapshot()}.
+	 * Since every game is seeded from the random number generators, the
+	 * resumed learner plays the same games as the learner that wrote the
+	 * checkpoint would have.
+	 *
+	 * @param in The input to read the checkpoint from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public TemporalDifferenceLearner(DataInput in) throws IOException
+	{
+		this.numGames = in.readLong();
+		this.trainingProgress = null;
+		this.rng = Checkpointer.readRandom(in);
+		this.evalRng = Checkpointer.readRandom(in);
+		this.boards = Checkpointer.readBoards(in);
+		this.players = new TemporalDifferencePlayer[3];
+		for (int i = 0; i < 3; i++) {
+			this.players[i] = new TemporalDifferencePlayer(in);
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the players, game count, random number generator
+	 * states, and boards that can be written to a checkpoint while this
+	 * learner continues to run.
+	 * <p>
+	 * This method must not be called while a game is being played.
+	 *
+	 * @return The snapshot.
+	 */
+	public Checkpointer.StateWriter snapshot()
+	{
+		long games = this.numGames;
+		Random rngCopy = Checkpointer.copyRandom(this.rng);
+		Random evalRngCopy = Checkpointer.copyRandom(this.evalRng);
+		Board[] boardsRef = this.boards;
+		TemporalDifferencePlayer[] copies = Arrays.stream(this.players)
+				.map(TemporalDifferencePlayer::new)
+				.toArray(TemporalDifferencePlayer[]::new);
+		return out -> {
+			out.writeLong(games);
+			Checkpointer.writeRandom(rngCopy, out);
+			Checkpointer.writeRandom(evalRngCopy, out);
+			Checkpointer.writeBoards(boardsRef, out);
+			for (TemporalDifferencePlayer p: copies) {
+				p.write(out);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the total number of temporal difference updates made by this
+	 * learner's players.
+	 *
+	 * @return The total number of updates made.
+	 */
+	public long getNumUpdates()
+	{
+		return Arrays.stream(this.players)
+				.mapToLong(TemporalDifferencePlayer::getNumUpdates).sum();
 	}
 	
 	/**
 	 * Plays a game between the temporal difference players to help them learn.
 	 *
-	 * @param printStatus If {@code true}, prints the total number of games
-	 * played to the console.
+	 * @param printStatus If {@code true}, displays the total number of games
+	 * played on the console, along with the rate, until the next evaluation.
 	 */
 	public void playGame(boolean printStatus)
 	{
-		if (printStatus) {
-			System.out.printf("\rGames completed: %1$15d", this.numGames);
+		if (printStatus && this.trainingProgress == null) {
+			this.trainingProgress = new ProgressReporter("Games completed",
+					"games", 0, this.numGames, true);
 		}
 		this.numGames++;
-		// Shuffle players
-		List<TemporalDifferencePlayer> playersList = Arrays.asList(
-				this.players);
-		Collections.shuffle(playersList);
-		for (int i = 0; i < 3; i++) {
-			this.players[i] = playersList.get(i);
-		}
-		// Play game
-		List<Player> winners = new Game(this.players, BOARDS).play(false);
+		// Play game in shuffled seats
+		List<Player> winners = MatchUnit.playGame(this.players, this.boards,
+				this.rng);
 		// Learn based on final evaluations
 		for (int i = 0; i < 3; i++) {
 			boolean isWinner = false;
@@ -73,12 +173,19 @@ public class TemporalDifferenceLearner
 			}
 			this.players[i].learn(isWinner ? 1.0 : 0.0);
 		}
+		if (this.trainingProgress != null) {
+			this.trainingProgress.increment();
+		}
 	}
 	
 	/**
 	 * Evaluates the learning progress by determining the players' win rate
 	 * against two heuristic players.
 	 * <p>
+	 * The games are seeded from a random number generator kept apart from the
+	 * one that seeds the training games, so when evaluations happen does not
+	 * change the later training games.
+	 * <p>
 	 * Also, writes the top-performing neural network in the population to the
 	 * file "td_net_[game_number].txt".
 	 *
@@ -88,27 +195,30 @@ public class TemporalDifferenceLearner
 	 */
 	public double evaluate(boolean printStatus)
 	{
+		long start = System.nanoTime();
+		if (this.trainingProgress != null) {
+			this.trainingProgress.close();
+			this.trainingProgress = null;
+		}
+		ProgressReporter progress = new ProgressReporter("Evaluation", "games",
+				30000, 0, printStatus);
 		int[] winCounts = new int[3];
 		for (int i = 0; i < 3; i++) {
 			Player[] competitors = {
 					new NeuralNetPlayer(this.players[i].getNeuralNet()),
 					new HeuristicPlayer(), new HeuristicPlayer()
 			};
+			Random gameRng = new Random(this.evalRng.nextLong());
 			// Play 10000 games
 			for (int j = 0; j < 10000; j++) {
-				List<Player> gCompList = Arrays.asList(competitors);
-				Collections.shuffle(gCompList);
-				List<Player> winners = new Game(gCompList.toArray(
-						new Player[0]), BOARDS).play(false);
+				List<Player> winners = MatchUnit.playGame(competitors,
+						this.boards, gameRng);
 				// See if the neural net player is a winner
 				if (winners.stream()
 						.anyMatch(p -> p instanceof NeuralNetPlayer)) {
 					winCounts[i]++;
 				}
-				if (printStatus) {
-					System.out.printf("\rEvaluation: %1$6.2f%% complete",
-							(i * 10000.0 + j) / 300);
-				}
+				progress.increment();
 			}
 		}
 		// Export the player with the most wins
@@ -122,9 +232,8 @@ public class TemporalDifferenceLearner
 						System.out.println("Error writing to file: " + e);
 					}
 				});
-		if (printStatus) {
-			System.out.print("\r");
-		}
+		progress.close();
+		Metrics.EVALUATION_TIME.recordSince(start);
 		return Arrays.stream(winCounts).sum() / 30000.0;
 	}
 }
\ No newline at end of file
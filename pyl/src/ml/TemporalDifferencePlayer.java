@@ -1,5 +1,9 @@
 package ml;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Class representing a neural-network-controlled player that trains its neural
  * network using temporal difference (TD) learning.
@@ -11,6 +15,7 @@ public class TemporalDifferencePlayer extends NeuralNetPlayer
 	private final double learningRate;
 	private boolean hasLastState;
 	private double[] lastState;
+	private long numUpdates;
 	
 	/**
 	 * Creates a new temporal difference learning player a random neural network
@@ -52,6 +57,71 @@ public class TemporalDifferencePlayer extends NeuralNetPlayer
 		this.learningRate = learningRate;
 		this.hasLastState = false;
 		this.lastState = new double[33];
+		this.numUpdates = 0;
+	}
+	
+	/**
+	 * Creates a copy of the passed-in temporal difference learning player,
+	 * including a copy of its neural network, its last game state, and its
+	 * number of updates.
+	 *
+	 * @param other The player to copy.
+	 */
+	public TemporalDifferencePlayer(TemporalDifferencePlayer other)
+	{
+		super(other.getNeuralNet().copy());
+		this.learningRate = other.learningRate;
+		this.hasLastState = other.hasLastState;
+		this.lastState = other.lastState.clone();
+		this.numUpdates = other.numUpdates;
+	}
+	
+	/**
+	 * Creates a temporal difference learning player read from the passed-in
+	 * binary input, as written by {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the player from.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public TemporalDifferencePlayer(DataInput in) throws IOException
+	{
+		super(NeuralNet.read(in));
+		this.learningRate = in.readDouble();
+		this.hasLastState = in.readBoolean();
+		this.lastState = new double[33];
+		for (int i = 0; i < 33; i++) {
+			this.lastState[i] = in.readDouble();
+		}
+		this.numUpdates = in.readLong();
+	}
+	
+	/**
+	 * Writes this player's neural network, learning rate, last game state, and
+	 * number of updates to the passed-in binary output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		this.getNeuralNet().write(out);
+		out.writeDouble(this.learningRate);
+		out.writeBoolean(this.hasLastState);
+		for (double v: this.lastState) {
+			out.writeDouble(v);
+		}
+		out.writeLong(this.numUpdates);
+	}
+	
+	/**
+	 * Returns the number of temporal difference updates this player has made
+	 * to its neural network.
+	 *
+	 * @return The number of updates made.
+	 */
+	public long getNumUpdates()
+	{
+		return this.numUpdates;
 	}
 	
 	@Override
@@ -73,6 +143,7 @@ public class TemporalDifferencePlayer extends NeuralNetPlayer
 		if (this.hasLastState) {
 			double diff = this.learningRate * (newEval - oldEval);
 			this.getNeuralNet().gradientDescent(this.lastState, diff);
+			this.numUpdates++;
 		} else {
 			this.hasLastState = true;
 		}
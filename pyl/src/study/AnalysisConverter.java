@@ -0,0 +1,257 @@
+package study;
+
+import game.Game;
+import game.HeuristicPlayer;
+import game.Player;
+import ml.NeuralNet;
+
+import java.io.*;
+
+/**
+ * Class that renders a binary analysis file, as written by an
+ * {@link AnalysisNeuralNetPlayer}, as a text or CSV report.
+ * <p>
+ * The text report describes each evaluated state and decision in order. The
+ * CSV report has one row per evaluated state, holding the neural network input
+ * vector and its evaluation.
+ * <p>
+ * Usage: {@code AnalysisConverter <analysis file> <txt|csv> [report file]}
+ *
+ * @author Archer Murray
+ */
+public final class AnalysisConverter
+{
+	/**
+	 * The heading of each kind of decision in the text report, indexed by kind.
+	 */
+	private static final String[] DECISION_HEADINGS = {
+			"Press or Pass", "Move Target", "Money or Lose Whammy",
+			"Pass Target"
+	};
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private AnalysisConverter()
+	{
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 2 || args.length > 3 || (!args[1].equals("txt") &&
+				!args[1].equals("csv"))) {
+			System.out.println("Usage: AnalysisConverter <analysis file> " +
+					"<txt|csv> [report file]");
+			System.exit(1);
+		}
+		String outFn = args.length > 2 ? args[2] : reportFileName(args[0],
+				args[1]);
+		try {
+			if (args[1].equals("txt")) {
+				toText(args[0], outFn);
+			} else {
+				toCsv(args[0], outFn);
+			}
+		} catch (IOException e) {
+			System.out.println("Error converting file: " + e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Returns the default report file name for the passed-in analysis file:
+	 * the analysis file name with its {@link AnalysisNeuralNetPlayer#EXTENSION}
+	 * replaced by the report's extension.
+	 *
+	 * @param fn The analysis file name.
+	 * @param extension The report's extension, without the dot.
+	 * @return The report file name.
+	 */
+	public static String reportFileName(String fn, String extension)
+	{
+		if (fn.endsWith(AnalysisNeuralNetPlayer.EXTENSION)) {
+			fn = fn.substring(0, fn.length() -
+					AnalysisNeuralNetPlayer.EXTENSION.length());
+		}
+		return fn + '.' + extension;
+	}
+	
+	/**
+	 * Renders the passed-in analysis file as a text report.
+	 *
+	 * @param inFn The analysis file name.
+	 * @param outFn The report file name.
+	 * @throws IOException If an I/O error occurs or the analysis file is
+	 * invalid.
+	 */
+	public static void toText(String inFn, String outFn) throws IOException
+	{
+		try (DataInputStream in = openAnalysis(inFn);
+				PrintWriter out = new PrintWriter(new BufferedWriter(
+						new FileWriter(outFn)))) {
+			AnalysisRecord game = null;
+			boolean afterState = false;
+			for (AnalysisRecord r = readRecord(in); r != null;
+					r = readRecord(in)) {
+				switch (r.getType()) {
+					case AnalysisRecord.GAME:
+						game = r;
+						out.println("*".repeat(40) + "\nGame Analysis\n" +
+								"*".repeat(40));
+						afterState = false;
+						break;
+					case AnalysisRecord.STATE:
+						if (game == null) {
+							throw new IOException("State before game start");
+						}
+						out.println();
+						writeState(game, r, out);
+						afterState = true;
+						break;
+					default:
+						if (!afterState) {
+							out.println();
+						}
+						writeDecision(r, out);
+						afterState = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Renders the passed-in analysis file as a CSV report.
+	 *
+	 * @param inFn The analysis file name.
+	 * @param outFn The report file name.
+	 * @throws IOException If an I/O error occurs or the analysis file is
+	 * invalid.
+	 */
+	public static void toCsv(String inFn, String outFn) throws IOException
+	{
+		try (DataInputStream in = openAnalysis(inFn);
+				PrintWriter out = new PrintWriter(new BufferedWriter(
+						new FileWriter(outFn)))) {
+			for (int i = 0; i < NeuralNet.INPUT_LENGTH; i++) {
+				out.print(i + ",");
+			}
+			out.println("Evaluation");
+			for (AnalysisRecord r = readRecord(in); r != null;
+					r = readRecord(in)) {
+				if (r.getType() == AnalysisRecord.STATE) {
+					for (double v: r.getState()) {
+						out.print(v + ",");
+					}
+					out.println(r.getEvaluation());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Opens an analysis file and checks its header.
+	 *
+	 * @param fn The analysis file name.
+	 * @return The input to read records from.
+	 * @throws IOException If an I/O error occurs or the file is not an
+	 * analysis file.
+	 */
+	private static DataInputStream openAnalysis(String fn) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fn), 1 << 16));
+		if (in.readInt() != AnalysisWriter.MAGIC) {
+			in.close();
+			throw new IOException("Not an analysis file: " + fn);
+		}
+		return in;
+	}
+	
+	/**
+	 * Reads the next record, or returns {@code null} at the end of the file.
+	 *
+	 * @param in The input to read from.
+	 * @return The next record, or {@code null} at the end of the file.
+	 * @throws IOException If an I/O error occurs or the record is invalid.
+	 */
+	private static AnalysisRecord readRecord(DataInputStream in)
+			throws IOException
+	{
+		in.mark(1);
+		if (in.read() < 0) {
+			return null;
+		}
+		in.reset();
+		return AnalysisRecord.read(in);
+	}
+	
+	/**
+	 * Writes the description of an evaluated state to a text report.
+	 *
+	 * @param game The record for the start of the game.
+	 * @param r The state record.
+	 * @param out The text report to write to.
+	 */
+	private static void writeState(AnalysisRecord game, AnalysisRecord r,
+			PrintWriter out)
+	{
+		double[] state = r.getState();
+		String[] names = game.getNames();
+		Player[] players = new Player[names.length];
+		String currentTurn = "null", nextTurn = "(none)";
+		int oppNum = 0;
+		for (int i = 0; i < players.length; i++) {
+			// Find the player's values in the state vector
+			int offset = 4;
+			if (i + 1 != game.getPlayerNum()) {
+				oppNum++;
+				offset += 10 * oppNum - 1;
+			}
+			if (state[offset] > 0) {
+				currentTurn = names[i];
+			} else if (state[offset + 1] > 0) {
+				nextTurn = names[i];
+			}
+			int whammies = 0;
+			for (int j = 0; j < 4; j++) {
+				if (state[offset + 2 + j] > 0) {
+					whammies++;
+				}
+			}
+			players[i] = new HeuristicPlayer();
+			players[i].setName(names[i]);
+			players[i].setWhammies(whammies);
+			players[i].setScore((long)state[offset + 6]);
+			players[i].setEarnedSpins((int)state[offset + 7]);
+			players[i].setPassedSpins((int)state[offset + 8]);
+		}
+		out.println("Current state: Round " + (int)(state[1] + 1) +
+				", double " + (state[2] > 0 ? "" : "not") +
+				" in play, current turn: " + currentTurn + ", next turn: " +
+				nextTurn);
+		out.print(Game.formatScoreboard(players));
+		out.println("Evaluation of current state: " + r.getEvaluation());
+	}
+	
+	/**
+	 * Writes the description of a decision to a text report.
+	 *
+	 * @param r The decision record.
+	 * @param out The text report to write to.
+	 */
+	private static void writeDecision(AnalysisRecord r, PrintWriter out)
+	{
+		String[] labels = r.getLabels();
+		double[] evaluations = r.getEvaluations();
+		out.println("=== " + DECISION_HEADINGS[r.getKind()] +
+				" Evaluation ===");
+		for (int i = 0; i < evaluations.length && i < labels.length; i++) {
+			out.println(labels[i] + " evaluation: " + evaluations[i]);
+		}
+		if (r.getChoice() != r.getRecommended() && r.getChoice() >= 0 &&
+				r.getChoice() < labels.length) {
+			out.println("Chosen instead of the recommendation: " +
+					labels[r.getChoice()]);
+		}
+	}
+}
\ No newline at end of file
@@ -30,7 +30,7 @@ public class AnalysisManualPlayer extends AnalysisNeuralNetPlayer
 	@Override
 	public boolean pressOrPass()
 	{
-		super.pressOrPass();
+		int recommended = this.analyzePressOrPass() ? 0 : 1;
 		while (true) {
 			String ipt = InputUtil.getLine(
 					"Would you like to press your luck (p) or pass (s)? ")
@@ -38,9 +38,13 @@ public class AnalysisManualPlayer extends AnalysisNeuralNetPlayer
 			if (!ipt.isEmpty()) {
 				char ic = ipt.charAt(0);
 				if (ic == 'p') {
+					this.recordDecision(AnalysisRecord.PRESS_OR_PASS,
+							PRESS_OR_PASS_LABELS, recommended, 0);
 					return true;
 				}
 				if (ic == 's') {
+					this.recordDecision(AnalysisRecord.PRESS_OR_PASS,
+							PRESS_OR_PASS_LABELS, recommended, 1);
 					return false;
 				}
 			}
@@ -50,15 +54,18 @@ public class AnalysisManualPlayer extends AnalysisNeuralNetPlayer
 	@Override
 	public Space chooseMoveTarget(List<Space> moveTargets)
 	{
-		super.chooseMoveTarget(moveTargets);
-		return (Space)InputUtil.getOption("Choose a space to move to.",
+		Space recommended = this.analyzeMoveTarget(moveTargets);
+		Space ret = (Space)InputUtil.getOption("Choose a space to move to.",
 				moveTargets.toArray());
+		this.recordDecision(AnalysisRecord.MOVE_TARGET, moveTargets,
+				moveTargets.indexOf(recommended), moveTargets.indexOf(ret));
+		return ret;
 	}
 	
 	@Override
 	public boolean moneyOrLoseWhammy(int amount)
 	{
-		super.moneyOrLoseWhammy(amount);
+		int recommended = this.analyzeMoneyOrLoseWhammy(amount) ? 0 : 1;
 		while (true) {
 			String ipt = InputUtil.getLine(
 					"Would you like to take the money (m) or lose one Whammy (l)? ")
@@ -66,9 +73,13 @@ public class AnalysisManualPlayer extends AnalysisNeuralNetPlayer
 			if (!ipt.isEmpty()) {
 				char ic = ipt.charAt(0);
 				if (ic == 'm') {
+					this.recordDecision(AnalysisRecord.MONEY_OR_LOSE_WHAMMY,
+							MONEY_OR_LOSE_WHAMMY_LABELS, recommended, 0);
 					return true;
 				}
 				if (ic == 'l') {
+					this.recordDecision(AnalysisRecord.MONEY_OR_LOSE_WHAMMY,
+							MONEY_OR_LOSE_WHAMMY_LABELS, recommended, 1);
 					return false;
 				}
 			}
@@ -78,8 +89,11 @@ public class AnalysisManualPlayer extends AnalysisNeuralNetPlayer
 	@Override
 	public Player choosePassTarget(List<Player> targets)
 	{
-		super.choosePassTarget(targets);
-		return (Player)InputUtil.getOption("Choose a player to pass to.",
+		Player recommended = this.analyzePassTarget(targets);
+		Player ret = (Player)InputUtil.getOption("Choose a player to pass to.",
 				targets.toArray());
+		this.recordDecision(AnalysisRecord.PASS_TARGET, targets,
+				targets.indexOf(recommended), targets.indexOf(ret));
+		return ret;
 	}
 }
\ No newline at end of file
@@ -6,27 +6,45 @@ import game.Space;
 import ml.NeuralNet;
 import ml.NeuralNetPlayer;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.IntStream;
 
 /**
  * Class representing a neural-network-controlled Press Your Luck player that
  * records its analysis of each situation.
+ * <p>
+ * Analyses are written as binary records by a background {@link AnalysisWriter}
+ * and can be rendered as text or CSV reports by {@link AnalysisConverter}.
  *
  * @author Archer Murray
  */
 public class AnalysisNeuralNetPlayer extends NeuralNetPlayer
 {
-	private PrintWriter txtOut = null, csvOut = null;
+	/**
+	 * The extension added to the file name of analysis files.
+	 */
+	public static final String EXTENSION = ".analysis";
+	
+	/**
+	 * The labels of the options of a press or pass decision.
+	 */
+	protected static final List<String> PRESS_OR_PASS_LABELS = List.of(
+			"Press", "Pass");
+	/**
+	 * The labels of the options of a money or lose-a-Whammy decision.
+	 */
+	protected static final List<String> MONEY_OR_LOSE_WHAMMY_LABELS = List.of(
+			"Money", "Lose Whammy");
+	
+	private AnalysisWriter out = null;
 	private final double[] lastState;
+	private Game lastGame;
 	
 	/**
 	 * Creates a new analysis neural network player based on the passed-in
-	 * neural network and that writes its analyses to the passed-in file name.
+	 * neural network and that writes its analyses to the passed-in file name,
+	 * with {@link #EXTENSION} added.
 	 *
 	 * @param nn The neural network to use for analysis.
 	 * @param fn The file name to write analyses to.
@@ -35,17 +53,9 @@ public class AnalysisNeuralNetPlayer extends NeuralNetPlayer
 	{
 		super(nn);
 		this.lastState = new double[NeuralNet.INPUT_LENGTH];
+		this.lastGame = null;
 		try {
-			this.txtOut = new PrintWriter(new BufferedWriter(new FileWriter(
-					fn + ".txt")));
-			this.txtOut.println("*".repeat(40) +
-					"\nGame Analysis\n" + "*".repeat(40));
-			this.csvOut = new PrintWriter(new BufferedWriter(new FileWriter(
-					fn + ".csv")));
-			for (int i = 0; i < NeuralNet.INPUT_LENGTH; i++) {
-				this.csvOut.print(i + ",");
-			}
-			this.csvOut.println("Evaluation");
+			this.out = new AnalysisWriter(fn + EXTENSION);
 		} catch (IOException e) {
 			System.out.println("Error writing to file: " + e);
 			System.exit(1);
@@ -53,101 +63,158 @@ public class AnalysisNeuralNetPlayer extends NeuralNetPlayer
 	}
 	
 	/**
-	 * Closes the analysis file writers. This method should be run at the end of
-	 * the game to ensure analyses have been written properly.
+	 * Closes the analysis file writer. This method should be run after the
+	 * last game to ensure analyses have been written properly.
 	 */
 	public void close()
 	{
-		this.txtOut.close();
-		this.csvOut.close();
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			System.out.println("Error writing to file: " + e);
+			System.exit(1);
+		}
 	}
 	
 	@Override
 	public boolean pressOrPass()
 	{
-		// Evaluate current state
-		this.learn();
-		// Make decision
-		boolean ret = super.pressOrPass();
-		List<Double> analysis = super.getLastAnalysis();
-		this.txtOut.println("=== Press or Pass Evaluation ===");
-		this.txtOut.println("Press evaluation: " + analysis.get(0));
-		this.txtOut.println("Pass evaluation: " + analysis.get(1));
+		boolean ret = this.analyzePressOrPass();
+		this.recordDecision(AnalysisRecord.PRESS_OR_PASS, PRESS_OR_PASS_LABELS,
+				ret ? 0 : 1, ret ? 0 : 1);
 		return ret;
 	}
 	
 	@Override
 	public Space chooseMoveTarget(List<Space> moveTargets)
 	{
-		// Evaluate current state
-		this.learn();
-		// Make decision
-		Space ret = super.chooseMoveTarget(moveTargets);
-		List<Double> analysis = super.getLastAnalysis();
-		this.txtOut.println("=== Move Target Evaluation ===");
-		for (int i = 0; i < moveTargets.size(); i++) {
-			this.txtOut.println(moveTargets.get(i) + " evaluation: " +
-					analysis.get(i));
-		}
+		Space ret = this.analyzeMoveTarget(moveTargets);
+		int idx = moveTargets.indexOf(ret);
+		this.recordDecision(AnalysisRecord.MOVE_TARGET, moveTargets, idx, idx);
 		return ret;
 	}
 	
 	@Override
 	public boolean moneyOrLoseWhammy(int amount)
 	{
-		// Evaluate current state
-		this.learn();
-		// Make decision
-		boolean ret = super.moneyOrLoseWhammy(amount);
-		List<Double> analysis = super.getLastAnalysis();
-		this.txtOut.println("=== Money or Lose Whammy Evaluation ===");
-		this.txtOut.println("Money evaluation: " + analysis.get(0));
-		this.txtOut.println("Lose Whammy evaluation: " + analysis.get(1));
+		boolean ret = this.analyzeMoneyOrLoseWhammy(amount);
+		this.recordDecision(AnalysisRecord.MONEY_OR_LOSE_WHAMMY,
+				MONEY_OR_LOSE_WHAMMY_LABELS, ret ? 0 : 1, ret ? 0 : 1);
 		return ret;
 	}
 	
 	@Override
 	public Player choosePassTarget(List<Player> targets)
 	{
-		// Evaluate current state
-		this.learn();
-		// Make decision
-		Player ret = super.choosePassTarget(targets);
-		List<Double> analysis = super.getLastAnalysis();
-		this.txtOut.println("=== Pass Target Evaluation ===");
-		for (int i = 0; i < targets.size(); i++) {
-			this.txtOut.println(targets.get(i) + " evaluation: " +
-					analysis.get(i));
-		}
+		Player ret = this.analyzePassTarget(targets);
+		int idx = targets.indexOf(ret);
+		this.recordDecision(AnalysisRecord.PASS_TARGET, targets, idx, idx);
 		return ret;
 	}
 	
 	/**
-	 * Evaluates the current state and records the evaluation.
+	 * Evaluates the current state and the options of a press or pass decision.
+	 * The decision itself should then be recorded with
+	 * {@link #recordDecision(int, List, int, int)}, with option 0 to press and
+	 * option 1 to pass.
+	 *
+	 * @return {@code true} if the neural network recommends pressing, or
+	 * {@code false} if it recommends passing.
+	 */
+	protected boolean analyzePressOrPass()
+	{
+		this.learn();
+		return super.pressOrPass();
+	}
+	
+	/**
+	 * Evaluates the current state and each move target. The decision itself
+	 * should then be recorded with
+	 * {@link #recordDecision(int, List, int, int)}.
+	 *
+	 * @param moveTargets The move targets.
+	 * @return The move target the neural network recommends.
+	 */
+	protected Space analyzeMoveTarget(List<Space> moveTargets)
+	{
+		this.learn();
+		return super.chooseMoveTarget(moveTargets);
+	}
+	
+	/**
+	 * Evaluates the current state and the options of a money or lose-a-Whammy
+	 * decision. The decision itself should then be recorded with
+	 * {@link #recordDecision(int, List, int, int)}, with option 0 to take the
+	 * money and option 1 to lose a Whammy.
+	 *
+	 * @param amount The amount of money on offer.
+	 * @return {@code true} if the neural network recommends taking the money,
+	 * or {@code false} if it recommends losing a Whammy.
+	 */
+	protected boolean analyzeMoneyOrLoseWhammy(int amount)
+	{
+		this.learn();
+		return super.moneyOrLoseWhammy(amount);
+	}
+	
+	/**
+	 * Evaluates the current state and each pass target, sorting the targets
+	 * into the order of the evaluations. The decision itself should then be
+	 * recorded with {@link #recordDecision(int, List, int, int)}.
+	 *
+	 * @param targets The pass targets.
+	 * @return The pass target the neural network recommends.
+	 */
+	protected Player analyzePassTarget(List<Player> targets)
+	{
+		this.learn();
+		return super.choosePassTarget(targets);
+	}
+	
+	/**
+	 * Records a decision, with the candidates' evaluations from the last
+	 * analysis.
+	 *
+	 * @param kind The decision kind, as defined in {@link AnalysisRecord}.
+	 * @param candidates The candidates, in the order they were evaluated.
+	 * @param recommended The index of the candidate the neural network
+	 * recommends.
+	 * @param choice The index of the candidate chosen.
+	 */
+	protected void recordDecision(int kind, List<?> candidates,
+			int recommended, int choice)
+	{
+		String[] labels = candidates.stream().map(String::valueOf)
+				.toArray(String[]::new);
+		double[] evaluations = this.getLastAnalysis().stream()
+				.mapToDouble(Double::doubleValue).toArray();
+		this.out.write(AnalysisRecord.decision(kind, labels, evaluations,
+				recommended, choice));
+	}
+	
+	/**
+	 * Evaluates the current state and records the evaluation, unless it is the
+	 * same as the last state evaluated.
 	 */
 	@Override
 	public void learn()
 	{
-		this.txtOut.println();
 		Game g = this.getGame();
+		if (g != this.lastGame) {
+			// New game
+			this.lastGame = g;
+			Arrays.fill(this.lastState, 0);
+			this.out.write(AnalysisRecord.game(this.getPlayerNum(),
+					Arrays.stream(g.getPlayers()).map(Player::getName)
+							.toArray(String[]::new)));
+		}
 		double[] state = g.getNeuralNetInput(this.getPlayerNum());
-		if (IntStream.range(0, NeuralNet.INPUT_LENGTH)
-				.noneMatch(i -> state[i] != this.lastState[i])) {
+		if (Arrays.equals(state, this.lastState)) {
 			// State is the same as last state evaluated
 			return;
 		}
 		System.arraycopy(state, 0, this.lastState, 0, NeuralNet.INPUT_LENGTH);
-		double eval = this.getNeuralNet().evaluate(state);
-		this.txtOut.println("Current state: Round " + (int)(state[1] + 1) +
-				", double " + (state[2] > 0 ? "" : "not") +
-				" in play, current turn: " + g.getCurrentTurn() +
-				", next turn: " + (g.getNextTurn() == null ? "(none)" :
-				g.getNextTurn()));
-		this.txtOut.print(g);
-		this.txtOut.println("Evaluation of current state: " + eval);
-		for (int i = 0; i < NeuralNet.INPUT_LENGTH; i++) {
-			this.csvOut.print(state[i] + ",");
-		}
-		this.csvOut.println(eval);
+		double eval = this.evaluate(state);
+		this.out.write(AnalysisRecord.state(state, eval));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,364 @@
+package study;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Class representing one record of a binary analysis file, as written by an
+ * {@link AnalysisWriter} and rendered by {@link AnalysisConverter}.
+ * <p>
+ * A game record starts each game and gives the analyzing player's number and
+ * the names of the players in seat order. A state record holds a neural
+ * network input vector, as seen by the analyzing player, and its evaluation. A
+ * decision record holds the kind of decision, the label and evaluation of each
+ * candidate, the candidate the neural network recommends, and the candidate
+ * chosen.
+ *
+ * @author Archer Murray
+ */
+public class AnalysisRecord
+{
+	/**
+	 * The record type for the start of a game.
+	 */
+	public static final int GAME = 0;
+	/**
+	 * The record type for an evaluated state.
+	 */
+	public static final int STATE = 1;
+	/**
+	 * The record type for a decision.
+	 */
+	public static final int DECISION = 2;
+	
+	/**
+	 * The decision kind for pressing or passing.
+	 */
+	public static final int PRESS_OR_PASS = 0;
+	/**
+	 * The decision kind for choosing a move target.
+	 */
+	public static final int MOVE_TARGET = 1;
+	/**
+	 * The decision kind for taking money or losing a Whammy.
+	 */
+	public static final int MONEY_OR_LOSE_WHAMMY = 2;
+	/**
+	 * The decision kind for choosing a pass target.
+	 */
+	public static final int PASS_TARGET = 3;
+	
+	private final int type;
+	private final int playerNum;
+	private final String[] names;
+	private final double[] state;
+	private final double evaluation;
+	private final int kind;
+	private final String[] labels;
+	private final double[] evaluations;
+	private final int recommended, choice;
+	
+	/**
+	 * Creates a new record. Fields not used by the record type are ignored.
+	 *
+	 * @param type The record type.
+	 * @param playerNum The analyzing player's number, for game records.
+	 * @param names The names of the players in seat order, for game records.
+	 * @param state The neural network input vector, for state records.
+	 * @param evaluation The evaluation of the state, for state records.
+	 * @param kind The decision kind, for decision records.
+	 * @param labels The label of each candidate, for decision records.
+	 * @param evaluations The evaluation of each candidate, for decision
+	 * records. There may be fewer evaluations than candidates.
+	 * @param recommended The index of the candidate the neural network
+	 * recommends, for decision records.
+	 * @param choice The index of the candidate chosen, for decision records.
+	 */
+	private AnalysisRecord(int type, int playerNum, String[] names,
+			double[] state, double evaluation, int kind, String[] labels,
+			double[] evaluations, int recommended, int choice)
+	{
+		this.type = type;
+		this.playerNum = playerNum;
+		this.names = names;
+		this.state = state;
+		this.evaluation = evaluation;
+		this.kind = kind;
+		this.labels = labels;
+		this.evaluations = evaluations;
+		this.recommended = recommended;
+		this.choice = choice;
+	}
+	
+	/**
+	 * Creates a record for the start of a game.
+	 *
+	 * @param playerNum The analyzing player's number.
+	 * @param names The names of the players in seat order.
+	 * @return The record.
+	 */
+	public static AnalysisRecord game(int playerNum, String[] names)
+	{
+		return new AnalysisRecord(GAME, playerNum, names, null, 0, 0, null,
+				null, 0, 0);
+	}
+	
+	/**
+	 * Creates a record for an evaluated state.
+	 *
+	 * @param state The neural network input vector.
+	 * @param evaluation The evaluation of the state.
+	 * @return The record.
+	 */
+	public static AnalysisRecord state(double[] state, double evaluation)
+	{
+		return new AnalysisRecord(STATE, 0, null, state, evaluation, 0, null,
+				null, 0, 0);
+	}
+	
+	/**
+	 * Creates a record for a decision.
+	 *
+	 * @param kind The decision kind.
+	 * @param labels The label of each candidate.
+	 * @param evaluations The evaluation of each candidate. There may be fewer
+	 * evaluations than candidates.
+	 * @param recommended The index of the candidate the neural network
+	 * recommends.
+	 * @param choice The index of the candidate chosen.
+	 * @return The record.
+	 */
+	public static AnalysisRecord decision(int kind, String[] labels,
+			double[] evaluations, int recommended, int choice)
+	{
+		return new AnalysisRecord(DECISION, 0, null, null, 0, kind, labels,
+				evaluations, recommended, choice);
+	}
+	
+	/**
+	 * Reads a record from the passed-in binary input, as written by
+	 * {@link #write(DataOutput)}.
+	 *
+	 * @param in The input to read the record from.
+	 * @return The record.
+	 * @throws IOException If an I/O error occurs or the record is invalid.
+	 */
+	public static AnalysisRecord read(DataInput in) throws IOException
+	{
+		int type = in.readUnsignedByte();
+		switch (type) {
+			case GAME:
+				int playerNum = in.readUnsignedByte();
+				return game(playerNum, readStrings(in));
+			case STATE:
+				double[] state = readDoubles(in);
+				return state(state, in.readDouble());
+			case DECISION:
+				int kind = in.readUnsignedByte();
+				if (kind > PASS_TARGET) {
+					throw new IOException("Invalid decision kind: " + kind);
+				}
+				String[] labels = readStrings(in);
+				double[] evaluations = readDoubles(in);
+				int recommended = in.readByte();
+				return decision(kind, labels, evaluations, recommended,
+						in.readByte());
+			default:
+				throw new IOException("Invalid analysis record type: " + type);
+		}
+	}
+	
+	/**
+	 * Writes this record to the passed-in binary output.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeByte(this.type);
+		switch (this.type) {
+			case GAME:
+				out.writeByte(this.playerNum);
+				writeStrings(this.names, out);
+				break;
+			case STATE:
+				writeDoubles(this.state, out);
+				out.writeDouble(this.evaluation);
+				break;
+			default:
+				out.writeByte(this.kind);
+				writeStrings(this.labels, out);
+				writeDoubles(this.evaluations, out);
+				out.writeByte(this.recommended);
+				out.writeByte(this.choice);
+		}
+	}
+	
+	/**
+	 * Reads a length-prefixed array of strings.
+	 *
+	 * @param in The input to read from.
+	 * @return The strings.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static String[] readStrings(DataInput in) throws IOException
+	{
+		String[] ret = new String[in.readUnsignedByte()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = in.readUTF();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Writes a length-prefixed array of strings.
+	 *
+	 * @param strings The strings, of which there must be at most 255.
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeStrings(String[] strings, DataOutput out)
+			throws IOException
+	{
+		out.writeByte(strings.length);
+		for (String s: strings) {
+			out.writeUTF(s);
+		}
+	}
+	
+	/**
+	 * Reads a length-prefixed array of {@code double}s.
+	 *
+	 * @param in The input to read from.
+	 * @return The values.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static double[] readDoubles(DataInput in) throws IOException
+	{
+		double[] ret = new double[in.readUnsignedByte()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = in.readDouble();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Writes a length-prefixed array of {@code double}s.
+	 *
+	 * @param values The values, of which there must be at most 255.
+	 * @param out The output to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeDoubles(double[] values, DataOutput out)
+			throws IOException
+	{
+		out.writeByte(values.length);
+		for (double v: values) {
+			out.writeDouble(v);
+		}
+	}
+	
+	/**
+	 * Returns the type of this record.
+	 *
+	 * @return The type of this record.
+	 */
+	public int getType()
+	{
+		return this.type;
+	}
+	
+	/**
+	 * Returns the analyzing player's number, for game records.
+	 *
+	 * @return The analyzing player's number.
+	 */
+	public int getPlayerNum()
+	{
+		return this.playerNum;
+	}
+	
+	/**
+	 * Returns the names of the players in seat order, for game records.
+	 *
+	 * @return The names of the players.
+	 */
+	public String[] getNames()
+	{
+		return this.names;
+	}
+	
+	/**
+	 * Returns the neural network input vector, for state records.
+	 *
+	 * @return The neural network input vector.
+	 */
+	public double[] getState()
+	{
+		return this.state;
+	}
+	
+	/**
+	 * Returns the evaluation of the state, for state records.
+	 *
+	 * @return The evaluation of the state.
+	 */
+	public double getEvaluation()
+	{
+		return this.evaluation;
+	}
+	
+	/**
+	 * Returns the decision kind, for decision records.
+	 *
+	 * @return The decision kind.
+	 */
+	public int getKind()
+	{
+		return this.kind;
+	}
+	
+	/**
+	 * Returns the label of each candidate, for decision records.
+	 *
+	 * @return The label of each candidate.
+	 */
+	public String[] getLabels()
+	{
+		return this.labels;
+	}
+	
+	/**
+	 * Returns the evaluation of each candidate, for decision records. There may
+	 * be fewer evaluations than candidates.
+	 *
+	 * @return The evaluation of each candidate.
+	 */
+	public double[] getEvaluations()
+	{
+		return this.evaluations;
+	}
+	
+	/**
+	 * Returns the index of the candidate the neural network recommends, for
+	 * decision records.
+	 *
+	 * @return The index of the recommended candidate.
+	 */
+	public int getRecommended()
+	{
+		return this.recommended;
+	}
+	
+	/**
+	 * Returns the index of the candidate chosen, for decision records.
+	 *
+	 * @return The index of the chosen candidate.
+	 */
+	public int getChoice()
+	{
+		return this.choice;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package study;
+
+import java.io.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Class that writes analysis records to a binary analysis file on a background
+ * thread, so that recording an analysis does not slow down the game.
+ * <p>
+ * Records are passed to the background thread through a bounded queue. If the
+ * queue is full, {@link #write(AnalysisRecord)} waits for the background
+ * thread to catch up.
+ *
+ * @author Archer Murray
+ */
+public class AnalysisWriter
+{
+	/**
+	 * The magic number at the start of every analysis file ("PYLA").
+	 */
+	public static final int MAGIC = 0x50594C41;
+	/**
+	 * The maximum number of records waiting to be written.
+	 */
+	public static final int QUEUE_CAPACITY = 4096;
+	
+	/**
+	 * The record marking the end of the queue.
+	 */
+	private static final AnalysisRecord END = AnalysisRecord.state(
+			new double[0], 0);
+	
+	private final DataOutputStream out;
+	private final BlockingQueue<AnalysisRecord> queue;
+	private final Thread writer;
+	private volatile IOException error;
+	
+	/**
+	 * Creates a new analysis writer that writes to the passed-in file name, and
+	 * starts its background thread.
+	 *
+	 * @param fn The file name to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public AnalysisWriter(String fn) throws IOException
+	{
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fn), 1 << 16));
+		this.out.writeInt(MAGIC);
+		this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		this.error = null;
+		this.writer = new Thread(this::writeLoop, "analysis-writer");
+		this.writer.start();
+	}
+	
+	/**
+	 * Queues a record to be written, waiting if the queue is full.
+	 *
+	 * @param record The record to write.
+	 */
+	public void write(AnalysisRecord record)
+	{
+		while (true) {
+			try {
+				this.queue.put(record);
+				return;
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+	}
+	
+	/**
+	 * Writes the queued records, then stops the background thread and closes
+	 * the file.
+	 *
+	 * @throws IOException If an I/O error occurred while writing.
+	 */
+	public void close() throws IOException
+	{
+		this.write(END);
+		while (this.writer.isAlive()) {
+			try {
+				this.writer.join();
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+		}
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+	
+	/**
+	 * Writes records from the queue until the end of the queue is reached, then
+	 * closes the file. After an I/O error, the remaining records are discarded.
+	 */
+	private void writeLoop()
+	{
+		while (true) {
+			AnalysisRecord record;
+			try {
+				record = this.queue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (record == END) {
+				break;
+			}
+			if (this.error == null) {
+				try {
+					record.write(this.out);
+				} catch (IOException e) {
+					this.error = e;
+				}
+			}
+		}
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			if (this.error == null) {
+				this.error = e;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package study;
+
+import game.Board;
+import game.Game;
+import metrics.ProgressReporter;
+import ml.NeuralNet;
+
+/**
+ * Main class to record the analyses of a neural network playing itself over
+ * many games, without interaction.
+ * <p>
+ * Each of the three players writes its analyses to
+ * "[prefix]_[player].analysis", which can be rendered with
+ * {@link AnalysisConverter}.
+ * <p>
+ * Usage: {@code BatchAnalysis <network file> <report prefix> <games>}
+ *
+ * @author Archer Murray
+ */
+public final class BatchAnalysis
+{
+	/**
+	 * The boards to use in the games.
+	 */
+	public static final Board[] BOARDS = {
+			new Board("board1.txt"), new Board("board2.txt")
+	};
+	
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private BatchAnalysis()
+	{
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length != 3) {
+			System.out.println("Usage: BatchAnalysis <network file> " +
+					"<report prefix> <games>");
+			System.exit(1);
+		}
+		NeuralNet nn = NeuralNet.load(args[0]);
+		int numGames = 0;
+		try {
+			numGames = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid number of games: " + args[2]);
+			System.exit(1);
+		}
+		AnalysisNeuralNetPlayer[] players = new AnalysisNeuralNetPlayer[3];
+		for (int i = 0; i < 3; i++) {
+			players[i] = new AnalysisNeuralNetPlayer(nn, args[1] + '_' +
+					(i + 1));
+			players[i].setName("AI " + (i + 1));
+		}
+		ProgressReporter progress = new ProgressReporter("Games completed",
+				"games", numGames, 0, true);
+		long start = System.nanoTime();
+		for (int i = 0; i < numGames; i++) {
+			// Put back any Double removed by the last game
+			for (Board b: BOARDS) {
+				b.restoreDoubles();
+			}
+			new Game(players, BOARDS).play(false);
+			progress.increment();
+		}
+		progress.close();
+		// Close analysis file writers
+		for (AnalysisNeuralNetPlayer p: players) {
+			p.close();
+		}
+		System.out.printf("Analyzed %,d games in %.1f s\n", numGames,
+				(System.nanoTime() - start) / 1e9);
+	}
+}
\ No newline at end of file
@@ -5,6 +5,8 @@ import game.Game;
 import game.InputUtil;
 import ml.NeuralNet;
 
+import java.io.IOException;
+
 /**
  * Main class to run the study.
  *
@@ -23,7 +25,7 @@ public final class Main
 	{
 		// Get filenames
 		String net_fn = InputUtil.getLine("Enter filename for network: ");
-		NeuralNet nn = new NeuralNet(net_fn);
+		NeuralNet nn = NeuralNet.load(net_fn);
 		String rep_fn = InputUtil.getLine("Enter filename for reports: ");
 		AnalysisNeuralNetPlayer[] players = new AnalysisNeuralNetPlayer[3];
 		int numHuman = 0, numAI = 0;
@@ -53,9 +55,21 @@ public final class Main
 		}
 		// Play the game
 		new Game(players, BOARDS).play(true);
-		// Close analysis file writers
+		// Close analysis file writers and render the reports
 		for (AnalysisNeuralNetPlayer p: players) {
 			p.close();
 		}
+		for (int i = 0; i < 3; i++) {
+			String fn = rep_fn + '_' + (i + 1);
+			try {
+				AnalysisConverter.toText(fn + AnalysisNeuralNetPlayer.EXTENSION,
+						fn + ".txt");
+				AnalysisConverter.toCsv(fn + AnalysisNeuralNetPlayer.EXTENSION,
+						fn + ".csv");
+			} catch (IOException e) {
+				System.out.println("Error writing to file: " + e);
+				System.exit(1);
+			}
+		}
 	}
 }
\ No newline at end of file